@@ -43,6 +43,17 @@ public abstract class AbstractBytes implements Bytes {
       return false;
     }
 
+    if (other instanceof ArrayWrappingBytes) {
+      // avoid the bounds checks of the other value's get(i)
+      ArrayWrappingBytes o = (ArrayWrappingBytes) other;
+      for (int i = 0; i < o.length; i++) {
+        if (this.get(i) != o.bytes[o.offset + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     for (int i = 0; i < size(); i++) {
       if (this.get(i) != other.get(i)) {
         return false;
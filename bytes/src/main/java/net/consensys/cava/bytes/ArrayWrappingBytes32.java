@@ -14,8 +14,18 @@ package net.consensys.cava.bytes;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+/**
+ * An array-backed {@link Bytes32}.
+ *
+ * <p>
+ * As these values are commonly used as map keys, the hash code is computed once and cached. The cached hash assumes
+ * that the wrapped array is not modified once the value has been hashed.
+ */
 final class ArrayWrappingBytes32 extends ArrayWrappingBytes implements Bytes32 {
 
+  // the cached hash code, or 0 if it has not yet been computed
+  private int hash;
+
   ArrayWrappingBytes32(byte[] bytes) {
     this(checkLength(bytes), 0);
   }
@@ -53,4 +63,26 @@ final class ArrayWrappingBytes32 extends ArrayWrappingBytes implements Bytes32 {
   public MutableBytes32 mutableCopy() {
     return new MutableArrayWrappingBytes32(toArray());
   }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof ArrayWrappingBytes32)) {
+      return super.equals(obj);
+    }
+    ArrayWrappingBytes32 other = (ArrayWrappingBytes32) obj;
+    return arrayEquals(bytes, offset, other.bytes, other.offset, SIZE);
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = super.hashCode();
+      hash = h;
+    }
+    return h;
+  }
 }
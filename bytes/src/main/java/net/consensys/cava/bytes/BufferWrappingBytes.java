@@ -15,6 +15,8 @@ package net.consensys.cava.bytes;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkElementIndex;
 
+import java.nio.ByteBuffer;
+
 import io.vertx.core.buffer.Buffer;
 
 class BufferWrappingBytes extends AbstractBytes {
@@ -102,6 +104,15 @@ class BufferWrappingBytes extends AbstractBytes {
     buffer.appendBuffer(this.buffer);
   }
 
+  @Override
+  public ByteBuffer[] asByteBuffers() {
+    ByteBuffer[] buffers = buffer.getByteBuf().nioBuffers(0, buffer.length());
+    for (int i = 0; i < buffers.length; ++i) {
+      buffers[i] = buffers[i].asReadOnlyBuffer();
+    }
+    return buffers;
+  }
+
   @Override
   public byte[] toArray() {
     return buffer.getBytes();
@@ -15,6 +15,8 @@ package net.consensys.cava.bytes;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkElementIndex;
 
+import java.nio.ByteBuffer;
+
 import io.netty.buffer.ByteBuf;
 import io.vertx.core.buffer.Buffer;
 
@@ -103,6 +105,15 @@ class ByteBufWrappingBytes extends AbstractBytes {
     buffer.appendBuffer(Buffer.buffer(this.byteBuf));
   }
 
+  @Override
+  public ByteBuffer[] asByteBuffers() {
+    ByteBuffer[] buffers = byteBuf.nioBuffers(0, byteBuf.capacity());
+    for (int i = 0; i < buffers.length; ++i) {
+      buffers[i] = buffers[i].asReadOnlyBuffer();
+    }
+    return buffers;
+  }
+
   @Override
   public byte[] toArray() {
     int size = byteBuf.capacity();
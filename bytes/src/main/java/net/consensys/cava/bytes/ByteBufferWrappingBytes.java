@@ -103,7 +103,20 @@ class ByteBufferWrappingBytes extends AbstractBytes {
 
   @Override
   public void appendTo(ByteBuffer byteBuffer) {
-    byteBuffer.put(this.byteBuffer);
+    byteBuffer.put(view());
+  }
+
+  @Override
+  public ByteBuffer[] asByteBuffers() {
+    return new ByteBuffer[] {view().asReadOnlyBuffer()};
+  }
+
+  // a view of the wrapped bytes that does not share the position and limit of the wrapped buffer
+  private ByteBuffer view() {
+    ByteBuffer view = byteBuffer.duplicate();
+    view.limit(offset + length);
+    view.position(offset);
+    return view.slice();
   }
 
   @Override
@@ -1420,6 +1420,21 @@ public interface Bytes {
     return toArray();
   }
 
+  /**
+   * Provides the content of this value as a sequence of read-only {@link ByteBuffer} segments.
+   *
+   * <p>
+   * Where possible, the returned buffers are views over the memory backing this value rather than copies, so a value
+   * built from several parts (for example, by {@link #wrap(Bytes...)}) can be written to a
+   * {@link java.nio.channels.GatheringByteChannel} without first being copied into a single array. Each buffer is
+   * positioned at the start of its segment, and the segments together contain the bytes of this value in order.
+   *
+   * @return The segments of this value, which may be views over its backing memory.
+   */
+  default ByteBuffer[] asByteBuffers() {
+    return new ByteBuffer[] {ByteBuffer.wrap(toArrayUnsafe()).asReadOnlyBuffer()};
+  }
+
   /**
    * Return the hexadecimal string representation of this value.
    *
@@ -35,6 +35,10 @@ public interface Bytes48 extends Bytes {
    * Note that value is not copied, only wrapped, and thus any future update to {@code value} will be reflected in the
    * returned value.
    *
+   * <p>
+   * The hash code of the returned value is computed once and cached, so {@code bytes} should not be modified once the
+   * value has been hashed (for example, after it has been used as a map key).
+   *
    * @param bytes The bytes to wrap.
    * @return A {@link Bytes48} wrapping {@code value}.
    * @throws IllegalArgumentException if {@code value.length != 48}.
@@ -52,6 +56,10 @@ public interface Bytes48 extends Bytes {
    * Note that value is not copied, only wrapped, and thus any future update to {@code value} within the wrapped parts
    * will be reflected in the returned value.
    *
+   * <p>
+   * The hash code of the returned value is computed once and cached, so {@code bytes} should not be modified once the
+   * value has been hashed (for example, after it has been used as a map key).
+   *
    * @param bytes The bytes to wrap.
    * @param offset The index (inclusive) in {@code value} of the first byte exposed by the returned value. In other
    *        words, you will have {@code wrap(value, i).get(0) == value[i]}.
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.bytes;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * A pool of direct memory, from which short-lived {@link MutableBytes} values can be allocated without allocating new
+ * arrays or buffers.
+ *
+ * <p>
+ * Memory is pooled in power-of-two size classes, from {@value #MIN_SIZE_CLASS} bytes up to a configured maximum. Each
+ * allocation is served from the smallest size class that will hold it, reusing a previously released buffer when one is
+ * available. Allocations larger than the maximum size class are backed by a new direct buffer, which is discarded on
+ * release.
+ *
+ * <p>
+ * Allocated values must be released, either explicitly using {@link PooledBytes#release()}, or by allocating them from
+ * a {@link Scope} that releases all of its allocations when closed. When leak detection is enabled, values that become
+ * unreachable without having been released are reported to the leak listener, along with the stack trace of their
+ * allocation, and their memory is returned to the pool. Leak detection captures a stack trace for each allocation, so
+ * should only be enabled for debugging.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public final class BytesPool {
+
+  /**
+   * The smallest size class, in bytes.
+   */
+  public static final int MIN_SIZE_CLASS = 64;
+
+  /**
+   * The default largest size class, in bytes.
+   */
+  public static final int DEFAULT_MAX_SIZE_CLASS = 64 * 1024;
+
+  /**
+   * The default maximum number of released buffers retained in each size class.
+   */
+  public static final int DEFAULT_MAX_BUFFERS_PER_CLASS = 1024;
+
+  /**
+   * Create a pool with default settings.
+   *
+   * <p>
+   * Leak detection is enabled if the system property {@code cava.bytes.leakDetection} is set to {@code true}.
+   *
+   * @return A new pool.
+   */
+  public static BytesPool create() {
+    return create(
+        DEFAULT_MAX_SIZE_CLASS,
+        DEFAULT_MAX_BUFFERS_PER_CLASS,
+        Boolean.getBoolean("cava.bytes.leakDetection"));
+  }
+
+  /**
+   * Create a pool.
+   *
+   * @param maxSizeClass The largest size class, in bytes, which will be rounded up to a power of two.
+   * @param maxBuffersPerClass The maximum number of released buffers retained in each size class.
+   * @param leakDetection {@code true} if allocations that are not released should be detected.
+   * @return A new pool.
+   */
+  public static BytesPool create(int maxSizeClass, int maxBuffersPerClass, boolean leakDetection) {
+    checkArgument(maxSizeClass >= MIN_SIZE_CLASS, "maxSizeClass must be at least %s", MIN_SIZE_CLASS);
+    checkArgument(maxSizeClass <= (1 << 30), "maxSizeClass is too large");
+    checkArgument(maxBuffersPerClass >= 0, "maxBuffersPerClass must not be negative");
+    return new BytesPool(maxSizeClass, maxBuffersPerClass, leakDetection);
+  }
+
+  // records an allocation, so that it can be reclaimed if its PooledBytes is collected without being released
+  static final class LeakTracker extends PhantomReference<PooledBytes> {
+    final ByteBuffer buffer;
+    final int sizeClass;
+    final int size;
+    final Throwable allocationSite;
+
+    LeakTracker(PooledBytes bytes, ReferenceQueue<PooledBytes> queue, ByteBuffer buffer, int sizeClass, int size) {
+      super(bytes, queue);
+      this.buffer = buffer;
+      this.sizeClass = sizeClass;
+      this.size = size;
+      this.allocationSite = new Throwable("Pooled bytes of size " + size + " were not released");
+    }
+  }
+
+  private final int minShift;
+  private final List<ConcurrentLinkedQueue<ByteBuffer>> freeBuffers;
+  private final List<AtomicInteger> freeCounts;
+  private final int maxBuffersPerClass;
+  private final boolean leakDetection;
+  private final ReferenceQueue<PooledBytes> leakQueue = new ReferenceQueue<>();
+  private final Set<LeakTracker> trackers = ConcurrentHashMap.newKeySet();
+  private volatile Consumer<Throwable> leakListener = leak -> {};
+
+  private final AtomicLong allocations = new AtomicLong();
+  private final AtomicLong reuses = new AtomicLong();
+  private final AtomicLong releases = new AtomicLong();
+  private final AtomicLong leaks = new AtomicLong();
+  private final AtomicLong bytesInUse = new AtomicLong();
+  private final AtomicLong bytesPooled = new AtomicLong();
+
+  private BytesPool(int maxSizeClass, int maxBuffersPerClass, boolean leakDetection) {
+    this.minShift = Integer.numberOfTrailingZeros(MIN_SIZE_CLASS);
+    int maxShift = 32 - Integer.numberOfLeadingZeros(maxSizeClass - 1);
+    int classes = maxShift - minShift + 1;
+    this.freeBuffers = new ArrayList<>(classes);
+    this.freeCounts = new ArrayList<>(classes);
+    for (int i = 0; i < classes; ++i) {
+      freeBuffers.add(new ConcurrentLinkedQueue<>());
+      freeCounts.add(new AtomicInteger());
+    }
+    this.maxBuffersPerClass = maxBuffersPerClass;
+    this.leakDetection = leakDetection;
+  }
+
+  /**
+   * Allocate a value from the pool.
+   *
+   * <p>
+   * The content of the returned value is not initialized, and may contain data from a previous allocation.
+   *
+   * @param size The size of the value.
+   * @return A value backed by pooled memory, which must be released once it is no longer used.
+   */
+  public PooledBytes allocate(int size) {
+    checkArgument(size >= 0, "Invalid negative size");
+    if (leakDetection) {
+      reclaimLeaks();
+    }
+    allocations.incrementAndGet();
+    int sizeClass = sizeClass(size);
+    ByteBuffer buffer;
+    if (sizeClass >= 0) {
+      buffer = freeBuffers.get(sizeClass).poll();
+      if (buffer != null) {
+        freeCounts.get(sizeClass).decrementAndGet();
+        bytesPooled.addAndGet(-buffer.capacity());
+        reuses.incrementAndGet();
+      } else {
+        buffer = ByteBuffer.allocateDirect(1 << (sizeClass + minShift));
+      }
+    } else {
+      buffer = ByteBuffer.allocateDirect(size);
+    }
+    bytesInUse.addAndGet(size);
+
+    PooledBytes bytes = new PooledBytes(this, buffer, size, sizeClass);
+    if (leakDetection) {
+      LeakTracker tracker = new LeakTracker(bytes, leakQueue, buffer, sizeClass, size);
+      trackers.add(tracker);
+      bytes.tracker = tracker;
+    }
+    return bytes;
+  }
+
+  /**
+   * Allocate a value from the pool, initialized with a copy of existing bytes.
+   *
+   * @param bytes The bytes to copy.
+   * @return A value backed by pooled memory, which must be released once it is no longer used.
+   */
+  public PooledBytes copyOf(Bytes bytes) {
+    PooledBytes pooled = allocate(bytes.size());
+    bytes.copyTo(pooled);
+    return pooled;
+  }
+
+  /**
+   * Create a scope, which releases all the values allocated from it when closed.
+   *
+   * @return A new scope.
+   */
+  public Scope scope() {
+    return new Scope();
+  }
+
+  /**
+   * Set a listener to be notified when an allocation becomes unreachable without having been released.
+   *
+   * <p>
+   * The listener is passed an exception whose stack trace records the site of the allocation. It is only notified when
+   * the pool was created with leak detection enabled.
+   *
+   * @param listener The listener.
+   */
+  public void setLeakListener(Consumer<Throwable> listener) {
+    this.leakListener = listener;
+  }
+
+  /**
+   * Return the memory of any unreachable allocations that were not released to the pool.
+   *
+   * <p>
+   * This is done on each allocation, and only has an effect when leak detection is enabled.
+   *
+   * @return The number of leaked allocations that were found.
+   */
+  public int reclaimLeaks() {
+    int found = 0;
+    LeakTracker tracker;
+    while ((tracker = (LeakTracker) leakQueue.poll()) != null) {
+      if (trackers.remove(tracker)) {
+        found++;
+        leaks.incrementAndGet();
+        recycle(tracker.buffer, tracker.sizeClass, tracker.size);
+        leakListener.accept(tracker.allocationSite);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * @return The total number of allocations.
+   */
+  public long allocationCount() {
+    return allocations.get();
+  }
+
+  /**
+   * @return The number of allocations that reused a previously released buffer.
+   */
+  public long reuseCount() {
+    return reuses.get();
+  }
+
+  /**
+   * @return The number of allocations that have been released.
+   */
+  public long releaseCount() {
+    return releases.get();
+  }
+
+  /**
+   * @return The number of allocations that became unreachable without being released.
+   */
+  public long leakCount() {
+    return leaks.get();
+  }
+
+  /**
+   * @return The total size of values that have been allocated and not yet released.
+   */
+  public long bytesInUse() {
+    return bytesInUse.get();
+  }
+
+  /**
+   * @return The total capacity of released buffers held by the pool for reuse.
+   */
+  public long bytesPooled() {
+    return bytesPooled.get();
+  }
+
+  void release(ByteBuffer buffer, int sizeClass, int size, @Nullable LeakTracker tracker) {
+    if (tracker != null) {
+      trackers.remove(tracker);
+      tracker.clear();
+    }
+    releases.incrementAndGet();
+    recycle(buffer, sizeClass, size);
+  }
+
+  private void recycle(ByteBuffer buffer, int sizeClass, int size) {
+    bytesInUse.addAndGet(-size);
+    if (sizeClass < 0) {
+      return;
+    }
+    AtomicInteger count = freeCounts.get(sizeClass);
+    if (count.incrementAndGet() > maxBuffersPerClass) {
+      // the pool for this size class is full, so leave the buffer to be garbage collected
+      count.decrementAndGet();
+      return;
+    }
+    bytesPooled.addAndGet(buffer.capacity());
+    freeBuffers.get(sizeClass).add(buffer);
+  }
+
+  // the index of the smallest size class that holds the given size, or -1 if it is larger than all size classes
+  private int sizeClass(int size) {
+    int shift = size <= MIN_SIZE_CLASS ? minShift : 32 - Integer.numberOfLeadingZeros(size - 1);
+    int index = shift - minShift;
+    return index < freeBuffers.size() ? index : -1;
+  }
+
+  /**
+   * A scope for allocations, which are all released when the scope is closed.
+   *
+   * <p>
+   * Scopes are intended for use with try-with-resources, and are not thread-safe.
+   */
+  public final class Scope implements AutoCloseable {
+
+    private final List<PooledBytes> allocated = new ArrayList<>();
+
+    private Scope() {}
+
+    /**
+     * Allocate a value that will be released when this scope is closed.
+     *
+     * @param size The size of the value.
+     * @return A value backed by pooled memory.
+     */
+    public MutableBytes allocate(int size) {
+      PooledBytes bytes = BytesPool.this.allocate(size);
+      allocated.add(bytes);
+      return bytes;
+    }
+
+    /**
+     * Allocate a value initialized with a copy of existing bytes, that will be released when this scope is closed.
+     *
+     * @param bytes The bytes to copy.
+     * @return A value backed by pooled memory.
+     */
+    public MutableBytes copyOf(Bytes bytes) {
+      PooledBytes pooled = BytesPool.this.copyOf(bytes);
+      allocated.add(pooled);
+      return pooled;
+    }
+
+    /**
+     * Release all values allocated from this scope.
+     */
+    @Override
+    public void close() {
+      for (PooledBytes bytes : allocated) {
+        bytes.close();
+      }
+      allocated.clear();
+    }
+  }
+}
@@ -15,6 +15,11 @@ package net.consensys.cava.bytes;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkElementIndex;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 final class ConcatenatedBytes extends AbstractBytes {
 
   private final Bytes[] values;
@@ -131,7 +136,7 @@ final class ConcatenatedBytes extends AbstractBytes {
         throw new IllegalStateException("element sizes do not match total size");
       }
       vSize = this.values[j].size();
-      if (length < vSize) {
+      if (remaining < vSize) {
         break;
       }
       remaining -= vSize;
@@ -187,6 +192,15 @@ final class ConcatenatedBytes extends AbstractBytes {
     copyToUnchecked(destination, destinationOffset);
   }
 
+  @Override
+  public ByteBuffer[] asByteBuffers() {
+    List<ByteBuffer> buffers = new ArrayList<>(values.length);
+    for (Bytes value : values) {
+      Collections.addAll(buffers, value.asByteBuffers());
+    }
+    return buffers.toArray(new ByteBuffer[0]);
+  }
+
   @Override
   public byte[] toArray() {
     if (size == 0) {
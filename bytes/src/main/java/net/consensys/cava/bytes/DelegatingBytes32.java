@@ -183,6 +183,11 @@ final class DelegatingBytes32 implements Bytes32 {
     delegate.appendTo(byteBuffer);
   }
 
+  @Override
+  public ByteBuffer[] asByteBuffers() {
+    return delegate.asByteBuffers();
+  }
+
   @Override
   public void appendTo(Buffer buffer) {
     delegate.appendTo(buffer);
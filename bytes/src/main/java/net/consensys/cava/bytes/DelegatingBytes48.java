@@ -183,6 +183,11 @@ final class DelegatingBytes48 implements Bytes48 {
     delegate.appendTo(byteBuffer);
   }
 
+  @Override
+  public ByteBuffer[] asByteBuffers() {
+    return delegate.asByteBuffers();
+  }
+
   @Override
   public void appendTo(Buffer buffer) {
     delegate.appendTo(buffer);
@@ -213,6 +213,11 @@ final class DelegatingMutableBytes48 implements MutableBytes48 {
     delegate.appendTo(byteBuffer);
   }
 
+  @Override
+  public ByteBuffer[] asByteBuffers() {
+    return delegate.asByteBuffers();
+  }
+
   @Override
   public void appendTo(Buffer buffer) {
     delegate.appendTo(buffer);
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.bytes;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MutableBytes} value backed by direct memory that was allocated from a {@link BytesPool}.
+ *
+ * <p>
+ * The memory must be returned to the pool by calling {@link #release()} (or {@link #close()}) once the value is no
+ * longer used. After release, the memory may be reused by another allocation, so neither this value nor any slice of it
+ * may be accessed. Use {@link #copy()} to retain the content beyond the lifetime of the allocation.
+ *
+ * <p>
+ * Slices share the memory of this value but do not keep the allocation alive, so must not be used once this value is
+ * unreachable.
+ */
+public final class PooledBytes extends MutableByteBufferWrappingBytes implements AutoCloseable {
+
+  private final BytesPool pool;
+  private final int sizeClass;
+  private final AtomicBoolean released = new AtomicBoolean(false);
+  // set by the pool when leak detection is enabled
+  @Nullable
+  BytesPool.LeakTracker tracker;
+
+  PooledBytes(BytesPool pool, ByteBuffer byteBuffer, int size, int sizeClass) {
+    super(byteBuffer, 0, size);
+    this.pool = pool;
+    this.sizeClass = sizeClass;
+  }
+
+  /**
+   * Return the memory backing this value to the pool.
+   *
+   * @throws IllegalStateException If this value has already been released.
+   */
+  public void release() {
+    if (!released.compareAndSet(false, true)) {
+      throw new IllegalStateException("Bytes have already been released");
+    }
+    pool.release(byteBuffer, sizeClass, length, tracker);
+  }
+
+  /**
+   * @return {@code true} if this value has been released to the pool.
+   */
+  public boolean isReleased() {
+    return released.get();
+  }
+
+  /**
+   * Return the memory backing this value to the pool, if it has not already been released.
+   */
+  @Override
+  public void close() {
+    if (released.compareAndSet(false, true)) {
+      pool.release(byteBuffer, sizeClass, length, tracker);
+    }
+  }
+}
@@ -12,8 +12,12 @@
  */
 package net.consensys.cava.bytes;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import java.nio.ByteBuffer;
 
+import org.junit.jupiter.api.Test;
+
 class ByteBufferBytesTest extends CommonBytesTests {
 
   @Override
@@ -35,4 +39,13 @@ class ByteBufferBytesTest extends CommonBytesTests {
   Bytes of(int... bytes) {
     return Bytes.wrapByteBuffer(ByteBuffer.wrap(Bytes.of(bytes).toArray()));
   }
+
+  @Test
+  void appendsOnlyTheWrappedSlice() {
+    Bytes slice = Bytes.wrapByteBuffer(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5}), 1, 3);
+    ByteBuffer buffer = ByteBuffer.allocate(6);
+    slice.appendTo(buffer);
+    slice.appendTo(buffer);
+    assertEquals(Bytes.of(2, 3, 4, 2, 3, 4), Bytes.wrap(buffer.array()));
+  }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.bytes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+class Bytes32PerformanceTest {
+
+  @Test
+  @Disabled("Expensive test worth running on a developer machine")
+  void lookupOneMillionKeys() {
+    int count = 1 << 20;
+    Random random = new Random(1);
+    Map<Bytes32, Integer> map = new HashMap<>();
+    Bytes32[] probes = new Bytes32[count];
+    for (int i = 0; i < count; ++i) {
+      byte[] key = new byte[32];
+      random.nextBytes(key);
+      map.put(Bytes32.wrap(key), i);
+      probes[i] = Bytes32.wrap(key.clone());
+    }
+
+    for (int round = 0; round < 5; ++round) {
+      long start = System.nanoTime();
+      for (int i = 0; i < count; ++i) {
+        assertEquals(i, (int) map.get(probes[i]));
+      }
+      long elapsed = System.nanoTime() - start;
+      System.out.println("Average lookup: " + (elapsed / count) + "ns");
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.bytes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class BytesPoolTest {
+
+  @Test
+  void shouldAllocateWritableBytes() {
+    BytesPool pool = BytesPool.create();
+    PooledBytes bytes = pool.allocate(5);
+    assertEquals(5, bytes.size());
+    bytes.set(0, (byte) 1);
+    bytes.setInt(1, 0x02030405);
+    assertEquals(Bytes.of(1, 2, 3, 4, 5), bytes.copy());
+    assertEquals(5, pool.bytesInUse());
+    bytes.release();
+    assertTrue(bytes.isReleased());
+    assertEquals(0, pool.bytesInUse());
+  }
+
+  @Test
+  void shouldReuseReleasedBuffers() {
+    BytesPool pool = BytesPool.create();
+    pool.allocate(100).release();
+    PooledBytes bytes = pool.allocate(120);
+    assertEquals(1, pool.reuseCount());
+    assertEquals(0, pool.bytesPooled());
+    bytes.release();
+    assertEquals(128, pool.bytesPooled());
+    assertEquals(2, pool.releaseCount());
+  }
+
+  @Test
+  void shouldNotReuseBuffersFromOtherSizeClasses() {
+    BytesPool pool = BytesPool.create();
+    pool.allocate(64).release();
+    pool.allocate(65).release();
+    assertEquals(0, pool.reuseCount());
+  }
+
+  @Test
+  void shouldNotPoolLargeAllocations() {
+    BytesPool pool = BytesPool.create(1024, 16, false);
+    PooledBytes bytes = pool.allocate(2000);
+    assertEquals(2000, bytes.size());
+    bytes.release();
+    assertEquals(0, pool.bytesPooled());
+  }
+
+  @Test
+  void shouldLimitPooledBuffers() {
+    BytesPool pool = BytesPool.create(1024, 2, false);
+    PooledBytes[] allocated = new PooledBytes[4];
+    for (int i = 0; i < allocated.length; ++i) {
+      allocated[i] = pool.allocate(64);
+    }
+    for (PooledBytes bytes : allocated) {
+      bytes.release();
+    }
+    assertEquals(128, pool.bytesPooled());
+  }
+
+  @Test
+  void shouldRejectDoubleRelease() {
+    PooledBytes bytes = BytesPool.create().allocate(10);
+    bytes.release();
+    assertThrows(IllegalStateException.class, bytes::release);
+    // closing is idempotent
+    bytes.close();
+  }
+
+  @Test
+  void shouldReleaseScopedAllocations() {
+    BytesPool pool = BytesPool.create();
+    try (BytesPool.Scope scope = pool.scope()) {
+      scope.allocate(32);
+      MutableBytes copy = scope.copyOf(Bytes.of(1, 2, 3));
+      assertEquals(Bytes.of(1, 2, 3), copy);
+      assertEquals(35, pool.bytesInUse());
+    }
+    assertEquals(0, pool.bytesInUse());
+    assertEquals(2, pool.releaseCount());
+  }
+
+  @Test
+  void shouldDetectLeaks() throws Exception {
+    BytesPool pool = BytesPool.create(1024, 16, true);
+    AtomicInteger reported = new AtomicInteger();
+    pool.setLeakListener(leak -> reported.incrementAndGet());
+    pool.allocate(10);
+    for (int i = 0; i < 50 && pool.leakCount() == 0; ++i) {
+      System.gc();
+      Thread.sleep(20);
+      pool.reclaimLeaks();
+    }
+    assertEquals(1, pool.leakCount());
+    assertEquals(1, reported.get());
+    assertEquals(0, pool.bytesInUse());
+  }
+}
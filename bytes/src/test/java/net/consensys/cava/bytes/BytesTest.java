@@ -18,7 +18,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
@@ -420,4 +422,40 @@ class BytesTest extends CommonBytesTests {
     Bytes bytes = Bytes.fromHexString("0x");
     assertEquals(Bytes.fromHexString("0x"), bytes.reverse());
   }
+
+  @ParameterizedTest
+  @MethodSource("fixedSizeWrapProvider")
+  void fixedSizeHashCodeAndEquals(int size, BiFunction<byte[], Integer, Bytes> wrap) {
+    byte[] array = new byte[size + 3];
+    for (int i = 0; i < array.length; ++i) {
+      array[i] = (byte) (i * 7);
+    }
+    Bytes value = wrap.apply(array, 3);
+    assertEquals(Bytes.wrap(array, 3, size).hashCode(), value.hashCode());
+    assertEquals(Bytes.wrapByteBuffer(ByteBuffer.wrap(array), 3, size).hashCode(), value.hashCode());
+    // cached value
+    assertEquals(Bytes.wrap(array, 3, size).hashCode(), value.hashCode());
+
+    assertEquals(value, Bytes.wrap(array, 3, size));
+    assertEquals(Bytes.wrap(array, 3, size), value);
+    assertEquals(value, value.mutableCopy());
+    assertEquals(value.mutableCopy(), value);
+    assertEquals(value, Bytes.wrapByteBuffer(ByteBuffer.wrap(array), 3, size));
+    assertEquals(Bytes.wrapByteBuffer(ByteBuffer.wrap(array), 3, size), value);
+    assertEquals(value, Bytes.concatenate(Bytes.wrap(array, 3, 5), Bytes.wrap(array, 8, size - 5)));
+    assertEquals(value, wrap.apply(Arrays.copyOf(array, array.length), 3));
+
+    for (int i = 0; i < size; ++i) {
+      byte[] other = Arrays.copyOf(array, array.length);
+      other[3 + i]++;
+      assertNotEquals(value, wrap.apply(other, 3));
+      assertNotEquals(wrap.apply(other, 3), value);
+    }
+  }
+
+  private static Stream<Arguments> fixedSizeWrapProvider() {
+    return Stream.of(
+        Arguments.of(32, (BiFunction<byte[], Integer, Bytes>) Bytes32::wrap),
+        Arguments.of(48, (BiFunction<byte[], Integer, Bytes>) Bytes48::wrap));
+  }
 }
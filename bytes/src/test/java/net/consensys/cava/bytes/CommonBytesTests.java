@@ -92,6 +92,29 @@ abstract class CommonBytesTests {
     assertEquals(expected, v.toBigInteger());
   }
 
+  @Test
+  void asByteBuffers() {
+    Bytes value = h("0x0123456789ABCDEF");
+    assertArrayEquals(value.toArray(), collect(value.asByteBuffers()));
+    assertArrayEquals(value.slice(2, 4).toArray(), collect(value.slice(2, 4).asByteBuffers()));
+    assertArrayEquals(new byte[0], collect(w(new byte[0]).asByteBuffers()));
+    for (ByteBuffer buffer : value.asByteBuffers()) {
+      assertTrue(buffer.isReadOnly());
+    }
+  }
+
+  private static byte[] collect(ByteBuffer[] buffers) {
+    int size = 0;
+    for (ByteBuffer buffer : buffers) {
+      size += buffer.remaining();
+    }
+    ByteBuffer result = ByteBuffer.allocate(size);
+    for (ByteBuffer buffer : buffers) {
+      result.put(buffer);
+    }
+    return result.array();
+  }
+
   @Test
   void testSize() {
     assertEquals(0, w(new byte[0]).size());
@@ -17,6 +17,7 @@ import static net.consensys.cava.bytes.Bytes.wrap;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.stream.Stream;
 
@@ -86,6 +87,13 @@ class ConcatenatedBytesTest {
     assertEquals("0x89ABCDEF", bytes.slice(12, 4).toHexString());
   }
 
+  @Test
+  void shouldSliceEndingPartWayThroughAValue() {
+    Bytes bytes = wrap(fromHexString("0x01234567"), fromHexString("0x89ABCDEF"), fromHexString("0x01234567"));
+    assertEquals("0x23456789ABCD", bytes.slice(1, 6).toHexString());
+    assertEquals("0x23456789ABCDEF0123", bytes.slice(1, 9).toHexString());
+  }
+
   @Test
   void shouldReadDeepConcatenatedValue() {
     Bytes bytes = wrap(
@@ -96,4 +104,19 @@ class ConcatenatedBytesTest {
     assertEquals(24, bytes.size());
     assertEquals("0x0123456789ABCDEF0123456789ABCDEF0123456789ABCDEF", bytes.toHexString());
   }
+
+  @Test
+  void shouldExposeSegmentsWithoutCopying() {
+    byte[] first = new byte[] {1, 2, 3};
+    byte[] second = new byte[] {4, 5};
+    Bytes bytes = wrap(wrap(first), wrap(wrap(second), fromHexString("0x06")));
+    ByteBuffer[] buffers = bytes.asByteBuffers();
+    assertEquals(3, buffers.length);
+    assertEquals(3, buffers[0].remaining());
+    assertEquals(2, buffers[1].remaining());
+    assertEquals(1, buffers[2].remaining());
+    second[0] = 9;
+    assertEquals(9, buffers[1].get(0));
+    assertEquals(6, buffers[2].get(0));
+  }
 }
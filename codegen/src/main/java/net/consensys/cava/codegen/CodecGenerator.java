@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.codegen;
+
+import net.consensys.cava.codegen.EncodableType.Property;
+
+import java.util.StringJoiner;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Generates the source of a codec class for an encodable type.
+ *
+ * <p>
+ * Each codec has static {@code encode}, {@code decode}, {@code writeTo} and {@code readFrom} methods. The format
+ * specific generators provide the statements that write and read each property.
+ */
+abstract class CodecGenerator {
+
+  private static final String BYTES = CodecTypes.BYTES;
+
+  final CodecTypes types;
+  private final String generatedAnnotation;
+
+  CodecGenerator(CodecTypes types) {
+    this.types = types;
+    // javax.annotation.Generated is not present from Java 11, where it is replaced by javax.annotation.processing
+    if (types.elements().getTypeElement("javax.annotation.processing.Generated") != null) {
+      this.generatedAnnotation = "javax.annotation.processing.Generated";
+    } else if (types.elements().getTypeElement("javax.annotation.Generated") != null) {
+      this.generatedAnnotation = "javax.annotation.Generated";
+    } else {
+      this.generatedAnnotation = null;
+    }
+  }
+
+  /**
+   * @return The name of the encoding, for documentation.
+   */
+  abstract String format();
+
+  /**
+   * @return The suffix of codec names.
+   */
+  abstract String suffix();
+
+  /**
+   * @return The qualified name of the writer type.
+   */
+  abstract String writerType();
+
+  /**
+   * @return The qualified name of the reader type.
+   */
+  abstract String readerType();
+
+  /**
+   * @return An expression encoding {@code value} using {@code writeTo}.
+   */
+  abstract String encodeExpression();
+
+  /**
+   * @param codecName The simple name of the codec.
+   * @return An expression decoding {@code encoded} using {@code readFrom}.
+   */
+  abstract String decodeExpression(String codecName);
+
+  /**
+   * Append statements that write a property to {@code writer}.
+   *
+   * @param source The source builder.
+   * @param property The property.
+   * @param variable The local variable holding the property value.
+   * @throws CodegenException If the property type is not supported.
+   */
+  abstract void writeProperty(SourceBuilder source, Property property, String variable);
+
+  /**
+   * Append statements that read a property from {@code reader} into a new local variable.
+   *
+   * @param source The source builder.
+   * @param property The property.
+   * @param variable The local variable to declare.
+   * @throws CodegenException If the property type is not supported.
+   */
+  abstract void readProperty(SourceBuilder source, Property property, String variable);
+
+  /**
+   * Generate the source of a codec.
+   *
+   * @param type The encodable type.
+   * @param packageName The package of the type and the codec.
+   * @param codecName The simple name of the codec.
+   * @return The java source of the codec.
+   * @throws CodegenException If the type cannot be encoded.
+   */
+  final String generate(EncodableType type, String packageName, String codecName) {
+    String typeName = type.typeName();
+    String visibility = type.element().getModifiers().contains(Modifier.PUBLIC) ? "public " : "";
+
+    SourceBuilder source = new SourceBuilder();
+    if (!packageName.isEmpty()) {
+      source.line("package " + packageName + ";").line();
+    }
+    source.line("/**");
+    source.line(" * " + format() + " encoding and decoding of {@link " + typeName + "}.");
+    source.line(" */");
+    if (generatedAnnotation != null) {
+      source.line("@" + generatedAnnotation + "(\"" + CodecProcessor.class.getName() + "\")");
+    }
+    source.open(visibility + "final class " + codecName);
+    source.line().line("private " + codecName + "() {}").line();
+
+    source.line("/**");
+    source.line(" * Encode a value to " + format() + ".");
+    source.line(" *");
+    source.line(" * @param value The value to encode.");
+    source.line(" * @return The " + format() + " encoding of the value.");
+    source.line(" */");
+    source.open("public static " + BYTES + " encode(" + typeName + " value)");
+    source.line("return " + encodeExpression() + ";");
+    source.close().line();
+
+    source.line("/**");
+    source.line(" * Decode a value from " + format() + ".");
+    source.line(" *");
+    source.line(" * @param encoded The " + format() + " encoding of a value.");
+    source.line(" * @return The decoded value.");
+    source.line(" */");
+    source.open("public static " + typeName + " decode(" + BYTES + " encoded)");
+    source.line("return " + decodeExpression(codecName) + ";");
+    source.close().line();
+
+    source.line("/**");
+    source.line(" * Write the properties of a value.");
+    source.line(" *");
+    source.line(" * @param value The value to write.");
+    source.line(" * @param writer The writer to write the properties to.");
+    source.line(" */");
+    source.open("public static void writeTo(" + typeName + " value, " + writerType() + " writer)");
+    int i = 0;
+    for (Property property : type.encodingOrder()) {
+      String variable = "p" + i++;
+      source.line(types.sourceName(property.type()) + " " + variable + " = value." + property.accessor() + ";");
+      writeProperty(source, property, variable);
+    }
+    source.close().line();
+
+    source.line("/**");
+    source.line(" * Read the properties of a value and construct it.");
+    source.line(" *");
+    source.line(" * @param reader The reader to read the properties from.");
+    source.line(" * @return The value.");
+    source.line(" */");
+    source.open("public static " + typeName + " readFrom(" + readerType() + " reader)");
+    i = 0;
+    for (Property property : type.encodingOrder()) {
+      readProperty(source, property, "p" + i++);
+    }
+    StringJoiner arguments = new StringJoiner(", ");
+    for (Property property : type.constructorOrder()) {
+      arguments.add("p" + type.encodingOrder().indexOf(property));
+    }
+    source.line("return new " + typeName + "(" + arguments + ");");
+    source.close();
+    source.close();
+    return source.toString();
+  }
+
+  static CodegenException unsupported(Property property) {
+    return new CodegenException(
+        "Cannot encode property " + property.name() + " of type " + property.type(),
+        property.element());
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.codegen;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * An annotation processor that generates codecs for classes annotated with {@code RLPEncodable} or
+ * {@code SSZEncodable}.
+ *
+ * <p>
+ * For each annotated class, a codec class is generated in the same package. The codec reads each property of the class
+ * directly from its accessor, and constructs instances by calling the constructor, so encoding and decoding do not
+ * require reflection.
+ *
+ * <p>
+ * The annotations are referenced by name, so the processor does not depend on the {@code cava-rlp} or
+ * {@code cava-ssz} libraries. Those libraries, and {@code cava-bytes}, must be on the compile classpath of the
+ * annotated classes.
+ */
+@SupportedAnnotationTypes({RLPCodecGenerator.ANNOTATION, SSZCodecGenerator.ANNOTATION})
+public final class CodecProcessor extends AbstractProcessor {
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    CodecTypes types = new CodecTypes(processingEnv);
+    for (TypeElement annotation : annotations) {
+      CodecGenerator generator;
+      if (annotation.getQualifiedName().contentEquals(RLPCodecGenerator.ANNOTATION)) {
+        generator = new RLPCodecGenerator(types);
+      } else if (annotation.getQualifiedName().contentEquals(SSZCodecGenerator.ANNOTATION)) {
+        generator = new SSZCodecGenerator(types);
+      } else {
+        continue;
+      }
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        try {
+          generate(generator, types, (TypeElement) element, propertyNames(element, annotation));
+        } catch (CodegenException e) {
+          processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element());
+        }
+      }
+    }
+    return true;
+  }
+
+  private void generate(CodecGenerator generator, CodecTypes types, TypeElement element, List<String> propertyNames) {
+    EncodableType type = EncodableType.of(element, propertyNames, types);
+    String packageName = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+    String codecName = EncodableType.codecName(element, generator.suffix());
+    String source = generator.generate(type, packageName, codecName);
+
+    String qualifiedName = packageName.isEmpty() ? codecName : packageName + "." + codecName;
+    try {
+      JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, element);
+      try (Writer writer = file.openWriter()) {
+        writer.write(source);
+      }
+    } catch (IOException e) {
+      throw new CodegenException("Failed to write " + qualifiedName + ": " + e.getMessage(), element);
+    }
+  }
+
+  private static List<String> propertyNames(Element element, TypeElement annotation) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (!mirror.getAnnotationType().asElement().equals(annotation)) {
+        continue;
+      }
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror
+          .getElementValues()
+          .entrySet()) {
+        if (entry.getKey().getSimpleName().contentEquals("value")) {
+          List<String> names = new ArrayList<>();
+          for (Object value : (List<?>) entry.getValue().getValue()) {
+            names.add((String) ((AnnotationValue) value).getValue());
+          }
+          return names;
+        }
+      }
+    }
+    return Collections.emptyList();
+  }
+}
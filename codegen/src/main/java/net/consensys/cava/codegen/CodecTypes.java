@@ -0,0 +1,238 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.codegen;
+
+import java.util.List;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Classification of property types, shared by the codec generators.
+ */
+final class CodecTypes {
+
+  static final String BYTES = "net.consensys.cava.bytes.Bytes";
+  static final String BYTES32 = "net.consensys.cava.bytes.Bytes32";
+  static final String UINT256 = "net.consensys.cava.units.bigints.UInt256";
+
+  private final Elements elements;
+  private final Types types;
+
+  CodecTypes(ProcessingEnvironment processingEnv) {
+    this.elements = processingEnv.getElementUtils();
+    this.types = processingEnv.getTypeUtils();
+  }
+
+  Elements elements() {
+    return elements;
+  }
+
+  Types types() {
+    return types;
+  }
+
+  /**
+   * @param type A type.
+   * @param qualifiedName The canonical name of a class.
+   * @return {@code true} if the type is the named class.
+   */
+  boolean isNamed(TypeMirror type, String qualifiedName) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+    return element.getQualifiedName().contentEquals(qualifiedName);
+  }
+
+  /**
+   * @param type A type.
+   * @return {@code true} if the type is {@code byte[]}.
+   */
+  boolean isByteArray(TypeMirror type) {
+    return type.getKind() == TypeKind.ARRAY && ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE;
+  }
+
+  /**
+   * @param type A type.
+   * @return The primitive kind of a primitive or boxed type, or {@code null} if the type is neither.
+   */
+  TypeKind primitiveKind(TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      return type.getKind();
+    }
+    if (type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    try {
+      return types.unboxedType(type).getKind();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @param type A type.
+   * @return {@code true} if the type is {@code Bytes} or one of its subtypes.
+   */
+  boolean isBytes(TypeMirror type) {
+    TypeElement bytes = elements.getTypeElement(BYTES);
+    return bytes != null && type.getKind() == TypeKind.DECLARED && types.isAssignable(type, bytes.asType());
+  }
+
+  /**
+   * @param type A type.
+   * @return The element type of a {@code java.util.List}, or {@code null} if the type is not a list.
+   */
+  TypeMirror listElementType(TypeMirror type) {
+    if (!isNamed(type, "java.util.List")) {
+      return null;
+    }
+    List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+    if (arguments.size() != 1) {
+      return null;
+    }
+    TypeMirror argument = arguments.get(0);
+    if (argument.getKind() == TypeKind.WILDCARD) {
+      // a List<? extends T> is encoded as its bound
+      return ((WildcardType) argument).getExtendsBound();
+    }
+    return argument;
+  }
+
+  /**
+   * @param type A type.
+   * @param annotationName The canonical name of an annotation.
+   * @return {@code true} if the type is a class carrying the annotation.
+   */
+  boolean isAnnotated(TypeMirror type, String annotationName) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    for (AnnotationMirror annotation : ((DeclaredType) type).asElement().getAnnotationMirrors()) {
+      if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Find a static factory that creates a type from {@code Bytes}.
+   *
+   * @param type A type.
+   * @return The qualified name of a static {@code fromBytes(Bytes)} or {@code wrap(Bytes)} method that returns the
+   *         type, or {@code null} if there is no such method.
+   */
+  String bytesFactory(TypeMirror type) {
+    TypeElement bytes = elements.getTypeElement(BYTES);
+    if (bytes == null || type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+    List<ExecutableElement> methods = ElementFilter.methodsIn(element.getEnclosedElements());
+    for (String name : new String[] {"fromBytes", "wrap"}) {
+      for (ExecutableElement method : methods) {
+        if (method.getSimpleName().contentEquals(name)
+            && method.getModifiers().contains(Modifier.STATIC)
+            && !method.getModifiers().contains(Modifier.PRIVATE)
+            && method.getParameters().size() == 1
+            && types.isSameType(method.getParameters().get(0).asType(), bytes.asType())
+            && types.isAssignable(method.getReturnType(), type)) {
+          return element.getQualifiedName() + "." + name;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param type A type.
+   * @return {@code true} if the type has an accessible {@code toBytes()} method returning {@code Bytes}.
+   */
+  boolean hasToBytes(TypeMirror type) {
+    TypeElement bytes = elements.getTypeElement(BYTES);
+    if (bytes == null || type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+    for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(element))) {
+      if (method.getSimpleName().contentEquals("toBytes")
+          && !method.getModifiers().contains(Modifier.STATIC)
+          && method.getModifiers().contains(Modifier.PUBLIC)
+          && method.getParameters().isEmpty()
+          && types.isAssignable(method.getReturnType(), bytes.asType())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param type A type.
+   * @return {@code true} if the type is a value type, which can be converted to and from {@code Bytes}.
+   */
+  boolean isValueType(TypeMirror type) {
+    return hasToBytes(type) && bytesFactory(type) != null;
+  }
+
+  /**
+   * @param type A class type.
+   * @param suffix The suffix for the codec.
+   * @return The qualified name of the codec for the type.
+   */
+  String codecName(TypeMirror type, String suffix) {
+    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+    String packageName = elements.getPackageOf(element).getQualifiedName().toString();
+    String simpleName = EncodableType.codecName(element, suffix);
+    return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+  }
+
+  /**
+   * @param type A type.
+   * @return The java source for the type.
+   */
+  String sourceName(TypeMirror type) {
+    if (type.getKind() == TypeKind.DECLARED) {
+      TypeMirror erasure = types.erasure(type);
+      List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+      if (arguments.isEmpty()) {
+        return erasure.toString();
+      }
+      StringBuilder name = new StringBuilder(erasure.toString()).append('<');
+      for (int i = 0; i < arguments.size(); ++i) {
+        if (i > 0) {
+          name.append(", ");
+        }
+        name.append(sourceName(arguments.get(i)));
+      }
+      return name.append('>').toString();
+    }
+    if (type.getKind() == TypeKind.WILDCARD) {
+      TypeMirror bound = ((WildcardType) type).getExtendsBound();
+      return bound == null ? "?" : "? extends " + sourceName(bound);
+    }
+    // primitives and arrays
+    return types.erasure(type).toString();
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.codegen;
+
+import javax.lang.model.element.Element;
+
+/**
+ * Indicates that a codec cannot be generated for an annotated type.
+ */
+final class CodegenException extends RuntimeException {
+
+  private final Element element;
+
+  CodegenException(String message, Element element) {
+    super(message);
+    this.element = element;
+  }
+
+  /**
+   * @return The element that the error should be reported against.
+   */
+  Element element() {
+    return element;
+  }
+}
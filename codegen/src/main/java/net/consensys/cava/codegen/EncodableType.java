@@ -0,0 +1,304 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.codegen;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+
+/**
+ * A class annotated for encoding, and the properties that are encoded.
+ */
+final class EncodableType {
+
+  /**
+   * A property of an encodable type, corresponding to a constructor parameter.
+   */
+  static final class Property {
+    private final String name;
+    private final TypeMirror type;
+    private final String accessor;
+    private final boolean nullable;
+    private final Element element;
+
+    Property(String name, TypeMirror type, String accessor, boolean nullable, Element element) {
+      this.name = name;
+      this.type = type;
+      this.accessor = accessor;
+      this.nullable = nullable;
+      this.element = element;
+    }
+
+    /**
+     * @return The name of the property.
+     */
+    String name() {
+      return name;
+    }
+
+    /**
+     * @return The type of the property.
+     */
+    TypeMirror type() {
+      return type;
+    }
+
+    /**
+     * @return The java expression that obtains the property from an instance, excluding the instance itself (e.g.
+     *         {@code "name()"}).
+     */
+    String accessor() {
+      return accessor;
+    }
+
+    /**
+     * @return {@code true} if the property may be {@code null}.
+     */
+    boolean isNullable() {
+      return nullable;
+    }
+
+    /**
+     * @return The constructor parameter for the property, for error reporting.
+     */
+    Element element() {
+      return element;
+    }
+  }
+
+  /**
+   * Resolve the encoded properties of an annotated type.
+   *
+   * @param element The annotated type.
+   * @param propertyNames The property names given in the annotation, or an empty list.
+   * @param types Type utilities.
+   * @return The encodable type.
+   * @throws CodegenException If the type cannot be encoded.
+   */
+  static EncodableType of(TypeElement element, List<String> propertyNames, CodecTypes types) {
+    if (element.getKind() != ElementKind.CLASS) {
+      throw new CodegenException("Only classes can be encoded", element);
+    }
+    if (element.getModifiers().contains(Modifier.ABSTRACT)) {
+      throw new CodegenException("Abstract classes cannot be encoded", element);
+    }
+    if (element.getModifiers().contains(Modifier.PRIVATE)) {
+      throw new CodegenException("Private classes cannot be encoded", element);
+    }
+    if (element.getNestingKind() == NestingKind.MEMBER && !element.getModifiers().contains(Modifier.STATIC)) {
+      throw new CodegenException("Inner classes cannot be encoded, as they require an enclosing instance", element);
+    }
+    if (element.getNestingKind() == NestingKind.LOCAL || element.getNestingKind() == NestingKind.ANONYMOUS) {
+      throw new CodegenException("Local classes cannot be encoded", element);
+    }
+    if (!element.getTypeParameters().isEmpty()) {
+      throw new CodegenException("Generic classes cannot be encoded", element);
+    }
+
+    ExecutableElement constructor = selectConstructor(element, propertyNames);
+    List<Property> constructorOrder = new ArrayList<>();
+    Map<String, Property> byName = new HashMap<>();
+    for (VariableElement parameter : constructor.getParameters()) {
+      String name = parameter.getSimpleName().toString();
+      Property property = new Property(
+          name,
+          parameter.asType(),
+          findAccessor(element, name, parameter, types),
+          isNullable(parameter),
+          parameter);
+      constructorOrder.add(property);
+      byName.put(name, property);
+    }
+
+    List<Property> encodingOrder;
+    if (propertyNames.isEmpty()) {
+      encodingOrder = constructorOrder;
+    } else {
+      encodingOrder = new ArrayList<>();
+      for (String name : propertyNames) {
+        encodingOrder.add(byName.get(name));
+      }
+    }
+    return new EncodableType(element, constructorOrder, encodingOrder);
+  }
+
+  private static ExecutableElement selectConstructor(TypeElement element, List<String> propertyNames) {
+    List<ExecutableElement> constructors = new ArrayList<>();
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+      if (!constructor.getModifiers().contains(Modifier.PRIVATE)) {
+        constructors.add(constructor);
+      }
+    }
+
+    if (!propertyNames.isEmpty()) {
+      Set<String> names = new HashSet<>(propertyNames);
+      if (names.size() != propertyNames.size()) {
+        throw new CodegenException("Encoded properties must be unique", element);
+      }
+      for (ExecutableElement constructor : constructors) {
+        Set<String> parameterNames = new HashSet<>();
+        for (VariableElement parameter : constructor.getParameters()) {
+          parameterNames.add(parameter.getSimpleName().toString());
+        }
+        if (parameterNames.equals(names)) {
+          return constructor;
+        }
+      }
+      throw new CodegenException("No constructor has parameters named " + propertyNames, element);
+    }
+
+    ExecutableElement selected = null;
+    boolean ambiguous = false;
+    for (ExecutableElement constructor : constructors) {
+      int count = constructor.getParameters().size();
+      if (selected == null || count > selected.getParameters().size()) {
+        selected = constructor;
+        ambiguous = false;
+      } else if (count == selected.getParameters().size()) {
+        ambiguous = true;
+      }
+    }
+    if (selected == null) {
+      throw new CodegenException("No accessible constructor", element);
+    }
+    if (ambiguous) {
+      throw new CodegenException(
+          "Several constructors have the most parameters, so the encoded properties must be named in the annotation",
+          element);
+    }
+    if (selected.getParameters().isEmpty()) {
+      throw new CodegenException("No constructor has parameters to determine the encoded properties from", element);
+    }
+    return selected;
+  }
+
+  private static String findAccessor(TypeElement element, String name, VariableElement parameter, CodecTypes types) {
+    TypeMirror type = parameter.asType();
+    String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    List<String> candidates = new ArrayList<>();
+    Collections.addAll(candidates, name, "get" + capitalized, "is" + capitalized);
+
+    List<ExecutableElement> methods = ElementFilter.methodsIn(types.elements().getAllMembers(element));
+    for (String candidate : candidates) {
+      for (ExecutableElement method : methods) {
+        if (method.getSimpleName().contentEquals(candidate)
+            && method.getParameters().isEmpty()
+            && isAccessibleInstanceMember(method)
+            && types.types().isAssignable(method.getReturnType(), type)) {
+          return candidate + "()";
+        }
+      }
+    }
+    for (VariableElement field : ElementFilter.fieldsIn(types.elements().getAllMembers(element))) {
+      if (field.getSimpleName().contentEquals(name)
+          && isAccessibleInstanceMember(field)
+          && types.types().isAssignable(field.asType(), type)) {
+        return name;
+      }
+    }
+    throw new CodegenException(
+        "No accessible method " + name + "(), get" + capitalized + "() or is" + capitalized + "(), or field " + name
+            + ", provides the value of parameter " + name,
+        parameter);
+  }
+
+  private static boolean isAccessibleInstanceMember(Element member) {
+    // generated codecs are in the same package, so only private members are inaccessible
+    return !member.getModifiers().contains(Modifier.PRIVATE) && !member.getModifiers().contains(Modifier.STATIC);
+  }
+
+  private static boolean isNullable(VariableElement parameter) {
+    // accept any annotation named Nullable (javax.annotation, org.jetbrains.annotations, etc)
+    for (AnnotationMirror annotation : parameter.getAnnotationMirrors()) {
+      if (annotation.getAnnotationType().asElement().getSimpleName().contentEquals("Nullable")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private final TypeElement element;
+  private final List<Property> constructorOrder;
+  private final List<Property> encodingOrder;
+
+  private EncodableType(TypeElement element, List<Property> constructorOrder, List<Property> encodingOrder) {
+    this.element = element;
+    this.constructorOrder = constructorOrder;
+    this.encodingOrder = encodingOrder;
+  }
+
+  /**
+   * @return The annotated type.
+   */
+  TypeElement element() {
+    return element;
+  }
+
+  /**
+   * @return The canonical name of the annotated type.
+   */
+  String typeName() {
+    return element.getQualifiedName().toString();
+  }
+
+  /**
+   * @return The properties, in the order of the constructor parameters.
+   */
+  List<Property> constructorOrder() {
+    return constructorOrder;
+  }
+
+  /**
+   * @return The properties, in the order they are encoded.
+   */
+  List<Property> encodingOrder() {
+    return encodingOrder;
+  }
+
+  /**
+   * Determine the simple name of a codec for the type.
+   *
+   * <p>
+   * The codec name is the name of the type, prefixed by the names of any enclosing types and followed by the suffix.
+   * For example, the RLP codec for {@code Outer.Inner} is {@code Outer_InnerRLPCodec}.
+   *
+   * @param element The type.
+   * @param suffix The suffix for the codec.
+   * @return The simple name of the codec.
+   */
+  static String codecName(TypeElement element, String suffix) {
+    Deque<String> names = new ArrayDeque<>();
+    Element enclosing = element;
+    while (enclosing.getKind().isClass() || enclosing.getKind().isInterface()) {
+      names.addFirst(enclosing.getSimpleName().toString());
+      enclosing = enclosing.getEnclosingElement();
+    }
+    return String.join("_", names) + suffix;
+  }
+}
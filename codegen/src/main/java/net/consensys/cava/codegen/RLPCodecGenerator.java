@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.codegen;
+
+import net.consensys.cava.codegen.EncodableType.Property;
+
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Generates codecs for types annotated with {@code net.consensys.cava.rlp.RLPEncodable}.
+ *
+ * <p>
+ * A value is encoded as an RLP list of its properties. Properties are written and read directly with the
+ * {@code RLPWriter} and {@code RLPReader} methods for their type, without reflection or intermediate values.
+ */
+final class RLPCodecGenerator extends CodecGenerator {
+
+  static final String ANNOTATION = "net.consensys.cava.rlp.RLPEncodable";
+  static final String SUFFIX = "RLPCodec";
+
+  RLPCodecGenerator(CodecTypes types) {
+    super(types);
+  }
+
+  @Override
+  String format() {
+    return "RLP";
+  }
+
+  @Override
+  String suffix() {
+    return SUFFIX;
+  }
+
+  @Override
+  String writerType() {
+    return "net.consensys.cava.rlp.RLPWriter";
+  }
+
+  @Override
+  String readerType() {
+    return "net.consensys.cava.rlp.RLPReader";
+  }
+
+  @Override
+  String encodeExpression() {
+    return "net.consensys.cava.rlp.RLP.encodeList(writer -> writeTo(value, writer))";
+  }
+
+  @Override
+  String decodeExpression(String codecName) {
+    return "net.consensys.cava.rlp.RLP.decodeList(encoded, " + codecName + "::readFrom)";
+  }
+
+  @Override
+  void writeProperty(SourceBuilder source, Property property, String variable) {
+    if (!property.isNullable()) {
+      writeValue(source, property, property.type(), variable, "writer", 1);
+      return;
+    }
+    checkNullable(property);
+    source.open("if (" + variable + " == null)");
+    source.line("writer.writeValue(" + CodecTypes.BYTES + ".EMPTY);");
+    source.next("else");
+    writeValue(source, property, property.type(), variable, "writer", 1);
+    source.close();
+  }
+
+  @Override
+  void readProperty(SourceBuilder source, Property property, String variable) {
+    String declaration = types.sourceName(property.type()) + " " + variable;
+    if (!property.isNullable()) {
+      source.line(declaration + " = " + readValue(property, property.type(), "reader", 1) + ";");
+      return;
+    }
+    checkNullable(property);
+    source.line(declaration + ";");
+    source.open("if (reader.nextIsEmpty())");
+    source.line("reader.skipNext();");
+    source.line(variable + " = null;");
+    source.next("else");
+    source.line(variable + " = " + readValue(property, property.type(), "reader", 1) + ";");
+    source.close();
+  }
+
+  private static void checkNullable(Property property) {
+    if (property.type().getKind().isPrimitive()) {
+      throw new CodegenException("Primitive property " + property.name() + " cannot be nullable", property.element());
+    }
+  }
+
+  private void writeValue(
+      SourceBuilder source,
+      Property property,
+      TypeMirror type,
+      String value,
+      String writer,
+      int depth) {
+    TypeKind primitive = types.primitiveKind(type);
+    if (primitive == TypeKind.BYTE) {
+      source.line(writer + ".writeByte(" + value + ");");
+    } else if (primitive == TypeKind.INT) {
+      source.line(writer + ".writeInt(" + value + ");");
+    } else if (primitive == TypeKind.LONG) {
+      source.line(writer + ".writeLong(" + value + ");");
+    } else if (primitive != null) {
+      throw unsupported(property);
+    } else if (types.isByteArray(type)) {
+      source.line(writer + ".writeByteArray(" + value + ");");
+    } else if (types.isNamed(type, "java.lang.String")) {
+      source.line(writer + ".writeString(" + value + ");");
+    } else if (types.isNamed(type, "java.math.BigInteger")) {
+      source.line(writer + ".writeBigInteger(" + value + ");");
+    } else if (types.isNamed(type, CodecTypes.UINT256)) {
+      source.line(writer + ".writeUInt256(" + value + ");");
+    } else if (types.isAnnotated(type, ANNOTATION)) {
+      String nested = "w" + depth;
+      String codec = types.codecName(type, SUFFIX);
+      source.line(writer + ".writeList(" + nested + " -> " + codec + ".writeTo(" + value + ", " + nested + "));");
+    } else if (types.isBytes(type)) {
+      source.line(writer + ".writeValue(" + value + ");");
+    } else if (types.isValueType(type)) {
+      source.line(writer + ".writeValue(" + value + ".toBytes());");
+    } else {
+      TypeMirror elementType = types.listElementType(type);
+      if (elementType == null) {
+        throw unsupported(property);
+      }
+      String nested = "w" + depth;
+      String element = "e" + depth;
+      source.open(writer + ".writeList(" + nested + " ->");
+      source.open("for (" + types.sourceName(elementType) + " " + element + " : " + value + ")");
+      writeValue(source, property, elementType, element, nested, depth + 1);
+      source.close();
+      source.close("});");
+    }
+  }
+
+  private String readValue(Property property, TypeMirror type, String reader, int depth) {
+    TypeKind primitive = types.primitiveKind(type);
+    if (primitive == TypeKind.BYTE) {
+      return reader + ".readByte()";
+    } else if (primitive == TypeKind.INT) {
+      return reader + ".readInt()";
+    } else if (primitive == TypeKind.LONG) {
+      return reader + ".readLong()";
+    } else if (primitive != null) {
+      throw unsupported(property);
+    } else if (types.isByteArray(type)) {
+      return reader + ".readByteArray()";
+    } else if (types.isNamed(type, "java.lang.String")) {
+      return reader + ".readString()";
+    } else if (types.isNamed(type, "java.math.BigInteger")) {
+      return reader + ".readBigInteger()";
+    } else if (types.isNamed(type, CodecTypes.UINT256)) {
+      return reader + ".readUInt256()";
+    } else if (types.isAnnotated(type, ANNOTATION)) {
+      return reader + ".readList(" + types.codecName(type, SUFFIX) + "::readFrom)";
+    } else if (types.isNamed(type, CodecTypes.BYTES)) {
+      return reader + ".readValue()";
+    } else if (types.isBytes(type) || types.isValueType(type)) {
+      String factory = types.bytesFactory(type);
+      if (factory == null) {
+        throw unsupported(property);
+      }
+      return factory + "(" + reader + ".readValue())";
+    }
+    TypeMirror elementType = types.listElementType(type);
+    if (elementType == null) {
+      throw unsupported(property);
+    }
+    String nested = "r" + depth;
+    return reader + ".readListContents(" + nested + " -> " + readValue(property, elementType, nested, depth + 1) + ")";
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.codegen;
+
+import net.consensys.cava.codegen.EncodableType.Property;
+
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Generates codecs for types annotated with {@code net.consensys.cava.ssz.SSZEncodable}.
+ *
+ * <p>
+ * A value is encoded as the concatenated SSZ encodings of its properties. Properties of a nested encodable type, or of
+ * a value type, are encoded as SSZ bytes.
+ */
+final class SSZCodecGenerator extends CodecGenerator {
+
+  static final String ANNOTATION = "net.consensys.cava.ssz.SSZEncodable";
+  static final String SUFFIX = "SSZCodec";
+
+  SSZCodecGenerator(CodecTypes types) {
+    super(types);
+  }
+
+  @Override
+  String format() {
+    return "SSZ";
+  }
+
+  @Override
+  String suffix() {
+    return SUFFIX;
+  }
+
+  @Override
+  String writerType() {
+    return "net.consensys.cava.ssz.SSZWriter";
+  }
+
+  @Override
+  String readerType() {
+    return "net.consensys.cava.ssz.SSZReader";
+  }
+
+  @Override
+  String encodeExpression() {
+    return "net.consensys.cava.ssz.SSZ.encode(writer -> writeTo(value, writer))";
+  }
+
+  @Override
+  String decodeExpression(String codecName) {
+    return "net.consensys.cava.ssz.SSZ.decode(encoded, " + codecName + "::readFrom)";
+  }
+
+  @Override
+  void writeProperty(SourceBuilder source, Property property, String variable) {
+    checkNotNullable(property);
+    TypeMirror type = property.type();
+    TypeKind primitive = types.primitiveKind(type);
+    if (primitive == TypeKind.BOOLEAN) {
+      source.line("writer.writeBoolean(" + variable + ");");
+    } else if (primitive == TypeKind.INT) {
+      source.line("writer.writeInt32(" + variable + ");");
+    } else if (primitive == TypeKind.LONG) {
+      source.line("writer.writeInt64(" + variable + ");");
+    } else if (primitive != null) {
+      throw unsupported(property);
+    } else if (types.isByteArray(type)) {
+      source.line("writer.writeBytes(" + variable + ");");
+    } else if (types.isNamed(type, "java.lang.String")) {
+      source.line("writer.writeString(" + variable + ");");
+    } else if (types.isNamed(type, CodecTypes.UINT256)) {
+      source.line("writer.writeUInt256(" + variable + ");");
+    } else if (types.isNamed(type, CodecTypes.BYTES32)) {
+      source.line("writer.writeHash(" + variable + ");");
+    } else if (isBytesLike(type)) {
+      source.line("writer.writeBytes(" + toBytes(type, variable) + ");");
+    } else {
+      writeList(source, property, variable);
+    }
+  }
+
+  private void writeList(SourceBuilder source, Property property, String variable) {
+    TypeMirror elementType = types.listElementType(property.type());
+    if (elementType == null) {
+      throw unsupported(property);
+    }
+    TypeKind primitive = types.primitiveKind(elementType);
+    if (primitive == TypeKind.BOOLEAN) {
+      source.line("writer.writeBooleanList(" + variable + ");");
+    } else if (primitive == TypeKind.INT) {
+      source.line("writer.writeIntList(32, " + variable + ");");
+    } else if (primitive == TypeKind.LONG) {
+      source.line("writer.writeLongIntList(64, " + variable + ");");
+    } else if (primitive != null) {
+      throw unsupported(property);
+    } else if (types.isNamed(elementType, "java.lang.String")) {
+      source.line("writer.writeStringList(" + variable + ");");
+    } else if (types.isNamed(elementType, CodecTypes.UINT256)) {
+      source.line("writer.writeUInt256List(" + variable + ");");
+    } else if (types.isNamed(elementType, CodecTypes.BYTES32)) {
+      source.line("writer.writeHashList(" + variable + ");");
+    } else if (types.isBytes(elementType) && !types.isAnnotated(elementType, ANNOTATION)) {
+      source.line("writer.writeBytesList(" + variable + ");");
+    } else if (isBytesLike(elementType)) {
+      String list = variable + "Bytes";
+      source.line(
+          "java.util.List<" + CodecTypes.BYTES + "> " + list + " = new java.util.ArrayList<>(" + variable
+              + ".size());");
+      source.open("for (" + types.sourceName(elementType) + " e : " + variable + ")");
+      source.line(list + ".add(" + toBytes(elementType, "e") + ");");
+      source.close();
+      source.line("writer.writeBytesList(" + list + ");");
+    } else {
+      throw unsupported(property);
+    }
+  }
+
+  @Override
+  void readProperty(SourceBuilder source, Property property, String variable) {
+    checkNotNullable(property);
+    TypeMirror type = property.type();
+    String declaration = types.sourceName(type) + " " + variable;
+    TypeKind primitive = types.primitiveKind(type);
+    if (primitive == TypeKind.BOOLEAN) {
+      source.line(declaration + " = reader.readBoolean();");
+    } else if (primitive == TypeKind.INT) {
+      source.line(declaration + " = reader.readInt32();");
+    } else if (primitive == TypeKind.LONG) {
+      source.line(declaration + " = reader.readInt64();");
+    } else if (primitive != null) {
+      throw unsupported(property);
+    } else if (types.isByteArray(type)) {
+      source.line(declaration + " = reader.readByteArray();");
+    } else if (types.isNamed(type, "java.lang.String")) {
+      source.line(declaration + " = reader.readString();");
+    } else if (types.isNamed(type, CodecTypes.UINT256)) {
+      source.line(declaration + " = reader.readUInt256();");
+    } else if (types.isNamed(type, CodecTypes.BYTES32)) {
+      source.line(declaration + " = " + CodecTypes.BYTES32 + ".wrap(reader.readHash(32));");
+    } else if (isBytesLike(type)) {
+      source.line(declaration + " = " + fromBytes(property, type, "reader.readBytes()") + ";");
+    } else {
+      readList(source, property, declaration, variable);
+    }
+  }
+
+  private void readList(SourceBuilder source, Property property, String declaration, String variable) {
+    TypeMirror elementType = types.listElementType(property.type());
+    if (elementType == null) {
+      throw unsupported(property);
+    }
+    TypeKind primitive = types.primitiveKind(elementType);
+    String list;
+    if (primitive == TypeKind.BOOLEAN) {
+      list = "reader.readBooleanList()";
+    } else if (primitive == TypeKind.INT) {
+      list = "reader.readIntList(32)";
+    } else if (primitive == TypeKind.LONG) {
+      list = "reader.readLongIntList(64)";
+    } else if (primitive != null) {
+      throw unsupported(property);
+    } else if (types.isNamed(elementType, "java.lang.String")) {
+      list = "reader.readStringList()";
+    } else if (types.isNamed(elementType, CodecTypes.UINT256)) {
+      list = "reader.readUInt256List()";
+    } else if (types.isNamed(elementType, CodecTypes.BYTES)) {
+      list = "reader.readBytesList()";
+    } else if (isBytesLike(elementType)) {
+      // convert each of the elements from bytes
+      boolean isHash = types.isNamed(elementType, CodecTypes.BYTES32);
+      String read = isHash ? "reader.readHashList(32)" : "reader.readBytesList()";
+      String elementName = types.sourceName(elementType);
+      source.line("java.util.List<" + elementName + "> " + variable + " = new java.util.ArrayList<>();");
+      source.open("for (" + CodecTypes.BYTES + " e : " + read + ")");
+      source.line(variable + ".add(" + fromBytes(property, elementType, "e") + ");");
+      source.close();
+      return;
+    } else {
+      throw unsupported(property);
+    }
+    source.line(declaration + " = " + list + ";");
+  }
+
+  private boolean isBytesLike(TypeMirror type) {
+    return types.isAnnotated(type, ANNOTATION) || types.isBytes(type) || types.isValueType(type);
+  }
+
+  private String toBytes(TypeMirror type, String value) {
+    if (types.isAnnotated(type, ANNOTATION)) {
+      return types.codecName(type, SUFFIX) + ".encode(" + value + ")";
+    }
+    if (types.isBytes(type)) {
+      return value;
+    }
+    return value + ".toBytes()";
+  }
+
+  private String fromBytes(Property property, TypeMirror type, String bytes) {
+    if (types.isAnnotated(type, ANNOTATION)) {
+      return types.codecName(type, SUFFIX) + ".decode(" + bytes + ")";
+    }
+    if (types.isNamed(type, CodecTypes.BYTES)) {
+      return bytes;
+    }
+    String factory = types.bytesFactory(type);
+    if (factory == null) {
+      throw unsupported(property);
+    }
+    return factory + "(" + bytes + ")";
+  }
+
+  private static void checkNotNullable(Property property) {
+    if (property.isNullable()) {
+      throw new CodegenException("SSZ cannot encode nullable property " + property.name(), property.element());
+    }
+  }
+}
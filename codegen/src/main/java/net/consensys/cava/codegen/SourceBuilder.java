@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.codegen;
+
+/**
+ * A builder for indented java source.
+ */
+final class SourceBuilder {
+
+  private static final String INDENT = "  ";
+
+  private final StringBuilder source = new StringBuilder();
+  private int depth = 0;
+
+  /**
+   * Append a line of source at the current indentation.
+   *
+   * @param line The line, without a line terminator.
+   * @return This builder.
+   */
+  SourceBuilder line(String line) {
+    if (!line.isEmpty()) {
+      for (int i = 0; i < depth; ++i) {
+        source.append(INDENT);
+      }
+      source.append(line);
+    }
+    source.append('\n');
+    return this;
+  }
+
+  /**
+   * Append an empty line.
+   *
+   * @return This builder.
+   */
+  SourceBuilder line() {
+    return line("");
+  }
+
+  /**
+   * Append a line that opens a block, and indent subsequent lines.
+   *
+   * @param line The line, excluding the opening brace.
+   * @return This builder.
+   */
+  SourceBuilder open(String line) {
+    line(line + " {");
+    depth++;
+    return this;
+  }
+
+  /**
+   * Close the current block.
+   *
+   * @return This builder.
+   */
+  SourceBuilder close() {
+    return close("}");
+  }
+
+  /**
+   * Close the current block with a line other than a single closing brace.
+   *
+   * @param line The closing line.
+   * @return This builder.
+   */
+  SourceBuilder close(String line) {
+    depth--;
+    return line(line);
+  }
+
+  /**
+   * Close the current block and open another on the same line, such as {@code "} else {"}.
+   *
+   * @param line The line, excluding the closing and opening braces.
+   * @return This builder.
+   */
+  SourceBuilder next(String line) {
+    depth--;
+    return open("} " + line);
+  }
+
+  @Override
+  public String toString() {
+    return source.toString();
+  }
+}
@@ -0,0 +1,11 @@
+/**
+ * An annotation processor that generates RLP and SSZ codecs.
+ * <p>
+ * Classes annotated with {@code net.consensys.cava.rlp.RLPEncodable} or {@code net.consensys.cava.ssz.SSZEncodable}
+ * have specialized encoders and decoders generated for them at compile time. The processor can be applied to Java
+ * sources with the {@code annotationProcessor} gradle configuration, and to Kotlin sources using kapt.
+ * <p>
+ * These classes are included in the standard Cava distribution, or separately when using the gradle dependency
+ * 'net.consensys.cava:cava-codegen' (cava-codegen.jar).
+ */
+package net.consensys.cava.codegen;
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.codegen;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import net.consensys.cava.bytes.Bytes;
+import net.consensys.cava.bytes.Bytes32;
+import net.consensys.cava.rlp.RLP;
+import net.consensys.cava.rlp.RLPEncodable;
+import net.consensys.cava.units.bigints.UInt256;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import org.junit.jupiter.api.Test;
+
+class RLPCodecGeneratorTest {
+
+  static final class Name {
+    private final String value;
+
+    Name(String value) {
+      this.value = value;
+    }
+
+    static Name fromBytes(Bytes bytes) {
+      return new Name(new String(bytes.toArrayUnsafe(), UTF_8));
+    }
+
+    public Bytes toBytes() {
+      return Bytes.wrap(value.getBytes(UTF_8));
+    }
+  }
+
+  @RLPEncodable({"name", "number", "value"})
+  static final class Account {
+    final Bytes value;
+    private final Name name;
+    private final long number;
+
+    Account(Bytes value, Name name, long number) {
+      this.value = value;
+      this.name = name;
+      this.number = number;
+    }
+
+    Account(Bytes value) {
+      this(value, new Name("unnamed"), 0);
+    }
+
+    Name name() {
+      return name;
+    }
+
+    long getNumber() {
+      return number;
+    }
+  }
+
+  @RLPEncodable
+  static final class Everything {
+    private final byte b;
+    private final int i;
+    private final long l;
+    private final byte[] array;
+    private final String string;
+    private final BigInteger bigInteger;
+    private final UInt256 uint256;
+    private final Bytes32 hash;
+    private final Bytes optional;
+    private final Account account;
+    private final List<Bytes32> hashes;
+    private final List<List<Integer>> matrix;
+
+    Everything(
+        byte b,
+        int i,
+        long l,
+        byte[] array,
+        String string,
+        BigInteger bigInteger,
+        UInt256 uint256,
+        Bytes32 hash,
+        @Nullable Bytes optional,
+        Account account,
+        List<Bytes32> hashes,
+        List<List<Integer>> matrix) {
+      this.b = b;
+      this.i = i;
+      this.l = l;
+      this.array = array;
+      this.string = string;
+      this.bigInteger = bigInteger;
+      this.uint256 = uint256;
+      this.hash = hash;
+      this.optional = optional;
+      this.account = account;
+      this.hashes = hashes;
+      this.matrix = matrix;
+    }
+
+    byte b() {
+      return b;
+    }
+
+    int i() {
+      return i;
+    }
+
+    long l() {
+      return l;
+    }
+
+    byte[] array() {
+      return array;
+    }
+
+    String string() {
+      return string;
+    }
+
+    BigInteger bigInteger() {
+      return bigInteger;
+    }
+
+    UInt256 uint256() {
+      return uint256;
+    }
+
+    Bytes32 hash() {
+      return hash;
+    }
+
+    @Nullable
+    Bytes optional() {
+      return optional;
+    }
+
+    Account account() {
+      return account;
+    }
+
+    List<Bytes32> hashes() {
+      return hashes;
+    }
+
+    List<List<Integer>> matrix() {
+      return matrix;
+    }
+  }
+
+  @Test
+  void shouldEncodeNamedPropertiesInOrder() {
+    Account account = new Account(Bytes.fromHexString("0x0102"), new Name("alice"), 42);
+    Bytes expected = RLP.encodeList(writer -> {
+      writer.writeString("alice");
+      writer.writeLong(42);
+      writer.writeValue(Bytes.fromHexString("0x0102"));
+    });
+    assertEquals(expected, RLPCodecGeneratorTest_AccountRLPCodec.encode(account));
+
+    Account decoded = RLPCodecGeneratorTest_AccountRLPCodec.decode(expected);
+    assertEquals("alice", decoded.name().value);
+    assertEquals(42, decoded.getNumber());
+    assertEquals(Bytes.fromHexString("0x0102"), decoded.value);
+  }
+
+  @Test
+  void shouldRoundTripAllPropertyTypes() {
+    Bytes32 hash = Bytes32.fromHexString("0x0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef");
+    Everything value = new Everything(
+        (byte) 7,
+        1024,
+        Long.MAX_VALUE,
+        new byte[] {1, 2, 3},
+        "hello",
+        BigInteger.valueOf(2).pow(100),
+        UInt256.valueOf(123456),
+        hash,
+        Bytes.fromHexString("0xff"),
+        new Account(Bytes.EMPTY, new Name("bob"), 1),
+        Arrays.asList(hash, Bytes32.ZERO),
+        Arrays.asList(Arrays.asList(1, 2), Collections.emptyList(), Collections.singletonList(3)));
+    Bytes encoded = RLPCodecGeneratorTest_EverythingRLPCodec.encode(value);
+    Everything decoded = RLPCodecGeneratorTest_EverythingRLPCodec.decode(encoded);
+
+    assertEquals(7, decoded.b());
+    assertEquals(1024, decoded.i());
+    assertEquals(Long.MAX_VALUE, decoded.l());
+    assertArrayEquals(new byte[] {1, 2, 3}, decoded.array());
+    assertEquals("hello", decoded.string());
+    assertEquals(BigInteger.valueOf(2).pow(100), decoded.bigInteger());
+    assertEquals(UInt256.valueOf(123456), decoded.uint256());
+    assertEquals(hash, decoded.hash());
+    assertEquals(Bytes.fromHexString("0xff"), decoded.optional());
+    assertEquals("bob", decoded.account().name().value);
+    assertEquals(Arrays.asList(hash, Bytes32.ZERO), decoded.hashes());
+    assertEquals(value.matrix(), decoded.matrix());
+    assertEquals(encoded, RLPCodecGeneratorTest_EverythingRLPCodec.encode(decoded));
+  }
+
+  @Test
+  void shouldEncodeNullAsEmptyValue() {
+    Everything value = new Everything(
+        (byte) 0,
+        0,
+        0,
+        new byte[0],
+        "",
+        BigInteger.ZERO,
+        UInt256.ZERO,
+        Bytes32.ZERO,
+        null,
+        new Account(Bytes.EMPTY),
+        Collections.emptyList(),
+        Collections.emptyList());
+    Bytes encoded = RLPCodecGeneratorTest_EverythingRLPCodec.encode(value);
+    assertEquals(
+        Bytes.fromHexString(
+            "0xf600808080808080a0000000000000000000000000000000000000000000000000000000000000000080ca87756e6e616d6564"
+                + "8080c0c0"),
+        encoded);
+    assertNull(RLPCodecGeneratorTest_EverythingRLPCodec.decode(encoded).optional());
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.codegen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import net.consensys.cava.bytes.Bytes;
+import net.consensys.cava.bytes.Bytes32;
+import net.consensys.cava.ssz.SSZ;
+import net.consensys.cava.ssz.SSZEncodable;
+import net.consensys.cava.units.bigints.UInt256;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SSZCodecGeneratorTest {
+
+  @SSZEncodable
+  static final class Validator {
+    private final Bytes pubkey;
+    private final long balance;
+
+    Validator(Bytes pubkey, long balance) {
+      this.pubkey = pubkey;
+      this.balance = balance;
+    }
+
+    Bytes getPubkey() {
+      return pubkey;
+    }
+
+    long getBalance() {
+      return balance;
+    }
+  }
+
+  @SSZEncodable({"slot", "root", "active", "validators", "roots", "numbers", "names", "proposer", "total", "epoch"})
+  static final class State {
+    final boolean active;
+    final int slot;
+    final long epoch;
+    final UInt256 total;
+    final Bytes32 root;
+    final Validator proposer;
+    final List<Validator> validators;
+    final List<Bytes32> roots;
+    final List<Integer> numbers;
+    final List<String> names;
+
+    State(
+        boolean active,
+        int slot,
+        long epoch,
+        UInt256 total,
+        Bytes32 root,
+        Validator proposer,
+        List<Validator> validators,
+        List<Bytes32> roots,
+        List<Integer> numbers,
+        List<String> names) {
+      this.active = active;
+      this.slot = slot;
+      this.epoch = epoch;
+      this.total = total;
+      this.root = root;
+      this.proposer = proposer;
+      this.validators = validators;
+      this.roots = roots;
+      this.numbers = numbers;
+      this.names = names;
+    }
+
+    boolean isActive() {
+      return active;
+    }
+  }
+
+  @Test
+  void shouldEncodePropertiesInOrder() {
+    Validator validator = new Validator(Bytes.fromHexString("0xabcdef"), 32);
+    Bytes expected = SSZ.encode(writer -> {
+      writer.writeBytes(Bytes.fromHexString("0xabcdef"));
+      writer.writeInt64(32);
+    });
+    assertEquals(expected, SSZCodecGeneratorTest_ValidatorSSZCodec.encode(validator));
+
+    Validator decoded = SSZCodecGeneratorTest_ValidatorSSZCodec.decode(expected);
+    assertEquals(Bytes.fromHexString("0xabcdef"), decoded.getPubkey());
+    assertEquals(32, decoded.getBalance());
+  }
+
+  @Test
+  void shouldRoundTripAllPropertyTypes() {
+    Bytes32 root = Bytes32.fromHexString("0x0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef");
+    Validator first = new Validator(Bytes.fromHexString("0x01"), 1);
+    Validator second = new Validator(Bytes.fromHexString("0x0202"), 2);
+    State state = new State(
+        true,
+        7,
+        Long.MIN_VALUE,
+        UInt256.valueOf(1000),
+        root,
+        first,
+        Arrays.asList(first, second),
+        Arrays.asList(root, Bytes32.ZERO),
+        Arrays.asList(1, -1, Integer.MAX_VALUE),
+        Collections.singletonList("name"));
+    Bytes encoded = SSZCodecGeneratorTest_StateSSZCodec.encode(state);
+    assertEquals(
+        SSZ.encode(writer -> {
+          writer.writeInt32(7);
+          writer.writeHash(root);
+        }),
+        encoded.slice(0, 36));
+
+    State decoded = SSZCodecGeneratorTest_StateSSZCodec.decode(encoded);
+    assertTrue(decoded.isActive());
+    assertEquals(7, decoded.slot);
+    assertEquals(Long.MIN_VALUE, decoded.epoch);
+    assertEquals(UInt256.valueOf(1000), decoded.total);
+    assertEquals(root, decoded.root);
+    assertEquals(Bytes.fromHexString("0x01"), decoded.proposer.getPubkey());
+    assertEquals(2, decoded.validators.size());
+    assertEquals(Bytes.fromHexString("0x0202"), decoded.validators.get(1).getPubkey());
+    assertEquals(2, decoded.validators.get(1).getBalance());
+    assertEquals(Arrays.asList(root, Bytes32.ZERO), decoded.roots);
+    assertEquals(Arrays.asList(1, -1, Integer.MAX_VALUE), decoded.numbers);
+    assertEquals(Collections.singletonList("name"), decoded.names);
+    assertEquals(encoded, SSZCodecGeneratorTest_StateSSZCodec.encode(decoded));
+  }
+}
@@ -71,17 +71,15 @@ class TransactionTestSuite {
       return;
     }
 
-    Transaction tx;
+    // fields are decoded on first access, so an invalid field is only reported once the sender is computed
     try {
-      tx = Transaction.fromBytes(rlpBytes);
+      if (Transaction.fromBytes(rlpBytes).sender() == null) {
+        return;
+      }
     } catch (RLPException e) {
       return;
     }
 
-    if (tx.sender() == null) {
-      return;
-    }
-
     fail("Expected an invalid transaction but it was successfully read");
   }
 
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.eth.repository
+
+/**
+ * Compression of sparse bitsets.
+ *
+ * A bitset is encoded as the positions of its non-zero bytes, followed by the values of those bytes. The positions
+ * are themselves a bitset, which is encoded recursively. A bitset that would not be made smaller by this encoding is
+ * kept as-is, and a bitset with no bits set is encoded as an empty array.
+ */
+internal object BitsetCompression {
+
+  /**
+   * Compresses a bitset.
+   *
+   * @param data the bitset
+   * @return the compressed bitset, which is no larger than the original
+   */
+  fun compress(data: ByteArray): ByteArray {
+    val encoded = encode(data)
+    return if (encoded.size < data.size) encoded else data.copyOf()
+  }
+
+  /**
+   * Decompresses a bitset.
+   *
+   * @param data the compressed bitset
+   * @param length the length of the original bitset
+   * @return the original bitset
+   * @throws IllegalArgumentException if the data is not a valid compressed bitset of the given length
+   */
+  fun decompress(data: ByteArray, length: Int): ByteArray {
+    require(data.size <= length) { "Compressed bitset of ${data.size} bytes exceeds the length of $length" }
+    if (data.size == length) {
+      return data.copyOf()
+    }
+    val (decoded, consumed) = decode(data, length)
+    require(consumed == data.size) { "Compressed bitset contains ${data.size - consumed} extra bytes" }
+    return decoded
+  }
+
+  private fun encode(data: ByteArray): ByteArray {
+    if (data.isEmpty()) {
+      return data
+    }
+    if (data.size == 1) {
+      return if (data[0].toInt() == 0) ByteArray(0) else data
+    }
+    val positions = ByteArray((data.size + 7) / 8)
+    val values = ArrayList<Byte>()
+    for (i in data.indices) {
+      if (data[i].toInt() != 0) {
+        values.add(data[i])
+        positions[i / 8] = (positions[i / 8].toInt() or (1 shl (7 - i % 8))).toByte()
+      }
+    }
+    if (values.isEmpty()) {
+      return ByteArray(0)
+    }
+    return encode(positions) + values.toByteArray()
+  }
+
+  // decodes a prefix of the data, returning the decoded bitset and the number of bytes consumed
+  private fun decode(data: ByteArray, length: Int): Pair<ByteArray, Int> {
+    val decoded = ByteArray(length)
+    if (length == 0 || data.isEmpty()) {
+      return Pair(decoded, 0)
+    }
+    if (length == 1) {
+      decoded[0] = data[0]
+      return Pair(decoded, if (data[0].toInt() == 0) 0 else 1)
+    }
+    val (positions, positionsLength) = decode(data, (length + 7) / 8)
+    var offset = positionsLength
+    for (i in 0 until positions.size * 8) {
+      if ((positions[i / 8].toInt() and (1 shl (7 - i % 8))) != 0) {
+        require(offset < data.size) { "Compressed bitset is missing data" }
+        require(i < length) { "Compressed bitset exceeds the length of $length" }
+        require(data[offset].toInt() != 0) { "Compressed bitset contains a zero value" }
+        decoded[i] = data[offset++]
+      }
+    }
+    return Pair(decoded, offset)
+  }
+}
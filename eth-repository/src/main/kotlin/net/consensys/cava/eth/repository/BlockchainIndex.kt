@@ -17,18 +17,21 @@ import net.consensys.cava.bytes.Bytes32
 import net.consensys.cava.eth.Address
 import net.consensys.cava.eth.BlockHeader
 import net.consensys.cava.eth.Hash
+import net.consensys.cava.eth.Transaction
 import net.consensys.cava.units.bigints.UInt256
 import net.consensys.cava.units.ethereum.Gas
 import org.apache.lucene.document.Field
 import org.apache.lucene.document.LongPoint
+import org.apache.lucene.document.NumericDocValuesField
+import org.apache.lucene.document.SortedDocValuesField
 import org.apache.lucene.document.StringField
 import org.apache.lucene.index.IndexWriter
 import org.apache.lucene.index.IndexableField
 import org.apache.lucene.index.Term
 import org.apache.lucene.search.BooleanClause
 import org.apache.lucene.search.BooleanQuery
+import org.apache.lucene.search.FieldDoc
 import org.apache.lucene.search.IndexSearcher
-import org.apache.lucene.search.MatchAllDocsQuery
 import org.apache.lucene.search.Query
 import org.apache.lucene.search.SearcherFactory
 import org.apache.lucene.search.SearcherManager
@@ -48,69 +51,120 @@ import java.io.UncheckedIOException
 interface BlockchainIndexReader {
 
   /**
-   * Find a value in a range.
+   * Find block headers with a value of a field in a range.
+   *
+   * Block headers are provided in order of their number. They are fetched from the index one page at a time, as the
+   * sequence is iterated.
    *
    * @param field the name of the field
    * @param minValue the minimum value, inclusive
    * @param maxValue the maximum value, inclusive
+   * @param pageSize the number of block headers fetched from the index at a time
    * @return the matching block header hashes.
    */
-  fun findInRange(field: BlockHeaderFields, minValue: UInt256, maxValue: UInt256): List<Hash>
+  fun findInRange(
+    field: BlockHeaderFields,
+    minValue: UInt256,
+    maxValue: UInt256,
+    pageSize: Int = DEFAULT_PAGE_SIZE
+  ): Sequence<Hash>
 
   /**
-   * Find exact matches for a field.
+   * Find block headers with a value of a numeric field, such as the timestamp, in a range.
+   *
+   * Block headers are provided in order of their number. They are fetched from the index one page at a time, as the
+   * sequence is iterated.
    *
    * @param field the name of the field
-   * @param value the value of the field.
+   * @param minValue the minimum value, inclusive
+   * @param maxValue the maximum value, inclusive
+   * @param pageSize the number of block headers fetched from the index at a time
    * @return the matching block header hashes.
    */
-  fun findBy(field: BlockHeaderFields, value: Bytes): List<Hash>
+  fun findInRange(
+    field: BlockHeaderFields,
+    minValue: Long,
+    maxValue: Long,
+    pageSize: Int = DEFAULT_PAGE_SIZE
+  ): Sequence<Hash>
 
   /**
-   * Find exact matches for a field.
+   * Find block headers by exact match of a field.
+   *
+   * Block headers are provided in order of their number. They are fetched from the index one page at a time, as the
+   * sequence is iterated.
    *
    * @param field the name of the field
-   * @param value the value of the field.
+   * @param value the value of the field
+   * @param pageSize the number of block headers fetched from the index at a time
    * @return the matching block header hashes.
    */
-  fun findBy(field: BlockHeaderFields, value: Long): List<Hash>
+  fun findBy(field: BlockHeaderFields, value: Bytes, pageSize: Int = DEFAULT_PAGE_SIZE): Sequence<Hash>
 
   /**
-   * Find exact matches for a field.
+   * Find block headers by exact match of a field.
+   *
+   * Block headers are provided in order of their number. They are fetched from the index one page at a time, as the
+   * sequence is iterated.
    *
    * @param field the name of the field
-   * @param value the value of the field.
+   * @param value the value of the field
+   * @param pageSize the number of block headers fetched from the index at a time
    * @return the matching block header hashes.
    */
-  fun findBy(field: BlockHeaderFields, value: Gas): List<Hash>
+  fun findBy(field: BlockHeaderFields, value: Long, pageSize: Int = DEFAULT_PAGE_SIZE): Sequence<Hash>
 
   /**
-   * Find exact matches for a field.
+   * Find block headers by exact match of a field.
+   *
+   * Block headers are provided in order of their number. They are fetched from the index one page at a time, as the
+   * sequence is iterated.
    *
    * @param field the name of the field
-   * @param value the value of the field.
+   * @param value the value of the field
+   * @param pageSize the number of block headers fetched from the index at a time
+   * @return the matching block header hashes.
+   */
+  fun findBy(field: BlockHeaderFields, value: Gas, pageSize: Int = DEFAULT_PAGE_SIZE): Sequence<Hash>
+
+  /**
+   * Find block headers by exact match of a field.
+   *
+   * Block headers are provided in order of their number. They are fetched from the index one page at a time, as the
+   * sequence is iterated.
    *
+   * @param field the name of the field
+   * @param value the value of the field
+   * @param pageSize the number of block headers fetched from the index at a time
    * @return the matching block header hashes.
    */
-  fun findBy(field: BlockHeaderFields, value: UInt256): List<Hash>
+  fun findBy(field: BlockHeaderFields, value: UInt256, pageSize: Int = DEFAULT_PAGE_SIZE): Sequence<Hash>
 
   /**
-   * Find exact matches for a field.
+   * Find block headers by exact match of a field.
+   *
+   * Block headers are provided in order of their number. They are fetched from the index one page at a time, as the
+   * sequence is iterated.
    *
    * @param field the name of the field
-   * @param value the value of the field.
+   * @param value the value of the field
+   * @param pageSize the number of block headers fetched from the index at a time
    * @return the matching block header hashes.
    */
-  fun findBy(field: BlockHeaderFields, value: Address): List<Hash>
+  fun findBy(field: BlockHeaderFields, value: Address, pageSize: Int = DEFAULT_PAGE_SIZE): Sequence<Hash>
 
   /**
-   * Find exact matches for a field.
+   * Find block headers by exact match of a field.
+   *
+   * Block headers are provided in order of their number. They are fetched from the index one page at a time, as the
+   * sequence is iterated.
    *
    * @param field the name of the field
-   * @param value the value of the field.
+   * @param value the value of the field
+   * @param pageSize the number of block headers fetched from the index at a time
    * @return the matching block header hashes.
    */
-  fun findBy(field: BlockHeaderFields, value: Hash): List<Hash>
+  fun findBy(field: BlockHeaderFields, value: Hash, pageSize: Int = DEFAULT_PAGE_SIZE): Sequence<Hash>
 
   /**
    * Finds hashes of blocks by hash or number.
@@ -123,10 +177,57 @@ interface BlockchainIndexReader {
   /**
    * Find the hash of the block header with the largest value of a specific block header field
    *
+   * Values are compared as unsigned bytes, except for the timestamp, which is compared numerically. Ties are broken in
+   * favor of the block header with the smallest hash.
+   *
    * @param field the field to query on
    * @return the matching hash with the largest field value.
    */
   fun findByLargest(field: BlockHeaderFields): Hash?
+
+  /**
+   * Find transactions by exact match of an address field.
+   *
+   * Transactions are provided in order of their block number and position in the block. They are fetched from the
+   * index one page at a time, as the sequence is iterated.
+   *
+   * @param field the field to query on
+   * @param value the value of the field
+   * @param pageSize the number of transactions fetched from the index at a time
+   * @return the matching transaction hashes.
+   */
+  fun findTransactionsBy(field: TransactionFields, value: Address, pageSize: Int = DEFAULT_PAGE_SIZE): Sequence<Hash>
+
+  /**
+   * Find transactions by exact match of a hash field.
+   *
+   * Transactions are provided in order of their block number and position in the block. They are fetched from the
+   * index one page at a time, as the sequence is iterated.
+   *
+   * @param field the field to query on
+   * @param value the value of the field
+   * @param pageSize the number of transactions fetched from the index at a time
+   * @return the matching transaction hashes.
+   */
+  fun findTransactionsBy(field: TransactionFields, value: Hash, pageSize: Int = DEFAULT_PAGE_SIZE): Sequence<Hash>
+
+  /**
+   * Find the blocks that include a transaction.
+   *
+   * A transaction may be included in several blocks, such as blocks of different forks.
+   *
+   * @param transactionHash the hash of the transaction
+   * @return the hashes of the blocks, in order of their number.
+   */
+  fun findBlocksIncludingTransaction(transactionHash: Hash): List<Hash>
+
+  companion object {
+
+    /**
+     * The default number of results fetched from the index at a time.
+     */
+    const val DEFAULT_PAGE_SIZE = 100
+  }
 }
 
 /**
@@ -140,6 +241,17 @@ interface BlockchainIndexWriter {
    * @param blockHeader the block header to index
    */
   fun indexBlockHeader(blockHeader: BlockHeader)
+
+  /**
+   * Indexes a transaction.
+   *
+   * A transaction is indexed separately for each block that includes it.
+   *
+   * @param transaction the transaction to index
+   * @param blockHeader the header of the block containing the transaction
+   * @param index the position of the transaction in the block
+   */
+  fun indexTransaction(transaction: Transaction, blockHeader: BlockHeader, index: Int)
 }
 
 /**
@@ -154,6 +266,10 @@ internal class IndexWriteException(e: Exception) : RuntimeException(e)
 
 /**
  * A Lucene-backed indexer capable of indexing blocks and block headers.
+ *
+ * The version of the format of the indexed documents is recorded in the commits of the index. An index that contains
+ * documents of a different format, or that was created before the format was recorded, cannot be used and must be
+ * rebuilt.
  */
 class BlockchainIndex(private val indexWriter: IndexWriter) : BlockchainIndexWriter, BlockchainIndexReader {
   private val searcherManager: SearcherManager
@@ -162,6 +278,7 @@ class BlockchainIndex(private val indexWriter: IndexWriter) : BlockchainIndexWri
     if (!indexWriter.isOpen) {
       throw IllegalArgumentException("Index writer should be opened")
     }
+    checkFormatVersion()
     try {
       searcherManager = SearcherManager(indexWriter, SearcherFactory())
     } catch (e: IOException) {
@@ -169,6 +286,22 @@ class BlockchainIndex(private val indexWriter: IndexWriter) : BlockchainIndexWri
     }
   }
 
+  private fun checkFormatVersion() {
+    val commitData = HashMap<String, String>()
+    indexWriter.liveCommitData?.forEach { commitData[it.key] = it.value }
+    val version = commitData[FORMAT_VERSION_KEY]
+    if (version == null) {
+      require(indexWriter.maxDoc() == 0) { "Index has no format version and must be rebuilt" }
+      // recorded with the next commit
+      commitData[FORMAT_VERSION_KEY] = FORMAT_VERSION.toString()
+      indexWriter.setLiveCommitData(commitData.entries)
+    } else {
+      require(version == FORMAT_VERSION.toString()) {
+        "Index has format version $version rather than $FORMAT_VERSION and must be rebuilt"
+      }
+    }
+  }
+
   /**
    * Provides a function to index elements and committing them. If an exception is thrown in the function, the write is
    * rolled back.
@@ -198,40 +331,20 @@ class BlockchainIndex(private val indexWriter: IndexWriter) : BlockchainIndexWri
   override fun indexBlockHeader(blockHeader: BlockHeader) {
     val document = ArrayList<IndexableField>()
     val id = toBytesRef(blockHeader.hash())
-    document.add(StringField("_id", id, Field.Store.YES))
-    blockHeader.parentHash().let {
-      document.add(
-        StringField(
-          BlockHeaderFields.PARENT_HASH.fieldName,
-          toBytesRef(blockHeader.parentHash()!!),
-          Field.Store.NO
-        )
-      )
-    }
-    document.add(
-      StringField(BlockHeaderFields.OMMERS_HASH.fieldName, toBytesRef(blockHeader.ommersHash()), Field.Store.NO)
-    )
-    document
-      .add(StringField(BlockHeaderFields.COINBASE.fieldName, toBytesRef(blockHeader.coinbase()), Field.Store.NO))
-    document.add(
-      StringField(BlockHeaderFields.STATE_ROOT.fieldName, toBytesRef(blockHeader.stateRoot()), Field.Store.NO)
-    )
-    document.add(
-      StringField(BlockHeaderFields.DIFFICULTY.fieldName, toBytesRef(blockHeader.difficulty()), Field.Store.NO)
-    )
-    document.add(
-      StringField(BlockHeaderFields.DIFFICULTY.fieldName, toBytesRef(blockHeader.difficulty()), Field.Store.NO)
-    )
-    document.add(StringField(BlockHeaderFields.NUMBER.fieldName, toBytesRef(blockHeader.number()), Field.Store.NO))
-    document.add(
-      StringField(BlockHeaderFields.GAS_LIMIT.fieldName, toBytesRef(blockHeader.gasLimit()), Field.Store.NO)
-    )
-    document
-      .add(StringField(BlockHeaderFields.GAS_USED.fieldName, toBytesRef(blockHeader.gasUsed()), Field.Store.NO))
-    document.add(
-      StringField(BlockHeaderFields.EXTRA_DATA.fieldName, toBytesRef(blockHeader.extraData()), Field.Store.NO)
-    )
-    document.add(LongPoint(BlockHeaderFields.TIMESTAMP.fieldName, blockHeader.timestamp().toEpochMilli()))
+    document.add(StringField("_id", id, Field.Store.NO))
+    document.add(SortedDocValuesField("_id", id))
+    blockHeader.parentHash()?.let { addField(document, BlockHeaderFields.PARENT_HASH, toBytesRef(it)) }
+    addField(document, BlockHeaderFields.OMMERS_HASH, toBytesRef(blockHeader.ommersHash()))
+    addField(document, BlockHeaderFields.COINBASE, toBytesRef(blockHeader.coinbase()))
+    addField(document, BlockHeaderFields.STATE_ROOT, toBytesRef(blockHeader.stateRoot()))
+    addField(document, BlockHeaderFields.DIFFICULTY, toBytesRef(blockHeader.difficulty()))
+    addField(document, BlockHeaderFields.NUMBER, toBytesRef(blockHeader.number()))
+    addField(document, BlockHeaderFields.GAS_LIMIT, toBytesRef(blockHeader.gasLimit()))
+    addField(document, BlockHeaderFields.GAS_USED, toBytesRef(blockHeader.gasUsed()))
+    addField(document, BlockHeaderFields.EXTRA_DATA, toBytesRef(blockHeader.extraData()))
+    val timestamp = blockHeader.timestamp().toEpochMilli()
+    document.add(LongPoint(BlockHeaderFields.TIMESTAMP.fieldName, timestamp))
+    document.add(NumericDocValuesField(BlockHeaderFields.TIMESTAMP.fieldName, timestamp))
 
     try {
       indexWriter.updateDocument(Term("_id", id), document)
@@ -240,82 +353,85 @@ class BlockchainIndex(private val indexWriter: IndexWriter) : BlockchainIndexWri
     }
   }
 
-  private fun query(query: Query): List<Hash> {
-    var searcher: IndexSearcher? = null
-    try {
-      searcher = searcherManager.acquire()
-      val topDocs = searcher!!.search(query, HITS)
+  // indexes a field for exact and range matches, and with doc values for sorting
+  private fun addField(document: MutableList<IndexableField>, field: BlockHeaderFields, value: BytesRef) {
+    document.add(StringField(field.fieldName, value, Field.Store.NO))
+    document.add(SortedDocValuesField(field.fieldName, value))
+  }
 
-      val hashes = ArrayList<Hash>()
-      for (hit in topDocs.scoreDocs) {
-        val doc = searcher.doc(hit.doc, setOf("_id"))
-        val bytes = doc.getBinaryValue("_id")
-        hashes.add(Hash.fromBytes(Bytes32.wrap(bytes.bytes)))
-      }
-      return hashes
+  override fun indexTransaction(transaction: Transaction, blockHeader: BlockHeader, index: Int) {
+    val document = ArrayList<IndexableField>()
+    // a transaction may be included in several blocks, so it is identified by its position in the block
+    val id = toBytesRef(Bytes.concatenate(blockHeader.hash().toBytes(), Bytes.ofUnsignedInt(index.toLong())))
+    document.add(StringField(TRANSACTION_ID, id, Field.Store.NO))
+    document.add(SortedDocValuesField(TRANSACTION_ID, id))
+    val hash = toBytesRef(transaction.hash())
+    document.add(StringField(TransactionFields.HASH.fieldName, hash, Field.Store.NO))
+    document.add(SortedDocValuesField(TransactionFields.HASH.fieldName, hash))
+    transaction.sender()?.let {
+      document.add(StringField(TransactionFields.SENDER.fieldName, toBytesRef(it), Field.Store.NO))
+    }
+    transaction.to()?.let {
+      document.add(StringField(TransactionFields.RECIPIENT.fieldName, toBytesRef(it), Field.Store.NO))
+    }
+    val blockHash = toBytesRef(blockHeader.hash())
+    document.add(StringField(TransactionFields.BLOCK_HASH.fieldName, blockHash, Field.Store.NO))
+    document.add(SortedDocValuesField(TransactionFields.BLOCK_HASH.fieldName, blockHash))
+    document.add(SortedDocValuesField(TransactionFields.BLOCK_NUMBER.fieldName, toBytesRef(blockHeader.number())))
+    document.add(NumericDocValuesField(TransactionFields.INDEX.fieldName, index.toLong()))
+
+    try {
+      indexWriter.updateDocument(Term(TRANSACTION_ID, id), document)
     } catch (e: IOException) {
-      throw IndexReadException(e)
-    } finally {
-      try {
-        searcherManager.release(searcher)
-      } catch (e: IOException) {
-      }
+      throw IndexWriteException(e)
     }
   }
 
-  override fun findInRange(field: BlockHeaderFields, minValue: UInt256, maxValue: UInt256): List<Hash> {
-    return query(TermRangeQuery(field.fieldName, toBytesRef(minValue), toBytesRef(maxValue), true, true))
+  override fun findInRange(
+    field: BlockHeaderFields,
+    minValue: UInt256,
+    maxValue: UInt256,
+    pageSize: Int
+  ): Sequence<Hash> {
+    return queryBlockHeaders(
+      TermRangeQuery(field.fieldName, toBytesRef(minValue), toBytesRef(maxValue), true, true),
+      pageSize
+    )
   }
 
-  override fun findBy(field: BlockHeaderFields, value: Bytes): List<Hash> {
-    return findByOneTerm(field, toBytesRef(value))
+  override fun findInRange(field: BlockHeaderFields, minValue: Long, maxValue: Long, pageSize: Int): Sequence<Hash> {
+    return queryBlockHeaders(LongPoint.newRangeQuery(field.fieldName, minValue, maxValue), pageSize)
   }
 
-  override fun findBy(field: BlockHeaderFields, value: Long): List<Hash> {
-    return query(LongPoint.newExactQuery(field.fieldName, value))
+  override fun findBy(field: BlockHeaderFields, value: Bytes, pageSize: Int): Sequence<Hash> {
+    return findByOneTerm(field, toBytesRef(value), pageSize)
   }
 
-  override fun findByLargest(field: BlockHeaderFields): Hash? {
-    var searcher: IndexSearcher? = null
-    try {
-      searcher = searcherManager.acquire()
-      val topDocs = searcher!!.search(
-        MatchAllDocsQuery(),
-        HITS,
-        Sort(SortField.FIELD_SCORE, SortField(field.fieldName, SortField.Type.DOC))
-      )
-
-      for (hit in topDocs.scoreDocs) {
-        val doc = searcher.doc(hit.doc, setOf("_id"))
-        val bytes = doc.getBinaryValue("_id")
+  override fun findBy(field: BlockHeaderFields, value: Long, pageSize: Int): Sequence<Hash> {
+    return queryBlockHeaders(LongPoint.newExactQuery(field.fieldName, value), pageSize)
+  }
 
-        return Hash.fromBytes(Bytes32.wrap(bytes.bytes))
-      }
-      return null
-    } catch (e: IOException) {
-      throw IndexReadException(e)
-    } finally {
-      try {
-        searcherManager.release(searcher)
-      } catch (e: IOException) {
-      }
-    }
+  override fun findByLargest(field: BlockHeaderFields): Hash? {
+    val type = if (field == BlockHeaderFields.TIMESTAMP) SortField.Type.LONG else SortField.Type.STRING
+    val sort = Sort(SortField(field.fieldName, type, true), SortField("_id", SortField.Type.STRING))
+    // only block headers have an _id field
+    return queryPage(TermRangeQuery("_id", null, null, true, true), sort, null, 1).first.firstOrNull()
   }
 
-  override fun findBy(field: BlockHeaderFields, value: Gas): List<Hash> {
-    return findByOneTerm(field, toBytesRef(value))
+  override fun findBy(field: BlockHeaderFields, value: Gas, pageSize: Int): Sequence<Hash> {
+    return findByOneTerm(field, toBytesRef(value), pageSize)
   }
 
-  override fun findBy(field: BlockHeaderFields, value: UInt256): List<Hash> {
-    return findByOneTerm(field, toBytesRef(value))
+  override fun findBy(field: BlockHeaderFields, value: UInt256, pageSize: Int): Sequence<Hash> {
+    return findByOneTerm(field, toBytesRef(value), pageSize)
   }
 
-  override fun findBy(field: BlockHeaderFields, value: Address): List<Hash> {
-    return findByOneTerm(field, toBytesRef(value))
+  override fun findBy(field: BlockHeaderFields, value: Address, pageSize: Int): Sequence<Hash> {
+    return findByOneTerm(field, toBytesRef(value), pageSize)
   }
 
-  override fun findBy(field: BlockHeaderFields, value: Hash): List<Hash> {
-    return findByOneTerm(field, toBytesRef(value))
+  override fun findBy(field: BlockHeaderFields, value: Hash, pageSize: Int): Sequence<Hash> {
+    return findByOneTerm(field, toBytesRef(value), pageSize)
   }
 
   override fun findByHashOrNumber(hashOrNumber: Bytes32): List<Hash> {
@@ -329,11 +445,69 @@ class BlockchainIndex(private val indexWriter: IndexWriter) : BlockchainIndexWri
         )
       )
       .build()
-    return query(query)
+    return queryBlockHeaders(query, BlockchainIndexReader.DEFAULT_PAGE_SIZE).toList()
+  }
+
+  override fun findTransactionsBy(field: TransactionFields, value: Address, pageSize: Int): Sequence<Hash> {
+    return query(TermQuery(Term(field.fieldName, toBytesRef(value))), TRANSACTION_ORDER, pageSize)
+  }
+
+  override fun findTransactionsBy(field: TransactionFields, value: Hash, pageSize: Int): Sequence<Hash> {
+    return query(TermQuery(Term(field.fieldName, toBytesRef(value))), TRANSACTION_ORDER, pageSize)
+  }
+
+  override fun findBlocksIncludingTransaction(transactionHash: Hash): List<Hash> {
+    return query(
+      TermQuery(Term(TransactionFields.HASH.fieldName, toBytesRef(transactionHash))),
+      TRANSACTION_BLOCK_ORDER,
+      BlockchainIndexReader.DEFAULT_PAGE_SIZE
+    ).toList()
+  }
+
+  private fun findByOneTerm(field: BlockHeaderFields, value: BytesRef, pageSize: Int): Sequence<Hash> {
+    return queryBlockHeaders(TermQuery(Term(field.fieldName, value)), pageSize)
+  }
+
+  private fun queryBlockHeaders(query: Query, pageSize: Int): Sequence<Hash> {
+    return query(query, BLOCK_HEADER_ORDER, pageSize)
   }
 
-  private fun findByOneTerm(field: BlockHeaderFields, value: BytesRef): List<Hash> {
-    return query(TermQuery(Term(field.fieldName, value)))
+  // the last field of the sort must be the hash identifying the document
+  private fun query(query: Query, sort: Sort, pageSize: Int): Sequence<Hash> {
+    require(pageSize > 0) { "pageSize must be positive" }
+    return sequence {
+      var after: FieldDoc? = null
+      do {
+        val page = queryPage(query, sort, after, pageSize)
+        yieldAll(page.first)
+        after = page.second
+      } while (page.first.size == pageSize)
+    }
+  }
+
+  private fun queryPage(query: Query, sort: Sort, after: FieldDoc?, pageSize: Int): Pair<List<Hash>, FieldDoc?> {
+    var searcher: IndexSearcher? = null
+    try {
+      searcher = searcherManager.acquire()
+      // searching after the sort values of the last hit, rather than its document, is stable across refreshes
+      val topDocs = searcher!!.searchAfter(after, query, pageSize, sort)
+
+      // the hashes are read from the sort values, which come from doc values rather than stored fields
+      val hashes = ArrayList<Hash>(topDocs.scoreDocs.size)
+      for (hit in topDocs.scoreDocs) {
+        val fields = (hit as FieldDoc).fields
+        val bytes = fields[fields.size - 1] as BytesRef
+        hashes.add(Hash.fromBytes(Bytes32.wrap(bytes.bytes, bytes.offset).copy()))
+      }
+      return Pair(hashes, topDocs.scoreDocs.lastOrNull() as FieldDoc?)
+    } catch (e: IOException) {
+      throw IndexReadException(e)
+    } finally {
+      try {
+        searcherManager.release(searcher)
+      } catch (e: IOException) {
+      }
+    }
   }
 
   private fun toBytesRef(gas: Gas): BytesRef {
@@ -358,6 +532,28 @@ class BlockchainIndex(private val indexWriter: IndexWriter) : BlockchainIndexWri
 
   companion object {
 
-    private val HITS = 10
+    /**
+     * The version of the format of the documents of the index.
+     */
+    const val FORMAT_VERSION = 2
+
+    private const val FORMAT_VERSION_KEY = "formatVersion"
+    private const val TRANSACTION_ID = "_txId"
+
+    private val BLOCK_HEADER_ORDER = Sort(
+      SortField(BlockHeaderFields.NUMBER.fieldName, SortField.Type.STRING),
+      SortField("_id", SortField.Type.STRING)
+    )
+    private val TRANSACTION_ORDER = Sort(
+      SortField(TransactionFields.BLOCK_NUMBER.fieldName, SortField.Type.STRING),
+      SortField(TransactionFields.INDEX.fieldName, SortField.Type.LONG),
+      SortField(TRANSACTION_ID, SortField.Type.STRING),
+      SortField(TransactionFields.HASH.fieldName, SortField.Type.STRING)
+    )
+    private val TRANSACTION_BLOCK_ORDER = Sort(
+      SortField(TransactionFields.BLOCK_NUMBER.fieldName, SortField.Type.STRING),
+      SortField(TRANSACTION_ID, SortField.Type.STRING),
+      SortField(TransactionFields.BLOCK_HASH.fieldName, SortField.Type.STRING)
+    )
   }
 }
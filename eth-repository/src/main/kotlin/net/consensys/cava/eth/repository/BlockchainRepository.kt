@@ -12,18 +12,32 @@
  */
 package net.consensys.cava.eth.repository
 
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.channels.ReceiveChannel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 import net.consensys.cava.bytes.Bytes
 import net.consensys.cava.bytes.Bytes32
 import net.consensys.cava.eth.Block
 import net.consensys.cava.eth.BlockHeader
+import net.consensys.cava.eth.Address
 import net.consensys.cava.eth.Hash
+import net.consensys.cava.eth.Transaction
+import net.consensys.cava.eth.TransactionReceipt
 import net.consensys.cava.kv.KeyValueStore
+import net.consensys.cava.units.bigints.UInt256
 
 /**
  * Repository housing blockchain information.
  *
- * This repository allows storing blocks, block headers and metadata about the blockchain, such as forks and head
- * information.
+ * This repository allows storing blocks, block headers, transactions, transaction receipts and metadata about the
+ * blockchain, such as forks and head information.
+ *
+ * A transaction may be included in several blocks, such as blocks of different forks, with a different receipt in
+ * each. Receipts are therefore stored for each block that includes the transaction.
  */
 class BlockchainRepository
 /**
@@ -33,18 +47,30 @@ class BlockchainRepository
  * @param blockStore the key-value store to store blocks
  * @param blockHeaderStore the key-value store to store block headers
  * @param blockchainIndex the blockchain index to index values
+ * @param transactionStore the key-value store to store transactions
+ * @param transactionReceiptStore the key-value store to store transaction receipts
  */
   (
     private val chainMetadata: KeyValueStore,
     private val blockStore: KeyValueStore,
     private val blockHeaderStore: KeyValueStore,
-    private val blockchainIndex: BlockchainIndex
+    private val blockchainIndex: BlockchainIndex,
+    private val transactionStore: KeyValueStore,
+    private val transactionReceiptStore: KeyValueStore
   ) {
 
   companion object {
 
     val CHAIN_HEAD = Bytes.wrap("chainHead".toByteArray())
     val GENESIS_BLOCK = Bytes.wrap("genesisBlock".toByteArray())
+    val CANONICAL_CHAIN_SIZE = Bytes.wrap("canonicalChainSize".toByteArray())
+    val CANONICAL_CHAIN_SEGMENT = Bytes.wrap("canonicalChainSegment".toByteArray())
+    val CANONICAL_CHAIN_GAP = Bytes.wrap("canonicalChainGap".toByteArray())
+
+    /**
+     * The default number of blocks stored together by [storeBlocks].
+     */
+    const val DEFAULT_BATCH_SIZE = 1000
 
     /**
      * Initializes a blockchain repository with metadata, placing it in key-value stores.
@@ -56,27 +82,158 @@ class BlockchainRepository
       blockHeaderStore: KeyValueStore,
       chainMetadata: KeyValueStore,
       blockchainIndex: BlockchainIndex,
-      genesisBlock: Block
+      genesisBlock: Block,
+      transactionStore: KeyValueStore,
+      transactionReceiptStore: KeyValueStore
     ): BlockchainRepository {
-      val repo = BlockchainRepository(chainMetadata, blockStore, blockHeaderStore, blockchainIndex)
+      val repo = BlockchainRepository(
+        chainMetadata,
+        blockStore,
+        blockHeaderStore,
+        blockchainIndex,
+        transactionStore,
+        transactionReceiptStore
+      )
       repo.setGenesisBlock(genesisBlock)
       repo.storeBlock(genesisBlock)
       return repo
     }
   }
 
+  private val canonicalChainMutex = Mutex()
+  @Volatile
+  private var canonicalChain: CanonicalChain? = null
+
   /**
-   * Stores a block into the repository.
+   * Stores a block into the repository, along with its transactions and their receipts.
    *
    * @param block the block to store
+   * @param receipts the receipts of the transactions of the block, in the same order, or an empty list if the
+   *        receipts are not available
    * @return a handle to the storage operation completion
    */
-  suspend fun storeBlock(block: Block) {
-    blockStore.put(block.header().hash().toBytes(), block.toBytes())
-    blockHeaderStore.put(block.header().hash().toBytes(), block.header().toBytes())
-    blockchainIndex.indexBlockHeader(block.header())
-    if (isChainHead(block.header())) {
-      setChainHead(block.header())
+  suspend fun storeBlock(block: Block, receipts: List<TransactionReceipt> = emptyList()) {
+    storeBatch(listOf(block to receipts))
+  }
+
+  /**
+   * Stores blocks into the repository as they are received from a channel.
+   *
+   * Blocks are grouped into batches. The blocks of each batch are hashed and encoded in parallel, then written to the
+   * stores together, and their headers and transactions are indexed with a single commit. The chain head is updated at
+   * most once per batch.
+   *
+   * @param blocks the channel providing the blocks to store
+   * @param batchSize the maximum number of blocks to store together
+   */
+  suspend fun storeBlocks(blocks: ReceiveChannel<Block>, batchSize: Int = DEFAULT_BATCH_SIZE) {
+    storeInBatches(blocks, batchSize) { it to emptyList() }
+  }
+
+  /**
+   * Stores blocks and the receipts of their transactions into the repository as they are received from a channel.
+   *
+   * Blocks are stored in batches, as for [storeBlocks].
+   *
+   * @param blocks the channel providing the blocks to store, each with the receipts of its transactions
+   * @param batchSize the maximum number of blocks to store together
+   */
+  suspend fun storeBlocksWithReceipts(
+    blocks: ReceiveChannel<Pair<Block, List<TransactionReceipt>>>,
+    batchSize: Int = DEFAULT_BATCH_SIZE
+  ) {
+    storeInBatches(blocks, batchSize) { it }
+  }
+
+  private suspend fun <T> storeInBatches(
+    items: ReceiveChannel<T>,
+    batchSize: Int,
+    toEntry: (T) -> Pair<Block, List<TransactionReceipt>>
+  ) {
+    require(batchSize > 0) { "batchSize must be positive" }
+    val batch = ArrayList<Pair<Block, List<TransactionReceipt>>>(batchSize)
+    for (item in items) {
+      batch.add(toEntry(item))
+      if (batch.size == batchSize) {
+        storeBatch(batch)
+        batch.clear()
+      }
+    }
+    if (batch.isNotEmpty()) {
+      storeBatch(batch)
+    }
+  }
+
+  private class EncodedBlock(
+    val block: Block,
+    val hash: Bytes,
+    val blockBytes: Bytes,
+    val headerBytes: Bytes,
+    val transactions: Map<Bytes, Bytes>,
+    val receipts: Map<Bytes, Bytes>
+  )
+
+  private fun encode(block: Block, receipts: List<TransactionReceipt>): EncodedBlock {
+    val transactions = block.body().transactions()
+    require(receipts.isEmpty() || receipts.size == transactions.size) {
+      "Expected ${transactions.size} transaction receipts but got ${receipts.size}"
+    }
+    val header = block.header()
+    val blockHash = header.hash()
+    val encodedTransactions = LinkedHashMap<Bytes, Bytes>(transactions.size)
+    val encodedReceipts = LinkedHashMap<Bytes, Bytes>(receipts.size)
+    transactions.forEachIndexed { i, transaction ->
+      val hash = transaction.hash()
+      encodedTransactions[hash.toBytes()] = transaction.toBytes()
+      if (receipts.isNotEmpty()) {
+        encodedReceipts[transactionReceiptKey(blockHash, hash)] = receipts[i].toBytes()
+      }
+      // recover the sender now, so that it is not recovered serially when indexing
+      transaction.sender()
+    }
+    return EncodedBlock(
+      block,
+      blockHash.toBytes(),
+      block.toBytes(),
+      header.toBytes(),
+      encodedTransactions,
+      encodedReceipts
+    )
+  }
+
+  private suspend fun storeBatch(batch: List<Pair<Block, List<TransactionReceipt>>>) {
+    val encoded = coroutineScope {
+      batch.map { (block, receipts) -> async(Dispatchers.Default) { encode(block, receipts) } }.awaitAll()
+    }
+
+    val blocks = LinkedHashMap<Bytes, Bytes>(encoded.size)
+    val headers = LinkedHashMap<Bytes, Bytes>(encoded.size)
+    val transactions = LinkedHashMap<Bytes, Bytes>()
+    val receipts = LinkedHashMap<Bytes, Bytes>()
+    for (block in encoded) {
+      blocks[block.hash] = block.blockBytes
+      headers[block.hash] = block.headerBytes
+      transactions.putAll(block.transactions)
+      receipts.putAll(block.receipts)
+    }
+    blockStore.putAll(blocks)
+    blockHeaderStore.putAll(headers)
+    transactionStore.putAll(transactions)
+    transactionReceiptStore.putAll(receipts)
+    blockchainIndex.index { writer ->
+      for (block in encoded) {
+        writer.indexBlockHeader(block.block.header())
+        block.block.body().transactions().forEachIndexed { i, transaction ->
+          writer.indexTransaction(transaction, block.block.header(), i)
+        }
+      }
+    }
+
+    val highest = encoded.maxBy { it.block.header().number() }!!.block.header()
+    if (isChainHead(highest)) {
+      setChainHead(highest)
+    } else {
+      fillCanonicalChainGap(encoded.map { it.hash })
     }
   }
 
@@ -89,7 +246,9 @@ class BlockchainRepository
   suspend fun storeBlockHeader(header: BlockHeader) {
     blockHeaderStore.put(header.hash().toBytes(), header.toBytes())
     if (isChainHead(header)) {
-        setChainHead(header)
+      setChainHead(header)
+    } else {
+      fillCanonicalChainGap(listOf(header.hash().toBytes()))
     }
   }
 
@@ -179,6 +338,58 @@ class BlockchainRepository
     return BlockHeader.fromBytes(bytes)
   }
 
+  /**
+   * Retrieves a transaction from the repository.
+   *
+   * @param transactionHash the hash of the transaction
+   * @return the transaction if found
+   */
+  suspend fun retrieveTransaction(transactionHash: Hash): Transaction? {
+    return transactionStore.get(transactionHash.toBytes())?.let { Transaction.fromBytes(it) }
+  }
+
+  /**
+   * Retrieves the receipt of a transaction included in the canonical chain from the repository.
+   *
+   * @param transactionHash the hash of the transaction
+   * @return the transaction receipt if found
+   */
+  suspend fun retrieveTransactionReceipt(transactionHash: Hash): TransactionReceipt? {
+    for (blockHash in blockchainIndex.findBlocksIncludingTransaction(transactionHash)) {
+      val number = retrieveBlockHeader(blockHash)?.number() ?: continue
+      if (retrieveCanonicalBlockHash(number) == blockHash) {
+        return retrieveTransactionReceipt(blockHash, transactionHash)
+      }
+    }
+    return null
+  }
+
+  /**
+   * Retrieves the receipt of a transaction included in a block from the repository.
+   *
+   * @param blockHash the hash of the block including the transaction
+   * @param transactionHash the hash of the transaction
+   * @return the transaction receipt if found
+   */
+  suspend fun retrieveTransactionReceipt(blockHash: Hash, transactionHash: Hash): TransactionReceipt? {
+    return transactionReceiptStore.get(transactionReceiptKey(blockHash, transactionHash))
+      ?.let { TransactionReceipt.fromBytes(it) }
+  }
+
+  /**
+   * Retrieves the receipts of the transactions of a block from the repository.
+   *
+   * @param block the block
+   * @return the transaction receipts, in the order of the transactions of the block, or null if the receipt of any
+   *         transaction of the block is not stored
+   */
+  suspend fun retrieveTransactionReceipts(block: Block): List<TransactionReceipt>? {
+    val blockHash = block.header().hash()
+    val keys = block.body().transactions().map { transactionReceiptKey(blockHash, it.hash()) }
+    val stored = transactionReceiptStore.getAll(keys)
+    return keys.map { key -> stored[key]?.let { TransactionReceipt.fromBytes(it) } ?: return null }
+  }
+
   /**
    * Retrieves the block identified as the chain head
    *
@@ -208,6 +419,49 @@ class BlockchainRepository
     return retrieveBlock(chainMetadata.get(GENESIS_BLOCK)!!)
   }
 
+  /**
+   * Retrieves the hash of the block of the canonical chain with the given number.
+   *
+   * @param number the number of the block
+   * @return the hash of the block, or null if the canonical chain has no block with that number
+   */
+  suspend fun retrieveCanonicalBlockHash(number: UInt256): Hash? {
+    val blockNumber = toBlockNumber(number) ?: return null
+    return canonicalChain().get(blockNumber)
+  }
+
+  /**
+   * Retrieves the hashes of the blocks of the canonical chain within a range of block numbers.
+   *
+   * @param fromNumber the number of the first block, inclusive
+   * @param toNumber the number of the last block, inclusive
+   * @return the hashes of the blocks in order of their numbers, ending at the head of the canonical chain
+   */
+  suspend fun retrieveCanonicalBlockHashes(fromNumber: UInt256, toNumber: UInt256): List<Hash> {
+    val from = toBlockNumber(fromNumber) ?: return emptyList()
+    return canonicalChain().range(from, toBlockNumber(toNumber) ?: Long.MAX_VALUE)
+  }
+
+  /**
+   * Retrieves the block of the canonical chain with the given number.
+   *
+   * @param number the number of the block
+   * @return the block, or null if the canonical chain has no block with that number
+   */
+  suspend fun retrieveCanonicalBlock(number: UInt256): Block? {
+    return retrieveCanonicalBlockHash(number)?.let { retrieveBlock(it) }
+  }
+
+  /**
+   * Retrieves the block header of the canonical chain with the given number.
+   *
+   * @param number the number of the block
+   * @return the block header, or null if the canonical chain has no block with that number
+   */
+  suspend fun retrieveCanonicalBlockHeader(number: UInt256): BlockHeader? {
+    return retrieveCanonicalBlockHash(number)?.let { retrieveBlockHeader(it) }
+  }
+
   /**
    * Finds a block according to the bytes, which can be a block number or block hash.
    *
@@ -218,12 +472,160 @@ class BlockchainRepository
     return blockchainIndex.findByHashOrNumber(blockNumberOrBlockHash)
   }
 
+  /**
+   * Finds the transactions sent from an address.
+   *
+   * A transaction included in several blocks, such as blocks of different forks, is found once for each of them.
+   *
+   * @param sender the address of the sender
+   * @param pageSize the number of transactions fetched from the index at a time
+   * @return the hashes of the transactions in the order of the blockchain, fetched as the sequence is iterated
+   */
+  fun findTransactionsFrom(
+    sender: Address,
+    pageSize: Int = BlockchainIndexReader.DEFAULT_PAGE_SIZE
+  ): Sequence<Hash> {
+    return blockchainIndex.findTransactionsBy(TransactionFields.SENDER, sender, pageSize)
+  }
+
+  /**
+   * Finds the transactions sent to an address.
+   *
+   * A transaction included in several blocks, such as blocks of different forks, is found once for each of them.
+   *
+   * @param recipient the address of the recipient
+   * @param pageSize the number of transactions fetched from the index at a time
+   * @return the hashes of the transactions in the order of the blockchain, fetched as the sequence is iterated
+   */
+  fun findTransactionsTo(
+    recipient: Address,
+    pageSize: Int = BlockchainIndexReader.DEFAULT_PAGE_SIZE
+  ): Sequence<Hash> {
+    return blockchainIndex.findTransactionsBy(TransactionFields.RECIPIENT, recipient, pageSize)
+  }
+
+  /**
+   * Finds the transactions included in a block.
+   *
+   * @param blockHash the hash of the block
+   * @return the hashes of the transactions in the order of the block
+   */
+  fun findTransactionsInBlock(blockHash: Hash): Sequence<Hash> {
+    return blockchainIndex.findTransactionsBy(TransactionFields.BLOCK_HASH, blockHash)
+  }
+
   private suspend fun setChainHead(header: BlockHeader) {
-    return chainMetadata.put(CHAIN_HEAD, header.hash().toBytes())
+    chainMetadata.put(CHAIN_HEAD, header.hash().toBytes())
+    updateCanonicalChain(header)
   }
 
   private suspend fun setGenesisBlock(block: Block) {
-    return chainMetadata
-      .put(GENESIS_BLOCK, block.header().hash().toBytes())
+    chainMetadata.put(GENESIS_BLOCK, block.header().hash().toBytes())
+    updateCanonicalChain(block.header())
+  }
+
+  private suspend fun canonicalChain(): CanonicalChain {
+    canonicalChain?.let { return it }
+    return canonicalChainMutex.withLock {
+      canonicalChain ?: loadCanonicalChain().also { canonicalChain = it }
+    }
+  }
+
+  private suspend fun loadCanonicalChain(): CanonicalChain {
+    val size = chainMetadata.get(CANONICAL_CHAIN_SIZE)?.toLong() ?: return CanonicalChain()
+    val keys = (0 until ((size + CanonicalChain.SEGMENT_SIZE - 1) / CanonicalChain.SEGMENT_SIZE).toInt())
+      .map { canonicalChainSegmentKey(it) }
+    val segments = chainMetadata.getAll(keys)
+    return CanonicalChain.load(size, keys.map { segments[it] ?: Bytes.EMPTY })
+  }
+
+  /**
+   * Makes a header the head of the canonical chain, walking back through its ancestors to replace the blocks of the
+   * previous chain from the point where the chains forked.
+   *
+   * If an ancestor of the header is not stored, the canonical chain is left unchanged and the hash of the missing
+   * ancestor is recorded, so that the chain is updated once the gap has been filled by [fillCanonicalChainGap].
+   */
+  private suspend fun updateCanonicalChain(head: BlockHeader) {
+    val headNumber = toBlockNumber(head.number()) ?: return
+    val chain = canonicalChain()
+    canonicalChainMutex.withLock {
+      val ancestry = ancestry(head, headNumber, chain)
+      if (ancestry.number > chain.size()) {
+        ancestry.missingParent?.let { chainMetadata.put(CANONICAL_CHAIN_GAP, it.toBytes()) }
+        return
+      }
+      val hashes = ancestry.hashes.asReversed()
+      val modified = chain.update(ancestry.number, hashes)
+      val entries = LinkedHashMap<Bytes, Bytes>()
+      for (index in modified) {
+        entries[canonicalChainSegmentKey(index)] = chain.segment(index)
+      }
+      entries[CANONICAL_CHAIN_SIZE] = Bytes.ofUnsignedLong(chain.size())
+      chainMetadata.putAll(entries)
+      // an empty value records that there is no gap
+      if (chainMetadata.get(CANONICAL_CHAIN_GAP)?.isEmpty == false) {
+        chainMetadata.put(CANONICAL_CHAIN_GAP, Bytes.EMPTY)
+      }
+    }
+  }
+
+  /**
+   * Continues updating the canonical chain to the chain head when the missing ancestor of the head has been stored.
+   *
+   * Only the newly stored ancestors are walked until they connect to the canonical chain, after which the chain is
+   * updated from the head. If another ancestor is missing, it is recorded instead.
+   */
+  private suspend fun fillCanonicalChainGap(storedHashes: List<Bytes>) {
+    val gap = chainMetadata.get(CANONICAL_CHAIN_GAP) ?: return
+    if (gap.isEmpty || !storedHashes.contains(gap)) {
+      return
+    }
+    val header = retrieveBlockHeader(gap) ?: return
+    val number = toBlockNumber(header.number()) ?: return
+    val chain = canonicalChain()
+    val ancestry = canonicalChainMutex.withLock { ancestry(header, number, chain) }
+    if (ancestry.number > chain.size()) {
+      ancestry.missingParent?.let { chainMetadata.put(CANONICAL_CHAIN_GAP, it.toBytes()) }
+      return
+    }
+    retrieveChainHeadHeader()?.let { updateCanonicalChain(it) }
   }
+
+  // the hashes of a header and its stored ancestors, from the header down to the lowest ancestor at the given number
+  private class Ancestry(val hashes: List<Hash>, val number: Long, val missingParent: Hash?)
+
+  /**
+   * Walks back from a header through its stored ancestors, until reaching an ancestor whose parent is part of the
+   * canonical chain, or whose parent is not stored.
+   */
+  private suspend fun ancestry(head: BlockHeader, headNumber: Long, chain: CanonicalChain): Ancestry {
+    var number = headNumber
+    val hashes = ArrayList<Hash>()
+    var header = head
+    while (true) {
+      hashes.add(header.hash())
+      if (number == 0L) {
+        break
+      }
+      val parentHash = header.parentHash() ?: break
+      if (parentHash == chain.get(number - 1)) {
+        break
+      }
+      header = retrieveBlockHeader(parentHash) ?: return Ancestry(hashes, number, parentHash)
+      if (toBlockNumber(header.number()) != number - 1) {
+        break
+      }
+      number--
+    }
+    return Ancestry(hashes, number, null)
+  }
+
+  private fun transactionReceiptKey(blockHash: Hash, transactionHash: Hash): Bytes =
+    Bytes.concatenate(blockHash.toBytes(), transactionHash.toBytes())
+
+  private fun canonicalChainSegmentKey(index: Int): Bytes =
+    Bytes.concatenate(CANONICAL_CHAIN_SEGMENT, Bytes.ofUnsignedInt(index.toLong()))
+
+  private fun toBlockNumber(number: UInt256): Long? = if (number.fitsLong()) number.toLong() else null
 }
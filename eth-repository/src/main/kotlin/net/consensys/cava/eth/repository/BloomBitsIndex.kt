@@ -0,0 +1,251 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.eth.repository
+
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.eth.BlockHeader
+import net.consensys.cava.eth.LogsBloomFilter
+import net.consensys.cava.kv.KeyValueStore
+import net.consensys.cava.units.bigints.UInt256
+
+/**
+ * A bit-sliced index of the logs bloom filters of the canonical chain, used to find logs matching a [LogFilter].
+ *
+ * The canonical chain is divided into sections of a fixed number of blocks. For each section and each bit of the
+ * bloom filter, the index stores a compressed bitset of the blocks that have the bit set. Finding the blocks of a
+ * section that may contain matching logs then only requires combining the bitsets of the bits of the filter, and the
+ * receipts of those blocks are read to find the matching logs.
+ *
+ * Blocks that are not part of an indexed section, such as the most recent blocks of the chain, are matched by reading
+ * their headers.
+ */
+class BloomBitsIndex
+/**
+ * Default constructor.
+ *
+ * @param repository the repository providing the canonical chain and the receipts of its transactions
+ * @param store the key-value store to store the index
+ * @param sectionSize the number of blocks in each section, which must be a multiple of 8
+ */
+  (
+    private val repository: BlockchainRepository,
+    private val store: KeyValueStore,
+    private val sectionSize: Int = DEFAULT_SECTION_SIZE
+  ) {
+
+  companion object {
+
+    /**
+     * The default number of blocks in each section of the index.
+     */
+    const val DEFAULT_SECTION_SIZE = 4096
+
+    val BLOOM_BITS = Bytes.wrap("bloomBits".toByteArray())
+    val SECTION_HEAD = Bytes.wrap("bloomBitsSectionHead".toByteArray())
+    val SECTION_COUNT = Bytes.wrap("bloomBitsSectionCount".toByteArray())
+
+    private const val BLOOM_SIZE = LogsBloomFilter.BITS / 8
+  }
+
+  init {
+    require(sectionSize > 0 && sectionSize % 8 == 0) { "sectionSize must be a positive multiple of 8" }
+  }
+
+  private val mutex = Mutex()
+
+  /**
+   * Indexes the sections of the canonical chain that are complete but not yet indexed.
+   *
+   * Sections whose blocks are no longer part of the canonical chain, following a reorganization, are indexed again.
+   *
+   * @return the number of sections that were indexed
+   */
+  suspend fun update(): Int = mutex.withLock {
+    var count = sectionCount()
+    while (count > 0 && !isIndexed(count - 1)) {
+      count--
+    }
+    var indexed = 0
+    while (indexSection(count)) {
+      count++
+      indexed++
+    }
+    store.put(SECTION_COUNT, Bytes.ofUnsignedLong(count))
+    indexed
+  }
+
+  /**
+   * Finds the logs matching a filter within a range of blocks of the canonical chain.
+   *
+   * @param filter the filter
+   * @param fromNumber the number of the first block, inclusive
+   * @param toNumber the number of the last block, inclusive
+   * @return the matching logs, in the order of the blockchain
+   * @throws IllegalStateException if the transaction receipts of a block that may contain matching logs are not stored
+   */
+  suspend fun findLogs(filter: LogFilter, fromNumber: Long, toNumber: Long): List<MatchedLog> {
+    val logs = ArrayList<MatchedLog>()
+    for (number in findCandidateBlocks(filter, fromNumber, toNumber)) {
+      val hash = repository.retrieveCanonicalBlockHash(UInt256.valueOf(number)) ?: continue
+      val block = repository.retrieveBlock(hash) ?: continue
+      // the position of a log is counted across all receipts of the block, so they must all be available
+      val receipts = repository.retrieveTransactionReceipts(block)
+        ?: throw IllegalStateException("Missing transaction receipts for block $hash")
+      val transactions = block.body().transactions()
+      var logIndex = 0
+      for ((transactionIndex, receipt) in receipts.withIndex()) {
+        val transaction = transactions[transactionIndex]
+        for (log in receipt.logs()) {
+          if (filter.matches(log)) {
+            logs.add(MatchedLog(log, number, hash, transaction.hash(), transactionIndex, logIndex))
+          }
+          logIndex++
+        }
+      }
+    }
+    return logs
+  }
+
+  /**
+   * Finds the blocks within a range of the canonical chain whose logs bloom filter matches a filter.
+   *
+   * Bloom filters may have false positives, so the logs of the blocks found may not match the filter.
+   *
+   * @param filter the filter
+   * @param fromNumber the number of the first block, inclusive
+   * @param toNumber the number of the last block, inclusive
+   * @return the numbers of the blocks, in ascending order
+   */
+  suspend fun findCandidateBlocks(filter: LogFilter, fromNumber: Long, toNumber: Long): List<Long> {
+    val bits = filter.bloomBits()
+    val count = sectionCount()
+    val candidates = ArrayList<Long>()
+    var section = Math.max(fromNumber, 0L) / sectionSize
+    while (section * sectionSize <= toNumber) {
+      val start = section * sectionSize
+      val from = Math.max(start, fromNumber)
+      val to = Math.min(start + sectionSize - 1, toNumber)
+      if (section < count && isIndexed(section)) {
+        val matches = matchSection(section, bits)
+        for (number in from..to) {
+          val offset = (number - start).toInt()
+          if ((matches[offset / 8].toInt() and (1 shl (7 - offset % 8))) != 0) {
+            candidates.add(number)
+          }
+        }
+      } else {
+        val hashes = repository.retrieveCanonicalBlockHashes(UInt256.valueOf(from), UInt256.valueOf(to))
+        for ((i, hash) in hashes.withIndex()) {
+          val header = repository.retrieveBlockHeader(hash) ?: continue
+          if (matches(header, bits)) {
+            candidates.add(from + i)
+          }
+        }
+        if (hashes.size.toLong() < to - from + 1) {
+          // the end of the canonical chain was reached
+          break
+        }
+      }
+      section++
+    }
+    return candidates
+  }
+
+  private suspend fun indexSection(section: Long): Boolean {
+    val start = section * sectionSize
+    val hashes = repository.retrieveCanonicalBlockHashes(
+      UInt256.valueOf(start),
+      UInt256.valueOf(start + sectionSize - 1)
+    )
+    if (hashes.size < sectionSize) {
+      return false
+    }
+    val vectors = Array(LogsBloomFilter.BITS) { ByteArray(sectionSize / 8) }
+    for ((offset, hash) in hashes.withIndex()) {
+      val header = repository.retrieveBlockHeader(hash) ?: throw IllegalStateException("Missing block header $hash")
+      val mask = 1 shl (7 - offset % 8)
+      val bloom = header.logsBloom()
+      // a header with an invalid bloom filter is treated as matching all logs, rather than none
+      val bytes = if (bloom.size() == BLOOM_SIZE) bloom.toArrayUnsafe() else ByteArray(BLOOM_SIZE) { 0xFF.toByte() }
+      for ((index, byte) in bytes.withIndex()) {
+        if (byte.toInt() == 0) {
+          continue
+        }
+        for (i in 0 until 8) {
+          if ((byte.toInt() and (1 shl i)) != 0) {
+            // bits are numbered from the least significant bit of the last byte of the bloom filter
+            val bit = (BLOOM_SIZE - 1 - index) * 8 + i
+            vectors[bit][offset / 8] = (vectors[bit][offset / 8].toInt() or mask).toByte()
+          }
+        }
+      }
+    }
+    val entries = LinkedHashMap<Bytes, Bytes>()
+    for ((bit, vector) in vectors.withIndex()) {
+      entries[bloomBitsKey(bit, section)] = Bytes.wrap(BitsetCompression.compress(vector))
+    }
+    entries[sectionHeadKey(section)] = hashes.last().toBytes()
+    store.putAll(entries)
+    return true
+  }
+
+  private suspend fun matchSection(section: Long, bits: List<List<IntArray>>): ByteArray {
+    val length = sectionSize / 8
+    val keys = bits.flatMap { group -> group.flatMap { it.asList() } }.distinct().associateWith {
+      bloomBitsKey(it, section)
+    }
+    val stored = store.getAll(keys.values)
+    val vectors = keys.mapValues { (_, key) ->
+      stored[key]?.let { BitsetCompression.decompress(it.toArrayUnsafe(), length) } ?: ByteArray(length)
+    }
+
+    val result = ByteArray(length) { 0xFF.toByte() }
+    for (group in bits) {
+      val groupResult = ByteArray(length)
+      for (value in group) {
+        val (first, second, third) = value.map { vectors.getValue(it) }
+        for (i in 0 until length) {
+          val all = first[i].toInt() and second[i].toInt() and third[i].toInt()
+          groupResult[i] = (groupResult[i].toInt() or all).toByte()
+        }
+      }
+      for (i in 0 until length) {
+        result[i] = (result[i].toInt() and groupResult[i].toInt()).toByte()
+      }
+    }
+    return result
+  }
+
+  private fun matches(header: BlockHeader, bits: List<List<IntArray>>): Boolean {
+    if (header.logsBloom().size() != BLOOM_SIZE) {
+      return true
+    }
+    val bloom = LogsBloomFilter(header.logsBloom())
+    return bits.all { group -> group.any { value -> value.all { bloom.isSet(it) } } }
+  }
+
+  private suspend fun isIndexed(section: Long): Boolean {
+    val head = store.get(sectionHeadKey(section)) ?: return false
+    val hash = repository.retrieveCanonicalBlockHash(UInt256.valueOf(section * sectionSize + sectionSize - 1))
+    return hash != null && hash.toBytes() == head
+  }
+
+  private suspend fun sectionCount(): Long = store.get(SECTION_COUNT)?.toLong() ?: 0
+
+  private fun bloomBitsKey(bit: Int, section: Long): Bytes =
+    Bytes.concatenate(BLOOM_BITS, Bytes.ofUnsignedShort(bit), Bytes.ofUnsignedLong(section))
+
+  private fun sectionHeadKey(section: Long): Bytes = Bytes.concatenate(SECTION_HEAD, Bytes.ofUnsignedLong(section))
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.eth.repository
+
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
+import net.consensys.cava.bytes.MutableBytes
+import net.consensys.cava.eth.Hash
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+/**
+ * In-memory index of the hashes of the blocks of the canonical chain, by block number.
+ *
+ * Hashes are held contiguously in fixed-size segments of primitive byte arrays, so that looking up a block number is a
+ * constant-time array access. The index only covers a contiguous range of block numbers, starting from zero.
+ */
+internal class CanonicalChain {
+
+  companion object {
+    /**
+     * The number of block hashes held by each segment.
+     */
+    const val SEGMENT_SIZE = 256
+
+    private const val HASH_SIZE = 32
+    private const val MAX_SIZE = Int.MAX_VALUE.toLong() * SEGMENT_SIZE
+
+    /**
+     * Creates an index from its persisted segments.
+     *
+     * @param size the number of blocks in the index
+     * @param segments the segments, as provided by [segment]
+     * @return the index
+     * @throws IllegalArgumentException if the segments do not hold exactly [size] hashes
+     */
+    fun load(size: Long, segments: List<Bytes>): CanonicalChain {
+      val chain = CanonicalChain()
+      var remaining = size
+      for (segment in segments) {
+        val count = Math.min(remaining, SEGMENT_SIZE.toLong()).toInt()
+        require(segment.size() == count * HASH_SIZE) { "Invalid canonical chain segment length ${segment.size()}" }
+        val array = ByteArray(SEGMENT_SIZE * HASH_SIZE)
+        segment.copyTo(MutableBytes.wrap(array), 0)
+        chain.segments.add(array)
+        remaining -= count
+      }
+      require(remaining == 0L) { "Missing canonical chain segments" }
+      chain.size = size
+      return chain
+    }
+  }
+
+  private val lock = ReentrantReadWriteLock()
+  private val segments = ArrayList<ByteArray>()
+  private var size = 0L
+
+  /**
+   * @return the number of blocks in the index
+   */
+  fun size(): Long = lock.read { size }
+
+  /**
+   * Finds the hash of the canonical block with the given number.
+   *
+   * @param number the block number
+   * @return the hash of the block, or null if the number is not indexed
+   */
+  fun get(number: Long): Hash? = lock.read {
+    if (number < 0 || number >= size) null else hashAt(number)
+  }
+
+  /**
+   * Finds the hashes of the canonical blocks within a range of block numbers.
+   *
+   * @param fromNumber the first block number, inclusive
+   * @param toNumber the last block number, inclusive
+   * @return the hashes of the blocks, in order, stopping at the last indexed block
+   */
+  fun range(fromNumber: Long, toNumber: Long): List<Hash> = lock.read {
+    val from = Math.max(fromNumber, 0L)
+    val to = Math.min(toNumber, size - 1)
+    if (from > to) {
+      emptyList()
+    } else {
+      (from..to).map { hashAt(it) }
+    }
+  }
+
+  /**
+   * Replaces the hashes of the blocks from a block number onwards, discarding any indexed beyond them.
+   *
+   * @param fromNumber the number of the first block to replace, which must not be greater than [size]
+   * @param hashes the hashes of the blocks, in order
+   * @return the indices of the segments that were modified
+   */
+  fun update(fromNumber: Long, hashes: List<Hash>): IntRange = lock.write {
+    require(fromNumber in 0..size) { "Block number $fromNumber is not contiguous with the canonical chain" }
+    require(hashes.isNotEmpty()) { "No block hashes provided" }
+    val newSize = fromNumber + hashes.size
+    require(newSize <= MAX_SIZE) { "Canonical chain is too long" }
+    while (segments.size.toLong() * SEGMENT_SIZE < newSize) {
+      segments.add(ByteArray(SEGMENT_SIZE * HASH_SIZE))
+    }
+    var number = fromNumber
+    for (hash in hashes) {
+      hash.toBytes().copyTo(MutableBytes.wrap(segments[segmentIndex(number)]), segmentOffset(number))
+      number++
+    }
+    // release segments beyond the new end of the chain
+    while (segments.size.toLong() * SEGMENT_SIZE >= newSize + SEGMENT_SIZE) {
+      segments.removeAt(segments.size - 1)
+    }
+    size = newSize
+    segmentIndex(fromNumber)..segmentIndex(newSize - 1)
+  }
+
+  /**
+   * Provides the content of a segment, for persistence.
+   *
+   * @param index the index of the segment
+   * @return the hashes held by the segment, concatenated
+   */
+  fun segment(index: Int): Bytes = lock.read {
+    val count = Math.min(size - index.toLong() * SEGMENT_SIZE, SEGMENT_SIZE.toLong()).toInt()
+    Bytes.wrap(segments[index], 0, count * HASH_SIZE).copy()
+  }
+
+  private fun hashAt(number: Long): Hash {
+    val offset = segmentOffset(number)
+    return Hash.fromBytes(Bytes32.wrap(segments[segmentIndex(number)].copyOfRange(offset, offset + HASH_SIZE)))
+  }
+
+  private fun segmentIndex(number: Long): Int = (number / SEGMENT_SIZE).toInt()
+
+  private fun segmentOffset(number: Long): Int = (number % SEGMENT_SIZE).toInt() * HASH_SIZE
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.eth.repository
+
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
+import net.consensys.cava.eth.Address
+import net.consensys.cava.eth.Hash
+import net.consensys.cava.eth.Log
+import net.consensys.cava.eth.LogsBloomFilter
+
+/**
+ * A filter of logs, by the address of their logger and their topics.
+ *
+ * @param addresses the addresses of the loggers to match, or an empty list to match any logger
+ * @param topics the topics to match at each position, where an empty list matches any topic at that position
+ */
+data class LogFilter(val addresses: List<Address> = emptyList(), val topics: List<List<Bytes32>> = emptyList()) {
+
+  /**
+   * Checks whether a log matches this filter.
+   *
+   * @param log the log
+   * @return true if the log matches
+   */
+  fun matches(log: Log): Boolean {
+    if (addresses.isNotEmpty() && !addresses.contains(log.logger())) {
+      return false
+    }
+    if (topics.size > log.topics().size) {
+      return false
+    }
+    for ((i, alternatives) in topics.withIndex()) {
+      if (alternatives.isNotEmpty() && !alternatives.contains(log.topics()[i])) {
+        return false
+      }
+    }
+    return true
+  }
+
+  /**
+   * Provides the bloom filter bits that a block must have set to contain a matching log.
+   *
+   * Each group must be matched, which it is by any of its values, which each require all of their bits.
+   */
+  internal fun bloomBits(): List<List<IntArray>> {
+    val groups = ArrayList<List<Bytes>>()
+    if (addresses.isNotEmpty()) {
+      groups.add(addresses.map { it.toBytes() })
+    }
+    topics.filter { it.isNotEmpty() }.forEach { groups.add(it) }
+    return groups.map { group -> group.map { LogsBloomFilter.bitIndices(it) } }
+  }
+}
+
+/**
+ * A log matched by a [LogFilter], along with its position in the blockchain.
+ *
+ * @param log the log
+ * @param blockNumber the number of the block containing the log
+ * @param blockHash the hash of the block containing the log
+ * @param transactionHash the hash of the transaction that emitted the log
+ * @param transactionIndex the position of the transaction in the block
+ * @param logIndex the position of the log among all logs of the block
+ */
+data class MatchedLog(
+  val log: Log,
+  val blockNumber: Long,
+  val blockHash: Hash,
+  val transactionHash: Hash,
+  val transactionIndex: Int,
+  val logIndex: Int
+)
@@ -23,16 +23,23 @@ import net.consensys.cava.junit.LuceneIndexWriter
 import net.consensys.cava.junit.LuceneIndexWriterExtension
 import net.consensys.cava.units.bigints.UInt256
 import net.consensys.cava.units.ethereum.Gas
+import org.apache.lucene.document.Document
+import org.apache.lucene.document.Field
+import org.apache.lucene.document.StringField
 import org.apache.lucene.index.DirectoryReader
 import org.apache.lucene.index.IndexWriter
+import org.apache.lucene.index.IndexWriterConfig
 import org.apache.lucene.index.Term
 import org.apache.lucene.search.IndexSearcher
 import org.apache.lucene.search.ScoreDoc
 import org.apache.lucene.search.TermQuery
 import org.apache.lucene.search.TopScoreDocCollector
+import org.apache.lucene.store.ByteBuffersDirectory
 import org.apache.lucene.store.Directory
 import org.apache.lucene.util.BytesRef
 import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertThrows
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.extension.ExtendWith
 import java.io.IOException
@@ -164,75 +171,215 @@ internal class BlockchainIndexTest {
     val reader = blockchainIndex as BlockchainIndexReader
 
     run {
-      val entries = reader.findBy(BlockHeaderFields.PARENT_HASH, header.parentHash()!!)
+      val entries = reader.findBy(BlockHeaderFields.PARENT_HASH, header.parentHash()!!).toList()
       assertEquals(1, entries.size)
       assertEquals(header.hash(), entries[0])
     }
 
     run {
-      val entries = reader.findBy(BlockHeaderFields.OMMERS_HASH, header.ommersHash())
+      val entries = reader.findBy(BlockHeaderFields.OMMERS_HASH, header.ommersHash()).toList()
       assertEquals(1, entries.size)
       assertEquals(header.hash(), entries[0])
     }
 
     run {
-      val entries = reader.findBy(BlockHeaderFields.COINBASE, header.coinbase())
+      val entries = reader.findBy(BlockHeaderFields.COINBASE, header.coinbase()).toList()
       assertEquals(1, entries.size)
       assertEquals(header.hash(), entries[0])
     }
 
     run {
-      val entries = reader.findBy(BlockHeaderFields.STATE_ROOT, header.stateRoot())
+      val entries = reader.findBy(BlockHeaderFields.STATE_ROOT, header.stateRoot()).toList()
       assertEquals(1, entries.size)
       assertEquals(header.hash(), entries[0])
     }
 
     run {
-      val entries = reader.findBy(BlockHeaderFields.STATE_ROOT, header.stateRoot())
+      val entries = reader.findBy(BlockHeaderFields.STATE_ROOT, header.stateRoot()).toList()
       assertEquals(1, entries.size)
       assertEquals(header.hash(), entries[0])
     }
 
     run {
-      val entries = reader.findBy(BlockHeaderFields.DIFFICULTY, header.difficulty())
+      val entries = reader.findBy(BlockHeaderFields.DIFFICULTY, header.difficulty()).toList()
       assertEquals(1, entries.size)
       assertEquals(header.hash(), entries[0])
     }
 
     run {
-      val entries = reader.findBy(BlockHeaderFields.TIMESTAMP, header.timestamp().toEpochMilli())
+      val entries = reader.findBy(BlockHeaderFields.TIMESTAMP, header.timestamp().toEpochMilli()).toList()
       assertEquals(1, entries.size)
       assertEquals(header.hash(), entries[0])
     }
 
     run {
-      val entries = reader.findBy(BlockHeaderFields.NUMBER, header.number())
+      val entries = reader.findBy(BlockHeaderFields.NUMBER, header.number()).toList()
       assertEquals(1, entries.size)
       assertEquals(header.hash(), entries[0])
     }
 
     run {
-      val entries = reader.findInRange(BlockHeaderFields.NUMBER, header.number().subtract(5), header.number().add(5))
+      val entries =
+        reader.findInRange(BlockHeaderFields.NUMBER, header.number().subtract(5), header.number().add(5)).toList()
       assertEquals(1, entries.size)
       assertEquals(header.hash(), entries[0])
     }
 
     run {
-      val entries = reader.findBy(BlockHeaderFields.EXTRA_DATA, header.extraData())
+      val entries = reader.findBy(BlockHeaderFields.EXTRA_DATA, header.extraData()).toList()
       assertEquals(1, entries.size)
       assertEquals(header.hash(), entries[0])
     }
 
     run {
-      val entries = reader.findBy(BlockHeaderFields.GAS_LIMIT, header.gasLimit())
+      val entries = reader.findBy(BlockHeaderFields.GAS_LIMIT, header.gasLimit()).toList()
       assertEquals(1, entries.size, entries.toString())
       assertEquals(header.hash(), entries[0])
     }
 
     run {
-      val entries = reader.findBy(BlockHeaderFields.GAS_USED, header.gasUsed())
+      val entries = reader.findBy(BlockHeaderFields.GAS_USED, header.gasUsed()).toList()
       assertEquals(1, entries.size)
       assertEquals(header.hash(), entries[0])
     }
   }
+
+  @Test
+  @Throws(IOException::class)
+  fun pageThroughBlockHeadersInOrderOfNumber(@LuceneIndexWriter writer: IndexWriter) {
+    val blockchainIndex = BlockchainIndex(writer)
+    val coinbase = Address.fromBytes(Bytes.random(20))
+    val start = Instant.now().truncatedTo(ChronoUnit.SECONDS)
+    val headers = (0 until 25).map { i ->
+      BlockHeader(
+        Hash.fromBytes(Bytes32.random()),
+        Hash.fromBytes(Bytes32.random()),
+        coinbase,
+        Hash.fromBytes(Bytes32.random()),
+        Hash.fromBytes(Bytes32.random()),
+        Hash.fromBytes(Bytes32.random()),
+        Bytes32.random(),
+        UInt256.fromBytes(Bytes32.random()),
+        UInt256.valueOf(i.toLong()),
+        Gas.valueOf(3000),
+        Gas.valueOf(2000),
+        start.plusSeconds(i.toLong()),
+        Bytes.of(2, 3, 4),
+        Hash.fromBytes(Bytes32.random()),
+        Bytes32.random()
+      )
+    }
+    // index out of order, so that results are not simply in order of insertion
+    blockchainIndex.index { w -> headers.shuffled().forEach { w.indexBlockHeader(it) } }
+
+    assertEquals(headers.map { it.hash() }, blockchainIndex.findBy(BlockHeaderFields.COINBASE, coinbase, 10).toList())
+    assertEquals(
+      headers.subList(5, 21).map { it.hash() },
+      blockchainIndex.findInRange(
+        BlockHeaderFields.TIMESTAMP,
+        start.plusSeconds(5).toEpochMilli(),
+        start.plusSeconds(20).toEpochMilli(),
+        7
+      ).toList()
+    )
+    assertEquals(
+      headers.subList(20, 25).map { it.hash() },
+      blockchainIndex.findInRange(BlockHeaderFields.NUMBER, UInt256.valueOf(20), UInt256.valueOf(100), 5).toList()
+    )
+  }
+
+  @Test
+  @Throws(IOException::class)
+  fun findBlockHeaderWithLargestValue() {
+    ByteBuffersDirectory().use { directory ->
+      IndexWriter(directory, IndexWriterConfig()).use { writer ->
+        val blockchainIndex = BlockchainIndex(writer)
+        assertNull(blockchainIndex.findByLargest(BlockHeaderFields.NUMBER))
+        val start = Instant.now().truncatedTo(ChronoUnit.SECONDS)
+        val headers = listOf(5L, 300L, 40L).map { i ->
+          BlockHeader(
+            Hash.fromBytes(Bytes32.random()),
+            Hash.fromBytes(Bytes32.random()),
+            Address.fromBytes(Bytes.random(20)),
+            Hash.fromBytes(Bytes32.random()),
+            Hash.fromBytes(Bytes32.random()),
+            Hash.fromBytes(Bytes32.random()),
+            Bytes32.random(),
+            UInt256.valueOf(1000 - i),
+            UInt256.valueOf(i),
+            Gas.valueOf(3000 + i),
+            Gas.valueOf(2000),
+            start.plusSeconds(i),
+            Bytes.of(2, 3, 4),
+            Hash.fromBytes(Bytes32.random()),
+            Bytes32.random()
+          )
+        }
+        blockchainIndex.index { w -> headers.forEach { w.indexBlockHeader(it) } }
+
+        assertEquals(headers[1].hash(), blockchainIndex.findByLargest(BlockHeaderFields.NUMBER))
+        assertEquals(headers[0].hash(), blockchainIndex.findByLargest(BlockHeaderFields.DIFFICULTY))
+        assertEquals(headers[1].hash(), blockchainIndex.findByLargest(BlockHeaderFields.GAS_LIMIT))
+        assertEquals(headers[1].hash(), blockchainIndex.findByLargest(BlockHeaderFields.TIMESTAMP))
+        // ties are broken in favor of the smallest hash
+        assertEquals(
+          headers.map { it.hash() }.minBy { it.toHexString() },
+          blockchainIndex.findByLargest(BlockHeaderFields.GAS_USED)
+        )
+      }
+    }
+  }
+
+  @Test
+  @Throws(IOException::class)
+  fun rejectIndexWithoutFormatVersion() {
+    ByteBuffersDirectory().use { directory ->
+      IndexWriter(directory, IndexWriterConfig()).use { writer ->
+        // a document as indexed before the format version was recorded
+        val document = Document()
+        document.add(StringField("_id", BytesRef(Bytes32.random().toArrayUnsafe()), Field.Store.YES))
+        writer.addDocument(document)
+        writer.commit()
+        assertThrows(IllegalArgumentException::class.java) { BlockchainIndex(writer) }
+      }
+    }
+  }
+
+  @Test
+  @Throws(IOException::class)
+  fun recordFormatVersionOfNewIndex() {
+    ByteBuffersDirectory().use { directory ->
+      val hash = Hash.fromBytes(Bytes32.random())
+      IndexWriter(directory, IndexWriterConfig()).use { writer ->
+        BlockchainIndex(writer).index { w ->
+          w.indexBlockHeader(
+            BlockHeader(
+              hash,
+              Hash.fromBytes(Bytes32.random()),
+              Address.fromBytes(Bytes.random(20)),
+              Hash.fromBytes(Bytes32.random()),
+              Hash.fromBytes(Bytes32.random()),
+              Hash.fromBytes(Bytes32.random()),
+              Bytes32.random(),
+              UInt256.ONE,
+              UInt256.ONE,
+              Gas.valueOf(3000),
+              Gas.valueOf(2000),
+              Instant.now().truncatedTo(ChronoUnit.SECONDS),
+              Bytes.of(2, 3, 4),
+              Hash.fromBytes(Bytes32.random()),
+              Bytes32.random()
+            )
+          )
+        }
+      }
+      assertEquals(
+        BlockchainIndex.FORMAT_VERSION.toString(),
+        DirectoryReader.open(directory).use { it.indexCommit.userData["formatVersion"] }
+      )
+      IndexWriter(directory, IndexWriterConfig()).use { writer ->
+        assertEquals(1, BlockchainIndex(writer).findBy(BlockHeaderFields.PARENT_HASH, hash).count())
+      }
+    }
+  }
 }
@@ -12,6 +12,7 @@
  */
 package net.consensys.cava.eth.repository
 
+import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.runBlocking
 import net.consensys.cava.bytes.Bytes
 import net.consensys.cava.bytes.Bytes32
@@ -21,7 +22,9 @@ import net.consensys.cava.eth.Block
 import net.consensys.cava.eth.BlockBody
 import net.consensys.cava.eth.BlockHeader
 import net.consensys.cava.eth.Hash
+import net.consensys.cava.eth.LogsBloomFilter
 import net.consensys.cava.eth.Transaction
+import net.consensys.cava.eth.TransactionReceipt
 import net.consensys.cava.junit.BouncyCastleExtension
 import net.consensys.cava.junit.LuceneIndexWriter
 import net.consensys.cava.junit.LuceneIndexWriterExtension
@@ -31,6 +34,8 @@ import net.consensys.cava.units.ethereum.Gas
 import net.consensys.cava.units.ethereum.Wei
 import org.apache.lucene.index.IndexWriter
 import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertNull
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.extension.ExtendWith
 import java.time.Instant
@@ -66,7 +71,9 @@ internal class BlockchainRepositoryTest {
         MapKeyValueStore(),
         MapKeyValueStore(),
         BlockchainIndex(writer),
-        genesisBlock
+        genesisBlock,
+        MapKeyValueStore(),
+        MapKeyValueStore()
       )
     val header = BlockHeader(
       Hash.fromBytes(Bytes32.random()),
@@ -133,7 +140,9 @@ internal class BlockchainRepositoryTest {
         MapKeyValueStore(),
         MapKeyValueStore(),
         BlockchainIndex(writer),
-        genesisBlock
+        genesisBlock,
+        MapKeyValueStore(),
+        MapKeyValueStore()
       )
 
     val header = BlockHeader(
@@ -239,7 +248,9 @@ internal class BlockchainRepositoryTest {
         MapKeyValueStore(),
         MapKeyValueStore(),
         BlockchainIndex(writer),
-        genesisBlock
+        genesisBlock,
+        MapKeyValueStore(),
+        MapKeyValueStore()
       )
 
     val header = BlockHeader(
@@ -318,4 +329,231 @@ internal class BlockchainRepositoryTest {
 
     assertEquals(biggerNumber3.hash(), repo.retrieveChainHeadHeader()!!.hash())
   }
+
+  @Test
+  @Throws(Exception::class)
+  fun storeBlocksInBatches(@LuceneIndexWriter writer: IndexWriter) = runBlocking {
+    val genesisBlock = Block(blockHeader(UInt256.ZERO), BlockBody(emptyList(), emptyList()))
+    val index = BlockchainIndex(writer)
+    val repo = BlockchainRepository.init(
+      MapKeyValueStore(),
+      MapKeyValueStore(),
+      MapKeyValueStore(),
+      index,
+      genesisBlock,
+      MapKeyValueStore(),
+      MapKeyValueStore()
+    )
+
+    val blocks = chainOf(genesisBlock.header(), 25)
+    val channel = Channel<Block>(Channel.UNLIMITED)
+    // the highest block is not the last one received
+    blocks.reversed().forEach { channel.send(it) }
+    channel.close()
+    repo.storeBlocks(channel, 10)
+
+    for (block in blocks) {
+      assertEquals(block, repo.retrieveBlock(block.header().hash()))
+      assertEquals(block.header(), repo.retrieveBlockHeader(block.header().hash()))
+      assertEquals(
+        listOf(block.header().hash()),
+        index.findBy(BlockHeaderFields.NUMBER, block.header().number()).toList()
+      )
+      // the canonical chain is indexed once the ancestors of the chain head have all been stored
+      assertEquals(block.header().hash(), repo.retrieveCanonicalBlockHash(block.header().number()))
+    }
+    assertEquals(blocks.last().header().hash(), repo.retrieveChainHeadHeader()!!.hash())
+    assertNotNull(repo.retrieveGenesisBlock())
+  }
+
+  @Test
+  @Throws(Exception::class)
+  fun retrieveCanonicalBlocksByNumber(@LuceneIndexWriter writer: IndexWriter) = runBlocking {
+    val chainMetadata = MapKeyValueStore()
+    val blockStore = MapKeyValueStore()
+    val blockHeaderStore = MapKeyValueStore()
+    val genesisBlock = Block(blockHeader(UInt256.ZERO), BlockBody(emptyList(), emptyList()))
+    val transactionStore = MapKeyValueStore()
+    val transactionReceiptStore = MapKeyValueStore()
+    val repo = BlockchainRepository.init(
+      blockStore,
+      blockHeaderStore,
+      chainMetadata,
+      BlockchainIndex(writer),
+      genesisBlock,
+      transactionStore,
+      transactionReceiptStore
+    )
+
+    val chain = chainOf(genesisBlock.header(), 600)
+    chain.forEach { repo.storeBlock(it) }
+
+    assertEquals(genesisBlock.header().hash(), repo.retrieveCanonicalBlockHash(UInt256.ZERO))
+    assertEquals(chain[299], repo.retrieveCanonicalBlock(UInt256.valueOf(300)))
+    assertEquals(chain[599].header(), repo.retrieveCanonicalBlockHeader(UInt256.valueOf(600)))
+    assertNull(repo.retrieveCanonicalBlockHash(UInt256.valueOf(601)))
+    assertEquals(
+      chain.subList(254, 600).map { it.header().hash() },
+      repo.retrieveCanonicalBlockHashes(UInt256.valueOf(255), UInt256.valueOf(1000))
+    )
+
+    // a fork from block 500 that becomes the longest chain replaces the blocks of the previous chain
+    val fork = chainOf(chain[499].header(), 110)
+    repo.storeBlocks(Channel<Block>(Channel.UNLIMITED).apply {
+      fork.forEach { send(it) }
+      close()
+    }, 50)
+    assertEquals(chain[499].header().hash(), repo.retrieveCanonicalBlockHash(UInt256.valueOf(500)))
+    assertEquals(fork[0].header().hash(), repo.retrieveCanonicalBlockHash(UInt256.valueOf(501)))
+    assertEquals(fork[109].header().hash(), repo.retrieveCanonicalBlockHash(UInt256.valueOf(610)))
+
+    // the index is restored from the chain metadata
+    val reopened = BlockchainRepository(
+      chainMetadata,
+      blockStore,
+      blockHeaderStore,
+      BlockchainIndex(writer),
+      transactionStore,
+      transactionReceiptStore
+    )
+    assertEquals(
+      repo.retrieveCanonicalBlockHashes(UInt256.ZERO, UInt256.valueOf(610)),
+      reopened.retrieveCanonicalBlockHashes(UInt256.ZERO, UInt256.valueOf(610))
+    )
+    assertEquals(611, reopened.retrieveCanonicalBlockHashes(UInt256.ZERO, UInt256.valueOf(1000)).size)
+  }
+
+  @Test
+  @Throws(Exception::class)
+  fun storeAndFindTransactions(@LuceneIndexWriter writer: IndexWriter) = runBlocking {
+    val genesisBlock = Block(blockHeader(UInt256.ZERO), BlockBody(emptyList(), emptyList()))
+    val repo = BlockchainRepository.init(
+      MapKeyValueStore(),
+      MapKeyValueStore(),
+      MapKeyValueStore(),
+      BlockchainIndex(writer),
+      genesisBlock,
+      MapKeyValueStore(),
+      MapKeyValueStore()
+    )
+
+    val keyPair = SECP256K1.KeyPair.random()
+    val recipient = Address.fromBytes(Bytes.random(20))
+    var parent = genesisBlock.header()
+    val entries = ArrayList<Pair<Block, List<TransactionReceipt>>>()
+    for (blockIndex in 0 until 3) {
+      val transactions = (0 until 40).map { i ->
+        Transaction(
+          UInt256.valueOf((blockIndex * 40 + i).toLong()),
+          Wei.valueOf(2),
+          Gas.valueOf(21000),
+          recipient,
+          Wei.valueOf(1),
+          Bytes.EMPTY,
+          keyPair
+        )
+      }
+      val receipts = transactions.indices.map { i ->
+        TransactionReceipt(1, 21000L * (i + 1), LogsBloomFilter(), emptyList())
+      }
+      val header = blockHeader(parent.number().add(UInt256.ONE), parent.hash())
+      entries.add(Block(header, BlockBody(transactions, emptyList())) to receipts)
+      parent = header
+    }
+    repo.storeBlocksWithReceipts(Channel<Pair<Block, List<TransactionReceipt>>>(Channel.UNLIMITED).apply {
+      entries.forEach { send(it) }
+      close()
+    }, 2)
+
+    val transactions = entries.flatMap { it.first.body().transactions() }
+    val hashes = transactions.map { it.hash() }
+    val transaction = transactions[57]
+    assertEquals(transaction, repo.retrieveTransaction(transaction.hash()))
+    assertEquals(entries[1].second[17], repo.retrieveTransactionReceipt(transaction.hash()))
+    assertNull(repo.retrieveTransaction(Hash.fromBytes(Bytes32.random())))
+
+    // results span several pages, and are in the order of the blockchain
+    assertEquals(hashes, repo.findTransactionsFrom(transaction.sender()!!, 25).toList())
+    assertEquals(hashes, repo.findTransactionsTo(recipient, 7).toList())
+    assertEquals(hashes.subList(0, 10), repo.findTransactionsTo(recipient, 3).take(10).toList())
+    assertEquals(hashes.subList(40, 80), repo.findTransactionsInBlock(entries[1].first.header().hash()).toList())
+    assertEquals(emptyList<Hash>(), repo.findTransactionsFrom(recipient).toList())
+  }
+
+  @Test
+  @Throws(Exception::class)
+  fun storeTransactionIncludedInSeveralForks(@LuceneIndexWriter writer: IndexWriter) = runBlocking {
+    val genesisBlock = Block(blockHeader(UInt256.ZERO), BlockBody(emptyList(), emptyList()))
+    val repo = BlockchainRepository.init(
+      MapKeyValueStore(),
+      MapKeyValueStore(),
+      MapKeyValueStore(),
+      BlockchainIndex(writer),
+      genesisBlock,
+      MapKeyValueStore(),
+      MapKeyValueStore()
+    )
+
+    val transaction = Transaction(
+      UInt256.ZERO,
+      Wei.valueOf(2),
+      Gas.valueOf(21000),
+      Address.fromBytes(Bytes.random(20)),
+      Wei.valueOf(1),
+      Bytes.EMPTY,
+      SECP256K1.KeyPair.random()
+    )
+    val body = BlockBody(listOf(transaction), emptyList())
+    val block = Block(blockHeader(UInt256.ONE, genesisBlock.header().hash()), body)
+    val receipt = TransactionReceipt(1, 21000, LogsBloomFilter(), emptyList())
+    val forkBlock = Block(blockHeader(UInt256.ONE, genesisBlock.header().hash()), body)
+    val forkReceipt = TransactionReceipt(0, 21000, LogsBloomFilter(), emptyList())
+    repo.storeBlock(block, listOf(receipt))
+    repo.storeBlock(forkBlock, listOf(forkReceipt))
+
+    // the block stored first remains canonical
+    assertEquals(receipt, repo.retrieveTransactionReceipt(transaction.hash()))
+    assertEquals(receipt, repo.retrieveTransactionReceipt(block.header().hash(), transaction.hash()))
+    assertEquals(forkReceipt, repo.retrieveTransactionReceipt(forkBlock.header().hash(), transaction.hash()))
+    assertEquals(listOf(transaction.hash()), repo.findTransactionsInBlock(block.header().hash()).toList())
+    assertEquals(listOf(transaction.hash()), repo.findTransactionsInBlock(forkBlock.header().hash()).toList())
+
+    // extending the fork makes it canonical
+    val forkHead = blockHeader(UInt256.valueOf(2), forkBlock.header().hash())
+    repo.storeBlock(Block(forkHead, BlockBody(emptyList(), emptyList())))
+    assertEquals(forkReceipt, repo.retrieveTransactionReceipt(transaction.hash()))
+    assertEquals(receipt, repo.retrieveTransactionReceipt(block.header().hash(), transaction.hash()))
+    assertNull(repo.retrieveTransactionReceipt(Hash.fromBytes(Bytes32.random())))
+  }
+
+  private fun chainOf(parent: BlockHeader, length: Int): List<Block> {
+    val blocks = ArrayList<Block>()
+    var previous = parent
+    for (i in 1..length) {
+      val header = blockHeader(previous.number().add(UInt256.ONE), previous.hash())
+      blocks.add(Block(header, BlockBody(emptyList(), emptyList())))
+      previous = header
+    }
+    return blocks
+  }
+
+  private fun blockHeader(number: UInt256, parentHash: Hash = Hash.fromBytes(Bytes32.random())): BlockHeader {
+    return BlockHeader(
+      parentHash,
+      Hash.fromBytes(Bytes32.random()),
+      Address.fromBytes(Bytes.random(20)),
+      Hash.fromBytes(Bytes32.random()),
+      Hash.fromBytes(Bytes32.random()),
+      Hash.fromBytes(Bytes32.random()),
+      Bytes32.random(),
+      UInt256.fromBytes(Bytes32.random()),
+      number,
+      Gas.valueOf(3),
+      Gas.valueOf(2),
+      Instant.now().truncatedTo(ChronoUnit.SECONDS),
+      Bytes.of(2, 3, 4),
+      Hash.fromBytes(Bytes32.random()),
+      Bytes32.random()
+    )
+  }
 }
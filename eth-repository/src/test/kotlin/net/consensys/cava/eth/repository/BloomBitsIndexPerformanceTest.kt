@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.eth.repository
+
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
+import net.consensys.cava.crypto.SECP256K1
+import net.consensys.cava.eth.Address
+import net.consensys.cava.eth.Block
+import net.consensys.cava.eth.BlockBody
+import net.consensys.cava.eth.BlockHeader
+import net.consensys.cava.eth.Hash
+import net.consensys.cava.eth.Log
+import net.consensys.cava.eth.LogsBloomFilter
+import net.consensys.cava.eth.Transaction
+import net.consensys.cava.eth.TransactionReceipt
+import net.consensys.cava.junit.BouncyCastleExtension
+import net.consensys.cava.junit.LuceneIndexWriter
+import net.consensys.cava.junit.LuceneIndexWriterExtension
+import net.consensys.cava.kv.MapKeyValueStore
+import net.consensys.cava.units.bigints.UInt256
+import net.consensys.cava.units.ethereum.Gas
+import net.consensys.cava.units.ethereum.Wei
+import org.apache.lucene.index.IndexWriter
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Disabled
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+import java.time.Instant
+
+@ExtendWith(BouncyCastleExtension::class, LuceneIndexWriterExtension::class)
+internal class BloomBitsIndexPerformanceTest {
+
+  @Test
+  @Disabled("Expensive test worth running on a developer machine")
+  fun queryMillionBlockRange(@LuceneIndexWriter writer: IndexWriter) = runBlocking {
+    val blockCount = 1_000_000
+    val logInterval = 10_000
+    val logger = Address.fromBytes(Bytes.random(20))
+    val keyPair = SECP256K1.KeyPair.random()
+    val genesis = Block(header(null, 0, LogsBloomFilter()), BlockBody(emptyList(), emptyList()))
+    val repo = BlockchainRepository.init(
+      MapKeyValueStore(),
+      MapKeyValueStore(),
+      MapKeyValueStore(),
+      BlockchainIndex(writer),
+      genesis,
+      MapKeyValueStore(),
+      MapKeyValueStore()
+    )
+
+    // every block has logs from other loggers, and one in every logInterval blocks has a log from the logger
+    val blocks = Channel<Pair<Block, List<TransactionReceipt>>>(10_000)
+    launch {
+      var parent = genesis.header()
+      for (number in 1L..blockCount) {
+        val bloom = LogsBloomFilter.compute(
+          (0 until 3).map { Log(Address.fromBytes(Bytes.random(20)), Bytes.EMPTY, listOf(Bytes32.random())) }
+        )
+        val transactions = ArrayList<Transaction>()
+        val receipts = ArrayList<TransactionReceipt>()
+        if (number % logInterval == 0L) {
+          val logs = listOf(Log(logger, Bytes.EMPTY, emptyList()))
+          transactions.add(
+            Transaction(
+              UInt256.valueOf(number),
+              Wei.valueOf(1),
+              Gas.valueOf(21000),
+              null,
+              Wei.valueOf(0),
+              Bytes.EMPTY,
+              keyPair
+            )
+          )
+          receipts.add(TransactionReceipt(1, 21000, LogsBloomFilter.compute(logs), logs))
+          bloom.digest(receipts[0].bloomFilter())
+        }
+        val header = header(parent.hash(), number, bloom)
+        blocks.send(Block(header, BlockBody(transactions, emptyList())) to receipts)
+        parent = header
+      }
+      blocks.close()
+    }
+    measure("import") { repo.storeBlocksWithReceipts(blocks, 10_000) }
+
+    val index = BloomBitsIndex(repo, MapKeyValueStore())
+    measure("index") { index.update() }
+
+    val filter = LogFilter(listOf(logger))
+    val unindexed = BloomBitsIndex(repo, MapKeyValueStore())
+    measure("header scan") {
+      assertEquals(blockCount / logInterval, unindexed.findLogs(filter, 0, blockCount.toLong()).size)
+    }
+    for (i in 0 until 5) {
+      measure("bloom bits") {
+        assertEquals(blockCount / logInterval, index.findLogs(filter, 0, blockCount.toLong()).size)
+      }
+    }
+  }
+
+  private suspend fun measure(name: String, fn: suspend () -> Unit) {
+    val start = System.nanoTime()
+    fn()
+    println("$name: ${(System.nanoTime() - start) / 1_000_000}ms")
+  }
+
+  private fun header(parentHash: Hash?, number: Long, bloom: LogsBloomFilter): BlockHeader {
+    return BlockHeader(
+      parentHash,
+      Hash.fromBytes(Bytes32.random()),
+      Address.fromBytes(Bytes.random(20)),
+      Hash.fromBytes(Bytes32.random()),
+      Hash.fromBytes(Bytes32.random()),
+      Hash.fromBytes(Bytes32.random()),
+      bloom.toBytes(),
+      UInt256.ONE,
+      UInt256.valueOf(number),
+      Gas.valueOf(3000),
+      Gas.valueOf(2000),
+      Instant.ofEpochSecond(number),
+      Bytes.EMPTY,
+      Hash.fromBytes(Bytes32.random()),
+      Bytes32.random()
+    )
+  }
+}
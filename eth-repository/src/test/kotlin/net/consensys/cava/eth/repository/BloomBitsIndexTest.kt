@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.eth.repository
+
+import kotlinx.coroutines.runBlocking
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
+import net.consensys.cava.crypto.SECP256K1
+import net.consensys.cava.eth.Address
+import net.consensys.cava.eth.Block
+import net.consensys.cava.eth.BlockBody
+import net.consensys.cava.eth.BlockHeader
+import net.consensys.cava.eth.Hash
+import net.consensys.cava.eth.Log
+import net.consensys.cava.eth.LogsBloomFilter
+import net.consensys.cava.eth.Transaction
+import net.consensys.cava.eth.TransactionReceipt
+import net.consensys.cava.junit.BouncyCastleExtension
+import net.consensys.cava.junit.LuceneIndexWriter
+import net.consensys.cava.junit.LuceneIndexWriterExtension
+import net.consensys.cava.kv.MapKeyValueStore
+import net.consensys.cava.units.bigints.UInt256
+import net.consensys.cava.units.ethereum.Gas
+import net.consensys.cava.units.ethereum.Wei
+import org.apache.lucene.index.IndexWriter
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+import java.time.Instant
+import java.util.Random
+
+@ExtendWith(BouncyCastleExtension::class, LuceneIndexWriterExtension::class)
+internal class BloomBitsIndexTest {
+
+  private val keyPair = SECP256K1.KeyPair.random()
+  private val logger = Address.fromBytes(Bytes.random(20))
+  private val topic = Bytes32.random()
+
+  @Test
+  fun compressesBitsets() {
+    val random = Random(1)
+    val empty = ByteArray(512)
+    val sparse = ByteArray(512).also { it[3] = 1; it[300] = 0x40 }
+    val dense = ByteArray(512).also { random.nextBytes(it) }
+    for (bitset in listOf(empty, sparse, dense, ByteArray(1) { 7 }, ByteArray(0))) {
+      val compressed = BitsetCompression.compress(bitset)
+      assertTrue(compressed.size <= bitset.size)
+      assertArrayEquals(bitset, BitsetCompression.decompress(compressed, bitset.size))
+    }
+    assertEquals(0, BitsetCompression.compress(empty).size)
+    assertTrue(BitsetCompression.compress(sparse).size < 16)
+  }
+
+  @Test
+  fun findsLogsInIndexedSectionsAndRecentBlocks(@LuceneIndexWriter writer: IndexWriter) = runBlocking {
+    val repo = repository(writer)
+    val chain = chainOf(repo.retrieveGenesisBlock()!!.header(), 50, setOf(5L, 20L, 49L))
+    chain.forEach { (block, receipts) -> repo.storeBlock(block, receipts) }
+
+    val index = BloomBitsIndex(repo, MapKeyValueStore(), 16)
+    val filter = LogFilter(listOf(logger), listOf(emptyList(), listOf(topic)))
+    // nothing is indexed yet, so all blocks are matched by their headers
+    assertEquals(listOf(5L, 20L, 49L), index.findLogs(filter, 0, 1000).map { it.blockNumber })
+
+    assertEquals(3, index.update())
+    assertEquals(0, index.update())
+    val logs = index.findLogs(filter, 0, 1000)
+    assertEquals(listOf(5L, 20L, 49L), logs.map { it.blockNumber })
+    assertEquals(chain[19].first.header().hash(), logs[1].blockHash)
+    assertEquals(chain[19].first.body().transactions()[0].hash(), logs[1].transactionHash)
+    assertEquals(1, logs[1].logIndex)
+    assertEquals(listOf(20L), index.findLogs(filter, 10, 30).map { it.blockNumber })
+    // the topic is in the bloom filter of the blocks, but not at the position of the filter
+    assertEquals(emptyList<MatchedLog>(), index.findLogs(LogFilter(listOf(logger), listOf(listOf(topic))), 0, 1000))
+    assertEquals(6, index.findLogs(LogFilter(), 0, 1000).size)
+  }
+
+  @Test
+  fun reindexesSectionsAfterReorganization(@LuceneIndexWriter writer: IndexWriter) = runBlocking {
+    val repo = repository(writer)
+    val chain = chainOf(repo.retrieveGenesisBlock()!!.header(), 40, setOf(5L, 20L))
+    chain.forEach { (block, receipts) -> repo.storeBlock(block, receipts) }
+    val index = BloomBitsIndex(repo, MapKeyValueStore(), 16)
+    assertEquals(2, index.update())
+
+    // a longer fork from block 17 replaces the second section, without the log of block 20
+    val fork = chainOf(chain[16].first.header(), 30, emptySet())
+    fork.forEach { (block, receipts) -> repo.storeBlock(block, receipts) }
+    val filter = LogFilter(listOf(logger))
+    assertEquals(listOf(5L), index.findLogs(filter, 0, 1000).map { it.blockNumber })
+    assertEquals(2, index.update())
+    assertEquals(listOf(5L), index.findLogs(filter, 0, 1000).map { it.blockNumber })
+  }
+
+  @Test
+  fun findsLogsOfTransactionsIncludedInSeveralForks(@LuceneIndexWriter writer: IndexWriter) = runBlocking {
+    val repo = repository(writer)
+    val chain = chainOf(repo.retrieveGenesisBlock()!!.header(), 10, setOf(5L))
+    // a longer fork from block 4 includes the same transaction in block 5, with different logs in its receipt
+    val fork = chainOf(chain[2].first.header(), 10, setOf(5L))
+    assertEquals(chain[4].first.body().transactions(), fork[1].first.body().transactions())
+    chain.subList(0, 3).forEach { (block, receipts) -> repo.storeBlock(block, receipts) }
+    fork.forEach { (block, receipts) -> repo.storeBlock(block, receipts) }
+    // the blocks of the previous chain are stored last, but are not canonical
+    chain.subList(3, 10).forEach { (block, receipts) -> repo.storeBlock(block, receipts) }
+
+    val index = BloomBitsIndex(repo, MapKeyValueStore(), 8)
+    assertEquals(1, index.update())
+    val logs = index.findLogs(LogFilter(listOf(logger)), 0, 1000)
+    assertEquals(listOf(fork[1].first.header().hash()), logs.map { it.blockHash })
+    assertEquals(fork[1].second[0].logs()[1], logs[0].log)
+  }
+
+  @Test
+  fun failsToFindLogsOfBlocksWithoutReceipts(@LuceneIndexWriter writer: IndexWriter) = runBlocking {
+    val repo = repository(writer)
+    val chain = chainOf(repo.retrieveGenesisBlock()!!.header(), 10, setOf(5L))
+    chain.forEach { (block, _) -> repo.storeBlock(block) }
+    val index = BloomBitsIndex(repo, MapKeyValueStore(), 8)
+    assertEquals(emptyList<MatchedLog>(), index.findLogs(LogFilter(listOf(logger)), 0, 4))
+    assertThrows(IllegalStateException::class.java) {
+      runBlocking { index.findLogs(LogFilter(listOf(logger)), 0, 1000) }
+    }
+  }
+
+  private suspend fun repository(writer: IndexWriter): BlockchainRepository {
+    val genesis = Block(header(null, 0, LogsBloomFilter()), BlockBody(emptyList(), emptyList()))
+    return BlockchainRepository.init(
+      MapKeyValueStore(),
+      MapKeyValueStore(),
+      MapKeyValueStore(),
+      BlockchainIndex(writer),
+      genesis,
+      MapKeyValueStore(),
+      MapKeyValueStore()
+    )
+  }
+
+  // builds a chain whose blocks with the given numbers have a transaction emitting a matching log
+  private fun chainOf(
+    parent: BlockHeader,
+    length: Int,
+    withLogs: Set<Long>
+  ): List<Pair<Block, List<TransactionReceipt>>> {
+    val blocks = ArrayList<Pair<Block, List<TransactionReceipt>>>()
+    var previous = parent
+    for (i in 1..length) {
+      val number = previous.number().toLong() + 1
+      val transactions = ArrayList<Transaction>()
+      val receipts = ArrayList<TransactionReceipt>()
+      if (withLogs.contains(number)) {
+        val logs = listOf(
+          Log(Address.fromBytes(Bytes.random(20)), Bytes.of(1), listOf(Bytes32.random())),
+          Log(logger, Bytes.of(2), listOf(Bytes32.random(), topic))
+        )
+        transactions.add(
+          Transaction(
+            UInt256.valueOf(number),
+            Wei.valueOf(1),
+            Gas.valueOf(21000),
+            null,
+            Wei.valueOf(0),
+            Bytes.EMPTY,
+            keyPair
+          )
+        )
+        receipts.add(TransactionReceipt(1, 21000, LogsBloomFilter.compute(logs), logs))
+      }
+      val bloom = LogsBloomFilter()
+      receipts.forEach { bloom.digest(it.bloomFilter()) }
+      val header = header(previous.hash(), number, bloom)
+      blocks.add(Block(header, BlockBody(transactions, emptyList())) to receipts)
+      previous = header
+    }
+    return blocks
+  }
+
+  private fun header(parentHash: Hash?, number: Long, bloom: LogsBloomFilter): BlockHeader {
+    return BlockHeader(
+      parentHash,
+      Hash.fromBytes(Bytes32.random()),
+      Address.fromBytes(Bytes.random(20)),
+      Hash.fromBytes(Bytes32.random()),
+      Hash.fromBytes(Bytes32.random()),
+      Hash.fromBytes(Bytes32.random()),
+      bloom.toBytes(),
+      UInt256.ONE,
+      UInt256.valueOf(number),
+      Gas.valueOf(3000),
+      Gas.valueOf(2000),
+      Instant.ofEpochSecond(number),
+      Bytes.EMPTY,
+      Hash.fromBytes(Bytes32.random()),
+      Bytes32.random()
+    )
+  }
+}
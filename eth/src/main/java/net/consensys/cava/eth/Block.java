@@ -20,10 +20,16 @@ import net.consensys.cava.rlp.RLPException;
 import net.consensys.cava.rlp.RLPReader;
 import net.consensys.cava.rlp.RLPWriter;
 
+import javax.annotation.Nullable;
+
 import com.google.common.base.Objects;
 
 /**
  * An Ethereum block.
+ *
+ * <p>
+ * A block that is read from RLP retains its encoding. Its header is decoded lazily, and its body is decoded when it is
+ * first accessed.
  */
 public final class Block {
 
@@ -35,7 +41,7 @@ public final class Block {
    * @throws RLPException If there is an error decoding the block.
    */
   public static Block fromBytes(Bytes encoded) {
-    return RLP.decodeList(encoded, Block::readFrom);
+    return RLP.decodeList(encoded, reader -> readFrom(reader, encoded));
   }
 
   /**
@@ -47,7 +53,7 @@ public final class Block {
    * @throws RLPException If there is an error decoding the block.
    */
   public static Block fromHexString(String str) {
-    return RLP.decodeList(Bytes.fromHexString(str), Block::readFrom);
+    return fromBytes(Bytes.fromHexString(str));
   }
 
   /**
@@ -58,13 +64,24 @@ public final class Block {
    * @throws RLPException If there is an error decoding the block.
    */
   public static Block readFrom(RLPReader reader) {
-    BlockHeader header = reader.readList(BlockHeader::readFrom);
-    BlockBody body = BlockBody.readFrom(reader);
-    return new Block(header, body);
+    return readFrom(reader, null);
+  }
+
+  private static Block readFrom(RLPReader reader, @Nullable Bytes encoded) {
+    BlockHeader header = BlockHeader.readListFrom(reader);
+    Bytes transactions = reader.readRLP();
+    Bytes ommers = reader.readRLP();
+    return new Block(header, Bytes.wrap(transactions, ommers), reader.isLenient(), encoded);
   }
 
   private final BlockHeader header;
-  private final BlockBody body;
+  private volatile BlockBody body;
+  // The RLP encoding of the body fields, for a block that was read from RLP
+  @Nullable
+  private final Bytes encodedBody;
+  private final boolean lenient;
+  @Nullable
+  private final Bytes encoded;
 
   /**
    * Creates a block.
@@ -77,12 +94,28 @@ public final class Block {
     requireNonNull(body);
     this.header = header;
     this.body = body;
+    this.encodedBody = null;
+    this.lenient = false;
+    this.encoded = null;
+  }
+
+  private Block(BlockHeader header, Bytes encodedBody, boolean lenient, @Nullable Bytes encoded) {
+    this.header = header;
+    this.encodedBody = encodedBody;
+    this.lenient = lenient;
+    this.encoded = encoded;
   }
 
   /**
    * @return the block body.
+   * @throws RLPException If there is an error decoding the block body.
    */
   public BlockBody body() {
+    BlockBody body = this.body;
+    if (body == null) {
+      body = RLP.decode(encodedBody, lenient, BlockBody::readFrom);
+      this.body = body;
+    }
     return body;
   }
 
@@ -102,23 +135,26 @@ public final class Block {
       return false;
     }
     Block other = (Block) obj;
-    return Objects.equal(header, other.header) && Objects.equal(body, other.body);
+    return header.equals(other.header) && body().equals(other.body());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(header, body);
+    return Objects.hashCode(header, body());
   }
 
   @Override
   public String toString() {
-    return "Block{" + "header=" + header + ", body=" + body + '}';
+    return "Block{" + "header=" + header + ", body=" + body() + '}';
   }
 
   /**
    * @return The RLP serialized form of this block.
    */
   public Bytes toBytes() {
+    if (encoded != null) {
+      return encoded;
+    }
     return RLP.encodeList(this::writeTo);
   }
 
@@ -129,6 +165,10 @@ public final class Block {
    */
   public void writeTo(RLPWriter writer) {
     writer.writeList(header::writeTo);
-    body.writeTo(writer);
+    if (encodedBody != null) {
+      writer.writeRLP(encodedBody);
+    } else {
+      body.writeTo(writer);
+    }
   }
 }
@@ -46,13 +46,13 @@ public final class BlockBody {
     List<Transaction> txs = new ArrayList<>();
     reader.readList((listReader, l) -> {
       while (!listReader.isComplete()) {
-        txs.add(listReader.readList(Transaction::readFrom));
+        txs.add(Transaction.readListFrom(listReader));
       }
     });
     List<BlockHeader> ommers = new ArrayList<>();
     reader.readList((listReader, l) -> {
       while (!listReader.isComplete()) {
-        ommers.add(listReader.readList(BlockHeader::readFrom));
+        ommers.add(BlockHeader.readListFrom(listReader));
       }
     });
 
@@ -16,6 +16,7 @@ import static java.util.Objects.requireNonNull;
 
 import net.consensys.cava.bytes.Bytes;
 import net.consensys.cava.rlp.RLP;
+import net.consensys.cava.rlp.RLPException;
 import net.consensys.cava.rlp.RLPReader;
 import net.consensys.cava.rlp.RLPWriter;
 import net.consensys.cava.units.bigints.UInt256;
@@ -28,63 +29,112 @@ import com.google.common.base.Objects;
 
 /**
  * An Ethereum block header.
+ *
+ * <p>
+ * A block header that is read from RLP retains its encoding, and each field is decoded from the encoding only when it
+ * is first accessed. The retained encoding is used for {@link #hash()} and {@link #toBytes()}.
  */
 public final class BlockHeader {
 
+  // The positions of the fields in the RLP encoded list
+  private static final int PARENT_HASH = 0;
+  private static final int OMMERS_HASH = 1;
+  private static final int COINBASE = 2;
+  private static final int STATE_ROOT = 3;
+  private static final int TRANSACTIONS_ROOT = 4;
+  private static final int RECEIPTS_ROOT = 5;
+  private static final int LOGS_BLOOM = 6;
+  private static final int DIFFICULTY = 7;
+  private static final int NUMBER = 8;
+  private static final int GAS_LIMIT = 9;
+  private static final int GAS_USED = 10;
+  private static final int TIMESTAMP = 11;
+  private static final int EXTRA_DATA = 12;
+  private static final int MIX_HASH = 13;
+  private static final int NONCE = 14;
+  private static final int FIELD_COUNT = 15;
+
   /**
    * Deserialize a block header from RLP encoded bytes.
    *
+   * <p>
+   * The fields of the header are decoded when they are first accessed, at which point an invalid field will cause an
+   * exception to be thrown.
+   *
    * @param encoded The RLP encoded block.
    * @return The deserialized block header.
+   * @throws RLPException If the encoding is not a list of block header fields.
    */
   public static BlockHeader fromBytes(Bytes encoded) {
     requireNonNull(encoded);
-    return RLP.decodeList(encoded, BlockHeader::readFrom);
+    return new BlockHeader(encoded, RLP.decodeList(encoded, BlockHeader::readFields), false);
   }
 
   /**
    * Deserialize a block header from an RLP input.
    *
+   * <p>
+   * The fields of the header are decoded when they are first accessed, at which point an invalid field will cause an
+   * exception to be thrown.
+   *
    * @param reader The RLP reader.
    * @return The deserialized block header.
+   * @throws RLPException If the input does not contain the block header fields.
    */
   public static BlockHeader readFrom(RLPReader reader) {
-    Bytes parentHashBytes = reader.readValue();
-    return new BlockHeader(
-        parentHashBytes.isEmpty() ? null : Hash.fromBytes(parentHashBytes),
-        Hash.fromBytes(reader.readValue()),
-        Address.fromBytes(reader.readValue()),
-        Hash.fromBytes(reader.readValue()),
-        Hash.fromBytes(reader.readValue()),
-        Hash.fromBytes(reader.readValue()),
-        reader.readValue(),
-        UInt256.fromBytes(reader.readValue()),
-        UInt256.fromBytes(reader.readValue()),
-        Gas.valueOf(reader.readUInt256()),
-        Gas.valueOf(reader.readUInt256()),
-        Instant.ofEpochSecond(reader.readLong()),
-        reader.readValue(),
-        Hash.fromBytes(reader.readValue()),
-        reader.readValue());
+    Bytes[] fields = readFields(reader);
+    Bytes encoded = RLP.encodeList(writer -> {
+      for (Bytes field : fields) {
+        writer.writeRLP(field);
+      }
+    });
+    return new BlockHeader(encoded, fields, reader.isLenient());
+  }
+
+  /**
+   * Decode a block header from the RLP encoding of a list, retaining the encoding.
+   *
+   * @param reader The RLP reader, positioned at the list of block header fields.
+   * @return The block header.
+   * @throws RLPException If the next item is not a list of block header fields.
+   */
+  static BlockHeader readListFrom(RLPReader reader) {
+    boolean lenient = reader.isLenient();
+    Bytes encoded = reader.readRLP();
+    return new BlockHeader(encoded, RLP.decodeList(encoded, lenient, BlockHeader::readFields), lenient);
+  }
+
+  private static Bytes[] readFields(RLPReader reader) {
+    Bytes[] fields = new Bytes[FIELD_COUNT];
+    for (int i = 0; i < FIELD_COUNT; ++i) {
+      fields[i] = reader.readRLP();
+    }
+    return fields;
   }
 
   @Nullable
-  private final Hash parentHash;
-  private final Hash ommersHash;
-  private final Address coinbase;
-  private final Hash stateRoot;
-  private final Hash transactionsRoot;
-  private final Hash receiptsRoot;
-  private final Bytes logsBloom;
-  private final UInt256 difficulty;
-  private final UInt256 number;
-  private final Gas gasLimit;
-  private final Gas gasUsed;
-  private final Instant timestamp;
-  private final Bytes extraData;
-  private final Hash mixHash;
-  private final Bytes nonce;
+  private Hash parentHash;
+  private Hash ommersHash;
+  private Address coinbase;
+  private Hash stateRoot;
+  private Hash transactionsRoot;
+  private Hash receiptsRoot;
+  private Bytes logsBloom;
+  private UInt256 difficulty;
+  private UInt256 number;
+  private Gas gasLimit;
+  private Gas gasUsed;
+  private Instant timestamp;
+  private Bytes extraData;
+  private Hash mixHash;
+  private Bytes nonce;
   private Hash hash;
+  // The RLP encoding and its fields, for a block header that was read from RLP
+  @Nullable
+  private final Bytes encoded;
+  @Nullable
+  private final Bytes[] fields;
+  private final boolean lenient;
 
   /**
    * Creates a new block header.
@@ -150,12 +200,24 @@ public final class BlockHeader {
     this.extraData = extraData;
     this.mixHash = mixHash;
     this.nonce = nonce;
+    this.encoded = null;
+    this.fields = null;
+    this.lenient = false;
+  }
+
+  private BlockHeader(Bytes encoded, Bytes[] fields, boolean lenient) {
+    this.encoded = encoded;
+    this.fields = fields;
+    this.lenient = lenient;
   }
 
   /**
    * @return the block's beneficiary's address.
    */
   public Address coinbase() {
+    if (coinbase == null) {
+      coinbase = Address.fromBytes(value(COINBASE));
+    }
     return coinbase;
   }
 
@@ -163,6 +225,9 @@ public final class BlockHeader {
    * @return the difficulty of the block.
    */
   public UInt256 difficulty() {
+    if (difficulty == null) {
+      difficulty = UInt256.fromBytes(value(DIFFICULTY));
+    }
     return difficulty;
   }
 
@@ -170,6 +235,9 @@ public final class BlockHeader {
    * @return the extra data stored with the block.
    */
   public Bytes extraData() {
+    if (extraData == null) {
+      extraData = value(EXTRA_DATA);
+    }
     return extraData;
   }
 
@@ -177,6 +245,9 @@ public final class BlockHeader {
    * @return the gas limit of the block.
    */
   public Gas gasLimit() {
+    if (gasLimit == null) {
+      gasLimit = Gas.valueOf(uint256Value(GAS_LIMIT));
+    }
     return gasLimit;
   }
 
@@ -184,6 +255,9 @@ public final class BlockHeader {
    * @return the gas used for the block.
    */
   public Gas gasUsed() {
+    if (gasUsed == null) {
+      gasUsed = Gas.valueOf(uint256Value(GAS_USED));
+    }
     return gasUsed;
   }
 
@@ -202,6 +276,9 @@ public final class BlockHeader {
    * @return the bloom filter of the logs of the block.
    */
   public Bytes logsBloom() {
+    if (logsBloom == null) {
+      logsBloom = value(LOGS_BLOOM);
+    }
     return logsBloom;
   }
 
@@ -209,6 +286,9 @@ public final class BlockHeader {
    * @return the hash associated with computional work on the block.
    */
   public Hash mixHash() {
+    if (mixHash == null) {
+      mixHash = Hash.fromBytes(value(MIX_HASH));
+    }
     return mixHash;
   }
 
@@ -216,6 +296,9 @@ public final class BlockHeader {
    * @return the nonce of the block.
    */
   public Bytes nonce() {
+    if (nonce == null) {
+      nonce = value(NONCE);
+    }
     return nonce;
   }
 
@@ -223,6 +306,9 @@ public final class BlockHeader {
    * @return the number of the block.
    */
   public UInt256 number() {
+    if (number == null) {
+      number = UInt256.fromBytes(value(NUMBER));
+    }
     return number;
   }
 
@@ -230,6 +316,9 @@ public final class BlockHeader {
    * @return the ommer hash.
    */
   public Hash ommersHash() {
+    if (ommersHash == null) {
+      ommersHash = Hash.fromBytes(value(OMMERS_HASH));
+    }
     return ommersHash;
   }
 
@@ -238,6 +327,10 @@ public final class BlockHeader {
    */
   @Nullable
   public Hash parentHash() {
+    if (parentHash == null && fields != null) {
+      Bytes parentHashBytes = value(PARENT_HASH);
+      parentHash = parentHashBytes.isEmpty() ? null : Hash.fromBytes(parentHashBytes);
+    }
     return parentHash;
   }
 
@@ -245,6 +338,9 @@ public final class BlockHeader {
    * @return the hash associated with the transaction receipts tree.
    */
   public Hash receiptsRoot() {
+    if (receiptsRoot == null) {
+      receiptsRoot = Hash.fromBytes(value(RECEIPTS_ROOT));
+    }
     return receiptsRoot;
   }
 
@@ -252,6 +348,9 @@ public final class BlockHeader {
    * @return the hash associated with the state tree.
    */
   public Hash stateRoot() {
+    if (stateRoot == null) {
+      stateRoot = Hash.fromBytes(value(STATE_ROOT));
+    }
     return stateRoot;
   }
 
@@ -259,6 +358,9 @@ public final class BlockHeader {
    * @return the timestamp of the block.
    */
   public Instant timestamp() {
+    if (timestamp == null) {
+      timestamp = Instant.ofEpochSecond(RLP.decodeLong(fields[TIMESTAMP], lenient));
+    }
     return timestamp;
   }
 
@@ -266,6 +368,9 @@ public final class BlockHeader {
    * @return the hash associated with the transactions tree.
    */
   public Hash transactionsRoot() {
+    if (transactionsRoot == null) {
+      transactionsRoot = Hash.fromBytes(value(TRANSACTIONS_ROOT));
+    }
     return transactionsRoot;
   }
 
@@ -278,76 +383,76 @@ public final class BlockHeader {
       return false;
     }
     BlockHeader other = (BlockHeader) obj;
-    return Objects.equal(parentHash, other.parentHash)
-        && ommersHash.equals(other.ommersHash)
-        && coinbase.equals(other.coinbase)
-        && stateRoot.equals(other.stateRoot)
-        && transactionsRoot.equals(other.transactionsRoot)
-        && receiptsRoot.equals(other.receiptsRoot)
-        && logsBloom.equals(other.logsBloom)
-        && difficulty.equals(other.difficulty)
-        && number.equals(other.number)
-        && gasLimit.equals(other.gasLimit)
-        && gasUsed.equals(other.gasUsed)
-        && timestamp.equals(other.timestamp)
-        && extraData.equals(other.extraData)
-        && mixHash.equals(other.mixHash)
-        && nonce.equals(other.nonce);
+    return Objects.equal(parentHash(), other.parentHash())
+        && ommersHash().equals(other.ommersHash())
+        && coinbase().equals(other.coinbase())
+        && stateRoot().equals(other.stateRoot())
+        && transactionsRoot().equals(other.transactionsRoot())
+        && receiptsRoot().equals(other.receiptsRoot())
+        && logsBloom().equals(other.logsBloom())
+        && difficulty().equals(other.difficulty())
+        && number().equals(other.number())
+        && gasLimit().equals(other.gasLimit())
+        && gasUsed().equals(other.gasUsed())
+        && timestamp().equals(other.timestamp())
+        && extraData().equals(other.extraData())
+        && mixHash().equals(other.mixHash())
+        && nonce().equals(other.nonce());
   }
 
   @Override
   public int hashCode() {
     return Objects.hashCode(
-        parentHash,
-        ommersHash,
-        coinbase,
-        stateRoot,
-        transactionsRoot,
-        receiptsRoot,
-        logsBloom,
-        difficulty,
-        number,
-        gasLimit,
-        gasUsed,
-        timestamp,
-        extraData,
-        mixHash,
-        nonce);
+        parentHash(),
+        ommersHash(),
+        coinbase(),
+        stateRoot(),
+        transactionsRoot(),
+        receiptsRoot(),
+        logsBloom(),
+        difficulty(),
+        number(),
+        gasLimit(),
+        gasUsed(),
+        timestamp(),
+        extraData(),
+        mixHash(),
+        nonce());
   }
 
   @Override
   public String toString() {
     return "BlockHeader{"
         + "parentHash="
-        + parentHash
+        + parentHash()
         + ", ommersHash="
-        + ommersHash
+        + ommersHash()
         + ", coinbase="
-        + coinbase
+        + coinbase()
         + ", stateRoot="
-        + stateRoot
+        + stateRoot()
         + ", transactionsRoot="
-        + transactionsRoot
+        + transactionsRoot()
         + ", receiptsRoot="
-        + receiptsRoot
+        + receiptsRoot()
         + ", logsBloom="
-        + logsBloom
+        + logsBloom()
         + ", difficulty="
-        + difficulty
+        + difficulty()
         + ", number="
-        + number
+        + number()
         + ", gasLimit="
-        + gasLimit
+        + gasLimit()
         + ", gasUsed="
-        + gasUsed
+        + gasUsed()
         + ", timestamp="
-        + timestamp
+        + timestamp()
         + ", extraData="
-        + extraData
+        + extraData()
         + ", mixHash="
-        + mixHash
+        + mixHash()
         + ", nonce="
-        + nonce
+        + nonce()
         + '}';
   }
 
@@ -355,6 +460,9 @@ public final class BlockHeader {
    * @return The RLP serialized form of this block header.
    */
   public Bytes toBytes() {
+    if (encoded != null) {
+      return encoded;
+    }
     return RLP.encodeList(this::writeTo);
   }
 
@@ -364,6 +472,12 @@ public final class BlockHeader {
    * @param writer The RLP writer.
    */
   void writeTo(RLPWriter writer) {
+    if (fields != null) {
+      for (Bytes field : fields) {
+        writer.writeRLP(field);
+      }
+      return;
+    }
     writer.writeValue((parentHash != null) ? parentHash.toBytes() : Bytes.EMPTY);
     writer.writeValue(ommersHash.toBytes());
     writer.writeValue(coinbase.toBytes());
@@ -380,4 +494,12 @@ public final class BlockHeader {
     writer.writeValue(mixHash.toBytes());
     writer.writeValue(nonce);
   }
+
+  private Bytes value(int field) {
+    return RLP.decodeValue(fields[field], lenient);
+  }
+
+  private UInt256 uint256Value(int field) {
+    return RLP.decode(fields[field], lenient, RLPReader::readUInt256);
+  }
 }
@@ -34,6 +34,27 @@ public final class LogsBloomFilter {
 
   private static final int LEAST_SIGNIFICANT_THREE_BITS = 0x7;
 
+  /**
+   * The number of bits in a bloom filter.
+   */
+  public static final int BITS = 2048;
+
+  /**
+   * Computes the indices of the bits that are set in a bloom filter for a value.
+   *
+   * @param value the value, such as the address of a logger or a log topic
+   * @return the indices of the three bits set for {@code value}, each between 0 and {@link #BITS} (exclusive)
+   */
+  public static int[] bitIndices(final Bytes value) {
+    final Bytes32 hashValue = keccak256(value);
+    final int[] indices = new int[3];
+    for (int counter = 0; counter < 6; counter += 2) {
+      indices[counter / 2] =
+          ((hashValue.get(counter) & LEAST_SIGNIFICANT_THREE_BITS) << 8) + (hashValue.get(counter + 1) & 0xFF);
+    }
+    return indices;
+  }
+
   /**
    * Creates a bloom filter corresponding to the provide log series.
    *
@@ -75,11 +96,37 @@ public final class LogsBloomFilter {
   }
 
   public void insertLog(final Log log) {
-    setBits(keccak256(log.logger().toBytes()));
+    setBits(log.logger().toBytes());
 
     for (final Bytes32 topic : log.topics()) {
-      setBits(keccak256(topic));
+      setBits(topic);
+    }
+  }
+
+  /**
+   * Checks whether a value may have been inserted into this bloom filter.
+   *
+   * @param value the value, such as the address of a logger or a log topic
+   * @return {@code false} if the value was definitely not inserted, {@code true} if it may have been
+   */
+  public boolean mightContain(final Bytes value) {
+    for (final int index : bitIndices(value)) {
+      if (!isSet(index)) {
+        return false;
+      }
     }
+    return true;
+  }
+
+  /**
+   * Checks whether a bit of this bloom filter is set.
+   *
+   * @param index the index of the bit, between 0 and {@link #BITS} (exclusive)
+   * @return {@code true} if the bit is set
+   */
+  public boolean isSet(final int index) {
+    checkArgument(index >= 0 && index < BITS, "Invalid bit index %s", index);
+    return (data.get(256 - 1 - index / 8) & (1 << (index % 8))) != 0;
   }
 
   public void digest(final LogsBloomFilter other) {
@@ -92,13 +139,11 @@ public final class LogsBloomFilter {
    * Discover the low order 11-bits, of the first three double-bytes, of the SHA3 hash, of each value and update the
    * bloom filter accordingly.
    *
-   * @param hashValue The hash of the log item.
+   * @param value The log item.
    */
-  private void setBits(final Bytes hashValue) {
-    for (int counter = 0; counter < 6; counter += 2) {
-      final int setBloomBit =
-          ((hashValue.get(counter) & LEAST_SIGNIFICANT_THREE_BITS) << 8) + (hashValue.get(counter + 1) & 0xFF);
-      setBit(setBloomBit);
+  private void setBits(final Bytes value) {
+    for (final int index : bitIndices(value)) {
+      setBit(index);
     }
   }
 
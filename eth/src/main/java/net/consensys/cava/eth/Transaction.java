@@ -33,18 +33,38 @@ import com.google.common.base.Objects;
 
 /**
  * An Ethereum transaction.
+ *
+ * <p>
+ * A transaction that is read from RLP retains its encoding, and each field is decoded from the encoding only when it
+ * is first accessed. The retained encoding is used for {@link #hash()} and {@link #toBytes()}.
  */
 public final class Transaction {
 
   // The base of the signature v-value
   private static final int V_BASE = 27;
 
+  // The positions of the fields in the RLP encoded list
+  private static final int NONCE = 0;
+  private static final int GAS_PRICE = 1;
+  private static final int GAS_LIMIT = 2;
+  private static final int TO = 3;
+  private static final int VALUE = 4;
+  private static final int PAYLOAD = 5;
+  private static final int V = 6;
+  private static final int R = 7;
+  private static final int S = 8;
+  private static final int FIELD_COUNT = 9;
+
   /**
    * Deserialize a transaction from RLP encoded bytes.
    *
+   * <p>
+   * The fields of the transaction are decoded when they are first accessed, at which point an invalid field will cause
+   * an {@link RLPException} to be thrown.
+   *
    * @param encoded The RLP encoded transaction.
    * @return The de-serialized transaction.
-   * @throws RLPException If there is an error decoding the transaction.
+   * @throws RLPException If the encoding is not a list of transaction fields.
    */
   public static Transaction fromBytes(Bytes encoded) {
     return fromBytes(encoded, false);
@@ -53,83 +73,89 @@ public final class Transaction {
   /**
    * Deserialize a transaction from RLP encoded bytes.
    *
+   * <p>
+   * The fields of the transaction are decoded when they are first accessed, at which point an invalid field will cause
+   * an {@link RLPException} to be thrown.
+   *
    * @param encoded The RLP encoded transaction.
    * @param lenient If {@code true}, the RLP decoding will be lenient toward any non-minimal encoding.
    * @return The de-serialized transaction.
-   * @throws RLPException If there is an error decoding the transaction.
+   * @throws RLPException If the encoding is not a list of transaction fields.
    */
   public static Transaction fromBytes(Bytes encoded, boolean lenient) {
     requireNonNull(encoded);
-    return RLP.decode(encoded, lenient, (reader) -> {
-      Transaction tx = reader.readList(Transaction::readFrom);
+    Bytes[] fields = RLP.decode(encoded, lenient, (reader) -> {
+      Bytes[] txFields = reader.readList(Transaction::readFields);
       if (!reader.isComplete()) {
         throw new RLPException("Additional bytes present at the end of the encoded transaction");
       }
-      return tx;
+      return txFields;
     });
+    return new Transaction(encoded, fields, lenient);
   }
 
   /**
    * Deserialize a transaction from an RLP input.
    *
+   * <p>
+   * The fields of the transaction are decoded when they are first accessed, at which point an invalid field will cause
+   * an {@link RLPException} to be thrown.
+   *
    * @param reader The RLP reader.
    * @return The de-serialized transaction.
-   * @throws RLPException If there is an error decoding the transaction.
+   * @throws RLPException If the input does not contain the transaction fields.
    */
   public static Transaction readFrom(RLPReader reader) {
-    UInt256 nonce = reader.readUInt256();
-    Wei gasPrice = Wei.valueOf(reader.readUInt256());
-    Gas gasLimit = Gas.valueOf(reader.readLong());
-    Bytes addressBytes = reader.readValue();
-    Address address;
-    try {
-      address = addressBytes.isEmpty() ? null : Address.fromBytes(addressBytes);
-    } catch (IllegalArgumentException e) {
-      throw new RLPException("Value is the wrong size to be an address", e);
-    }
-    Wei value = Wei.valueOf(reader.readUInt256());
-    Bytes payload = reader.readValue();
-    byte encodedV = reader.readByte();
-    Bytes rbytes = reader.readValue();
-    if (rbytes.size() > 32) {
-      throw new RLPException("r-value of the signature is " + rbytes.size() + ", it should be at most 32 bytes");
-    }
-    BigInteger r = rbytes.toUnsignedBigInteger();
-    Bytes sbytes = reader.readValue();
-    if (sbytes.size() > 32) {
-      throw new RLPException("s-value of the signature is " + sbytes.size() + ", it should be at most 32 bytes");
-    }
-    BigInteger s = sbytes.toUnsignedBigInteger();
-    if (!reader.isComplete()) {
-      throw new RLPException("Additional bytes present at the end of the encoding");
-    }
+    Bytes[] fields = readFields(reader);
+    Bytes encoded = RLP.encodeList(writer -> {
+      for (Bytes field : fields) {
+        writer.writeRLP(field);
+      }
+    });
+    return new Transaction(encoded, fields, reader.isLenient());
+  }
 
-    byte v = (byte) ((int) encodedV - V_BASE);
+  /**
+   * Decode a transaction from the RLP encoding of a list, retaining the encoding.
+   *
+   * @param reader The RLP reader, positioned at the list of transaction fields.
+   * @return The transaction.
+   * @throws RLPException If the next item is not a list of transaction fields.
+   */
+  static Transaction readListFrom(RLPReader reader) {
+    boolean lenient = reader.isLenient();
+    Bytes encoded = reader.readRLP();
+    return new Transaction(encoded, RLP.decodeList(encoded, lenient, Transaction::readFields), lenient);
+  }
 
-    SECP256K1.Signature signature;
-    try {
-      signature = SECP256K1.Signature.create(v, r, s);
-    } catch (IllegalArgumentException e) {
-      throw new RLPException("Invalid signature: " + e.getMessage());
+  private static Bytes[] readFields(RLPReader reader) {
+    Bytes[] fields = new Bytes[FIELD_COUNT];
+    for (int i = 0; i < FIELD_COUNT; ++i) {
+      fields[i] = reader.readRLP();
     }
-    try {
-      return new Transaction(nonce, gasPrice, gasLimit, address, value, payload, signature);
-    } catch (IllegalArgumentException e) {
-      throw new RLPException(e.getMessage(), e);
+    if (!reader.isComplete()) {
+      throw new RLPException("Additional bytes present at the end of the encoding");
     }
+    return fields;
   }
 
-  private final UInt256 nonce;
-  private final Wei gasPrice;
-  private final Gas gasLimit;
+  private UInt256 nonce;
+  private Wei gasPrice;
+  private Gas gasLimit;
   @Nullable
-  private final Address to;
-  private final Wei value;
-  private final SECP256K1.Signature signature;
-  private final Bytes payload;
+  private Address to;
+  private Wei value;
+  private SECP256K1.Signature signature;
+  private Bytes payload;
   private volatile Hash hash;
   private volatile Address sender;
   private volatile Boolean validSignature;
+  // The RLP encoding and its fields, for a transaction that was read from RLP
+  @Nullable
+  private final Bytes encoded;
+  @Nullable
+  private final Bytes[] fields;
+  private final boolean lenient;
 
   /**
    * Create a transaction.
@@ -192,12 +218,24 @@ public final class Transaction {
     this.value = value;
     this.signature = signature;
     this.payload = payload;
+    this.encoded = null;
+    this.fields = null;
+    this.lenient = false;
+  }
+
+  private Transaction(Bytes encoded, Bytes[] fields, boolean lenient) {
+    this.encoded = encoded;
+    this.fields = fields;
+    this.lenient = lenient;
   }
 
   /**
    * @return The transaction nonce.
    */
   public UInt256 nonce() {
+    if (nonce == null) {
+      nonce = uint256Value(NONCE);
+    }
     return nonce;
   }
 
@@ -205,6 +243,9 @@ public final class Transaction {
    * @return The transaction gas price.
    */
   public Wei gasPrice() {
+    if (gasPrice == null) {
+      gasPrice = Wei.valueOf(uint256Value(GAS_PRICE));
+    }
     return gasPrice;
   }
 
@@ -212,6 +253,9 @@ public final class Transaction {
    * @return The transaction gas limit.
    */
   public Gas gasLimit() {
+    if (gasLimit == null) {
+      gasLimit = Gas.valueOf(RLP.decodeLong(fields[GAS_LIMIT], lenient));
+    }
     return gasLimit;
   }
 
@@ -220,6 +264,14 @@ public final class Transaction {
    */
   @Nullable
   public Address to() {
+    if (to == null && fields != null) {
+      Bytes addressBytes = RLP.decodeValue(fields[TO], lenient);
+      try {
+        to = addressBytes.isEmpty() ? null : Address.fromBytes(addressBytes);
+      } catch (IllegalArgumentException e) {
+        throw new RLPException("Value is the wrong size to be an address", e);
+      }
+    }
     return to;
   }
 
@@ -227,13 +279,16 @@ public final class Transaction {
    * @return {@code true} if the transaction is a contract creation ({@code to} address is {@code null}).
    */
   public boolean isContractCreation() {
-    return to == null;
+    return to() == null;
   }
 
   /**
    * @return The amount of Eth to transfer.
    */
   public Wei value() {
+    if (value == null) {
+      value = Wei.valueOf(uint256Value(VALUE));
+    }
     return value;
   }
 
@@ -241,6 +296,9 @@ public final class Transaction {
    * @return The transaction signature.
    */
   public SECP256K1.Signature signature() {
+    if (signature == null) {
+      signature = decodeSignature();
+    }
     return signature;
   }
 
@@ -248,6 +306,9 @@ public final class Transaction {
    * @return The transaction payload.
    */
   public Bytes payload() {
+    if (payload == null) {
+      payload = RLP.decodeValue(fields[PAYLOAD], lenient);
+    }
     return payload;
   }
 
@@ -278,9 +339,9 @@ public final class Transaction {
 
   @Nullable
   private Address verifySignatureAndGetSender() {
-    Bytes data = signatureData(nonce, gasPrice, gasLimit, to, value, payload);
+    Bytes data = signatureData(nonce(), gasPrice(), gasLimit(), to(), value(), payload());
 
-    SECP256K1.PublicKey publicKey = SECP256K1.PublicKey.recoverFromSignature(data, signature);
+    SECP256K1.PublicKey publicKey = SECP256K1.PublicKey.recoverFromSignature(data, signature());
     if (publicKey == null) {
       validSignature = false;
     } else {
@@ -300,37 +361,40 @@ public final class Transaction {
       return false;
     }
     Transaction that = (Transaction) obj;
-    return nonce.equals(that.nonce)
-        && gasPrice.equals(that.gasPrice)
-        && gasLimit.equals(that.gasLimit)
-        && Objects.equal(to, that.to)
-        && value.equals(that.value)
-        && signature.equals(that.signature)
-        && payload.equals(that.payload);
+    return nonce().equals(that.nonce())
+        && gasPrice().equals(that.gasPrice())
+        && gasLimit().equals(that.gasLimit())
+        && Objects.equal(to(), that.to())
+        && value().equals(that.value())
+        && signature().equals(that.signature())
+        && payload().equals(that.payload());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(nonce, gasPrice, gasLimit, to, value, signature, payload);
+    return Objects.hashCode(nonce(), gasPrice(), gasLimit(), to(), value(), signature(), payload());
   }
 
   @Override
   public String toString() {
     return String.format(
         "Transaction{nonce=%s, gasPrice=%s, gasLimit=%s, to=%s, value=%s, signature=%s, payload=%s",
-        nonce,
-        gasPrice,
-        gasLimit,
-        to,
-        value,
-        signature,
-        payload);
+        nonce(),
+        gasPrice(),
+        gasLimit(),
+        to(),
+        value(),
+        signature(),
+        payload());
   }
 
   /**
    * @return The RLP serialized form of this transaction.
    */
   public Bytes toBytes() {
+    if (encoded != null) {
+      return encoded;
+    }
     return RLP.encodeList(this::writeTo);
   }
 
@@ -340,6 +404,12 @@ public final class Transaction {
    * @param writer The RLP writer.
    */
   public void writeTo(RLPWriter writer) {
+    if (fields != null) {
+      for (Bytes field : fields) {
+        writer.writeRLP(field);
+      }
+      return;
+    }
     writer.writeUInt256(nonce);
     writer.writeUInt256(gasPrice.toUInt256());
     writer.writeLong(gasLimit.toLong());
@@ -351,6 +421,27 @@ public final class Transaction {
     writer.writeBigInteger(signature.s());
   }
 
+  private SECP256K1.Signature decodeSignature() {
+    byte encodedV = RLP.decode(fields[V], lenient, RLPReader::readByte);
+    Bytes rbytes = RLP.decodeValue(fields[R], lenient);
+    if (rbytes.size() > 32) {
+      throw new RLPException("r-value of the signature is " + rbytes.size() + ", it should be at most 32 bytes");
+    }
+    BigInteger r = rbytes.toUnsignedBigInteger();
+    Bytes sbytes = RLP.decodeValue(fields[S], lenient);
+    if (sbytes.size() > 32) {
+      throw new RLPException("s-value of the signature is " + sbytes.size() + ", it should be at most 32 bytes");
+    }
+    BigInteger s = sbytes.toUnsignedBigInteger();
+
+    byte v = (byte) ((int) encodedV - V_BASE);
+    try {
+      return SECP256K1.Signature.create(v, r, s);
+    } catch (IllegalArgumentException e) {
+      throw new RLPException("Invalid signature: " + e.getMessage());
+    }
+  }
+
   private static SECP256K1.Signature generateSignature(
       UInt256 nonce,
       Wei gasPrice,
@@ -378,4 +469,8 @@ public final class Transaction {
       writer.writeValue(payload);
     });
   }
+
+  private UInt256 uint256Value(int field) {
+    return RLP.decode(fields[field], lenient, RLPReader::readUInt256);
+  }
 }
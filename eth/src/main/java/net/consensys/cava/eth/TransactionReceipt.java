@@ -14,6 +14,8 @@ package net.consensys.cava.eth;
 
 import net.consensys.cava.bytes.Bytes;
 import net.consensys.cava.bytes.Bytes32;
+import net.consensys.cava.rlp.RLP;
+import net.consensys.cava.rlp.RLPException;
 import net.consensys.cava.rlp.RLPReader;
 import net.consensys.cava.rlp.RLPWriter;
 
@@ -66,6 +68,17 @@ public final class TransactionReceipt {
     this(null, status, cumulativeGasUsed, bloomFilter, logs);
   }
 
+  /**
+   * Deserialize a transaction receipt from RLP encoded bytes.
+   *
+   * @param encoded The RLP encoded transaction receipt.
+   * @return The de-serialized transaction receipt.
+   * @throws RLPException If there is an error decoding the transaction receipt.
+   */
+  public static TransactionReceipt fromBytes(Bytes encoded) {
+    return RLP.decode(encoded, TransactionReceipt::readFrom);
+  }
+
   private TransactionReceipt(
       @Nullable Bytes32 stateRoot,
       @Nullable Integer status,
@@ -79,12 +92,21 @@ public final class TransactionReceipt {
     this.bloomFilter = bloomFilter;
   }
 
+  /**
+   * @return The RLP serialized form of this transaction receipt.
+   */
+  public Bytes toBytes() {
+    return RLP.encode(this::writeTo);
+  }
+
   /**
    * Write an RLP representation.
    *
    * @param writer The RLP output to write to
    */
   public void writeTo(final RLPWriter writer) {
+    // This codec is written by hand rather than generated with @RLPEncodable: the first field is either a state root or
+    // a status, distinguished only by its length on decoding, and the logs bloom filter is not a generated codec type.
     writer.writeList(out -> {
 
       // Determine whether it's a state root-encoded transaction receipt
@@ -13,9 +13,12 @@
 package net.consensys.cava.eth;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import net.consensys.cava.bytes.Bytes;
 import net.consensys.cava.junit.BouncyCastleExtension;
+import net.consensys.cava.rlp.RLP;
 import net.consensys.cava.units.bigints.UInt256;
 import net.consensys.cava.units.ethereum.Gas;
 
@@ -53,4 +56,23 @@ class BlockHeaderTest {
     BlockHeader read = BlockHeader.fromBytes(blockHeader.toBytes());
     assertEquals(blockHeader, read);
   }
+
+  @Test
+  void shouldDecodeFieldsOnAccess() {
+    BlockHeader blockHeader = generateBlockHeader();
+    // replace the coinbase with a value that is too short to be an address
+    Bytes encoded = RLP.encodeList(writer -> RLP.decodeList(blockHeader.toBytes(), reader -> {
+      for (int i = 0; i < 15; ++i) {
+        Bytes field = reader.readRLP();
+        writer.writeRLP(i == 2 ? RLP.encodeValue(Bytes.of(1, 2, 3)) : field);
+      }
+      return null;
+    }));
+    BlockHeader read = BlockHeader.fromBytes(encoded);
+    assertEquals(blockHeader.number(), read.number());
+    assertEquals(blockHeader.parentHash(), read.parentHash());
+    assertSame(encoded, read.toBytes());
+    assertEquals(Hash.hash(encoded), read.hash());
+    assertThrows(IllegalArgumentException.class, read::coinbase);
+  }
 }
@@ -15,9 +15,13 @@ package net.consensys.cava.eth;
 import static net.consensys.cava.eth.BlockHeaderTest.generateBlockHeader;
 import static net.consensys.cava.eth.TransactionTest.generateTransaction;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import net.consensys.cava.bytes.Bytes;
 import net.consensys.cava.junit.BouncyCastleExtension;
+import net.consensys.cava.rlp.RLP;
+import net.consensys.cava.rlp.RLPException;
 
 import java.util.Arrays;
 
@@ -44,4 +48,20 @@ class BlockTest {
     Block read = Block.fromBytes(encoded);
     assertEquals(block, read);
   }
+
+  @Test
+  void shouldDecodeBodyOnAccess() {
+    BlockHeader header = generateBlockHeader();
+    // a body whose list of transactions contains a value rather than a transaction
+    Bytes encoded = RLP.encodeList(writer -> {
+      writer.writeList(header::writeTo);
+      writer.writeList(transactions -> transactions.writeString("not a transaction"));
+      writer.writeList(ommers -> {});
+    });
+    Block block = Block.fromBytes(encoded);
+    assertEquals(header, block.header());
+    assertEquals(header.hash(), block.header().hash());
+    assertSame(encoded, block.toBytes());
+    assertThrows(RLPException.class, block::body);
+  }
 }
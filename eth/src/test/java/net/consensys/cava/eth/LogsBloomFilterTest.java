@@ -12,13 +12,17 @@
  */
 package net.consensys.cava.eth;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import net.consensys.cava.bytes.Bytes;
 import net.consensys.cava.bytes.Bytes32;
 import net.consensys.cava.junit.BouncyCastleExtension;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -45,4 +49,24 @@ class LogsBloomFilterTest {
         bloom.toBytes());
   }
 
+  @Test
+  void computesBitIndices() {
+    Address address = Address.fromHexString("0x0F572E5295C57F15886F9B263E2F6D2D6C7B5EC6");
+    assertArrayEquals(new int[] {1323, 431, 1319}, LogsBloomFilter.bitIndices(address.toBytes()));
+  }
+
+  @Test
+  void checksInsertedValues() {
+    Address address = Address.fromHexString("0x095e7baea6a6c7c4c2dfeb977efac326af552d87");
+    Bytes32 topic = Bytes32.random();
+    LogsBloomFilter bloom = new LogsBloomFilter();
+    bloom.insertLog(new Log(address, Bytes.EMPTY, Collections.singletonList(topic)));
+
+    assertTrue(bloom.mightContain(address.toBytes()));
+    assertTrue(bloom.mightContain(topic));
+    assertFalse(bloom.mightContain(Address.fromHexString("0x0F572E5295C57F15886F9B263E2F6D2D6C7B5EC6").toBytes()));
+    for (int index : LogsBloomFilter.bitIndices(topic)) {
+      assertTrue(bloom.isSet(index));
+    }
+  }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.eth;
+
+import static net.consensys.cava.eth.BlockHeaderTest.generateBlockHeader;
+import static net.consensys.cava.eth.TransactionTest.generateTransaction;
+
+import net.consensys.cava.bytes.Bytes;
+import net.consensys.cava.bytes.Bytes32;
+import net.consensys.cava.junit.BouncyCastleExtension;
+import net.consensys.cava.rlp.RLP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(BouncyCastleExtension.class)
+class RLPEncodingPerformanceTest {
+
+  @Test
+  @Disabled("Expensive test worth running on a developer machine")
+  void encodeBlocks() {
+    List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < 200; ++i) {
+      transactions.add(generateTransaction());
+    }
+    Block block = new Block(
+        generateBlockHeader(),
+        new BlockBody(transactions, Arrays.asList(generateBlockHeader(), generateBlockHeader())));
+    measure("block", 10_000, block::toBytes);
+  }
+
+  @Test
+  @Disabled("Expensive test worth running on a developer machine")
+  void encodeTransactionReceipts() {
+    List<Log> logs = new ArrayList<>();
+    for (int i = 0; i < 10; ++i) {
+      logs.add(
+          new Log(
+              Address.fromBytes(Bytes.random(20)),
+              Bytes.random(128),
+              Arrays.asList(Bytes32.random(), Bytes32.random(), Bytes32.random())));
+    }
+    TransactionReceipt receipt = new TransactionReceipt(Bytes32.random(), 21000, LogsBloomFilter.compute(logs), logs);
+    measure("receipt", 500_000, () -> RLP.encode(receipt::writeTo));
+  }
+
+  private static void measure(String name, int count, Supplier<Bytes> encoder) {
+    for (int round = 0; round < 5; ++round) {
+      long size = 0;
+      long start = System.nanoTime();
+      for (int i = 0; i < count; ++i) {
+        size += encoder.get().size();
+      }
+      long elapsed = System.nanoTime() - start;
+      System.out.println("Average " + name + " encoding: " + (elapsed / count) + "ns (" + (size / count) + " bytes)");
+    }
+  }
+}
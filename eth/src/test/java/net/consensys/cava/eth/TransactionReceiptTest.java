@@ -60,4 +60,13 @@ class TransactionReceiptTest {
     TransactionReceipt read = RLP.decode(rlp, TransactionReceipt::readFrom);
     assertEquals(transactionReceipt, read);
   }
+
+  @Test
+  void testBytesRoundtrip() {
+    List<Log> logs = Collections.singletonList(
+        new Log(Address.fromBytes(Bytes.random(20)), Bytes.of(1, 2, 3), Collections.singletonList(Bytes32.random())));
+    TransactionReceipt transactionReceipt = new TransactionReceipt(1, 2, LogsBloomFilter.compute(logs), logs);
+    assertEquals(RLP.encode(transactionReceipt::writeTo), transactionReceipt.toBytes());
+    assertEquals(transactionReceipt, TransactionReceipt.fromBytes(transactionReceipt.toBytes()));
+  }
 }
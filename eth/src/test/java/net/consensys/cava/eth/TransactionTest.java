@@ -14,10 +14,13 @@ package net.consensys.cava.eth;
 
 import static net.consensys.cava.crypto.Hash.keccak256;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import net.consensys.cava.bytes.Bytes;
 import net.consensys.cava.crypto.SECP256K1;
 import net.consensys.cava.junit.BouncyCastleExtension;
+import net.consensys.cava.rlp.RLP;
+import net.consensys.cava.rlp.RLPException;
 import net.consensys.cava.units.bigints.UInt256;
 import net.consensys.cava.units.ethereum.Gas;
 import net.consensys.cava.units.ethereum.Wei;
@@ -60,4 +63,23 @@ class TransactionTest {
     Transaction tx = generateTransaction(keyPair);
     assertEquals(sender, tx.sender());
   }
+
+  @Test
+  void shouldDecodeFieldsOnAccess() {
+    Transaction tx = generateTransaction();
+    // replace the r-value of the signature with an oversized value
+    Bytes encoded = RLP.encodeList(writer -> RLP.decodeList(tx.toBytes(), reader -> {
+      for (int i = 0; i < 9; ++i) {
+        Bytes field = reader.readRLP();
+        writer.writeRLP(i == 7 ? RLP.encodeValue(Bytes.wrap(new byte[33])) : field);
+      }
+      return null;
+    }));
+    Transaction read = Transaction.fromBytes(encoded);
+    assertEquals(tx.nonce(), read.nonce());
+    assertEquals(tx.to(), read.to());
+    assertEquals(tx.payload(), read.payload());
+    assertEquals(Hash.hash(encoded), read.hash());
+    assertThrows(RLPException.class, read::signature);
+  }
 }
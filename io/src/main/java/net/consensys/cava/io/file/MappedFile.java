@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.io.file;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+import net.consensys.cava.bytes.Bytes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A read-only file, whose content is exposed as {@link Bytes} values backed by memory-mapped regions of the file.
+ *
+ * <p>
+ * The file is divided into fixed-size windows, each of which is mapped into memory the first time it is accessed.
+ * Values returned by {@link #slice(long, int)} are views over the mapped memory, and are not copied onto the heap. A
+ * slice that crosses the boundary between two windows is a view over the concatenation of both regions. Since a
+ * {@link Bytes} value is limited to {@link Integer#MAX_VALUE} bytes, larger files must be consumed in several slices.
+ *
+ * <p>
+ * Slices must not be used after the file has been closed. The file must not be truncated while it is mapped.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public final class MappedFile implements AutoCloseable {
+
+  /**
+   * The default size of the regions of the file that are mapped into memory.
+   */
+  public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+  /**
+   * Open a file for memory-mapped reading, using the default window size.
+   *
+   * @param path The path to the file.
+   * @return The mapped file.
+   * @throws IOException If an I/O error occurs.
+   */
+  public static MappedFile open(Path path) throws IOException {
+    return open(path, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Open a file for memory-mapped reading.
+   *
+   * @param path The path to the file.
+   * @param windowSize The size of the regions of the file that are mapped into memory.
+   * @return The mapped file.
+   * @throws IOException If an I/O error occurs.
+   */
+  public static MappedFile open(Path path, int windowSize) throws IOException {
+    requireNonNull(path);
+    checkArgument(windowSize > 0, "windowSize must be positive");
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new MappedFile(channel, channel.size(), windowSize);
+    } catch (RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private final FileChannel channel;
+  private final long size;
+  private final int windowSize;
+  private final AtomicReferenceArray<MappedByteBuffer> windows;
+  private volatile boolean closed = false;
+
+  private MappedFile(FileChannel channel, long size, int windowSize) {
+    long windowCount = (size + windowSize - 1) / windowSize;
+    checkArgument(windowCount <= Integer.MAX_VALUE, "File is too large for a window size of %s", windowSize);
+    this.channel = channel;
+    this.size = size;
+    this.windowSize = windowSize;
+    this.windows = new AtomicReferenceArray<>((int) windowCount);
+  }
+
+  /**
+   * @return The size of the file, in bytes.
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Provide the entire content of the file.
+   *
+   * @return A value backed by the mapped content of the file.
+   * @throws IllegalStateException If the file is larger than {@link Integer#MAX_VALUE} bytes, or has been closed.
+   * @throws UncheckedIOException If an I/O error occurs while mapping the file.
+   */
+  public Bytes bytes() {
+    checkState(size <= Integer.MAX_VALUE, "File is too large to be provided as a single value");
+    return slice(0, (int) size);
+  }
+
+  /**
+   * Provide a region of the file.
+   *
+   * @param offset The offset of the region in the file.
+   * @param length The length of the region.
+   * @return A value backed by the mapped content of the region.
+   * @throws IndexOutOfBoundsException If the region is not within the file.
+   * @throws IllegalStateException If the file has been closed.
+   * @throws UncheckedIOException If an I/O error occurs while mapping the file.
+   */
+  public Bytes slice(long offset, int length) {
+    if (offset < 0 || length < 0 || offset > size - length) {
+      throw new IndexOutOfBoundsException(
+          "Region of length " + length + " at offset " + offset + " is not within a file of size " + size);
+    }
+    if (length == 0) {
+      return Bytes.EMPTY;
+    }
+    int first = (int) (offset / windowSize);
+    int last = (int) ((offset + length - 1) / windowSize);
+    int windowOffset = (int) (offset - (long) first * windowSize);
+    if (first == last) {
+      return Bytes.wrapByteBuffer(window(first), windowOffset, length);
+    }
+
+    Bytes[] parts = new Bytes[last - first + 1];
+    int remaining = length;
+    for (int i = 0; i < parts.length; ++i) {
+      MappedByteBuffer window = window(first + i);
+      int partLength = Math.min(remaining, window.capacity() - windowOffset);
+      parts[i] = Bytes.wrapByteBuffer(window, windowOffset, partLength);
+      remaining -= partLength;
+      windowOffset = 0;
+    }
+    return Bytes.wrap(parts);
+  }
+
+  private MappedByteBuffer window(int index) {
+    MappedByteBuffer window = windows.get(index);
+    if (window != null) {
+      return window;
+    }
+    checkState(!closed, "File has been closed");
+    long position = (long) index * windowSize;
+    try {
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    // if another thread mapped the window concurrently, use its mapping so that both share the same memory
+    if (!windows.compareAndSet(index, null, window)) {
+      return windows.get(index);
+    }
+    return window;
+  }
+
+  /**
+   * Close the file.
+   *
+   * <p>
+   * Mapped memory is released once all values that refer to it have been garbage collected.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    for (int i = 0; i < windows.length(); ++i) {
+      windows.set(i, null);
+    }
+    channel.close();
+  }
+}
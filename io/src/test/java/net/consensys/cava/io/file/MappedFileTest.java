@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.io.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import net.consensys.cava.bytes.Bytes;
+import net.consensys.cava.junit.TempDirectory;
+import net.consensys.cava.junit.TempDirectoryExtension;
+import net.consensys.cava.rlp.RLP;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(TempDirectoryExtension.class)
+class MappedFileTest {
+
+  @Test
+  void shouldProvideFileContent(@TempDirectory Path tempDir) throws Exception {
+    Path file = tempDir.resolve("content");
+    Bytes content = Bytes.fromHexString("0x0123456789ABCDEF0123456789ABCDEF");
+    Files.write(file, content.toArrayUnsafe());
+    try (MappedFile mapped = MappedFile.open(file)) {
+      assertEquals(16, mapped.size());
+      assertEquals(content, mapped.bytes());
+      assertEquals(content.slice(3, 5), mapped.slice(3, 5));
+      assertEquals(Bytes.EMPTY, mapped.slice(16, 0));
+    }
+  }
+
+  @Test
+  void shouldProvideSlicesAcrossWindows(@TempDirectory Path tempDir) throws Exception {
+    Path file = tempDir.resolve("content");
+    byte[] content = new byte[100];
+    for (int i = 0; i < content.length; ++i) {
+      content[i] = (byte) i;
+    }
+    Files.write(file, content);
+    try (MappedFile mapped = MappedFile.open(file, 16)) {
+      assertEquals(Bytes.wrap(content), mapped.bytes());
+      assertEquals(Bytes.wrap(content, 10, 50), mapped.slice(10, 50));
+      assertEquals(Bytes.wrap(content, 16, 16), mapped.slice(16, 16));
+      assertEquals(Bytes.wrap(content, 95, 5), mapped.slice(95, 5));
+    }
+  }
+
+  @Test
+  void shouldDecodeRLPFromMappedFile(@TempDirectory Path tempDir) throws Exception {
+    Path file = tempDir.resolve("export.rlp");
+    Bytes encoded = RLP.encodeList(writer -> {
+      for (int i = 0; i < 20; ++i) {
+        writer.writeString("value" + i);
+      }
+    });
+    Files.write(file, encoded.toArrayUnsafe());
+    try (MappedFile mapped = MappedFile.open(file, 7)) {
+      List<String> values = RLP.decodeToList(mapped.bytes(), reader -> reader.readString());
+      assertEquals(20, values.size());
+      assertEquals(Arrays.asList("value0", "value1"), values.subList(0, 2));
+      assertEquals("value19", values.get(19));
+    }
+  }
+
+  @Test
+  void shouldRejectRegionsOutsideOfFile(@TempDirectory Path tempDir) throws Exception {
+    Path file = tempDir.resolve("content");
+    Files.write(file, new byte[10]);
+    try (MappedFile mapped = MappedFile.open(file)) {
+      assertThrows(IndexOutOfBoundsException.class, () -> mapped.slice(5, 6));
+      assertThrows(IndexOutOfBoundsException.class, () -> mapped.slice(-1, 2));
+      assertThrows(IndexOutOfBoundsException.class, () -> mapped.slice(11, 0));
+    }
+  }
+
+  @Test
+  void shouldRejectAccessAfterClose(@TempDirectory Path tempDir) throws Exception {
+    Path file = tempDir.resolve("content");
+    Files.write(file, new byte[10]);
+    MappedFile mapped = MappedFile.open(file);
+    mapped.close();
+    assertThrows(IllegalStateException.class, mapped::bytes);
+  }
+}
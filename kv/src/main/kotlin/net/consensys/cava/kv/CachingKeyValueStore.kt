@@ -0,0 +1,419 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.kv
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.Weigher
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.channels.ReceiveChannel
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withTimeoutOrNull
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.concurrent.AsyncCompletion
+import net.consensys.cava.concurrent.coroutines.asyncCompletion
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A key-value store that caches reads and buffers writes to another store.
+ *
+ * Writes and removals are held in a write-back buffer, where repeated writes to the same key are merged, and are
+ * written to the underlying store in batches by a background task. The buffer is flushed once it holds more than
+ * `maximumDirtyBytes`, or once its oldest entry has been buffered for `maximumDirtyAgeMillis`. If writes outpace the
+ * underlying store and the buffer reaches twice its maximum size, writers will wait for a flush to complete.
+ *
+ * Buffered writes are not durable until they have been flushed. Calling [flush] or [close] guarantees that all writes
+ * made before the call have been written to the underlying store. If a background flush fails, the entries remain
+ * buffered and are retried on the next flush, and further writes are rejected with an [IllegalStateException] until a
+ * flush succeeds.
+ *
+ * @param store The underlying store.
+ * @param maximumCacheBytes The maximum total size of keys and values in the read cache.
+ * @param maximumDirtyBytes The size of buffered keys and values at which the buffer is flushed.
+ * @param maximumDirtyAgeMillis The maximum time, in milliseconds, that a write is buffered before it is flushed.
+ * @param dispatcher The co-routine dispatcher for background flushing.
+ * @constructor Open a caching key-value store.
+ */
+class CachingKeyValueStore
+@JvmOverloads
+constructor(
+  private val store: KeyValueStore,
+  maximumCacheBytes: Long,
+  private val maximumDirtyBytes: Long,
+  private val maximumDirtyAgeMillis: Long,
+  private val dispatcher: CoroutineDispatcher = Dispatchers.IO
+) : KeyValueStore {
+
+  companion object {
+    /**
+     * Open a caching key-value store.
+     *
+     * @param store The underlying store.
+     * @param maximumCacheBytes The maximum total size of keys and values in the read cache.
+     * @param maximumDirtyBytes The size of buffered keys and values at which the buffer is flushed.
+     * @param maximumDirtyAgeMillis The maximum time, in milliseconds, that a write is buffered before it is flushed.
+     * @return A key-value store.
+     */
+    @JvmStatic
+    fun open(
+      store: KeyValueStore,
+      maximumCacheBytes: Long,
+      maximumDirtyBytes: Long,
+      maximumDirtyAgeMillis: Long
+    ): CachingKeyValueStore = CachingKeyValueStore(store, maximumCacheBytes, maximumDirtyBytes, maximumDirtyAgeMillis)
+  }
+
+  // a buffered write, where a null value records a removal
+  private class DirtyValue(val value: Bytes?)
+
+  private val cache: Cache<Bytes, Bytes>
+  // buffered writes, and the writes currently being flushed (guarded by lock)
+  private val lock = Any()
+  private var dirty = LinkedHashMap<Bytes, DirtyValue>()
+  private var flushing: Map<Bytes, DirtyValue> = emptyMap()
+  private var dirtySinceNanos = 0L
+  private val dirtyBytes = AtomicLong()
+  // incremented on every write, so that reads racing with a write do not populate the cache with a stale value
+  private val writeCount = AtomicLong()
+  // the failure of the most recent background flush, cleared once a flush succeeds
+  @Volatile
+  private var flushFailure: Exception? = null
+
+  private val flushMutex = Mutex()
+  private val flushSignal = Channel<Unit>(Channel.CONFLATED)
+  private val flusher: Job
+
+  private val hitCount = AtomicLong()
+  private val missCount = AtomicLong()
+  private val flushCount = AtomicLong()
+  private val flushNanos = AtomicLong()
+  private val lastFlushNanos = AtomicLong()
+
+  init {
+    require(maximumCacheBytes >= 0) { "maximumCacheBytes must not be negative" }
+    require(maximumDirtyBytes > 0) { "maximumDirtyBytes must be positive" }
+    require(maximumDirtyAgeMillis > 0) { "maximumDirtyAgeMillis must be positive" }
+    cache = CacheBuilder.newBuilder()
+      .maximumWeight(maximumCacheBytes)
+      .weigher(Weigher<Bytes, Bytes> { key, value -> key.size() + value.size() })
+      .build()
+    flusher = GlobalScope.launch(dispatcher) {
+      while (isActive) {
+        withTimeoutOrNull(Math.max(1, maximumDirtyAgeMillis / 2)) { flushSignal.receive() }
+        try {
+          if (isFlushDue()) {
+            flush()
+          }
+        } catch (e: Exception) {
+          // entries remain buffered, and will be retried on the next flush
+          flushFailure = e
+        }
+      }
+    }
+  }
+
+  override suspend fun get(key: Bytes): Bytes? {
+    synchronized(lock) {
+      val buffered = dirty[key] ?: flushing[key]
+      if (buffered != null) {
+        hitCount.incrementAndGet()
+        return buffered.value
+      }
+    }
+    cache.getIfPresent(key)?.let {
+      hitCount.incrementAndGet()
+      return it
+    }
+    missCount.incrementAndGet()
+    val writes = writeCount.get()
+    val value = store.get(key)
+    if (value != null && writeCount.get() == writes) {
+      cache.asMap().putIfAbsent(key, value)
+    }
+    return value
+  }
+
+  override suspend fun getAll(keys: Collection<Bytes>): Map<Bytes, Bytes> {
+    val result = HashMap<Bytes, Bytes>(keys.size)
+    val misses = ArrayList<Bytes>()
+    synchronized(lock) {
+      for (key in keys) {
+        val buffered = dirty[key] ?: flushing[key]
+        if (buffered != null) {
+          buffered.value?.let { result[key] = it }
+          continue
+        }
+        val cached = cache.getIfPresent(key)
+        if (cached != null) {
+          result[key] = cached
+        } else {
+          misses.add(key)
+        }
+      }
+    }
+    hitCount.addAndGet((keys.size - misses.size).toLong())
+    if (misses.isEmpty()) {
+      return result
+    }
+    missCount.addAndGet(misses.size.toLong())
+    val writes = writeCount.get()
+    val values = store.getAll(misses)
+    if (writeCount.get() == writes) {
+      for ((key, value) in values) {
+        cache.asMap().putIfAbsent(key, value)
+      }
+    }
+    result.putAll(values)
+    return result
+  }
+
+  override suspend fun put(key: Bytes, value: Bytes) {
+    checkFlushFailure()
+    buffer(key, value)
+    afterWrite()
+  }
+
+  override suspend fun putAll(entries: Map<Bytes, Bytes>) {
+    checkFlushFailure()
+    for ((key, value) in entries) {
+      buffer(key, value)
+    }
+    afterWrite()
+  }
+
+  override suspend fun remove(key: Bytes) {
+    checkFlushFailure()
+    buffer(key, null)
+    afterWrite()
+  }
+
+  /**
+   * Retrieves the entries with keys in a range.
+   *
+   * Buffered writes are flushed before the underlying store is read, and entries are produced in the order of the
+   * underlying store.
+   *
+   * @param from The first key in the range (inclusive), or `null` to start from the first key in the store.
+   * @param to The end of the range (exclusive), or `null` to include all keys after `from`.
+   * @return A channel that will produce the entries.
+   */
+  override fun entries(from: Bytes?, to: Bytes?): ReceiveChannel<Pair<Bytes, Bytes>> = produceEntries(dispatcher) {
+    flush()
+    val entries = store.entries(from, to)
+    try {
+      for (entry in entries) {
+        send(entry)
+      }
+    } finally {
+      entries.cancel()
+    }
+  }
+
+  /**
+   * Retrieves the keys in the store that begin with a prefix.
+   *
+   * Buffered writes are flushed before the underlying store is read, and keys are produced in the order of the
+   * underlying store.
+   *
+   * @param prefix The prefix of the keys.
+   * @return A channel that will produce the keys.
+   */
+  override fun keys(prefix: Bytes): ReceiveChannel<Bytes> = produceEntries(dispatcher) {
+    flush()
+    val keys = store.keys(prefix)
+    try {
+      for (key in keys) {
+        send(key)
+      }
+    } finally {
+      keys.cancel()
+    }
+  }
+
+  /**
+   * Write all buffered entries to the underlying store.
+   *
+   * When this method returns, all writes made before it was called are held by the underlying store.
+   */
+  suspend fun flush() {
+    flushMutex.withLock {
+      val entries = synchronized(lock) {
+        val entries = dirty
+        flushing = entries
+        dirty = LinkedHashMap()
+        entries
+      }
+      if (entries.isEmpty()) {
+        flushFailure = null
+        return@withLock
+      }
+      val start = System.nanoTime()
+      try {
+        val puts = HashMap<Bytes, Bytes>()
+        for ((key, dirtyValue) in entries) {
+          val value = dirtyValue.value
+          if (value != null) {
+            puts[key] = value
+          } else {
+            store.remove(key)
+          }
+        }
+        if (!puts.isEmpty()) {
+          store.putAll(puts)
+        }
+      } catch (e: Exception) {
+        synchronized(lock) {
+          // keep entries that have not been written again since the flush started
+          for ((key, value) in dirty) {
+            entries.put(key, value)?.let { dirtyBytes.addAndGet(-weight(key, it)) }
+          }
+          dirty = entries
+          flushing = emptyMap()
+          dirtySinceNanos = start
+        }
+        throw e
+      }
+      synchronized(lock) {
+        flushing = emptyMap()
+      }
+      flushFailure = null
+      dirtyBytes.addAndGet(-entries.entries.fold(0L) { size, entry -> size + weight(entry.key, entry.value) })
+      val elapsed = System.nanoTime() - start
+      flushCount.incrementAndGet()
+      flushNanos.addAndGet(elapsed)
+      lastFlushNanos.set(elapsed)
+    }
+  }
+
+  /**
+   * Write all buffered entries to the underlying store.
+   *
+   * @return An [AsyncCompletion] that will complete when all writes made before this call are held by the underlying
+   *         store.
+   */
+  fun flushAsync(): AsyncCompletion = GlobalScope.asyncCompletion(dispatcher) { flush() }
+
+  /**
+   * @return The number of reads that were served from the cache or write buffer.
+   */
+  fun hitCount(): Long = hitCount.get()
+
+  /**
+   * @return The number of reads that were served by the underlying store.
+   */
+  fun missCount(): Long = missCount.get()
+
+  /**
+   * @return The ratio of reads that were served from the cache or write buffer, or `1.0` if there have been no reads.
+   */
+  fun hitRate(): Double {
+    val hits = hitCount.get()
+    val total = hits + missCount.get()
+    return if (total == 0L) 1.0 else hits.toDouble() / total
+  }
+
+  /**
+   * @return The total size of keys and values that have not yet been written to the underlying store.
+   */
+  fun dirtyBytes(): Long = dirtyBytes.get()
+
+  /**
+   * @return The number of flushes to the underlying store.
+   */
+  fun flushCount(): Long = flushCount.get()
+
+  /**
+   * @return The mean time taken to flush to the underlying store, in milliseconds.
+   */
+  fun averageFlushLatencyMillis(): Double {
+    val count = flushCount.get()
+    return if (count == 0L) 0.0 else flushNanos.get().toDouble() / count / TimeUnit.MILLISECONDS.toNanos(1)
+  }
+
+  /**
+   * @return The time taken by the most recent flush to the underlying store, in milliseconds.
+   */
+  fun lastFlushLatencyMillis(): Long = TimeUnit.NANOSECONDS.toMillis(lastFlushNanos.get())
+
+  /**
+   * Flush all buffered entries and close the underlying store.
+   */
+  override fun close() {
+    runBlocking {
+      flusher.cancelAndJoin()
+      flush()
+    }
+    store.close()
+  }
+
+  private fun checkFlushFailure() {
+    flushFailure?.let {
+      throw IllegalStateException("Buffered writes could not be flushed to the underlying store", it)
+    }
+  }
+
+  private fun buffer(key: Bytes, value: Bytes?) {
+    val dirtyValue = DirtyValue(value)
+    val previous = synchronized(lock) {
+      if (dirty.isEmpty()) {
+        dirtySinceNanos = System.nanoTime()
+      }
+      writeCount.incrementAndGet()
+      // the cache is updated with the buffer, so that concurrent writes to a key update both in the same order
+      if (value != null) {
+        cache.put(key, value)
+      } else {
+        cache.invalidate(key)
+      }
+      dirty.put(key, dirtyValue)
+    }
+    dirtyBytes.addAndGet(weight(key, dirtyValue) - (previous?.let { weight(key, it) } ?: 0L))
+  }
+
+  private suspend fun afterWrite() {
+    val bytes = dirtyBytes.get()
+    if (bytes >= 2 * maximumDirtyBytes) {
+      flush()
+    } else if (bytes >= maximumDirtyBytes) {
+      flushSignal.offer(Unit)
+    }
+  }
+
+  private fun isFlushDue(): Boolean {
+    if (dirtyBytes.get() >= maximumDirtyBytes) {
+      return true
+    }
+    synchronized(lock) {
+      return !dirty.isEmpty() &&
+        System.nanoTime() - dirtySinceNanos >= TimeUnit.MILLISECONDS.toNanos(maximumDirtyAgeMillis)
+    }
+  }
+
+  private fun weight(key: Bytes, value: DirtyValue): Long = (key.size() + (value.value?.size() ?: 0)).toLong()
+
+  /**
+   * @return A string representation of the object.
+   */
+  override fun toString(): String =
+    javaClass.simpleName + "[hitRate=" + hitRate() + ", dirtyBytes=" + dirtyBytes() + ", flushes=" + flushCount() + "]"
+}
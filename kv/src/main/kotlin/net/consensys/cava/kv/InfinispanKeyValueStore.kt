@@ -12,6 +12,8 @@
  */
 package net.consensys.cava.kv
 
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.ReceiveChannel
 import kotlinx.coroutines.future.await
 import net.consensys.cava.bytes.Bytes
 import org.infinispan.Cache
@@ -40,6 +42,36 @@ class InfinispanKeyValueStore constructor(private val cache: Cache<Bytes, Bytes>
     cache.putAsync(key, value).await()
   }
 
+  override suspend fun remove(key: Bytes) {
+    cache.removeAsync(key).await()
+  }
+
+  override suspend fun getAll(keys: Collection<Bytes>): Map<Bytes, Bytes> = cache.getAllAsync(keys.toSet()).await()
+
+  override suspend fun putAll(entries: Map<Bytes, Bytes>) {
+    cache.putAllAsync(entries).await()
+  }
+
+  /**
+   * Retrieves the entries with keys in a range.
+   *
+   * Entries are produced in the order in which they are iterated by the cache, which is unspecified.
+   *
+   * @param from The first key in the range (inclusive), or `null` to start from the first key in the store.
+   * @param to The end of the range (exclusive), or `null` to include all keys after `from`.
+   * @return A channel that will produce the entries.
+   */
+  override fun entries(from: Bytes?, to: Bytes?): ReceiveChannel<Pair<Bytes, Bytes>> = produceEntries(Dispatchers.IO) {
+    cache.entries.iterator().use { iterator ->
+      while (iterator.hasNext()) {
+        val entry = iterator.next()
+        if (isInRange(entry.key, from, to)) {
+          send(Pair(entry.key, entry.value))
+        }
+      }
+    }
+  }
+
   /**
    * The cache is managed outside the scope of this key-value store.
    */
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.kv
+
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.channels.ProducerScope
+import kotlinx.coroutines.channels.ReceiveChannel
+import kotlinx.coroutines.channels.produce
+import net.consensys.cava.bytes.Bytes
+
+// The number of entries that may be read ahead of the consumer
+private const val ENTRIES_BUFFER_SIZE = 64
+
+@UseExperimental(ExperimentalCoroutinesApi::class)
+internal fun <E> produceEntries(
+  dispatcher: CoroutineDispatcher,
+  block: suspend ProducerScope<E>.() -> Unit
+): ReceiveChannel<E> = GlobalScope.produce(dispatcher, ENTRIES_BUFFER_SIZE, block)
+
+/**
+ * Compare two keys as unsigned bytes, where a key sorts before any key that it is a prefix of.
+ */
+internal fun compareKeys(a: Bytes, b: Bytes): Int {
+  val size = Math.min(a.size(), b.size())
+  for (i in 0 until size) {
+    val cmp = (a.get(i).toInt() and 0xFF).compareTo(b.get(i).toInt() and 0xFF)
+    if (cmp != 0) {
+      return cmp
+    }
+  }
+  return a.size().compareTo(b.size())
+}
+
+internal fun isInRange(key: Bytes, from: Bytes?, to: Bytes?): Boolean =
+  (from == null || compareKeys(key, from) >= 0) && (to == null || compareKeys(key, to) < 0)
+
+/**
+ * Find the first key that sorts after every key with the given prefix.
+ *
+ * @return The key, or `null` if no key sorts after the prefix.
+ */
+internal fun prefixEnd(prefix: Bytes): Bytes? {
+  var i = prefix.size() - 1
+  while (i >= 0 && prefix.get(i) == 0xFF.toByte()) {
+    i--
+  }
+  if (i < 0) {
+    return null
+  }
+  val end = prefix.slice(0, i + 1).mutableCopy()
+  end.set(i, (end.get(i) + 1).toByte())
+  return end
+}
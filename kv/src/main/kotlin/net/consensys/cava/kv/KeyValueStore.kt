@@ -15,6 +15,7 @@ package net.consensys.cava.kv
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.channels.ReceiveChannel
 import net.consensys.cava.bytes.Bytes
 import net.consensys.cava.concurrent.AsyncCompletion
 import net.consensys.cava.concurrent.AsyncResult
@@ -55,6 +56,72 @@ interface KeyValueStore : Closeable {
   fun getAsync(dispatcher: CoroutineDispatcher, key: Bytes): AsyncResult<Bytes?> =
     GlobalScope.asyncResult(dispatcher) { get(key) }
 
+  /**
+   * Removes data from the store.
+   *
+   * The default implementation throws [UnsupportedOperationException], so that stores written before removal was
+   * supported continue to compile. Implementations should override this method.
+   *
+   * @param key The key of the data to remove.
+   * @throws UnsupportedOperationException If the store does not support removing data.
+   */
+  suspend fun remove(key: Bytes): Unit = throw UnsupportedOperationException()
+
+  /**
+   * Removes data from the store.
+   *
+   * @param key The key of the data to remove.
+   * @return An [AsyncCompletion] that will complete when the data has been removed.
+   */
+  fun removeAsync(key: Bytes): AsyncCompletion = removeAsync(Dispatchers.Default, key)
+
+  /**
+   * Removes data from the store.
+   *
+   * @param key The key of the data to remove.
+   * @param dispatcher The co-routine dispatcher for asynchronous tasks.
+   * @return An [AsyncCompletion] that will complete when the data has been removed.
+   */
+  fun removeAsync(dispatcher: CoroutineDispatcher, key: Bytes): AsyncCompletion =
+    GlobalScope.asyncCompletion(dispatcher) { remove(key) }
+
+  /**
+   * Retrieves data for multiple keys from the store.
+   *
+   * The default implementation retrieves each key in turn. Implementations should override this method when the
+   * underlying storage supports retrieving multiple keys in a single operation.
+   *
+   * @param keys The keys for the content.
+   * @return A map of the stored data, which will not contain entries for keys that have no data stored.
+   */
+  suspend fun getAll(keys: Collection<Bytes>): Map<Bytes, Bytes> {
+    val result = HashMap<Bytes, Bytes>(keys.size)
+    for (key in keys) {
+      get(key)?.let { result[key] = it }
+    }
+    return result
+  }
+
+  /**
+   * Retrieves data for multiple keys from the store.
+   *
+   * @param keys The keys for the content.
+   * @return An [AsyncResult] that will complete with a map of the stored data, which will not contain entries for keys
+   *         that have no data stored.
+   */
+  fun getAllAsync(keys: Collection<Bytes>): AsyncResult<Map<Bytes, Bytes>> = getAllAsync(Dispatchers.Default, keys)
+
+  /**
+   * Retrieves data for multiple keys from the store.
+   *
+   * @param keys The keys for the content.
+   * @param dispatcher The co-routine dispatcher for asynchronous tasks.
+   * @return An [AsyncResult] that will complete with a map of the stored data, which will not contain entries for keys
+   *         that have no data stored.
+   */
+  fun getAllAsync(dispatcher: CoroutineDispatcher, keys: Collection<Bytes>): AsyncResult<Map<Bytes, Bytes>> =
+    GlobalScope.asyncResult(dispatcher) { getAll(keys) }
+
   /**
    * Puts data into the store.
    *
@@ -88,4 +155,80 @@ interface KeyValueStore : Closeable {
    */
   fun putAsync(dispatcher: CoroutineDispatcher, key: Bytes, value: Bytes): AsyncCompletion =
     GlobalScope.asyncCompletion(dispatcher) { put(key, value) }
+
+  /**
+   * Puts multiple entries into the store.
+   *
+   * The default implementation puts each entry in turn. Implementations should override this method when the
+   * underlying storage supports writing multiple entries in a single operation.
+   *
+   * @param entries The entries to store.
+   */
+  suspend fun putAll(entries: Map<Bytes, Bytes>) {
+    for ((key, value) in entries) {
+      put(key, value)
+    }
+  }
+
+  /**
+   * Puts multiple entries into the store.
+   *
+   * @param entries The entries to store.
+   * @return An [AsyncCompletion] that will complete when the entries are stored.
+   */
+  fun putAllAsync(entries: Map<Bytes, Bytes>): AsyncCompletion = putAllAsync(Dispatchers.Default, entries)
+
+  /**
+   * Puts multiple entries into the store.
+   *
+   * @param entries The entries to store.
+   * @param dispatcher The co-routine dispatcher for asynchronous tasks.
+   * @return An [AsyncCompletion] that will complete when the entries are stored.
+   */
+  fun putAllAsync(dispatcher: CoroutineDispatcher, entries: Map<Bytes, Bytes>): AsyncCompletion =
+    GlobalScope.asyncCompletion(dispatcher) { putAll(entries) }
+
+  /**
+   * Retrieves all entries in the store.
+   *
+   * @return A channel that will produce the entries, in the order described by [entries].
+   */
+  fun entries(): ReceiveChannel<Pair<Bytes, Bytes>> = entries(null, null)
+
+  /**
+   * Retrieves the entries with keys in a range.
+   *
+   * Entries are read from the store as they are consumed, rather than being loaded into memory. Stores that keep their
+   * keys ordered produce entries in ascending order of key, with keys compared as unsigned bytes; other stores
+   * document the order in which they produce entries. Cancelling the channel releases any resources held by the read.
+   *
+   * The default implementation throws [UnsupportedOperationException], so that stores written before iteration was
+   * supported continue to compile. Implementations should override this method.
+   *
+   * @param from The first key in the range (inclusive), or `null` to start from the first key in the store.
+   * @param to The end of the range (exclusive), or `null` to include all keys after `from`.
+   * @return A channel that will produce the entries.
+   * @throws UnsupportedOperationException If the store does not support iterating over its entries.
+   */
+  fun entries(from: Bytes?, to: Bytes?): ReceiveChannel<Pair<Bytes, Bytes>> = throw UnsupportedOperationException()
+
+  /**
+   * Retrieves the keys in the store that begin with a prefix.
+   *
+   * The default implementation reads the range of entries covered by the prefix. Implementations should override this
+   * method when the underlying storage can read keys without their values.
+   *
+   * @param prefix The prefix of the keys.
+   * @return A channel that will produce the keys, in the order described by [entries].
+   */
+  fun keys(prefix: Bytes): ReceiveChannel<Bytes> = produceEntries(Dispatchers.Unconfined) {
+    val entries = entries(prefix, prefixEnd(prefix))
+    try {
+      for ((key, _) in entries) {
+        send(key)
+      }
+    } finally {
+      entries.cancel()
+    }
+  }
 }
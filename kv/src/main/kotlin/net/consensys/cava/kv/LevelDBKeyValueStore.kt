@@ -14,6 +14,7 @@ package net.consensys.cava.kv
 
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.ReceiveChannel
 import kotlinx.coroutines.withContext
 import net.consensys.cava.bytes.Bytes
 import org.fusesource.leveldbjni.JniDBFactory
@@ -86,6 +87,45 @@ constructor(
     db.put(key.toArrayUnsafe(), value.toArrayUnsafe())
   }
 
+  override suspend fun remove(key: Bytes) = withContext(dispatcher) {
+    db.delete(key.toArrayUnsafe())
+  }
+
+  override suspend fun getAll(keys: Collection<Bytes>): Map<Bytes, Bytes> = withContext(dispatcher) {
+    val result = HashMap<Bytes, Bytes>(keys.size)
+    for (key in keys) {
+      db[key.toArrayUnsafe()]?.let { result[key] = Bytes.wrap(it) }
+    }
+    result
+  }
+
+  override suspend fun putAll(entries: Map<Bytes, Bytes>) = withContext(dispatcher) {
+    db.createWriteBatch().use { batch ->
+      for ((key, value) in entries) {
+        batch.put(key.toArrayUnsafe(), value.toArrayUnsafe())
+      }
+      db.write(batch)
+    }
+  }
+
+  override fun entries(from: Bytes?, to: Bytes?): ReceiveChannel<Pair<Bytes, Bytes>> = produceEntries(dispatcher) {
+    db.iterator().use { iterator ->
+      if (from != null) {
+        iterator.seek(from.toArrayUnsafe())
+      } else {
+        iterator.seekToFirst()
+      }
+      while (iterator.hasNext()) {
+        val entry = iterator.next()
+        val key = Bytes.wrap(entry.key)
+        if (to != null && compareKeys(key, to) >= 0) {
+          break
+        }
+        send(Pair(key, Bytes.wrap(entry.value)))
+      }
+    }
+  }
+
   /**
    * Closes the underlying LevelDB instance.
    */
@@ -14,6 +14,7 @@ package net.consensys.cava.kv
 
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.ReceiveChannel
 import kotlinx.coroutines.withContext
 import net.consensys.cava.bytes.Bytes
 import org.mapdb.DB
@@ -76,6 +77,57 @@ constructor(
     db.commit()
   }
 
+  override suspend fun remove(key: Bytes) = withContext(dispatcher) {
+    storageData.remove(key)
+    db.commit()
+  }
+
+  override suspend fun getAll(keys: Collection<Bytes>): Map<Bytes, Bytes> = withContext(dispatcher) {
+    val result = HashMap<Bytes, Bytes>(keys.size)
+    for (key in keys) {
+      storageData[key]?.let { result[key] = it }
+    }
+    result
+  }
+
+  override suspend fun putAll(entries: Map<Bytes, Bytes>) = withContext(dispatcher) {
+    storageData.putAll(entries)
+    db.commit()
+  }
+
+  /**
+   * Retrieves the entries with keys in a range.
+   *
+   * MapDB stores entries in a hash map, so entries are produced in an unspecified order.
+   *
+   * @param from The first key in the range (inclusive), or `null` to start from the first key in the store.
+   * @param to The end of the range (exclusive), or `null` to include all keys after `from`.
+   * @return A channel that will produce the entries.
+   */
+  override fun entries(from: Bytes?, to: Bytes?): ReceiveChannel<Pair<Bytes, Bytes>> = produceEntries(dispatcher) {
+    for ((key, value) in storageData.entries) {
+      if (isInRange(key, from, to)) {
+        send(Pair(key, value))
+      }
+    }
+  }
+
+  /**
+   * Retrieves the keys in the store that begin with a prefix.
+   *
+   * MapDB stores entries in a hash map, so keys are produced in an unspecified order.
+   *
+   * @param prefix The prefix of the keys.
+   * @return A channel that will produce the keys.
+   */
+  override fun keys(prefix: Bytes): ReceiveChannel<Bytes> = produceEntries(dispatcher) {
+    for (key in storageData.keys) {
+      if (key.commonPrefixLength(prefix) == prefix.size()) {
+        send(key)
+      }
+    }
+  }
+
   /**
    * Closes the underlying MapDB instance.
    */
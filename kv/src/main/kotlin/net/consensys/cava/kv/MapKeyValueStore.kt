@@ -12,6 +12,8 @@
  */
 package net.consensys.cava.kv
 
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.ReceiveChannel
 import net.consensys.cava.bytes.Bytes
 
 /**
@@ -51,6 +53,44 @@ constructor(private val map: MutableMap<Bytes, Bytes> = HashMap()) : KeyValueSto
     map[key] = value
   }
 
+  override suspend fun remove(key: Bytes) {
+    map.remove(key)
+  }
+
+  override suspend fun getAll(keys: Collection<Bytes>): Map<Bytes, Bytes> {
+    val result = HashMap<Bytes, Bytes>(keys.size)
+    for (key in keys) {
+      map[key]?.let { result[key] = it }
+    }
+    return result
+  }
+
+  override suspend fun putAll(entries: Map<Bytes, Bytes>) {
+    map.putAll(entries)
+  }
+
+  /**
+   * Retrieves the entries with keys in a range.
+   *
+   * The entries in the range are copied from the backing map when this method is called, so the map may be modified
+   * while they are consumed.
+   *
+   * @param from The first key in the range (inclusive), or `null` to start from the first key in the store.
+   * @param to The end of the range (exclusive), or `null` to include all keys after `from`.
+   * @return A channel that will produce the entries, in ascending order of key.
+   */
+  override fun entries(from: Bytes?, to: Bytes?): ReceiveChannel<Pair<Bytes, Bytes>> {
+    val entries = map.entries
+      .filter { isInRange(it.key, from, to) }
+      .map { Pair(it.key, it.value) }
+      .sortedWith(Comparator { a, b -> compareKeys(a.first, b.first) })
+    return produceEntries(Dispatchers.Unconfined) {
+      for (entry in entries) {
+        send(entry)
+      }
+    }
+  }
+
   /**
    * Has no effect in this KeyValueStore implementation.
    */
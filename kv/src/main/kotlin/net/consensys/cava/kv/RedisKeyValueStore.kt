@@ -14,14 +14,20 @@ package net.consensys.cava.kv
 
 import io.lettuce.core.RedisClient
 import io.lettuce.core.RedisURI
+import io.lettuce.core.ScanArgs
 import io.lettuce.core.api.StatefulRedisConnection
 import io.lettuce.core.api.async.RedisAsyncCommands
 import io.lettuce.core.codec.RedisCodec
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.ReceiveChannel
 import kotlinx.coroutines.future.await
 import net.consensys.cava.bytes.Bytes
 import java.net.InetAddress
 import java.util.concurrent.CompletionStage
 
+// The number of keys requested by each SCAN
+private const val SCAN_COUNT = 256L
+
 /**
  * A key-value store backed by Redis.
  *
@@ -105,6 +111,86 @@ class RedisKeyValueStore(uri: String) : KeyValueStore {
     future.await()
   }
 
+  override suspend fun remove(key: Bytes) {
+    val future: CompletionStage<Long> = asyncCommands.del(key)
+    future.await()
+  }
+
+  override suspend fun getAll(keys: Collection<Bytes>): Map<Bytes, Bytes> {
+    if (keys.isEmpty()) {
+      return emptyMap()
+    }
+    val values = asyncCommands.mget(*keys.toTypedArray()).await()
+    val result = HashMap<Bytes, Bytes>(values.size)
+    for (keyValue in values) {
+      if (keyValue.hasValue()) {
+        result[keyValue.key] = keyValue.value
+      }
+    }
+    return result
+  }
+
+  override suspend fun putAll(entries: Map<Bytes, Bytes>) {
+    if (entries.isEmpty()) {
+      return
+    }
+    val future: CompletionStage<String> = asyncCommands.mset(entries)
+    future.await()
+  }
+
+  /**
+   * Retrieves the entries with keys in a range.
+   *
+   * Keys are enumerated incrementally using `SCAN`, so entries are produced in an unspecified order, and entries that
+   * are added or removed during the scan may or may not be produced.
+   *
+   * @param from The first key in the range (inclusive), or `null` to start from the first key in the store.
+   * @param to The end of the range (exclusive), or `null` to include all keys after `from`.
+   * @return A channel that will produce the entries.
+   */
+  override fun entries(from: Bytes?, to: Bytes?): ReceiveChannel<Pair<Bytes, Bytes>> =
+    produceEntries(Dispatchers.Default) {
+      scanKeys { keys ->
+        val keysInRange = keys.filter { isInRange(it, from, to) }
+        if (!keysInRange.isEmpty()) {
+          for (keyValue in asyncCommands.mget(*keysInRange.toTypedArray()).await()) {
+            if (keyValue.hasValue()) {
+              send(Pair(keyValue.key, keyValue.value))
+            }
+          }
+        }
+      }
+    }
+
+  /**
+   * Retrieves the keys in the store that begin with a prefix.
+   *
+   * Keys are enumerated incrementally using `SCAN`, so keys are produced in an unspecified order, and keys that are
+   * added or removed during the scan may or may not be produced.
+   *
+   * @param prefix The prefix of the keys.
+   * @return A channel that will produce the keys.
+   */
+  override fun keys(prefix: Bytes): ReceiveChannel<Bytes> = produceEntries(Dispatchers.Default) {
+    scanKeys { keys ->
+      for (key in keys) {
+        if (key.commonPrefixLength(prefix) == prefix.size()) {
+          send(key)
+        }
+      }
+    }
+  }
+
+  private suspend fun scanKeys(consumer: suspend (List<Bytes>) -> Unit) {
+    val args = ScanArgs.Builder.limit(SCAN_COUNT)
+    var cursor = asyncCommands.scan(args).await()
+    consumer(cursor.keys)
+    while (!cursor.isFinished) {
+      cursor = asyncCommands.scan(cursor, args).await()
+      consumer(cursor.keys)
+    }
+  }
+
   override fun close() {
     conn.close()
   }
@@ -14,10 +14,13 @@ package net.consensys.cava.kv
 
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.ReceiveChannel
 import kotlinx.coroutines.withContext
 import net.consensys.cava.bytes.Bytes
 import org.rocksdb.Options
 import org.rocksdb.RocksDB
+import org.rocksdb.WriteBatch
+import org.rocksdb.WriteOptions
 import java.io.IOException
 import java.nio.file.Files
 import java.nio.file.Path
@@ -94,6 +97,63 @@ constructor(
     db.put(key.toArrayUnsafe(), value.toArrayUnsafe())
   }
 
+  override suspend fun remove(key: Bytes) = withContext(dispatcher) {
+    if (closed.get()) {
+      throw IllegalStateException("Closed DB")
+    }
+    db.delete(key.toArrayUnsafe())
+  }
+
+  override suspend fun getAll(keys: Collection<Bytes>): Map<Bytes, Bytes> = withContext(dispatcher) {
+    if (closed.get()) {
+      throw IllegalStateException("Closed DB")
+    }
+    val rawKeys = keys.map { it.toArrayUnsafe() }
+    // the returned map is keyed by the identity of the arrays passed in
+    val rawValues = db.multiGet(rawKeys)
+    val result = HashMap<Bytes, Bytes>(rawValues.size)
+    for ((i, key) in keys.withIndex()) {
+      rawValues[rawKeys[i]]?.let { result[key] = Bytes.wrap(it) }
+    }
+    result
+  }
+
+  override suspend fun putAll(entries: Map<Bytes, Bytes>) = withContext(dispatcher) {
+    if (closed.get()) {
+      throw IllegalStateException("Closed DB")
+    }
+    WriteBatch().use { batch ->
+      for ((key, value) in entries) {
+        batch.put(key.toArrayUnsafe(), value.toArrayUnsafe())
+      }
+      WriteOptions().use { options -> db.write(options, batch) }
+    }
+  }
+
+  override fun entries(from: Bytes?, to: Bytes?): ReceiveChannel<Pair<Bytes, Bytes>> = produceEntries(dispatcher) {
+    if (closed.get()) {
+      throw IllegalStateException("Closed DB")
+    }
+    db.newIterator().use { iterator ->
+      if (from != null) {
+        iterator.seek(from.toArrayUnsafe())
+      } else {
+        iterator.seekToFirst()
+      }
+      while (iterator.isValid) {
+        if (closed.get()) {
+          throw IllegalStateException("Closed DB")
+        }
+        val key = Bytes.wrap(iterator.key())
+        if (to != null && compareKeys(key, to) >= 0) {
+          break
+        }
+        send(Pair(key, Bytes.wrap(iterator.value())))
+        iterator.next()
+      }
+    }
+  }
+
   /**
    * Closes the underlying RocksDB instance.
    */
@@ -16,11 +16,18 @@ import com.jolbox.bonecp.BoneCP
 import com.jolbox.bonecp.BoneCPConfig
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.ReceiveChannel
 import kotlinx.coroutines.guava.await
 import kotlinx.coroutines.withContext
 import net.consensys.cava.bytes.Bytes
 import java.io.IOException
 
+// The number of rows fetched from the database at a time when reading a range of entries
+private const val ENTRIES_FETCH_SIZE = 256
+
+// The number of keys looked up by a single query, which stays below the parameter limits of common JDBC drivers
+private const val GET_ALL_BATCH_SIZE = 500
+
 /**
  * A key-value store backed by a relational database.
  *
@@ -106,6 +113,85 @@ constructor(
       }
   }
 
+  override suspend fun remove(key: Bytes) = withContext(dispatcher) {
+    connectionPool.asyncConnection.await().use {
+      val stmt = it.prepareStatement("DELETE FROM $tableName WHERE $keyColumn = ?")
+      stmt.setBytes(1, key.toArrayUnsafe())
+      stmt.execute()
+      Unit
+    }
+  }
+
+  override suspend fun getAll(keys: Collection<Bytes>): Map<Bytes, Bytes> = withContext(dispatcher) {
+    val result = HashMap<Bytes, Bytes>(keys.size)
+    if (keys.isEmpty()) {
+      return@withContext result
+    }
+    connectionPool.asyncConnection.await().use {
+      for (batch in keys.chunked(GET_ALL_BATCH_SIZE)) {
+        val placeholders = batch.joinToString(",") { "?" }
+        val stmt = it.prepareStatement(
+          "SELECT $keyColumn, $valueColumn FROM $tableName WHERE $keyColumn IN ($placeholders)"
+        )
+        for ((i, key) in batch.withIndex()) {
+          stmt.setBytes(i + 1, key.toArrayUnsafe())
+        }
+        stmt.execute()
+
+        val rs = stmt.resultSet
+        while (rs.next()) {
+          result[Bytes.wrap(rs.getBytes(1))] = Bytes.wrap(rs.getBytes(2))
+        }
+      }
+    }
+    result
+  }
+
+  override suspend fun putAll(entries: Map<Bytes, Bytes>) = withContext(dispatcher) {
+    if (entries.isEmpty()) {
+      return@withContext
+    }
+    connectionPool.asyncConnection.await().use {
+      val stmt = it.prepareStatement("INSERT INTO $tableName($keyColumn, $valueColumn) VALUES(?,?)")
+      for ((key, value) in entries) {
+        stmt.setBytes(1, key.toArrayUnsafe())
+        stmt.setBytes(2, value.toArrayUnsafe())
+        stmt.addBatch()
+      }
+      stmt.executeBatch()
+      Unit
+    }
+  }
+
+  /**
+   * Retrieves the entries with keys in a range.
+   *
+   * Entries are produced in the order defined by the database for the key column, and are fetched from the database
+   * in batches as they are consumed.
+   *
+   * @param from The first key in the range (inclusive), or `null` to start from the first key in the store.
+   * @param to The end of the range (exclusive), or `null` to include all keys after `from`.
+   * @return A channel that will produce the entries.
+   */
+  override fun entries(from: Bytes?, to: Bytes?): ReceiveChannel<Pair<Bytes, Bytes>> = produceEntries(dispatcher) {
+    connectionPool.asyncConnection.await().use {
+      val conditions = ArrayList<String>()
+      from?.let { conditions.add("$keyColumn >= ?") }
+      to?.let { conditions.add("$keyColumn < ?") }
+      val where = if (conditions.isEmpty()) "" else conditions.joinToString(" AND ", " WHERE ")
+      val stmt = it.prepareStatement("SELECT $keyColumn, $valueColumn FROM $tableName$where ORDER BY $keyColumn")
+      stmt.fetchSize = ENTRIES_FETCH_SIZE
+      var index = 1
+      from?.let { key -> stmt.setBytes(index++, key.toArrayUnsafe()) }
+      to?.let { key -> stmt.setBytes(index, key.toArrayUnsafe()) }
+
+      val rs = stmt.executeQuery()
+      while (rs.next()) {
+        send(Pair(Bytes.wrap(rs.getBytes(1)), Bytes.wrap(rs.getBytes(2))))
+      }
+    }
+  }
+
   /**
    * Closes the underlying connection pool.
    */
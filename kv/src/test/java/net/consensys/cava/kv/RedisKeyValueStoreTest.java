@@ -22,6 +22,9 @@ import net.consensys.cava.junit.RedisPort;
 import net.consensys.cava.junit.RedisServerExtension;
 
 import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisURI;
@@ -53,6 +56,17 @@ class RedisKeyValueStoreTest {
     assertNull(store.getAsync(Bytes.of(124)).get());
   }
 
+  @Test
+  void testPutAllAndGetAll(@RedisPort Integer redisPort) throws Exception {
+    KeyValueStore store = RedisKeyValueStore.open(redisPort);
+    Map<Bytes, Bytes> entries = new HashMap<>();
+    entries.put(Bytes.of(126), Bytes.of(10, 12, 13));
+    entries.put(Bytes.of(127), Bytes.of(14, 15));
+    store.putAllAsync(entries).join();
+    Map<Bytes, Bytes> values = store.getAllAsync(Arrays.asList(Bytes.of(126), Bytes.of(127), Bytes.of(128))).get();
+    assertEquals(entries, values);
+  }
+
   @Test
   void testRedisCloseable(@RedisPort Integer redisPort) throws Exception {
     try (RedisKeyValueStore redis = RedisKeyValueStore.open("redis://127.0.0.1:" + redisPort)) {
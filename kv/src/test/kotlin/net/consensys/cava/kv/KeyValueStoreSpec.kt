@@ -15,6 +15,8 @@ package net.consensys.cava.kv
 import com.google.common.io.MoreFiles
 import com.google.common.io.RecursiveDeleteOption
 import com.winterbe.expekt.should
+import kotlinx.coroutines.channels.toList
+import kotlinx.coroutines.channels.toSet
 import kotlinx.coroutines.runBlocking
 import net.consensys.cava.bytes.Bytes
 import net.consensys.cava.kv.Vars.foo
@@ -26,10 +28,12 @@ import org.iq80.leveldb.DBException
 import org.jetbrains.spek.api.Spek
 import org.jetbrains.spek.api.dsl.describe
 import org.jetbrains.spek.api.dsl.it
+import java.io.IOException
 import java.nio.file.Files
 import java.nio.file.Paths
 import java.sql.DriverManager
 import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicBoolean
 
 object Vars {
   val foo = Bytes.wrap("foo".toByteArray())!!
@@ -61,6 +65,35 @@ object KeyValueStoreSpec : Spek({
         kv.get(Bytes.wrap("foofoobar".toByteArray())).should.be.`null`
       }
     }
+
+    it("should allow to store and retrieve multiple values") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(1) to foo, Bytes.of(2) to foobar))
+        val values = kv.getAll(listOf(Bytes.of(1), Bytes.of(2), Bytes.of(3)))
+        values.size.should.equal(2)
+        values[Bytes.of(1)].should.equal(foo)
+        values[Bytes.of(2)].should.equal(foobar)
+      }
+    }
+
+    it("should allow to remove values") {
+      runBlocking {
+        kv.put(Bytes.of(3), foo)
+        kv.remove(Bytes.of(3))
+        kv.get(Bytes.of(3)).should.be.`null`
+        kv.remove(Bytes.of(4))
+      }
+    }
+
+    it("should allow to iterate over a range of entries") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(16, 1) to foo, Bytes.of(16, 2) to foobar, Bytes.of(16, 3) to foo, Bytes.of(17) to foo))
+        val entries = kv.entries(Bytes.of(16, 2), Bytes.of(17)).toList()
+        entries.should.equal(listOf(Pair(Bytes.of(16, 2), foobar), Pair(Bytes.of(16, 3), foo)))
+        val keys = kv.keys(Bytes.of(16)).toList()
+        keys.should.equal(listOf(Bytes.of(16, 1), Bytes.of(16, 2), Bytes.of(16, 3)))
+      }
+    }
   }
 })
 
@@ -91,6 +124,35 @@ object InfinispanKeyValueStoreSpec : Spek({
         kv.get(Bytes.wrap("foofoobar".toByteArray())).should.be.`null`
       }
     }
+
+    it("should allow to store and retrieve multiple values") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(1) to foo, Bytes.of(2) to foobar))
+        val values = kv.getAll(listOf(Bytes.of(1), Bytes.of(2), Bytes.of(3)))
+        values.size.should.equal(2)
+        values[Bytes.of(1)].should.equal(foo)
+        values[Bytes.of(2)].should.equal(foobar)
+      }
+    }
+
+    it("should allow to remove values") {
+      runBlocking {
+        kv.put(Bytes.of(3), foo)
+        kv.remove(Bytes.of(3))
+        kv.get(Bytes.of(3)).should.be.`null`
+        kv.remove(Bytes.of(4))
+      }
+    }
+
+    it("should allow to iterate over a range of entries") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(16, 1) to foo, Bytes.of(16, 2) to foobar, Bytes.of(16, 3) to foo, Bytes.of(17) to foo))
+        val entries = kv.entries(Bytes.of(16, 2), Bytes.of(17)).toList()
+        entries.should.equal(listOf(Pair(Bytes.of(16, 2), foobar), Pair(Bytes.of(16, 3), foo)))
+        val keys = kv.keys(Bytes.of(16)).toList()
+        keys.should.equal(listOf(Bytes.of(16, 1), Bytes.of(16, 2), Bytes.of(16, 3)))
+      }
+    }
   }
 })
 
@@ -113,6 +175,35 @@ object MapDBKeyValueStoreSpec : Spek({
       }
     }
 
+    it("should allow to store and retrieve multiple values") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(1) to foo, Bytes.of(2) to foobar))
+        val values = kv.getAll(listOf(Bytes.of(1), Bytes.of(2), Bytes.of(3)))
+        values.size.should.equal(2)
+        values[Bytes.of(1)].should.equal(foo)
+        values[Bytes.of(2)].should.equal(foobar)
+      }
+    }
+
+    it("should allow to remove values") {
+      runBlocking {
+        kv.put(Bytes.of(3), foo)
+        kv.remove(Bytes.of(3))
+        kv.get(Bytes.of(3)).should.be.`null`
+        kv.remove(Bytes.of(4))
+      }
+    }
+
+    it("should allow to iterate over a range of entries") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(16, 1) to foo, Bytes.of(16, 2) to foobar, Bytes.of(16, 3) to foo, Bytes.of(17) to foo))
+        val entries = kv.entries(Bytes.of(16, 2), Bytes.of(17)).toSet()
+        entries.should.equal(setOf(Pair(Bytes.of(16, 2), foobar), Pair(Bytes.of(16, 3), foo)))
+        val keys = kv.keys(Bytes.of(16)).toSet()
+        keys.should.equal(setOf(Bytes.of(16, 1), Bytes.of(16, 2), Bytes.of(16, 3)))
+      }
+    }
+
     it("should not allow usage after the DB is closed") {
       val kv2 = MapDBKeyValueStore(testDir.resolve("data2.db"))
       kv2.close()
@@ -156,6 +247,35 @@ object LevelDBKeyValueStoreSpec : Spek({
       }
     }
 
+    it("should allow to store and retrieve multiple values") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(1) to foo, Bytes.of(2) to foobar))
+        val values = kv.getAll(listOf(Bytes.of(1), Bytes.of(2), Bytes.of(3)))
+        values.size.should.equal(2)
+        values[Bytes.of(1)].should.equal(foo)
+        values[Bytes.of(2)].should.equal(foobar)
+      }
+    }
+
+    it("should allow to remove values") {
+      runBlocking {
+        kv.put(Bytes.of(3), foo)
+        kv.remove(Bytes.of(3))
+        kv.get(Bytes.of(3)).should.be.`null`
+        kv.remove(Bytes.of(4))
+      }
+    }
+
+    it("should allow to iterate over a range of entries") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(16, 1) to foo, Bytes.of(16, 2) to foobar, Bytes.of(16, 3) to foo, Bytes.of(17) to foo))
+        val entries = kv.entries(Bytes.of(16, 2), Bytes.of(17)).toList()
+        entries.should.equal(listOf(Pair(Bytes.of(16, 2), foobar), Pair(Bytes.of(16, 3), foo)))
+        val keys = kv.keys(Bytes.of(16)).toList()
+        keys.should.equal(listOf(Bytes.of(16, 1), Bytes.of(16, 2), Bytes.of(16, 3)))
+      }
+    }
+
     it("should not allow usage after the DB is closed") {
       val kv2 = LevelDBKeyValueStore(path.resolve("subdb"))
       kv2.close()
@@ -194,6 +314,35 @@ object RocksDBKeyValueStoreSpec : Spek({
       }
     }
 
+    it("should allow to store and retrieve multiple values") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(1) to foo, Bytes.of(2) to foobar))
+        val values = kv.getAll(listOf(Bytes.of(1), Bytes.of(2), Bytes.of(3)))
+        values.size.should.equal(2)
+        values[Bytes.of(1)].should.equal(foo)
+        values[Bytes.of(2)].should.equal(foobar)
+      }
+    }
+
+    it("should allow to remove values") {
+      runBlocking {
+        kv.put(Bytes.of(3), foo)
+        kv.remove(Bytes.of(3))
+        kv.get(Bytes.of(3)).should.be.`null`
+        kv.remove(Bytes.of(4))
+      }
+    }
+
+    it("should allow to iterate over a range of entries") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(16, 1) to foo, Bytes.of(16, 2) to foobar, Bytes.of(16, 3) to foo, Bytes.of(17) to foo))
+        val entries = kv.entries(Bytes.of(16, 2), Bytes.of(17)).toList()
+        entries.should.equal(listOf(Pair(Bytes.of(16, 2), foobar), Pair(Bytes.of(16, 3), foo)))
+        val keys = kv.keys(Bytes.of(16)).toList()
+        keys.should.equal(listOf(Bytes.of(16, 1), Bytes.of(16, 2), Bytes.of(16, 3)))
+      }
+    }
+
     it("should not allow usage after the DB is closed") {
       val kv2 = RocksDBKeyValueStore(path.resolve("subdb"))
       kv2.close()
@@ -247,6 +396,43 @@ object SQLKeyValueStoreSpec : Spek({
       }
     }
 
+    it("should allow to store and retrieve multiple values") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(1) to foo, Bytes.of(2) to foobar))
+        val values = kv.getAll(listOf(Bytes.of(1), Bytes.of(2), Bytes.of(3)))
+        values.size.should.equal(2)
+        values[Bytes.of(1)].should.equal(foo)
+        values[Bytes.of(2)].should.equal(foobar)
+      }
+    }
+
+    it("should allow to retrieve more values than fit in a single query") {
+      runBlocking {
+        val entries = (0 until 1200).associate { Bytes.concatenate(Bytes.of(32), Bytes.ofUnsignedShort(it)) to foo }
+        otherkv.putAll(entries)
+        otherkv.getAll(entries.keys).should.equal(entries)
+      }
+    }
+
+    it("should allow to remove values") {
+      runBlocking {
+        kv.put(Bytes.of(3), foo)
+        kv.remove(Bytes.of(3))
+        kv.get(Bytes.of(3)).should.be.`null`
+        kv.remove(Bytes.of(4))
+      }
+    }
+
+    it("should allow to iterate over a range of entries") {
+      runBlocking {
+        kv.putAll(mapOf(Bytes.of(16, 1) to foo, Bytes.of(16, 2) to foobar, Bytes.of(16, 3) to foo, Bytes.of(17) to foo))
+        val entries = kv.entries(Bytes.of(16, 2), Bytes.of(17)).toList()
+        entries.should.equal(listOf(Pair(Bytes.of(16, 2), foobar), Pair(Bytes.of(16, 3), foo)))
+        val keys = kv.keys(Bytes.of(16)).toList()
+        keys.should.equal(listOf(Bytes.of(16, 1), Bytes.of(16, 2), Bytes.of(16, 3)))
+      }
+    }
+
     it("should not allow usage after the DB is closed") {
       val kv2 = SQLKeyValueStore("jdbc:h2:mem:testdb")
       kv2.close()
@@ -262,3 +448,138 @@ object SQLKeyValueStoreSpec : Spek({
     }
   }
 })
+
+object CachingKeyValueStoreSpec : Spek({
+  val backingMap = mutableMapOf<Bytes, Bytes>()
+  val kv = CachingKeyValueStore(MapKeyValueStore(backingMap), 1024, 1024, 60000)
+
+  describe("a caching key value store") {
+
+    it("should buffer values until flushed") {
+      runBlocking {
+        kv.put(foo, foo)
+        kv.get(foo).should.equal(foo)
+        backingMap.containsKey(foo).should.be.`false`
+        kv.dirtyBytes().should.equal(6L)
+        kv.flush()
+        backingMap[foo].should.equal(foo)
+        kv.dirtyBytes().should.equal(0L)
+        kv.flushCount().should.equal(1L)
+      }
+    }
+
+    it("should merge repeated writes") {
+      runBlocking {
+        kv.put(foobar, foo)
+        kv.put(foobar, foobar)
+        kv.dirtyBytes().should.equal(12L)
+        kv.get(foobar).should.equal(foobar)
+        kv.flush()
+        backingMap[foobar].should.equal(foobar)
+      }
+    }
+
+    it("should buffer removals") {
+      runBlocking {
+        kv.remove(foo)
+        kv.get(foo).should.be.`null`
+        backingMap.containsKey(foo).should.be.`true`
+        kv.flush()
+        backingMap.containsKey(foo).should.be.`false`
+      }
+    }
+
+    it("should serve repeated reads from the cache") {
+      runBlocking {
+        backingMap[Bytes.of(1)] = foo
+        val misses = kv.missCount()
+        kv.get(Bytes.of(1)).should.equal(foo)
+        kv.get(Bytes.of(1)).should.equal(foo)
+        kv.missCount().should.equal(misses + 1)
+        kv.hitRate().should.be.above(0.0)
+      }
+    }
+
+    it("should flush before iterating over entries") {
+      runBlocking {
+        kv.put(Bytes.of(16, 1), foo)
+        kv.keys(Bytes.of(16)).toList().should.equal(listOf(Bytes.of(16, 1)))
+        backingMap[Bytes.of(16, 1)].should.equal(foo)
+      }
+    }
+
+    it("should flush in the background once the buffer is full") {
+      runBlocking {
+        for (i in 0 until 200) {
+          kv.put(Bytes.ofUnsignedInt(i.toLong()), foobar)
+        }
+        var attempts = 0
+        while (kv.dirtyBytes() >= 1024 && attempts++ < 100) {
+          Thread.sleep(50)
+        }
+        backingMap[Bytes.ofUnsignedInt(0)].should.equal(foobar)
+      }
+    }
+
+    it("should cache the last value written concurrently to a key") {
+      runBlocking {
+        val key = Bytes.of(3)
+        val writers = (0 until 8).map { writer ->
+          Thread {
+            runBlocking {
+              for (i in 0 until 1000) {
+                kv.put(key, Bytes.ofUnsignedShort(writer * 1000 + i))
+              }
+            }
+          }
+        }
+        writers.forEach { it.start() }
+        writers.forEach { it.join() }
+        kv.flush()
+        kv.get(key).should.equal(backingMap[key])
+      }
+    }
+
+    it("should reject writes once a background flush fails") {
+      runBlocking {
+        val failing = AtomicBoolean(true)
+        val underlying = MapKeyValueStore()
+        val store = object : KeyValueStore by underlying {
+          override suspend fun putAll(entries: Map<Bytes, Bytes>) {
+            if (failing.get()) {
+              throw IOException("store unavailable")
+            }
+            underlying.putAll(entries)
+          }
+        }
+        val failingKv = CachingKeyValueStore(store, 1024, 1024, 10)
+        failingKv.put(foo, foo)
+        var rejected = false
+        var attempts = 0
+        while (!rejected && attempts++ < 100) {
+          Thread.sleep(50)
+          try {
+            failingKv.put(foobar, foo)
+          } catch (e: IllegalStateException) {
+            rejected = true
+          }
+        }
+        rejected.should.be.`true`
+        failing.set(false)
+        failingKv.flush()
+        failingKv.put(foobar, foobar)
+        failingKv.close()
+        underlying.get(foo).should.equal(foo)
+        underlying.get(foobar).should.equal(foobar)
+      }
+    }
+
+    it("should flush when closed") {
+      runBlocking {
+        kv.put(Bytes.of(2), foo)
+        kv.close()
+        backingMap[Bytes.of(2)].should.equal(foo)
+      }
+    }
+  }
+})
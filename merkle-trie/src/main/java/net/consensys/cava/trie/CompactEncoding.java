@@ -48,6 +48,31 @@ public final class CompactEncoding {
     return path;
   }
 
+  /**
+   * Calculate the byte sequence for a given RADIX-16 path.
+   *
+   * @param path The Radix-16 path, which may end with a leaf terminator.
+   * @return The byte sequence.
+   * @throws IllegalArgumentException If the path does not contain an even number of nibbles.
+   */
+  public static Bytes pathToBytes(Bytes path) {
+    int size = path.size();
+    if (size > 0 && path.get(size - 1) == LEAF_TERMINATOR) {
+      size = size - 1;
+    }
+    checkArgument(size % 2 == 0, "Invalid path: must contain an even number of nibbles");
+    MutableBytes bytes = MutableBytes.create(size / 2);
+    for (int i = 0, j = 0; i < size; i += 2, j += 1) {
+      byte high = path.get(i);
+      byte low = path.get(i + 1);
+      if ((high & 0xf0) != 0 || (low & 0xf0) != 0) {
+        throw new IllegalArgumentException("Invalid path: contains elements larger than a nibble");
+      }
+      bytes.set(j, (byte) (high << 4 | low));
+    }
+    return bytes;
+  }
+
   /**
    * Encode a Radix-16 path.
    *
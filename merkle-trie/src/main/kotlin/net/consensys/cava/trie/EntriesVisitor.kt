@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.MutableBytes
+
+/**
+ * A visitor that walks the entries of a trie in key order.
+ *
+ * The path passed to each visit is the path of the node from the root of the trie, rather than the remaining path
+ * to a key. Subtrees that lie entirely outside of the bounds are not visited.
+ *
+ * @param start The path of the first key to visit (inclusive), or `null` to visit from the first key.
+ * @param end The path of the key at which to stop (exclusive), or `null` to visit all keys after `start`.
+ * @param consumer A function that is called with each key and value.
+ */
+internal class EntriesVisitor<V>(
+  private val start: Bytes?,
+  private val end: Bytes?,
+  private val consumer: suspend (Bytes, V) -> Unit
+) : NodeVisitor<V> {
+
+  override suspend fun visit(extensionNode: ExtensionNode<V>, path: Bytes): Node<V> {
+    val childPath = append(path, extensionNode.path())
+    if (!isBeforeStart(childPath) && !isAfterEnd(childPath)) {
+      extensionNode.child().accept(this, childPath)
+    }
+    return extensionNode
+  }
+
+  override suspend fun visit(branchNode: BranchNode<V>, path: Bytes): Node<V> {
+    val value = branchNode.value()
+    if (value != null && isInRange(path)) {
+      consumer(CompactEncoding.pathToBytes(path), value)
+    }
+
+    // start loading stored children, so that storage access overlaps with the traversal of earlier siblings
+    for (i in 0 until BranchNode.RADIX) {
+      val child = branchNode.child(i.toByte())
+      if (child is StoredNode<V>) {
+        val childPath = append(path, i.toByte())
+        if (isAfterEnd(childPath)) {
+          break
+        }
+        if (!isBeforeStart(childPath)) {
+          child.prefetch()
+        }
+      }
+    }
+
+    for (i in 0 until BranchNode.RADIX) {
+      val childPath = append(path, i.toByte())
+      if (isAfterEnd(childPath)) {
+        break
+      }
+      if (!isBeforeStart(childPath)) {
+        branchNode.child(i.toByte()).accept(this, childPath)
+      }
+    }
+    return branchNode
+  }
+
+  override suspend fun visit(leafNode: LeafNode<V>, path: Bytes): Node<V> {
+    val keyPath = append(path, leafNode.path())
+    if (isInRange(keyPath)) {
+      consumer(CompactEncoding.pathToBytes(keyPath), leafNode.value()!!)
+    }
+    return leafNode
+  }
+
+  override suspend fun visit(nullNode: NullNode<V>, path: Bytes): Node<V> = nullNode
+
+  private fun isInRange(keyPath: Bytes): Boolean =
+    (start == null || compareNibbles(keyPath, start) >= 0) && (end == null || compareNibbles(keyPath, end) < 0)
+
+  // true if every key with the given path prefix is before the start
+  private fun isBeforeStart(prefix: Bytes): Boolean =
+    start != null && compareNibbles(prefix, start) < 0 && start.commonPrefixLength(prefix) < prefix.size()
+
+  // true if every key with the given path prefix is at or after the end
+  private fun isAfterEnd(prefix: Bytes): Boolean = end != null && compareNibbles(prefix, end) >= 0
+}
+
+private fun append(path: Bytes, nibble: Byte): Bytes {
+  val result = MutableBytes.create(path.size() + 1)
+  path.copyTo(result, 0)
+  result.set(path.size(), nibble)
+  return result
+}
+
+private fun append(path: Bytes, suffix: Bytes): Bytes {
+  // leave off any leaf terminator
+  var suffixSize = suffix.size()
+  if (suffixSize > 0 && suffix.get(suffixSize - 1) == CompactEncoding.LEAF_TERMINATOR) {
+    suffixSize--
+  }
+  val result = MutableBytes.create(path.size() + suffixSize)
+  path.copyTo(result, 0)
+  suffix.slice(0, suffixSize).copyTo(result, path.size())
+  return result
+}
+
+/**
+ * Compare two paths in nibble order, where a path sorts before any path that it is a prefix of.
+ */
+internal fun compareNibbles(a: Bytes, b: Bytes): Int {
+  val size = Math.min(a.size(), b.size())
+  for (i in 0 until size) {
+    val cmp = a.get(i).compareTo(b.get(i))
+    if (cmp != 0) {
+      return cmp
+    }
+  }
+  return a.size().compareTo(b.size())
+}
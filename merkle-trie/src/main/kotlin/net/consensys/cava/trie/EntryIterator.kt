@@ -0,0 +1,31 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import net.consensys.cava.bytes.Bytes
+
+/**
+ * An iterator over the entries of a trie.
+ *
+ * Entries are read ahead of the caller while the iterator is open. An iterator that is not consumed to the end must be
+ * closed, so that it releases the trie nodes it is holding.
+ */
+interface EntryIterator<V> : Iterator<@JvmSuppressWildcards Map.Entry<Bytes, V>>, AutoCloseable {
+
+  /**
+   * Stop reading entries from the trie.
+   *
+   * Once closed, the iterator has no more entries. Closing an iterator more than once has no effect.
+   */
+  override fun close()
+}
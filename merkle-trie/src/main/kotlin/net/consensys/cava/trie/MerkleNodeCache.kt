@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.RemovalListener
+import com.google.common.cache.Weigher
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A size-bounded cache of encoded trie nodes, keyed by node hash.
+ *
+ * Nodes are evicted in approximately least-recently-used order once the total size of the cached nodes exceeds the
+ * configured budget. As nodes are cached in their encoded form, a single cache may be shared between any number of
+ * [StoredMerklePatriciaTrie] instances that use the same [MerkleStorage].
+ *
+ * @param maximumBytes The maximum total size, in bytes, of the cached nodes.
+ * @constructor Create a node cache.
+ */
+class MerkleNodeCache(val maximumBytes: Long) {
+
+  companion object {
+    // approximate per-entry overhead of the key and cache entry
+    private const val ENTRY_OVERHEAD = 64
+  }
+
+  private val bytes = AtomicLong()
+  private val cache: Cache<Bytes32, Bytes>
+
+  init {
+    require(maximumBytes >= 0) { "maximumBytes must not be negative" }
+    cache = CacheBuilder.newBuilder()
+      .maximumWeight(maximumBytes)
+      .weigher(Weigher<Bytes32, Bytes> { _, content -> weight(content) })
+      .removalListener(RemovalListener<Bytes32, Bytes> { notification ->
+        notification.value?.let { bytes.addAndGet(-weight(it).toLong()) }
+      })
+      .recordStats()
+      .build()
+  }
+
+  /**
+   * Get the cached content for a node.
+   *
+   * @param hash The hash of the node.
+   * @return The encoded node, or `null` if it is not present in the cache.
+   */
+  fun get(hash: Bytes32): Bytes? = cache.getIfPresent(hash)
+
+  /**
+   * Add a node to the cache.
+   *
+   * @param hash The hash of the node.
+   * @param content The encoded node.
+   */
+  fun put(hash: Bytes32, content: Bytes) {
+    // content for a hash never changes, so there is no need to replace an existing entry
+    if (cache.asMap().putIfAbsent(hash, content) == null) {
+      bytes.addAndGet(weight(content).toLong())
+    }
+  }
+
+  /**
+   * Remove all nodes from the cache.
+   */
+  fun clear() = cache.invalidateAll()
+
+  /**
+   * @return The number of nodes in the cache.
+   */
+  fun size(): Long = cache.size()
+
+  /**
+   * @return The approximate number of bytes used by cached nodes.
+   */
+  fun bytes(): Long = bytes.get()
+
+  /**
+   * @return The number of times a lookup found a node in the cache.
+   */
+  fun hitCount(): Long = cache.stats().hitCount()
+
+  /**
+   * @return The number of times a lookup did not find a node in the cache.
+   */
+  fun missCount(): Long = cache.stats().missCount()
+
+  /**
+   * @return The ratio of lookups that found a node in the cache, or `1.0` if there have been no lookups.
+   */
+  fun hitRate(): Double = cache.stats().hitRate()
+
+  /**
+   * @return The number of nodes that have been evicted from the cache.
+   */
+  fun evictionCount(): Long = cache.stats().evictionCount()
+
+  private fun weight(content: Bytes): Int = content.size() + ENTRY_OVERHEAD
+
+  /**
+   * @return A string representation of the object.
+   */
+  override fun toString(): String =
+    javaClass.simpleName + "[size=" + size() + ", bytes=" + bytes() + ", hitRate=" + hitRate() + "]"
+}
@@ -12,8 +12,10 @@
  */
 package net.consensys.cava.trie
 
+import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.channels.ReceiveChannel
 import kotlinx.coroutines.runBlocking
 import net.consensys.cava.bytes.Bytes
 import net.consensys.cava.bytes.Bytes32
@@ -69,6 +71,17 @@ class MerklePatriciaTrie<V>(valueSerializer: (V) -> Bytes) : MerkleTrie<Bytes, V
   private val removeVisitor = RemoveVisitor<V>()
   private val nodeFactory: DefaultNodeFactory<V> = DefaultNodeFactory(valueSerializer)
   private var root: Node<V> = NullNode.instance()
+  private var updatesSinceHash = 0
+
+  /**
+   * Whether updated subtrees should be hashed concurrently.
+   *
+   * When enabled and a large number of updates have been made since the root hash was last computed, [rootHash] will
+   * hash the updated children of the top-level branch nodes in parallel using the common fork-join pool. Otherwise,
+   * hashing is performed on the calling thread.
+   */
+  @Volatile
+  var parallelHashing: Boolean = false
 
   override suspend fun get(key: Bytes): V? = root.accept(getVisitor, bytesToPath(key)).value()
 
@@ -83,6 +96,7 @@ class MerklePatriciaTrie<V>(valueSerializer: (V) -> Bytes) : MerkleTrie<Bytes, V
       return remove(key)
     }
     this.root = root.accept(PutVisitor(nodeFactory, value), bytesToPath(key))
+    updatesSinceHash++
   }
 
   // This implementation does not suspend, so we can use the unconfined context
@@ -94,6 +108,7 @@ class MerklePatriciaTrie<V>(valueSerializer: (V) -> Bytes) : MerkleTrie<Bytes, V
 
   override suspend fun remove(key: Bytes) {
     this.root = root.accept(removeVisitor, bytesToPath(key))
+    updatesSinceHash++
   }
 
   // This implementation does not suspend, so we can use the unconfined context
@@ -103,7 +118,104 @@ class MerklePatriciaTrie<V>(valueSerializer: (V) -> Bytes) : MerkleTrie<Bytes, V
     AsyncCompletion.completed()
   }
 
-  override fun rootHash(): Bytes32 = root.hash()
+  /**
+   * Returns a Merkle proof for a key.
+   *
+   * The proof contains the encoded nodes on the path from the root to the key, and can be verified against the root
+   * hash using [MerkleProofs.verify]. A proof for a key that is not present shows that the key has no value.
+   *
+   * @param key The key to prove.
+   * @return The encoded nodes of the proof, starting with the root node.
+   */
+  suspend fun getProof(key: Bytes): List<Bytes> {
+    val proof = ArrayList<Bytes>()
+    root.accept(ProofVisitor(proof), bytesToPath(key))
+    return proof
+  }
+
+  /**
+   * Returns a Merkle proof for a key.
+   *
+   * @param key The key to prove.
+   * @return An [AsyncResult] that will complete with the encoded nodes of the proof, starting with the root node.
+   */
+  @UseExperimental(ExperimentalCoroutinesApi::class)
+  fun getProofAsync(key: Bytes): AsyncResult<List<Bytes>> = runBlocking(Dispatchers.Unconfined) {
+    AsyncResult.completed(getProof(key))
+  }
+
+  /**
+   * Returns a Merkle proof for multiple keys.
+   *
+   * Nodes that are on the path to more than one of the keys are only included once in the proof.
+   *
+   * @param keys The keys to prove.
+   * @return The encoded nodes of the proof, starting with the root node.
+   */
+  suspend fun getProof(keys: Collection<Bytes>): List<Bytes> {
+    val proof = LinkedHashSet<Bytes>()
+    val currentRoot = root
+    for (key in keys) {
+      currentRoot.accept(ProofVisitor(proof), bytesToPath(key))
+    }
+    return ArrayList(proof)
+  }
+
+  /**
+   * Returns a Merkle proof for multiple keys.
+   *
+   * Nodes that are on the path to more than one of the keys are only included once in the proof.
+   *
+   * @param keys The keys to prove.
+   * @return An [AsyncResult] that will complete with the encoded nodes of the proof, starting with the root node.
+   */
+  @UseExperimental(ExperimentalCoroutinesApi::class)
+  fun getProofAsync(keys: Collection<Bytes>): AsyncResult<List<Bytes>> = runBlocking(Dispatchers.Unconfined) {
+    AsyncResult.completed(getProof(keys))
+  }
+
+  /**
+   * Returns the entries of this trie in key order.
+   *
+   * The entries are read from the trie as it was when this method was called, and are not affected by later updates.
+   * The traversal is suspended when the consumer falls behind, and the returned channel may be cancelled to stop
+   * iteration early.
+   *
+   * @param start The first key to return (inclusive), or `null` to start from the first key.
+   * @param end The key at which to stop (exclusive), or `null` to return all keys after `start`.
+   * @param dispatcher The co-routine dispatcher for the traversal.
+   * @return A channel that will receive each key and value in order, and then be closed.
+   */
+  fun entries(
+    start: Bytes? = null,
+    end: Bytes? = null,
+    dispatcher: CoroutineDispatcher = Dispatchers.Default
+  ): ReceiveChannel<Pair<Bytes, V>> = produceEntries(root, start, end, dispatcher)
+
+  /**
+   * Returns an iterator over the entries of this trie in key order.
+   *
+   * The entries are read from the trie as it was when this method was called, and are not affected by later updates.
+   * Calls to the iterator will block while entries are read from the trie.
+   * An iterator that is not consumed to the end must be closed.
+   *
+   * @param start The first key to return (inclusive), or `null` to start from the first key.
+   * @param end The key at which to stop (exclusive), or `null` to return all keys after `start`.
+   * @return An iterator over the entries of this trie.
+   */
+  @JvmOverloads
+  fun entryIterator(start: Bytes? = null, end: Bytes? = null): EntryIterator<V> =
+    BlockingEntryIterator(entries(start, end))
+
+  override fun rootHash(): Bytes32 {
+    val hash = if (parallelHashing && updatesSinceHash >= ParallelHasher.UPDATE_THRESHOLD) {
+      ParallelHasher.hash(root)
+    } else {
+      root.hash()
+    }
+    updatesSinceHash = 0
+    return hash
+  }
 
   /**
    * @return A string representation of the object.
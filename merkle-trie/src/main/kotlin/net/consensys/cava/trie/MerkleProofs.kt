@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import kotlinx.coroutines.runBlocking
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
+import net.consensys.cava.crypto.Hash.keccak256
+import net.consensys.cava.trie.MerkleTrie.Companion.EMPTY_TRIE_ROOT_HASH
+
+/**
+ * Verification of Merkle proofs, as produced by [MerklePatriciaTrie.getProof] and
+ * [StoredMerklePatriciaTrie.getProof].
+ *
+ * A proof is the list of encoded trie nodes along the path from the root to a key. It can be verified against a root
+ * hash alone, without access to the storage of the trie.
+ */
+object MerkleProofs {
+
+  /**
+   * Verify a proof for a single key.
+   *
+   * @param rootHash The root hash of the trie.
+   * @param key The key.
+   * @param proof The encoded nodes of the proof.
+   * @return The serialized value stored under the key, or `null` if the proof shows there is no value for the key.
+   * @throws IllegalArgumentException If the proof is not valid for the root hash and key.
+   */
+  @JvmStatic
+  fun verify(rootHash: Bytes32, key: Bytes, proof: List<Bytes>): Bytes? = verify(rootHash, listOf(key), proof)[key]
+
+  /**
+   * Verify a proof for multiple keys.
+   *
+   * @param rootHash The root hash of the trie.
+   * @param keys The keys.
+   * @param proof The encoded nodes of the proof.
+   * @return A map of the serialized values stored under the keys, which will not contain entries for keys that the
+   *         proof shows have no value.
+   * @throws IllegalArgumentException If the proof is not valid for the root hash and keys.
+   */
+  @JvmStatic
+  fun verify(rootHash: Bytes32, keys: Collection<Bytes>, proof: Collection<Bytes>): Map<Bytes, Bytes> {
+    if (rootHash == EMPTY_TRIE_ROOT_HASH) {
+      return emptyMap()
+    }
+
+    val nodes = HashMap<Bytes32, Bytes>(proof.size)
+    for (rlp in proof) {
+      nodes[keccak256(rlp)] = rlp
+    }
+    val proofStorage = object : MerkleStorage {
+      override suspend fun get(hash: Bytes32): Bytes? = nodes[hash]
+
+      override suspend fun put(hash: Bytes32, content: Bytes) {
+        throw UnsupportedOperationException()
+      }
+    }
+
+    val trie = StoredMerklePatriciaTrie.storingBytes(proofStorage, rootHash)
+    val result = HashMap<Bytes, Bytes>()
+    runBlocking {
+      for (key in keys) {
+        val value = try {
+          trie.get(key)
+        } catch (e: MerkleStorageException) {
+          throw IllegalArgumentException("Invalid proof for key $key", e)
+        }
+        if (value != null) {
+          result[key] = value
+        }
+      }
+    }
+    return result
+  }
+}
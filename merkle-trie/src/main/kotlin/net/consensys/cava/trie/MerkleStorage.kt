@@ -41,6 +41,37 @@ interface MerkleStorage {
    * @param content The content to store.
    */
   suspend fun put(hash: Bytes32, content: Bytes)
+
+  /**
+   * Get the stored content for multiple hashes.
+   *
+   * The default implementation retrieves each hash in turn. Implementations should override this method when the
+   * underlying storage supports retrieving multiple values in a single operation.
+   *
+   * @param hashes The hashes for the content.
+   * @return A map of the stored content, which will not contain entries for hashes that were not found.
+   */
+  suspend fun getAll(hashes: Collection<Bytes32>): Map<Bytes32, Bytes> {
+    val result = HashMap<Bytes32, Bytes>(hashes.size)
+    for (hash in hashes) {
+      get(hash)?.let { result[hash] = it }
+    }
+    return result
+  }
+
+  /**
+   * Store multiple contents with their hashes.
+   *
+   * The default implementation stores each entry in turn. Implementations should override this method when the
+   * underlying storage supports writing multiple values in a single operation.
+   *
+   * @param entries The content to store, keyed by hash.
+   */
+  suspend fun putAll(entries: Map<Bytes32, Bytes>) {
+    for ((hash, content) in entries) {
+      put(hash, content)
+    }
+  }
 }
 
 /**
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import net.consensys.cava.bytes.Bytes32
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
+import java.util.concurrent.RecursiveAction
+
+internal object ParallelHasher {
+
+  /**
+   * The minimum number of updates since the last hash for a trie to be hashed in parallel.
+   *
+   * Below this, the dirty part of the trie is too small for the cost of forking tasks to pay off.
+   */
+  const val UPDATE_THRESHOLD = 100
+
+  /**
+   * The number of branch levels at which child subtrees are hashed concurrently.
+   *
+   * Forking the first two levels gives up to 256 tasks, which is enough to keep all cores busy while leaving deeper
+   * (and smaller) subtrees to be hashed sequentially.
+   */
+  const val FORK_DEPTH = 2
+
+  fun <V> hash(root: Node<V>, pool: ForkJoinPool = ForkJoinPool.commonPool()): Bytes32 {
+    pool.invoke(HashTask(root, FORK_DEPTH))
+    return root.hash()
+  }
+}
+
+private class HashTask<V>(private val node: Node<V>, private val depth: Int) : RecursiveAction() {
+
+  override fun compute() {
+    if (depth > 0) {
+      val subtasks = ArrayList<HashTask<V>>()
+      when (node) {
+        is BranchNode<V> -> for (i in 0 until BranchNode.RADIX) {
+          val child = node.child(i.toByte())
+          if (isDirty(child)) {
+            subtasks.add(HashTask(child, depth - 1))
+          }
+        }
+        is ExtensionNode<V> -> if (isDirty(node.child())) {
+          subtasks.add(HashTask(node.child(), depth))
+        }
+      }
+      ForkJoinTask.invokeAll(subtasks)
+    }
+    // computes and caches the hash if this node will be referenced by hash
+    node.rlpRef()
+  }
+
+  private fun isDirty(node: Node<V>): Boolean = node !is NullNode<V> && node !is StoredNode<V>
+}
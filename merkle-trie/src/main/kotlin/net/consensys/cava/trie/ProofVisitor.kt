@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import net.consensys.cava.bytes.Bytes
+
+/**
+ * A visitor that follows the path to a key, collecting the encoded nodes needed to prove its value.
+ *
+ * The root node is always collected, as are all nodes that are referenced by hash. Nodes small enough to be inlined in
+ * their parent are not collected, as they are already part of the parent's encoding.
+ *
+ * @param proof The collection to add the encoded nodes to.
+ */
+internal class ProofVisitor<V>(private val proof: MutableCollection<Bytes>) : NodeVisitor<V> {
+
+  private var atRoot = true
+
+  override suspend fun visit(extensionNode: ExtensionNode<V>, path: Bytes): Node<V> {
+    record(extensionNode)
+    val extensionPath = extensionNode.path()
+    val commonPathLength = extensionPath.commonPrefixLength(path)
+    assert(commonPathLength < path.size()) { "Visiting path doesn't end with a non-matching terminator" }
+
+    if (commonPathLength < extensionPath.size()) {
+      // path diverges before the end of the extension, so it cannot match
+      return NullNode.instance()
+    }
+
+    return extensionNode.child().accept(this, path.slice(commonPathLength))
+  }
+
+  override suspend fun visit(branchNode: BranchNode<V>, path: Bytes): Node<V> {
+    record(branchNode)
+    assert(path.size() > 0) { "Visiting path doesn't end with a non-matching terminator" }
+
+    val childIndex = path.get(0)
+    if (childIndex == CompactEncoding.LEAF_TERMINATOR) {
+      return branchNode
+    }
+
+    return branchNode.child(childIndex).accept(this, path.slice(1))
+  }
+
+  override suspend fun visit(leafNode: LeafNode<V>, path: Bytes): Node<V> {
+    record(leafNode)
+    val leafPath = leafNode.path()
+
+    if (leafPath.commonPrefixLength(path) != leafPath.size()) {
+      return NullNode.instance()
+    }
+
+    return leafNode
+  }
+
+  override suspend fun visit(nullNode: NullNode<V>, path: Bytes): Node<V> {
+    record(nullNode)
+    return NullNode.instance()
+  }
+
+  private fun record(node: Node<V>) {
+    val rlp = node.rlp()
+    if (atRoot || rlp.size() >= 32) {
+      proof.add(rlp)
+    }
+    atRoot = false
+  }
+}
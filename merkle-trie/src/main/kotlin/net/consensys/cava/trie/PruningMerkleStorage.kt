@@ -0,0 +1,307 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
+import net.consensys.cava.concurrent.AsyncCompletion
+import net.consensys.cava.concurrent.AsyncResult
+import net.consensys.cava.concurrent.coroutines.asyncCompletion
+import net.consensys.cava.concurrent.coroutines.asyncResult
+import net.consensys.cava.kv.KeyValueStore
+import net.consensys.cava.rlp.RLP
+import net.consensys.cava.rlp.RLPException
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A [MerkleStorage] backed by a [KeyValueStore], that removes trie nodes which are no longer reachable from any
+ * retained root.
+ *
+ * Stored nodes are reference counted: the count of a node is the number of stored nodes that refer to it by hash, plus
+ * the number of times it has been retained as a root using [retain]. Nodes whose count falls to zero, and nodes that
+ * are stored but never referenced, become candidates for removal and are deleted by [prune], which may be called on
+ * demand or periodically in the background using [startPruning]. Removing a node releases its children, which are
+ * removed in turn by later passes.
+ *
+ * A candidate is only removed after a call to [retain] that follows the point at which it became unreferenced. Any
+ * updates to tries sharing this storage should therefore be stored and their new roots retained before roots are
+ * retained again, or their nodes may be removed.
+ *
+ * Reference counts are persisted in the key-value store alongside the nodes. Pending candidates are held in memory, so
+ * any that have not been pruned when this storage is discarded will not be reclaimed.
+ *
+ * @param store The key-value store for trie nodes and their reference counts.
+ * @param dispatcher The co-routine dispatcher for background pruning.
+ * @constructor Create a pruning storage.
+ */
+class PruningMerkleStorage(
+  private val store: KeyValueStore,
+  private val dispatcher: CoroutineDispatcher = Dispatchers.IO
+) : MerkleStorage {
+
+  companion object {
+    // Reference counts are stored under a 34 byte key, so they cannot collide with the 32 byte node hashes
+    private val REF_COUNT_PREFIX = Bytes.wrap("rc".toByteArray())
+  }
+
+  private val mutex = Mutex()
+  // candidates for removal, mapped to the epoch in which they became candidates (guarded by mutex)
+  private val candidates = LinkedHashMap<Bytes32, Long>()
+  private var epoch = 0L
+  private val nodesReclaimed = AtomicLong()
+  private val bytesReclaimed = AtomicLong()
+  @Volatile
+  private var pruningJob: Job? = null
+
+  override suspend fun get(hash: Bytes32): Bytes? = store.get(hash)
+
+  override suspend fun put(hash: Bytes32, content: Bytes) = putAll(mapOf(hash to content))
+
+  override suspend fun putAll(entries: Map<Bytes32, Bytes>) = mutex.withLock {
+    val existing = store.getAll(entries.keys)
+    val added = HashMap<Bytes, Bytes>(entries.size)
+    val deltas = HashMap<Bytes32, Long>()
+    for ((hash, content) in entries) {
+      // content for a hash never changes, but an existing node may now be referenced by new nodes so must not be
+      // removed before the next retained root
+      addCandidate(hash, epoch)
+      if (existing.containsKey(hash)) {
+        continue
+      }
+      added[hash] = content
+      for (child in childHashes(content)) {
+        deltas.merge(child, 1L) { a, b -> a + b }
+      }
+    }
+    if (!added.isEmpty()) {
+      store.putAll(added)
+    }
+    adjustRefCounts(deltas, epoch)
+  }
+
+  /**
+   * Retain a trie root, so that it and all the nodes reachable from it are not removed.
+   *
+   * A root may be retained multiple times, and will be kept until it has been released an equal number of times.
+   *
+   * @param rootHash The root hash of the trie.
+   */
+  suspend fun retain(rootHash: Bytes32) {
+    mutex.withLock {
+      adjustRefCounts(mapOf(rootHash to 1L), epoch)
+      epoch++
+    }
+  }
+
+  /**
+   * Retain a trie root, so that it and all the nodes reachable from it are not removed.
+   *
+   * @param rootHash The root hash of the trie.
+   * @return An [AsyncCompletion] that will complete when the root has been retained.
+   */
+  fun retainAsync(rootHash: Bytes32): AsyncCompletion = GlobalScope.asyncCompletion(dispatcher) { retain(rootHash) }
+
+  /**
+   * Release a previously retained trie root.
+   *
+   * Once released as many times as it was retained, any nodes that are not reachable from another retained root will
+   * become candidates for removal.
+   *
+   * @param rootHash The root hash of the trie.
+   */
+  suspend fun release(rootHash: Bytes32) = mutex.withLock {
+    adjustRefCounts(mapOf(rootHash to -1L), epoch)
+  }
+
+  /**
+   * Release a previously retained trie root.
+   *
+   * @param rootHash The root hash of the trie.
+   * @return An [AsyncCompletion] that will complete when the root has been released.
+   */
+  fun releaseAsync(rootHash: Bytes32): AsyncCompletion = GlobalScope.asyncCompletion(dispatcher) { release(rootHash) }
+
+  /**
+   * Remove unreferenced nodes from storage.
+   *
+   * @param limit The maximum number of removal candidates to examine in this pass.
+   * @return The number of bytes of node content removed in this pass.
+   */
+  suspend fun prune(limit: Int = Int.MAX_VALUE): Long = mutex.withLock {
+    var examined = 0
+    var reclaimed = 0L
+    while (examined < limit) {
+      val (hash, candidateEpoch) = candidates.entries.firstOrNull() ?: break
+      if (candidateEpoch >= epoch) {
+        // all remaining candidates have become unreferenced since the last retained root
+        break
+      }
+      candidates.remove(hash)
+      examined++
+      reclaimed += removeIfUnreferenced(hash)
+    }
+    reclaimed
+  }
+
+  /**
+   * Remove unreferenced nodes from storage.
+   *
+   * @param limit The maximum number of removal candidates to examine in this pass.
+   * @return An [AsyncResult] that will complete with the number of bytes of node content removed in this pass.
+   */
+  fun pruneAsync(limit: Int): AsyncResult<Long> = GlobalScope.asyncResult(dispatcher) { prune(limit) }
+
+  /**
+   * Start pruning periodically in the background.
+   *
+   * @param intervalMillis The delay between pruning passes, in milliseconds.
+   * @param limit The maximum number of removal candidates to examine in each pass.
+   * @throws IllegalStateException If background pruning has already been started.
+   */
+  @JvmOverloads
+  fun startPruning(intervalMillis: Long, limit: Int = 10000) {
+    check(pruningJob == null) { "Pruning already started" }
+    pruningJob = GlobalScope.launch(dispatcher) {
+      while (isActive) {
+        prune(limit)
+        delay(intervalMillis)
+      }
+    }
+  }
+
+  /**
+   * Stop background pruning, if it has been started.
+   */
+  fun stopPruning() {
+    pruningJob?.cancel()
+    pruningJob = null
+  }
+
+  /**
+   * @return The total number of nodes removed from storage.
+   */
+  fun nodesReclaimed(): Long = nodesReclaimed.get()
+
+  /**
+   * @return The total number of bytes of node content removed from storage.
+   */
+  fun bytesReclaimed(): Long = bytesReclaimed.get()
+
+  /**
+   * @return The number of nodes that are waiting to be examined for removal.
+   */
+  suspend fun pendingCandidates(): Int = mutex.withLock { candidates.size }
+
+  private fun addCandidate(hash: Bytes32, candidateEpoch: Long) {
+    // move to the end, so that candidates remain ordered by epoch
+    candidates.remove(hash)
+    candidates[hash] = candidateEpoch
+  }
+
+  private suspend fun removeIfUnreferenced(hash: Bytes32): Long {
+    if (refCount(hash) > 0) {
+      return 0
+    }
+    val content = store.get(hash) ?: return 0
+    store.remove(hash)
+    store.remove(refCountKey(hash))
+    nodesReclaimed.incrementAndGet()
+    bytesReclaimed.addAndGet(content.size().toLong())
+
+    val deltas = HashMap<Bytes32, Long>()
+    for (child in childHashes(content)) {
+      deltas.merge(child, -1L) { a, b -> a + b }
+    }
+    // children may be referenced by updates that have not yet been retained, so are not removed in this epoch
+    adjustRefCounts(deltas, epoch)
+    return content.size().toLong()
+  }
+
+  private suspend fun adjustRefCounts(deltas: Map<Bytes32, Long>, candidateEpoch: Long) {
+    if (deltas.isEmpty()) {
+      return
+    }
+    val keys = deltas.keys.map { refCountKey(it) }
+    val counts = store.getAll(keys)
+    val updates = HashMap<Bytes, Bytes>(deltas.size)
+    for ((hash, delta) in deltas) {
+      val key = refCountKey(hash)
+      val count = (counts[key]?.toLong() ?: 0L) + delta
+      if (count <= 0) {
+        store.remove(key)
+        addCandidate(hash, candidateEpoch)
+      } else {
+        updates[key] = Bytes.ofUnsignedLong(count)
+      }
+    }
+    if (!updates.isEmpty()) {
+      store.putAll(updates)
+    }
+  }
+
+  private suspend fun refCount(hash: Bytes32): Long = store.get(refCountKey(hash))?.toLong() ?: 0L
+
+  private fun refCountKey(hash: Bytes32): Bytes = Bytes.concatenate(REF_COUNT_PREFIX, hash)
+
+  /**
+   * @return A string representation of the object.
+   */
+  override fun toString(): String =
+    javaClass.simpleName + "[nodesReclaimed=" + nodesReclaimed() + ", bytesReclaimed=" + bytesReclaimed() + "]"
+}
+
+/**
+ * Find the hashes of the nodes that are referenced by an encoded trie node.
+ */
+internal fun childHashes(content: Bytes): List<Bytes32> {
+  try {
+    return RLP.decodeList(content) { reader ->
+      val children = ArrayList<Bytes32>()
+      when (reader.remaining()) {
+        2 -> {
+          val encodedPath = reader.readValue()
+          val isLeaf = encodedPath.size() > 0 && (encodedPath.get(0).toInt() and 0x20) != 0
+          if (!isLeaf && !reader.nextIsList()) {
+            val target = reader.readValue()
+            if (target.size() == 32) {
+              children.add(Bytes32.wrap(target))
+            }
+          }
+        }
+        BranchNode.RADIX + 1 -> repeat(BranchNode.RADIX) {
+          // inlined children are too small to contain references by hash
+          if (reader.nextIsList()) {
+            reader.skipNext()
+          } else {
+            val child = reader.readValue()
+            if (child.size() == 32) {
+              children.add(Bytes32.wrap(child))
+            }
+          }
+        }
+      }
+      children
+    }
+  } catch (e: RLPException) {
+    throw MerkleStorageException("Invalid RLP for stored node", e)
+  }
+}
@@ -12,10 +12,17 @@
  */
 package net.consensys.cava.trie
 
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.channels.ReceiveChannel
 import net.consensys.cava.bytes.Bytes
 import net.consensys.cava.bytes.Bytes32
+import net.consensys.cava.concurrent.AsyncResult
+import net.consensys.cava.concurrent.coroutines.asyncResult
 import net.consensys.cava.trie.CompactEncoding.bytesToPath
 import net.consensys.cava.trie.MerkleTrie.Companion.EMPTY_TRIE_ROOT_HASH
+import java.util.concurrent.ConcurrentHashMap
 import java.util.function.Function
 
 /**
@@ -45,6 +52,21 @@ class StoredMerklePatriciaTrie<V> : MerkleTrie<Bytes, V> {
     fun storingBytes(storage: MerkleStorage, rootHash: Bytes32): StoredMerklePatriciaTrie<Bytes> =
       StoredMerklePatriciaTrie(storage, rootHash, ::bytesIdentity, ::bytesIdentity)
 
+    /**
+     * Create a trie with keys and values of type [Bytes].
+     *
+     * @param storage The storage to use for persistence.
+     * @param rootHash The initial root has for the trie, which should be already present in `storage`.
+     * @param nodeCache A cache of trie nodes, which may be shared with other tries using the same storage.
+     */
+    @JvmStatic
+    fun storingBytes(
+      storage: MerkleStorage,
+      rootHash: Bytes32,
+      nodeCache: MerkleNodeCache
+    ): StoredMerklePatriciaTrie<Bytes> =
+      StoredMerklePatriciaTrie(storage, rootHash, ::bytesIdentity, ::bytesIdentity, nodeCache)
+
     /**
      * Create a trie with value of type [String].
      *
@@ -105,6 +127,28 @@ class StoredMerklePatriciaTrie<V> : MerkleTrie<Bytes, V> {
     ): StoredMerklePatriciaTrie<V> {
       return StoredMerklePatriciaTrie(storage, rootHash, valueSerializer::apply, valueDeserializer::apply)
     }
+
+    /**
+     * Create a trie.
+     *
+     * @param storage The storage to use for persistence.
+     * @param rootHash The initial root has for the trie, which should be already present in `storage`.
+     * @param nodeCache A cache of trie nodes, which may be shared with other tries using the same storage.
+     * @param valueSerializer A function for serializing values to bytes.
+     * @param valueDeserializer A function for deserializing values from bytes.
+     * @param <V> The serialized type.
+     * @return A new merkle trie.
+     */
+    @JvmStatic
+    fun <V> create(
+      storage: MerkleStorage,
+      rootHash: Bytes32,
+      nodeCache: MerkleNodeCache,
+      valueSerializer: Function<V, Bytes>,
+      valueDeserializer: Function<Bytes, V>
+    ): StoredMerklePatriciaTrie<V> {
+      return StoredMerklePatriciaTrie(storage, rootHash, valueSerializer::apply, valueDeserializer::apply, nodeCache)
+    }
   }
 
   private val getVisitor = GetVisitor<V>()
@@ -112,6 +156,19 @@ class StoredMerklePatriciaTrie<V> : MerkleTrie<Bytes, V> {
   private val storage: MerkleStorage
   private val nodeFactory: StoredNodeFactory<V>
   private var root: Node<V>
+  private var committedRoot: Node<V>? = null
+  private var updatesSinceHash = 0
+
+  /**
+   * Whether updated subtrees should be hashed concurrently.
+   *
+   * When enabled and a large number of updates have been made in a batch, [commit] and [rootHash] will hash the
+   * updated children of the top-level branch nodes in parallel. Otherwise, hashing is performed sequentially.
+   *
+   * Outside of a batch, nodes are hashed as they are stored and this setting has no effect.
+   */
+  @Volatile
+  var parallelHashing: Boolean = false
 
   /**
    * Create a trie.
@@ -119,12 +176,14 @@ class StoredMerklePatriciaTrie<V> : MerkleTrie<Bytes, V> {
    * @param storage The storage to use for persistence.
    * @param valueSerializer A function for serializing values to bytes.
    * @param valueDeserializer A function for deserializing values from bytes.
+   * @param nodeCache A cache of trie nodes, which may be shared with other tries using the same storage.
    */
   constructor(
     storage: MerkleStorage,
     valueSerializer: (V) -> Bytes,
-    valueDeserializer: (Bytes) -> V
-  ) : this(storage, EMPTY_TRIE_ROOT_HASH, valueSerializer, valueDeserializer)
+    valueDeserializer: (Bytes) -> V,
+    nodeCache: MerkleNodeCache? = null
+  ) : this(storage, EMPTY_TRIE_ROOT_HASH, valueSerializer, valueDeserializer, nodeCache)
 
   /**
    * Create a trie.
@@ -133,15 +192,17 @@ class StoredMerklePatriciaTrie<V> : MerkleTrie<Bytes, V> {
    * @param rootHash The initial root has for the trie, which should be already present in `storage`.
    * @param valueSerializer A function for serializing values to bytes.
    * @param valueDeserializer A function for deserializing values from bytes.
+   * @param nodeCache A cache of trie nodes, which may be shared with other tries using the same storage.
    */
   constructor(
     storage: MerkleStorage,
     rootHash: Bytes32,
     valueSerializer: (V) -> Bytes,
-    valueDeserializer: (Bytes) -> V
+    valueDeserializer: (Bytes) -> V,
+    nodeCache: MerkleNodeCache? = null
   ) {
     this.storage = storage
-    this.nodeFactory = StoredNodeFactory(storage, valueSerializer, valueDeserializer)
+    this.nodeFactory = StoredNodeFactory(storage, nodeCache, valueSerializer, valueDeserializer)
 
     this.root = if (rootHash == EMPTY_TRIE_ROOT_HASH) {
       NullNode.instance()
@@ -150,6 +211,84 @@ class StoredMerklePatriciaTrie<V> : MerkleTrie<Bytes, V> {
     }
   }
 
+  /**
+   * Start a batch of updates.
+   *
+   * While a batch is open, nodes created by [put] and [remove] are held in memory and are neither hashed nor written
+   * to storage. Calling [commit] will hash the updated nodes and write all nodes reachable from the new root to
+   * storage, whereas [rollback] will discard all updates made since the batch was started.
+   *
+   * @throws IllegalStateException If a batch is already in progress.
+   */
+  fun beginBatch() {
+    check(committedRoot == null) { "Batch already in progress" }
+    committedRoot = root
+    nodeFactory.batching = true
+  }
+
+  /**
+   * @return `true` if a batch of updates is in progress.
+   */
+  fun inBatch(): Boolean = committedRoot != null
+
+  /**
+   * Commit the current batch of updates, writing all new nodes to storage.
+   *
+   * Nodes that were created and then replaced during the batch are never written.
+   *
+   * @return The root hash of the trie after the commit.
+   * @throws IllegalStateException If no batch is in progress.
+   * @throws MerkleStorageException If there is an error while writing to storage.
+   */
+  suspend fun commit(): Bytes32 {
+    checkNotNull(committedRoot) { "No batch in progress" }
+    val updates: MutableMap<Bytes32, Bytes>
+    val newRoot = if (shouldHashInParallel()) {
+      updates = ConcurrentHashMap()
+      nodeFactory.commit(root, updates, true, ParallelHasher.FORK_DEPTH)
+    } else {
+      updates = HashMap()
+      nodeFactory.commit(root, updates, true)
+    }
+    if (!updates.isEmpty()) {
+      storage.putAll(updates)
+      nodeFactory.cacheAll(updates)
+    }
+    root = newRoot
+    committedRoot = null
+    updatesSinceHash = 0
+    nodeFactory.batching = false
+    return root.hash()
+  }
+
+  /**
+   * Commit the current batch of updates, writing all new nodes to storage.
+   *
+   * @return An [AsyncResult] that will complete with the root hash of the trie after the commit.
+   */
+  fun commitAsync(): AsyncResult<Bytes32> = commitAsync(Dispatchers.Default)
+
+  /**
+   * Commit the current batch of updates, writing all new nodes to storage.
+   *
+   * @param dispatcher The co-routine dispatcher for asynchronous tasks.
+   * @return An [AsyncResult] that will complete with the root hash of the trie after the commit.
+   */
+  fun commitAsync(dispatcher: CoroutineDispatcher): AsyncResult<Bytes32> =
+    GlobalScope.asyncResult(dispatcher) { commit() }
+
+  /**
+   * Discard the current batch of updates, restoring the trie to its state before [beginBatch] was called.
+   *
+   * @throws IllegalStateException If no batch is in progress.
+   */
+  fun rollback() {
+    root = checkNotNull(committedRoot) { "No batch in progress" }
+    committedRoot = null
+    updatesSinceHash = 0
+    nodeFactory.batching = false
+  }
+
   override suspend fun get(key: Bytes): V? = root.accept(getVisitor, bytesToPath(key)).value()
 
   override suspend fun put(key: Bytes, value: V?) {
@@ -161,13 +300,105 @@ class StoredMerklePatriciaTrie<V> : MerkleTrie<Bytes, V> {
 
   override suspend fun remove(key: Bytes) = updateRoot(root.accept(removeVisitor, bytesToPath(key)))
 
-  override fun rootHash(): Bytes32 = root.hash()
+  override fun rootHash(): Bytes32 {
+    if (shouldHashInParallel()) {
+      return ParallelHasher.hash(root)
+    }
+    return root.hash()
+  }
+
+  /**
+   * Returns a Merkle proof for a key.
+   *
+   * The proof contains the encoded nodes on the path from the root to the key, and can be verified against the root
+   * hash using [MerkleProofs.verify]. A proof for a key that is not present shows that the key has no value.
+   *
+   * @param key The key to prove.
+   * @return The encoded nodes of the proof, starting with the root node.
+   * @throws MerkleStorageException If there is an error while accessing or decoding data from storage.
+   */
+  suspend fun getProof(key: Bytes): List<Bytes> {
+    val proof = ArrayList<Bytes>()
+    root.accept(ProofVisitor(proof), bytesToPath(key))
+    return proof
+  }
+
+  /**
+   * Returns a Merkle proof for a key.
+   *
+   * @param key The key to prove.
+   * @return An [AsyncResult] that will complete with the encoded nodes of the proof, starting with the root node.
+   */
+  fun getProofAsync(key: Bytes): AsyncResult<List<Bytes>> =
+    GlobalScope.asyncResult(Dispatchers.Default) { getProof(key) }
+
+  /**
+   * Returns a Merkle proof for multiple keys.
+   *
+   * Nodes that are on the path to more than one of the keys are only included once in the proof.
+   *
+   * @param keys The keys to prove.
+   * @return The encoded nodes of the proof, starting with the root node.
+   * @throws MerkleStorageException If there is an error while accessing or decoding data from storage.
+   */
+  suspend fun getProof(keys: Collection<Bytes>): List<Bytes> {
+    val proof = LinkedHashSet<Bytes>()
+    val currentRoot = root
+    for (key in keys) {
+      currentRoot.accept(ProofVisitor(proof), bytesToPath(key))
+    }
+    return ArrayList(proof)
+  }
+
+  /**
+   * Returns a Merkle proof for multiple keys.
+   *
+   * Nodes that are on the path to more than one of the keys are only included once in the proof.
+   *
+   * @param keys The keys to prove.
+   * @return An [AsyncResult] that will complete with the encoded nodes of the proof, starting with the root node.
+   */
+  fun getProofAsync(keys: Collection<Bytes>): AsyncResult<List<Bytes>> =
+    GlobalScope.asyncResult(Dispatchers.Default) { getProof(keys) }
+
+  /**
+   * Returns the entries of this trie in key order.
+   *
+   * The entries are read from the trie as it was when this method was called, and are not affected by later updates.
+   * The traversal is suspended when the consumer falls behind, and the returned channel may be cancelled to stop
+   * iteration early.
+   *
+   * @param start The first key to return (inclusive), or `null` to start from the first key.
+   * @param end The key at which to stop (exclusive), or `null` to return all keys after `start`.
+   * @param dispatcher The co-routine dispatcher for the traversal.
+   * @return A channel that will receive each key and value in order, and then be closed.
+   */
+  fun entries(
+    start: Bytes? = null,
+    end: Bytes? = null,
+    dispatcher: CoroutineDispatcher = Dispatchers.IO
+  ): ReceiveChannel<Pair<Bytes, V>> = produceEntries(root, start, end, dispatcher)
+
+  /**
+   * Returns an iterator over the entries of this trie in key order.
+   *
+   * The entries are read from the trie as it was when this method was called, and are not affected by later updates.
+   * Calls to the iterator will block while entries are loaded from storage.
+   * An iterator that is not consumed to the end must be closed.
+   *
+   * @param start The first key to return (inclusive), or `null` to start from the first key.
+   * @param end The key at which to stop (exclusive), or `null` to return all keys after `start`.
+   * @return An iterator over the entries of this trie.
+   */
+  @JvmOverloads
+  fun entryIterator(start: Bytes? = null, end: Bytes? = null): EntryIterator<V> =
+    BlockingEntryIterator(entries(start, end))
 
   /**
    * Forces any cached trie nodes to be released, so they can be garbage collected.
    *
    * Note: nodes are already stored using [java.lang.ref.SoftReference]'s, so they will be released automatically
-   * based on memory demands.
+   * based on memory demands. Nodes held in a [MerkleNodeCache] are not affected.
    */
   fun clearCache() {
     val currentRoot = root
@@ -177,14 +408,21 @@ class StoredMerklePatriciaTrie<V> : MerkleTrie<Bytes, V> {
   }
 
   private suspend fun updateRoot(newRoot: Node<V>) {
+    if (committedRoot != null) {
+      this.root = newRoot
+      updatesSinceHash++
+      return
+    }
     this.root = if (newRoot is StoredNode<*>) {
       newRoot
     } else {
-      storage.put(newRoot.hash(), newRoot.rlp())
-      StoredNode(nodeFactory, newRoot)
+      nodeFactory.store(newRoot)
     }
   }
 
+  private fun shouldHashInParallel(): Boolean =
+    parallelHashing && committedRoot != null && updatesSinceHash >= ParallelHasher.UPDATE_THRESHOLD
+
   /**
    * @return A string representation of the object.
    */
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.GlobalScope
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
+import net.consensys.cava.concurrent.AsyncCompletion
+import net.consensys.cava.concurrent.AsyncResult
+import net.consensys.cava.concurrent.coroutines.asyncCompletion
+import net.consensys.cava.concurrent.coroutines.asyncResult
+import net.consensys.cava.crypto.Hash.keccak256
+import net.consensys.cava.rlp.RLP
+import net.consensys.cava.trie.CompactEncoding.bytesToPath
+import net.consensys.cava.trie.MerkleTrie.Companion.EMPTY_TRIE_ROOT_HASH
+import java.util.function.Function
+
+/**
+ * A builder that writes a complete trie to a [MerkleStorage] from entries supplied in key order.
+ *
+ * Unlike repeated updates to a [StoredMerklePatriciaTrie], the trie is built bottom-up and each node is written to
+ * storage exactly once, as soon as all of its children are known. Only the nodes on the path to the most recently added
+ * key are held in memory, so tries of any size can be built in memory bounded by the key length and the write batch
+ * size.
+ *
+ * Entries must be added in strictly increasing order of their keys, compared as unsigned bytes. The resulting trie can
+ * be opened by passing the root hash returned by [build] to [StoredMerklePatriciaTrie].
+ *
+ * This class is not thread-safe: each call to [add] must complete before the next is made.
+ *
+ * @param <V> The type of values stored by the trie.
+ * @param storage The storage to write trie nodes to.
+ * @param valueSerializer A function for serializing values to bytes.
+ * @param batchSize The number of nodes to accumulate before writing them to storage.
+ * @constructor Create a trie builder.
+ */
+class StoredMerkleTrieBuilder<V>(
+  private val storage: MerkleStorage,
+  private val valueSerializer: (V) -> Bytes,
+  private val batchSize: Int = DEFAULT_BATCH_SIZE
+) {
+
+  companion object {
+    /**
+     * The default number of nodes to accumulate before writing them to storage.
+     */
+    const val DEFAULT_BATCH_SIZE = 1000
+
+    private val EMPTY_REF = RLP.encodeValue(Bytes.EMPTY)
+    private val TERMINATOR = Bytes.of(CompactEncoding.LEAF_TERMINATOR)
+
+    /**
+     * Create a builder for a trie with values of type [Bytes].
+     *
+     * @param storage The storage to write trie nodes to.
+     */
+    @JvmStatic
+    fun storingBytes(storage: MerkleStorage): StoredMerkleTrieBuilder<Bytes> =
+      StoredMerkleTrieBuilder(storage, ::bytesIdentity)
+
+    /**
+     * Create a builder for a trie with values of type [String].
+     *
+     * Strings are stored in UTF-8 encoding.
+     *
+     * @param storage The storage to write trie nodes to.
+     */
+    @JvmStatic
+    fun storingStrings(storage: MerkleStorage): StoredMerkleTrieBuilder<String> =
+      StoredMerkleTrieBuilder(storage, ::stringSerializer)
+
+    /**
+     * Create a trie builder.
+     *
+     * @param storage The storage to write trie nodes to.
+     * @param valueSerializer A function for serializing values to bytes.
+     * @param batchSize The number of nodes to accumulate before writing them to storage.
+     * @param <V> The serialized type.
+     * @return A new trie builder.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun <V> create(
+      storage: MerkleStorage,
+      valueSerializer: Function<V, Bytes>,
+      batchSize: Int = DEFAULT_BATCH_SIZE
+    ): StoredMerkleTrieBuilder<V> = StoredMerkleTrieBuilder(storage, valueSerializer::apply, batchSize)
+  }
+
+  /**
+   * A branch that may still receive children, at a nibble offset into the keys below it.
+   */
+  private class Frame(val depth: Int, val path: Bytes) {
+    val children = arrayOfNulls<Bytes>(BranchNode.RADIX)
+    var value: Bytes? = null
+  }
+
+  private val stack = ArrayList<Frame>()
+  private var writes = HashMap<Bytes32, Bytes>()
+  private var lastPath: Bytes? = null
+  private var lastValue: Bytes? = null
+  private var nodesWritten = 0L
+  private var rootHash: Bytes32? = null
+
+  init {
+    require(batchSize > 0) { "batchSize must be positive" }
+  }
+
+  /**
+   * Add an entry to the trie.
+   *
+   * @param key The key, which must be greater than any key previously added.
+   * @param value The value.
+   * @throws IllegalArgumentException If the key is not greater than the previous key.
+   * @throws IllegalStateException If the trie has already been built.
+   */
+  suspend fun add(key: Bytes, value: V) {
+    check(rootHash == null) { "Trie has already been built" }
+    val fullPath = bytesToPath(key)
+    // the terminator is left off, so that a key sorts before any key it is a prefix of
+    val path = fullPath.slice(0, fullPath.size() - 1)
+    val prevPath = lastPath
+    if (prevPath != null) {
+      require(compareNibbles(prevPath, path) < 0) { "Keys must be added in increasing order" }
+      addLast(prevPath.commonPrefixLength(path))
+    }
+    lastPath = path
+    lastValue = valueSerializer(value)
+  }
+
+  /**
+   * Add an entry to the trie.
+   *
+   * The returned result must complete before another entry is added.
+   *
+   * @param key The key, which must be greater than any key previously added.
+   * @param value The value.
+   * @return An [AsyncCompletion] that will complete when the entry has been added.
+   */
+  fun addAsync(key: Bytes, value: V): AsyncCompletion =
+    GlobalScope.asyncCompletion(Dispatchers.IO) { add(key, value) }
+
+  /**
+   * Complete the trie, writing all remaining nodes to storage.
+   *
+   * @return The root hash of the trie.
+   */
+  suspend fun build(): Bytes32 {
+    rootHash?.let { return it }
+    val root = if (lastPath == null) {
+      EMPTY_TRIE_ROOT_HASH
+    } else {
+      addLast(-1) ?: throw IllegalStateException("Trie root was not completed")
+    }
+    flush()
+    rootHash = root
+    return root
+  }
+
+  /**
+   * Complete the trie, writing all remaining nodes to storage.
+   *
+   * @return An [AsyncResult] that will complete with the root hash of the trie.
+   */
+  fun buildAsync(): AsyncResult<Bytes32> = GlobalScope.asyncResult(Dispatchers.IO) { build() }
+
+  /**
+   * @return The number of nodes written to storage.
+   */
+  fun nodesWritten(): Long = nodesWritten
+
+  /**
+   * Place the last added entry, and complete every branch that cannot receive any further children.
+   *
+   * @param nextPrefixLength The length of the prefix shared by the last added key and the next key, or -1 if there
+   *   are no more keys.
+   * @return The root hash, if the trie has been completed.
+   */
+  private suspend fun addLast(nextPrefixLength: Int): Bytes32? {
+    val path = lastPath!!
+    val value = lastValue!!
+
+    // the last key branches from the next key at the shared prefix
+    if (nextPrefixLength >= 0 && (stack.isEmpty() || stack.last().depth < nextPrefixLength)) {
+      stack.add(Frame(nextPrefixLength, path))
+    }
+    if (stack.isEmpty()) {
+      // a trie with a single entry
+      return write(leaf(path, 0, value))
+    }
+
+    val top = stack.last()
+    if (path.size() == top.depth) {
+      top.value = value
+    } else {
+      top.children[path.get(top.depth).toInt()] = reference(leaf(path, top.depth + 1, value))
+    }
+
+    while (!stack.isEmpty() && stack.last().depth > nextPrefixLength) {
+      val frame = stack.removeAt(stack.size - 1)
+      if (nextPrefixLength >= 0 && (stack.isEmpty() || stack.last().depth < nextPrefixLength)) {
+        stack.add(Frame(nextPrefixLength, frame.path))
+      }
+      if (stack.isEmpty()) {
+        // the root is always stored, so that the trie can be loaded from its hash
+        return write(encode(frame, -1))
+      }
+      val parent = stack.last()
+      parent.children[frame.path.get(parent.depth).toInt()] = reference(encode(frame, parent.depth))
+    }
+    return null
+  }
+
+  private fun leaf(path: Bytes, offset: Int, value: Bytes): Bytes = RLP.encodeList { writer ->
+    writer.writeValue(CompactEncoding.encode(Bytes.concatenate(path.slice(offset), TERMINATOR)))
+    writer.writeValue(value)
+  }
+
+  // encode a completed branch, along with any extension leading to it from its parent
+  private suspend fun encode(frame: Frame, parentDepth: Int): Bytes {
+    val branch = RLP.encodeList { out ->
+      for (child in frame.children) {
+        out.writeRLP(child ?: EMPTY_REF)
+      }
+      out.writeValue(frame.value ?: Bytes.EMPTY)
+    }
+    val extensionLength = frame.depth - parentDepth - 1
+    if (extensionLength == 0) {
+      return branch
+    }
+    val branchRef = reference(branch)
+    return RLP.encodeList { writer ->
+      writer.writeValue(CompactEncoding.encode(frame.path.slice(parentDepth + 1, extensionLength)))
+      writer.writeRLP(branchRef)
+    }
+  }
+
+  // nodes of less than 32 bytes are inlined into their parent, rather than referenced by hash
+  private suspend fun reference(rlp: Bytes): Bytes {
+    if (rlp.size() < 32) {
+      return rlp
+    }
+    return RLP.encodeValue(write(rlp))
+  }
+
+  private suspend fun write(rlp: Bytes): Bytes32 {
+    val hash = keccak256(rlp)
+    writes[hash] = rlp
+    if (writes.size >= batchSize) {
+      flush()
+    }
+    return hash
+  }
+
+  private suspend fun flush() {
+    if (writes.isEmpty()) {
+      return
+    }
+    storage.putAll(writes)
+    nodesWritten += writes.size
+    writes = HashMap()
+  }
+}
@@ -17,6 +17,7 @@ import kotlinx.coroutines.Deferred
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.GlobalScope
 import kotlinx.coroutines.async
+import kotlinx.coroutines.launch
 import net.consensys.cava.bytes.Bytes
 import net.consensys.cava.bytes.Bytes32
 import net.consensys.cava.rlp.RLP
@@ -104,6 +105,22 @@ internal class StoredNode<V> : Node<V> {
     return deferred.await()
   }
 
+  /**
+   * Start loading this node in the background, if it is not already loaded.
+   */
+  fun prefetch() {
+    if (loaded?.get() != null || loader.get() != null) {
+      return
+    }
+    GlobalScope.launch(Dispatchers.IO) {
+      try {
+        load()
+      } catch (e: Exception) {
+        // any failure will be reported when the node is accessed
+      }
+    }
+  }
+
   fun unload() {
     val deferred: Deferred<Node<V>>? = loader.get()
     deferred?.cancel()
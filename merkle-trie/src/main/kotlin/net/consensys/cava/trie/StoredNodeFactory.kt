@@ -12,6 +12,11 @@
  */
 package net.consensys.cava.trie
 
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
 import net.consensys.cava.bytes.Bytes
 import net.consensys.cava.bytes.Bytes32
 import net.consensys.cava.rlp.RLP
@@ -21,12 +26,20 @@ import java.util.Collections
 
 internal class StoredNodeFactory<V>(
   private val storage: MerkleStorage,
+  private val nodeCache: MerkleNodeCache?,
   private val valueSerializer: (V) -> Bytes,
   private val valueDeserializer: (Bytes) -> V
 ) : NodeFactory<V> {
 
   private val nullNode: NullNode<V> = NullNode.instance()
 
+  /**
+   * When set, newly created nodes are kept in memory rather than being persisted, and must later be written to
+   * storage by [commit].
+   */
+  @Volatile
+  internal var batching: Boolean = false
+
   override suspend fun createExtension(path: Bytes, child: Node<V>): Node<V> {
     return maybeStore(ExtensionNode(path, child, this))
   }
@@ -63,21 +76,107 @@ internal class StoredNodeFactory<V>(
   }
 
   private suspend fun maybeStore(node: Node<V>): Node<V> {
-    val nodeRLP = node.rlp()
-    if (nodeRLP.size() < 32) {
+    if (batching) {
+      // defer hashing and storage until commit
+      return node
+    }
+    if (node.rlp().size() < 32) {
       return node
     }
-    storage.put(node.hash(), node.rlp())
+    return store(node)
+  }
+
+  internal suspend fun store(node: Node<V>): StoredNode<V> {
+    val nodeRLP = node.rlp()
+    storage.put(node.hash(), nodeRLP)
+    nodeCache?.put(node.hash(), nodeRLP)
     return StoredNode(this, node)
   }
 
+  /**
+   * Collect all nodes reachable from `node` that have not yet been persisted.
+   *
+   * Nodes that are referenced by hash are added to `updates`, and replaced in the returned tree by a [StoredNode]
+   * so that they are not revisited by a later commit. Nodes that are already stored are not traversed.
+   *
+   * @param node The root of the subtree to commit.
+   * @param updates A map to collect the (hash, rlp) pairs of nodes that need to be written.
+   * @param force If `true`, the node is stored even when its rlp is small enough to be inlined in a parent.
+   * @param forkDepth The number of branch levels at which child subtrees are committed concurrently. If greater than
+   *   zero, `updates` must be safe for concurrent use.
+   * @return The committed node.
+   */
+  internal suspend fun commit(
+    node: Node<V>,
+    updates: MutableMap<Bytes32, Bytes>,
+    force: Boolean = false,
+    forkDepth: Int = 0
+  ): Node<V> {
+    val committed = when (node) {
+      is StoredNode<V>, is NullNode<V> -> return node
+      is BranchNode<V> -> {
+        val children = if (forkDepth > 0) {
+          commitChildrenConcurrently(node, updates, forkDepth - 1)
+        } else {
+          val children = ArrayList<Node<V>>(BranchNode.RADIX)
+          for (i in 0 until BranchNode.RADIX) {
+            children.add(commit(node.child(i.toByte()), updates))
+          }
+          children
+        }
+        BranchNode(children, node.value(), this, valueSerializer)
+      }
+      is ExtensionNode<V> -> ExtensionNode(node.path(), commit(node.child(), updates, false, forkDepth), this)
+      else -> node
+    }
+    val nodeRLP = committed.rlp()
+    if (nodeRLP.size() < 32 && !force) {
+      return committed
+    }
+    updates[committed.hash()] = nodeRLP
+    return StoredNode(this, committed)
+  }
+
+  private suspend fun commitChildrenConcurrently(
+    node: BranchNode<V>,
+    updates: MutableMap<Bytes32, Bytes>,
+    forkDepth: Int
+  ): List<Node<V>> = coroutineScope {
+    (0 until BranchNode.RADIX).map { i ->
+      val child = node.child(i.toByte())
+      if (child is StoredNode<V> || child is NullNode<V>) {
+        CompletableDeferred<Node<V>>(child)
+      } else {
+        async(Dispatchers.Default) { commit(child, updates, false, forkDepth) }
+      }
+    }.awaitAll()
+  }
+
+  /**
+   * Add nodes that have been written to storage to the node cache, if any.
+   *
+   * @param stored The (hash, rlp) pairs of the stored nodes.
+   */
+  internal fun cacheAll(stored: Map<Bytes32, Bytes>) {
+    val cache = nodeCache ?: return
+    for ((hash, content) in stored) {
+      cache.put(hash, content)
+    }
+  }
+
   internal suspend fun retrieve(hash: Bytes32): Node<V> {
-    val bytes = storage.get(hash) ?: throw MerkleStorageException("Missing value for hash $hash")
+    val bytes = nodeCache?.get(hash) ?: loadFromStorage(hash)
     val node = decode(bytes) { "Invalid RLP value for hash $hash" }
     assert(hash == node.hash()) { "Node hash ${node.hash()} not equal to expected $hash" }
     return node
   }
 
+  private suspend fun loadFromStorage(hash: Bytes32): Bytes {
+    val bytes = storage.get(hash) ?: throw MerkleStorageException("Missing value for hash $hash")
+    nodeCache?.put(hash, bytes)
+    return bytes
+  }
+
   private fun decode(rlp: Bytes, errMessage: () -> String): Node<V> {
     try {
       return RLP.decode(rlp) { reader -> decode(reader, errMessage) }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.channels.ReceiveChannel
+import kotlinx.coroutines.channels.produce
+import kotlinx.coroutines.runBlocking
+import net.consensys.cava.bytes.Bytes
+import java.util.AbstractMap.SimpleImmutableEntry
+
+// The number of entries that may be read ahead of the consumer
+private const val ENTRIES_BUFFER_SIZE = 64
+
+@UseExperimental(ExperimentalCoroutinesApi::class)
+internal fun <V> produceEntries(
+  root: Node<V>,
+  start: Bytes?,
+  end: Bytes?,
+  dispatcher: CoroutineDispatcher
+): ReceiveChannel<Pair<Bytes, V>> = GlobalScope.produce(dispatcher, ENTRIES_BUFFER_SIZE) {
+  val visitor = EntriesVisitor<V>(start?.let(::keyPath), end?.let(::keyPath)) { key, value -> send(Pair(key, value)) }
+  root.accept(visitor, Bytes.EMPTY)
+}
+
+private fun keyPath(key: Bytes): Bytes {
+  val path = CompactEncoding.bytesToPath(key)
+  return path.slice(0, path.size() - 1)
+}
+
+/**
+ * An [EntryIterator] that blocks the calling thread while waiting for entries from a channel.
+ */
+internal class BlockingEntryIterator<V>(private val channel: ReceiveChannel<Pair<Bytes, V>>) : EntryIterator<V> {
+
+  private val iterator = channel.iterator()
+  @Volatile
+  private var closed = false
+
+  override fun hasNext(): Boolean = !closed && runBlocking { iterator.hasNext() }
+
+  override fun next(): Map.Entry<Bytes, V> = runBlocking {
+    if (closed || !iterator.hasNext()) {
+      throw NoSuchElementException()
+    }
+    val (key, value) = iterator.next()
+    SimpleImmutableEntry(key, value)
+  }
+
+  override fun close() {
+    closed = true
+    // cancelling the channel cancels the coroutine producing the entries, if it is still running
+    channel.cancel()
+  }
+}
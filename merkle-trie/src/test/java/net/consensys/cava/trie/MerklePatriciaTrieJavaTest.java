@@ -20,6 +20,10 @@ import net.consensys.cava.bytes.Bytes;
 import net.consensys.cava.bytes.Bytes32;
 import net.consensys.cava.junit.BouncyCastleExtension;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -243,4 +247,21 @@ class MerklePatriciaTrieJavaTest {
     trie.removeAsync(key3).join();
     assertEquals(hash1, trie.rootHash());
   }
+
+  @Test
+  void testEntryIteratorReturnsEntriesInKeyOrder() throws Exception {
+    MerklePatriciaTrie<String> trie = MerklePatriciaTrie.storingStrings();
+    trie.putAsync(Bytes.of(3), "value3").join();
+    trie.putAsync(Bytes.of(1, 5), "value2").join();
+    trie.putAsync(Bytes.of(1), "value1").join();
+    trie.putAsync(Bytes.of(4), "value4").join();
+
+    List<Bytes> keys = new ArrayList<>();
+    try (EntryIterator<String> iterator = trie.entryIterator(Bytes.of(1, 0), Bytes.of(4))) {
+      while (iterator.hasNext()) {
+        keys.add(iterator.next().getKey());
+      }
+    }
+    assertEquals(Arrays.asList(Bytes.of(1, 5), Bytes.of(3)), keys);
+  }
 }
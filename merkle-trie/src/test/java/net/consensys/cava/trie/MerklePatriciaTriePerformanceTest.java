@@ -12,6 +12,8 @@
  */
 package net.consensys.cava.trie;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import net.consensys.cava.bytes.Bytes;
 import net.consensys.cava.bytes.Bytes32;
 import net.consensys.cava.concurrent.AsyncCompletion;
@@ -100,4 +102,37 @@ class MerklePatriciaTriePerformanceTest {
       }
     }
   }
+
+  @Test
+  @Disabled("Expensive test worth running on a developer machine")
+  void compareSequentialAndParallelRootHash() throws Exception {
+    for (int size : new int[] {10000, 100000, 1000000}) {
+      MerklePatriciaTrie<String> sequential = MerklePatriciaTrie.storingStrings();
+      MerklePatriciaTrie<String> parallel = MerklePatriciaTrie.storingStrings();
+      parallel.setParallelHashing(true);
+      for (int i = 0; i < size; i++) {
+        Bytes key = createRandomBytes();
+        String value = UUID.randomUUID().toString();
+        sequential.putAsync(key, value).join();
+        parallel.putAsync(key, value).join();
+      }
+
+      long beforeSequential = System.nanoTime();
+      Bytes32 sequentialHash = sequential.rootHash();
+      long sequentialTime = System.nanoTime() - beforeSequential;
+
+      long beforeParallel = System.nanoTime();
+      Bytes32 parallelHash = parallel.rootHash();
+      long parallelTime = System.nanoTime() - beforeParallel;
+
+      assertEquals(sequentialHash, parallelHash);
+      System.out.println(
+          String.format(
+              "%d dirty keys: sequential %d ms, parallel %d ms, speedup %.2fx",
+              size,
+              sequentialTime / 1000000,
+              parallelTime / 1000000,
+              (double) sequentialTime / parallelTime));
+    }
+  }
 }
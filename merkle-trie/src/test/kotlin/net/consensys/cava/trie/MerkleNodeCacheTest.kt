@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+internal class MerkleNodeCacheTest {
+
+  @Test
+  fun shouldReturnCachedContent() {
+    val cache = MerkleNodeCache(1024)
+    val hash = Bytes32.random()
+    cache.put(hash, Bytes.of(1, 2, 3))
+    assertEquals(Bytes.of(1, 2, 3), cache.get(hash))
+    assertNull(cache.get(Bytes32.random()))
+    assertEquals(1L, cache.hitCount())
+    assertEquals(1L, cache.missCount())
+  }
+
+  @Test
+  fun shouldEvictWhenOverBudget() {
+    val cache = MerkleNodeCache(4096)
+    val content = Bytes.wrap(ByteArray(100))
+    for (i in 0 until 1000) {
+      cache.put(Bytes32.random(), content)
+    }
+    assertTrue(cache.size() < 1000)
+    assertTrue(cache.evictionCount() > 0)
+    assertTrue(cache.bytes() <= 4096)
+  }
+
+  @Test
+  fun shouldNotCountReplacedContent() {
+    val cache = MerkleNodeCache(4096)
+    val hash = Bytes32.random()
+    cache.put(hash, Bytes.of(1, 2, 3))
+    val bytes = cache.bytes()
+    cache.put(hash, Bytes.of(1, 2, 3))
+    assertEquals(bytes, cache.bytes())
+    cache.clear()
+    assertEquals(0L, cache.bytes())
+  }
+}
@@ -12,10 +12,15 @@
  */
 package net.consensys.cava.trie
 
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.toList
 import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
 import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
 import net.consensys.cava.junit.BouncyCastleExtension
 import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
 import org.junit.jupiter.api.Assertions.assertNotEquals
 import org.junit.jupiter.api.Assertions.assertNull
 import org.junit.jupiter.api.BeforeEach
@@ -262,4 +267,60 @@ internal class MerklePatriciaTrieKotlinTest {
       assertEquals(hash1, trie.rootHash())
     }
   }
+
+  @Test
+  fun testParallelHashingMatchesSequentialHashing() {
+    val sequential = MerklePatriciaTrie.storingStrings()
+    val parallel = MerklePatriciaTrie.storingStrings()
+    parallel.parallelHashing = true
+    runBlocking {
+      for (i in 0 until 1000) {
+        val key = Bytes32.random()
+        sequential.put(key, "value$i")
+        parallel.put(key, "value$i")
+      }
+    }
+    assertEquals(sequential.rootHash(), parallel.rootHash())
+  }
+
+  @Test
+  fun testEntriesAreReturnedInKeyOrder() {
+    val keys = listOf(Bytes.of(1, 5, 9), Bytes.of(1, 5), Bytes.EMPTY, Bytes.of(0xfe, 2), Bytes.of(1, 6), Bytes.of(3))
+    val entries = runBlocking {
+      for (key in keys) {
+        trie.put(key, "value$key")
+      }
+      (trie as MerklePatriciaTrie<String>).entries().toList()
+    }
+    val expected = listOf(Bytes.EMPTY, Bytes.of(1, 5), Bytes.of(1, 5, 9), Bytes.of(1, 6), Bytes.of(3), Bytes.of(0xfe, 2))
+    assertEquals(expected, entries.map { it.first })
+    assertEquals(expected.map { "value$it" }, entries.map { it.second })
+  }
+
+  @Test
+  fun testEntriesWithinRange() {
+    val entries = runBlocking {
+      for (i in 0 until 100) {
+        trie.put(Bytes.of(i, 1), "value$i")
+      }
+      (trie as MerklePatriciaTrie<String>).entries(Bytes.of(10), Bytes.of(20, 1)).toList()
+    }
+    assertEquals((10 until 20).map { Bytes.of(it, 1) }, entries.map { it.first })
+  }
+
+  @Test
+  fun testClosingEntryIteratorStopsReadingEntries() {
+    runBlocking {
+      for (i in 0 until 1000) {
+        trie.put(Bytes.ofUnsignedShort(i), "value$i")
+      }
+    }
+    val channel = (trie as MerklePatriciaTrie<String>).entries()
+    val iterator = BlockingEntryIterator(channel)
+    assertEquals(Bytes.ofUnsignedShort(0), iterator.next().key)
+    iterator.close()
+    assertFalse(iterator.hasNext())
+    // the channel is produced by a coroutine, which completes rather than waiting for the entries to be consumed
+    runBlocking { withTimeout(10000) { (channel as Job).join() } }
+  }
 }
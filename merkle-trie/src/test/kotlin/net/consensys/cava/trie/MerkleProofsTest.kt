@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import kotlinx.coroutines.runBlocking
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
+import net.consensys.cava.junit.BouncyCastleExtension
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+
+@ExtendWith(BouncyCastleExtension::class)
+internal class MerkleProofsTest {
+
+  private lateinit var trie: MerklePatriciaTrie<String>
+  private lateinit var keys: List<Bytes32>
+
+  @BeforeEach
+  fun setup() {
+    trie = MerklePatriciaTrie.storingStrings()
+    keys = (0 until 200).map { Bytes32.random() }
+    runBlocking {
+      for ((i, key) in keys.withIndex()) {
+        trie.put(key, "value$i")
+      }
+    }
+  }
+
+  @Test
+  fun shouldVerifyProofOfPresentKey() {
+    val proof = runBlocking { trie.getProof(keys[7]) }
+    assertEquals(Bytes.wrap("value7".toByteArray()), MerkleProofs.verify(trie.rootHash(), keys[7], proof))
+  }
+
+  @Test
+  fun shouldVerifyProofOfAbsentKey() {
+    val key = Bytes32.random()
+    val proof = runBlocking { trie.getProof(key) }
+    assertNull(MerkleProofs.verify(trie.rootHash(), key, proof))
+  }
+
+  @Test
+  fun shouldRejectProofForDifferentRoot() {
+    val proof = runBlocking { trie.getProof(keys[7]) }
+    assertThrows(IllegalArgumentException::class.java) { MerkleProofs.verify(Bytes32.random(), keys[7], proof) }
+  }
+
+  @Test
+  fun shouldRejectIncompleteProof() {
+    val proof = runBlocking { trie.getProof(keys[7]) }
+    assertThrows(IllegalArgumentException::class.java) {
+      MerkleProofs.verify(trie.rootHash(), keys[7], proof.subList(0, proof.size - 1))
+    }
+  }
+
+  @Test
+  fun shouldShareNodesInMultiKeyProof() {
+    val proven = keys.subList(0, 100)
+    val proof = runBlocking { trie.getProof(proven) }
+    val separateProofSize = runBlocking { proven.map { trie.getProof(it).size }.sum() }
+    assertTrue(proof.size < separateProofSize)
+    assertEquals(proof.size, proof.toSet().size)
+
+    val values = MerkleProofs.verify(trie.rootHash(), proven, proof)
+    for ((i, key) in proven.withIndex()) {
+      assertEquals(Bytes.wrap("value$i".toByteArray()), values[key])
+    }
+  }
+
+  @Test
+  fun shouldProduceSameProofFromStoredTrie() {
+    val storage = HashMap<Bytes32, Bytes>()
+    val storedTrie = StoredMerklePatriciaTrie.storingStrings(object : MerkleStorage {
+      override suspend fun get(hash: Bytes32): Bytes? = storage[hash]
+
+      override suspend fun put(hash: Bytes32, content: Bytes) {
+        storage[hash] = content
+      }
+    })
+    runBlocking {
+      for ((i, key) in keys.withIndex()) {
+        storedTrie.put(key, "value$i")
+      }
+    }
+    val reloaded = StoredMerklePatriciaTrie.storingStrings(object : MerkleStorage {
+      override suspend fun get(hash: Bytes32): Bytes? = storage[hash]
+
+      override suspend fun put(hash: Bytes32, content: Bytes) {
+        storage[hash] = content
+      }
+    }, storedTrie.rootHash())
+
+    runBlocking {
+      assertEquals(trie.getProof(keys[3]), reloaded.getProof(keys[3]))
+    }
+  }
+}
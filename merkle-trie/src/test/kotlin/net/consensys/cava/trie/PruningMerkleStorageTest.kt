@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import kotlinx.coroutines.runBlocking
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.junit.BouncyCastleExtension
+import net.consensys.cava.kv.MapKeyValueStore
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+
+@ExtendWith(BouncyCastleExtension::class)
+internal class PruningMerkleStorageTest {
+
+  private lateinit var map: MutableMap<Bytes, Bytes>
+  private lateinit var storage: PruningMerkleStorage
+
+  @BeforeEach
+  fun setup() {
+    map = HashMap()
+    storage = PruningMerkleStorage(MapKeyValueStore(map))
+  }
+
+  @Test
+  fun shouldNotPruneBeforeRootIsRetained() {
+    runBlocking {
+      val trie = StoredMerklePatriciaTrie.storingStrings(storage)
+      for (i in 0 until 100) {
+        trie.put(key(i), "value$i")
+      }
+      val size = map.size
+      assertEquals(0L, storage.prune())
+      assertEquals(size, map.size)
+      assertTrue(storage.pendingCandidates() > 0)
+    }
+  }
+
+  @Test
+  fun shouldPruneNodesOnlyReachableFromReleasedRoots() {
+    runBlocking {
+      val trie = StoredMerklePatriciaTrie.storingStrings(storage)
+      for (i in 0 until 100) {
+        trie.put(key(i), "value$i")
+      }
+      val root1 = trie.rootHash()
+      storage.retain(root1)
+      // intermediate roots written by each update are no longer referenced
+      assertTrue(storage.prune() > 0)
+      val reclaimedBytes = storage.bytesReclaimed()
+      for (i in 0 until 100) {
+        assertEquals("value$i", StoredMerklePatriciaTrie.storingStrings(storage, root1).get(key(i)))
+      }
+
+      for (i in 0 until 10) {
+        trie.put(key(i), "updated$i")
+      }
+      val root2 = trie.rootHash()
+      storage.release(root1)
+      storage.retain(root2)
+      assertTrue(storage.prune() > 0)
+      assertTrue(storage.bytesReclaimed() > reclaimedBytes)
+      assertTrue(storage.nodesReclaimed() > 0)
+
+      val reloaded = StoredMerklePatriciaTrie.storingStrings(storage, root2)
+      for (i in 0 until 100) {
+        assertEquals(if (i < 10) "updated$i" else "value$i", reloaded.get(key(i)))
+      }
+      assertThrows(MerkleStorageException::class.java) {
+        runBlocking { StoredMerklePatriciaTrie.storingStrings(storage, root1).get(key(0)) }
+      }
+    }
+  }
+
+  @Test
+  fun shouldKeepRootUntilReleasedAsOftenAsRetained() {
+    runBlocking {
+      val trie = StoredMerklePatriciaTrie.storingStrings(storage)
+      for (i in 0 until 100) {
+        trie.put(key(i), "value$i")
+      }
+      val root = trie.rootHash()
+      storage.retain(root)
+      storage.retain(root)
+      storage.release(root)
+      // unreferenced nodes are removed over several passes, as removing a node only makes its children candidates
+      do {
+        storage.retain(root)
+        storage.release(root)
+      } while (storage.prune() > 0)
+
+      val reloaded = StoredMerklePatriciaTrie.storingStrings(storage, root)
+      for (i in 0 until 100) {
+        assertEquals("value$i", reloaded.get(key(i)))
+      }
+    }
+  }
+
+  private fun key(i: Int): Bytes = Bytes.wrap("key$i".toByteArray())
+}
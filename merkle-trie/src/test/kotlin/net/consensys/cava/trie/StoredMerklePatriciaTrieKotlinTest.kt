@@ -12,13 +12,16 @@
  */
 package net.consensys.cava.trie
 
+import kotlinx.coroutines.channels.toList
 import kotlinx.coroutines.runBlocking
 import net.consensys.cava.bytes.Bytes
 import net.consensys.cava.bytes.Bytes32
 import net.consensys.cava.junit.BouncyCastleExtension
 import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
 import org.junit.jupiter.api.Assertions.assertNotEquals
 import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.extension.ExtendWith
@@ -321,4 +324,205 @@ internal class StoredMerklePatriciaTrieKotlinTest {
       assertEquals("value3", trie3.get(key3))
     }
   }
+
+  @Test
+  fun testBatchDoesNotWriteUntilCommit() {
+    runBlocking {
+      trie.beginBatch()
+      trie.put(Bytes.of(1, 5, 8, 9), "value1")
+      trie.put(Bytes.of(1, 6, 1, 2), "value2")
+      trie.put(Bytes.of(1, 6, 1, 3), "value3")
+      assertEquals("value2", trie.get(Bytes.of(1, 6, 1, 2)))
+      assertTrue(storage.isEmpty())
+
+      val hash = trie.commit()
+      assertEquals(hash, trie.rootHash())
+      assertFalse(storage.isEmpty())
+      assertFalse(trie.inBatch())
+    }
+  }
+
+  @Test
+  fun testBatchCommitMatchesUnbatchedRootHash() {
+    val unbatched = StoredMerklePatriciaTrie.storingStrings(merkleStorage)
+    runBlocking {
+      trie.beginBatch()
+      for (i in 0 until 100) {
+        val key = Bytes.of(i, i / 3, i / 7)
+        trie.put(key, "value$i")
+        unbatched.put(key, "value$i")
+      }
+      trie.remove(Bytes.of(3, 1, 0))
+      unbatched.remove(Bytes.of(3, 1, 0))
+      assertEquals(unbatched.rootHash(), trie.commit())
+    }
+  }
+
+  @Test
+  fun testBatchWritesOnlyReachableNodes() {
+    val unbatchedStorage = mutableMapOf<Bytes32, Bytes>()
+    val unbatched = StoredMerklePatriciaTrie.storingStrings(object : MerkleStorage {
+      override suspend fun get(hash: Bytes32): Bytes? = unbatchedStorage[hash]
+
+      override suspend fun put(hash: Bytes32, content: Bytes) {
+        unbatchedStorage[hash] = content
+      }
+    })
+    runBlocking {
+      trie.beginBatch()
+      for (i in 0 until 100) {
+        trie.put(Bytes.of(i, 1, 2, 3), "a value that is long enough to be stored $i")
+        unbatched.put(Bytes.of(i, 1, 2, 3), "a value that is long enough to be stored $i")
+      }
+      trie.commit()
+    }
+    assertTrue(storage.size < unbatchedStorage.size)
+  }
+
+  @Test
+  fun testBatchRollback() {
+    val key1 = Bytes.of(1, 5, 8, 9)
+    val key2 = Bytes.of(1, 6, 1, 2)
+    runBlocking {
+      trie.put(key1, "value1")
+      val hash = trie.rootHash()
+      val stored = storage.size
+
+      trie.beginBatch()
+      trie.put(key1, "value2")
+      trie.put(key2, "value3")
+      trie.rollback()
+
+      assertEquals(hash, trie.rootHash())
+      assertEquals("value1", trie.get(key1))
+      assertNull(trie.get(key2))
+      assertEquals(stored, storage.size)
+    }
+  }
+
+  @Test
+  fun testCanReloadTrieFromBatchCommit() {
+    val key1 = Bytes.of(1, 5, 8, 9)
+    val key2 = Bytes.of(1, 6, 1, 2)
+    val key3 = Bytes.of(1, 6, 1, 3)
+    val hash1 = runBlocking {
+      trie.beginBatch()
+      trie.put(key1, "value1")
+      trie.put(key2, "value2")
+      trie.commit()
+    }
+    val hash2 = runBlocking {
+      trie.beginBatch()
+      trie.put(key3, "value3")
+      trie.commit()
+    }
+
+    val trie1 = StoredMerklePatriciaTrie.storingStrings(merkleStorage, hash1)
+    runBlocking {
+      assertEquals("value1", trie1.get(key1))
+      assertEquals("value2", trie1.get(key2))
+      assertNull(trie1.get(key3))
+    }
+
+    val trie2 = StoredMerklePatriciaTrie.storingStrings(merkleStorage, hash2)
+    runBlocking {
+      assertEquals("value1", trie2.get(key1))
+      assertEquals("value2", trie2.get(key2))
+      assertEquals("value3", trie2.get(key3))
+    }
+  }
+
+  @Test
+  fun testSharedNodeCacheAvoidsStorageReads() {
+    val cache = MerkleNodeCache(1024 * 1024)
+    var reads = 0
+    val countingStorage = object : MerkleStorage {
+      override suspend fun get(hash: Bytes32): Bytes? {
+        reads++
+        return storage[hash]
+      }
+
+      override suspend fun put(hash: Bytes32, content: Bytes) {
+        storage[hash] = content
+      }
+    }
+    val trie1 = StoredMerklePatriciaTrie(countingStorage, ::stringSerializer, ::stringDeserializer, cache)
+    runBlocking {
+      for (i in 0 until 50) {
+        trie1.put(Bytes.of(i, 1, 2, 3), "a value that is long enough to be stored $i")
+      }
+    }
+
+    val trie2 = StoredMerklePatriciaTrie(
+      countingStorage,
+      trie1.rootHash(),
+      ::stringSerializer,
+      ::stringDeserializer,
+      cache
+    )
+    runBlocking {
+      for (i in 0 until 50) {
+        assertEquals("a value that is long enough to be stored $i", trie2.get(Bytes.of(i, 1, 2, 3)))
+      }
+    }
+    assertEquals(0, reads)
+    assertTrue(cache.hitCount() > 0)
+  }
+
+  @Test
+  fun testParallelBatchCommitMatchesSequentialCommit() {
+    val parallel = StoredMerklePatriciaTrie.storingStrings(merkleStorage)
+    parallel.parallelHashing = true
+    runBlocking {
+      trie.beginBatch()
+      parallel.beginBatch()
+      for (i in 0 until 1000) {
+        val key = Bytes32.random()
+        trie.put(key, "value$i")
+        parallel.put(key, "value$i")
+      }
+      assertEquals(trie.rootHash(), parallel.rootHash())
+      assertEquals(trie.commit(), parallel.commit())
+    }
+
+    val reloaded = StoredMerklePatriciaTrie.storingStrings(merkleStorage, parallel.rootHash())
+    assertEquals(trie.rootHash(), reloaded.rootHash())
+  }
+
+  @Test
+  fun testEntriesAreReturnedInKeyOrder() {
+    val keys = listOf(Bytes.of(1, 5, 9), Bytes.of(1, 5), Bytes.EMPTY, Bytes.of(0xfe, 2), Bytes.of(1, 6), Bytes.of(3))
+    val entries = runBlocking {
+      for (key in keys) {
+        trie.put(key, "value$key")
+      }
+      trie.entries().toList()
+    }
+    val expected = listOf(Bytes.EMPTY, Bytes.of(1, 5), Bytes.of(1, 5, 9), Bytes.of(1, 6), Bytes.of(3), Bytes.of(0xfe, 2))
+    assertEquals(expected, entries.map { it.first })
+    assertEquals(expected.map { "value$it" }, entries.map { it.second })
+  }
+
+  @Test
+  fun testEntriesWithinRange() {
+    val entries = runBlocking {
+      for (i in 0 until 100) {
+        trie.put(Bytes.of(i, 1), "value$i")
+      }
+      trie.entries(Bytes.of(10), Bytes.of(20, 1)).toList()
+    }
+    assertEquals((10 until 20).map { Bytes.of(it, 1) }, entries.map { it.first })
+  }
+
+  @Test
+  fun testEntriesAreLoadedFromStorage() {
+    runBlocking {
+      for (i in 0 until 100) {
+        trie.put(Bytes.of(i, 1, 2, 3), "a value that is long enough to be stored $i")
+      }
+    }
+    val reloaded = StoredMerklePatriciaTrie.storingStrings(merkleStorage, trie.rootHash())
+    val entries = runBlocking { reloaded.entries(Bytes.of(50)).toList() }
+    assertEquals((50 until 100).map { Bytes.of(it, 1, 2, 3) }, entries.map { it.first })
+  }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.trie
+
+import com.google.common.primitives.UnsignedBytes
+import kotlinx.coroutines.runBlocking
+import net.consensys.cava.bytes.Bytes
+import net.consensys.cava.bytes.Bytes32
+import net.consensys.cava.junit.BouncyCastleExtension
+import net.consensys.cava.trie.MerkleTrie.Companion.EMPTY_TRIE_ROOT_HASH
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+import java.util.Random
+import java.util.TreeMap
+
+@ExtendWith(BouncyCastleExtension::class)
+internal class StoredMerkleTrieBuilderTest {
+
+  private lateinit var storage: MutableMap<Bytes32, Bytes>
+  private var writes = 0
+  private val merkleStorage = object : MerkleStorage {
+    override suspend fun get(hash: Bytes32): Bytes? = storage[hash]
+
+    override suspend fun put(hash: Bytes32, content: Bytes) {
+      writes++
+      storage[hash] = content
+    }
+  }
+
+  @BeforeEach
+  fun setup() {
+    storage = mutableMapOf()
+    writes = 0
+  }
+
+  @Test
+  fun shouldBuildEmptyTrie() {
+    runBlocking {
+      assertEquals(EMPTY_TRIE_ROOT_HASH, StoredMerkleTrieBuilder.storingStrings(merkleStorage).build())
+    }
+  }
+
+  @Test
+  fun shouldBuildSingleEntryTrie() {
+    runBlocking {
+      val builder = StoredMerkleTrieBuilder.storingStrings(merkleStorage)
+      builder.add(Bytes.of(1, 2, 3), "value")
+      val rootHash = builder.build()
+
+      val trie = MerklePatriciaTrie.storingStrings()
+      trie.put(Bytes.of(1, 2, 3), "value")
+      assertEquals(trie.rootHash(), rootHash)
+      assertEquals("value", StoredMerklePatriciaTrie.storingStrings(merkleStorage, rootHash).get(Bytes.of(1, 2, 3)))
+    }
+  }
+
+  @Test
+  fun shouldBuildSameTrieAsUpdates() {
+    runBlocking {
+      val random = Random(42)
+      val comparator = UnsignedBytes.lexicographicalComparator()
+      val entries = TreeMap<Bytes, String>(Comparator { a, b ->
+        comparator.compare(a.toArrayUnsafe(), b.toArrayUnsafe())
+      })
+      for (i in 0 until 2000) {
+        val key = ByteArray(1 + random.nextInt(6))
+        random.nextBytes(key)
+        entries[Bytes.wrap(key)] = "value$i"
+      }
+      // include keys that are prefixes of other keys
+      entries[Bytes.of(1)] = "one"
+      entries[Bytes.of(1, 2)] = "one-two"
+      entries[Bytes.of(1, 2, 3)] = "one-two-three"
+
+      val trie = MerklePatriciaTrie.storingStrings()
+      val builder = StoredMerkleTrieBuilder(merkleStorage, ::stringSerializer, 16)
+      for ((key, value) in entries) {
+        trie.put(key, value)
+        builder.add(key, value)
+      }
+      val rootHash = builder.build()
+      assertEquals(trie.rootHash(), rootHash)
+      assertEquals(builder.nodesWritten(), writes.toLong())
+
+      val stored = StoredMerklePatriciaTrie.storingStrings(merkleStorage, rootHash)
+      for ((key, value) in entries) {
+        assertEquals(value, stored.get(key))
+      }
+    }
+  }
+
+  @Test
+  fun shouldWriteFewerNodesThanUpdates() {
+    runBlocking {
+      val builder = StoredMerkleTrieBuilder.storingStrings(merkleStorage)
+      for (i in 0 until 1000) {
+        builder.add(Bytes.ofUnsignedInt(i.toLong()), "value$i")
+      }
+      builder.build()
+      val builderWrites = writes
+
+      writes = 0
+      val trie = StoredMerklePatriciaTrie.storingStrings(merkleStorage)
+      for (i in 0 until 1000) {
+        trie.put(Bytes.ofUnsignedInt(i.toLong()), "value$i")
+      }
+      assertTrue(builderWrites < writes)
+    }
+  }
+
+  @Test
+  fun shouldRejectKeysOutOfOrder() {
+    runBlocking {
+      val builder = StoredMerkleTrieBuilder.storingStrings(merkleStorage)
+      builder.add(Bytes.of(1, 2), "value")
+      assertThrows(IllegalArgumentException::class.java) { runBlocking { builder.add(Bytes.of(1), "value") } }
+      assertThrows(IllegalArgumentException::class.java) { runBlocking { builder.add(Bytes.of(1, 2), "value") } }
+    }
+  }
+}
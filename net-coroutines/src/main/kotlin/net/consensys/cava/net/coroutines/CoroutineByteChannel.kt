@@ -12,6 +12,7 @@
  */
 package net.consensys.cava.net.coroutines
 
+import net.consensys.cava.bytes.Bytes
 import java.io.IOException
 import java.nio.ByteBuffer
 import java.nio.channels.AsynchronousCloseException
@@ -301,9 +302,43 @@ internal class GatheringCoroutineByteChannelMixin<T>(
   override fun tryWrite(srcs: Array<ByteBuffer>, offset: Int, length: Int): Long = channel.write(srcs, offset, length)
 }
 
+/**
+ * Writes all the bytes of a value to this channel.
+ *
+ * The value is written from its [Bytes.asByteBuffers] segments, so values that are composed of several parts are not
+ * copied into a single buffer before being written. When this channel is a [GatheringCoroutineByteChannel], all the
+ * segments are passed to the channel in each write.
+ *
+ * This method will suspend until all bytes have been written to the channel, or an error occurs.
+ *
+ * @param bytes The bytes to write.
+ * @return The number of bytes written.
+ * @throws NonWritableChannelException If this channel was not opened for writing.
+ * @throws ClosedChannelException If the channel is closed.
+ * @throws AsynchronousCloseException If another thread closes this channel while the write operation is in progress.
+ * @throws ClosedByInterruptException If another thread interrupts the current thread while the write operation is
+ *   in progress, thereby closing the channel and setting the current thread's interrupt status.
+ * @throws IOException If some other I/O error occurs.
+ */
+suspend fun WritableCoroutineByteChannel.writeFully(bytes: Bytes): Long {
+  val srcs = bytes.asByteBuffers()
+  var written = 0L
+  var offset = 0
+  while (offset < srcs.size) {
+    if (!srcs[offset].hasRemaining()) {
+      offset++
+    } else if (this is GatheringCoroutineByteChannel) {
+      written += write(srcs, offset, srcs.size - offset)
+    } else {
+      written += write(srcs[offset])
+    }
+  }
+  return written
+}
+
 private fun buffersAreEmpty(buffers: Array<ByteBuffer>, offset: Int, length: Int): Boolean {
-  while (offset < length) {
-    if (buffers[offset].remaining() != 0) {
+  for (i in offset until offset + length) {
+    if (buffers[i].remaining() != 0) {
       return false
     }
   }
@@ -14,7 +14,9 @@ package net.consensys.cava.net.coroutines
 
 import kotlinx.coroutines.async
 import kotlinx.coroutines.runBlocking
+import net.consensys.cava.bytes.Bytes
 import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Assertions.assertArrayEquals
 import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.Assertions.assertNotNull
 import org.junit.jupiter.api.Assertions.assertTrue
@@ -134,4 +136,38 @@ internal class CoroutineSocketChannelTest {
     serverJob.await()
     clientJob.await()
   }
+
+  @Test
+  fun shouldWriteSegmentedBytes() = runBlocking {
+    val listenChannel = CoroutineServerSocketChannel.open()
+    listenChannel.bind(null)
+    val addr = InetSocketAddress(InetAddress.getLocalHost(), (listenChannel.localAddress as InetSocketAddress).port)
+
+    val payload = ByteArray(256 * 1024) { i -> i.toByte() }
+    val bytes = Bytes.wrap(
+      Bytes.wrap(payload, 0, 17),
+      Bytes.wrapByteBuffer(ByteBuffer.wrap(payload), 17, 100000),
+      Bytes.wrap(payload, 100017, payload.size - 100017)
+    )
+
+    val serverJob = async {
+      val serverChannel = listenChannel.accept()
+      val dst = ByteBuffer.allocate(payload.size)
+      while (dst.hasRemaining()) {
+        assertTrue(serverChannel.read(dst) >= 0)
+      }
+      assertArrayEquals(payload, dst.array())
+      serverChannel.close()
+    }
+
+    val clientJob = async {
+      val clientChannel = CoroutineSocketChannel.open()
+      clientChannel.connect(addr)
+      assertEquals(payload.size.toLong(), clientChannel.writeFully(bytes))
+      clientChannel.close()
+    }
+
+    serverJob.await()
+    clientJob.await()
+  }
 }
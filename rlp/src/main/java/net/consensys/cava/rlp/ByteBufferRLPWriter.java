@@ -14,14 +14,12 @@ package net.consensys.cava.rlp;
 
 import static java.util.Objects.requireNonNull;
 import static net.consensys.cava.rlp.RLP.encodeByteArray;
-import static net.consensys.cava.rlp.RLP.encodeLength;
 import static net.consensys.cava.rlp.RLP.encodeNumber;
 
 import net.consensys.cava.bytes.Bytes;
 
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
-import java.util.Deque;
 import java.util.function.Consumer;
 
 final class ByteBufferRLPWriter implements RLPWriter {
@@ -60,21 +58,42 @@ final class ByteBufferRLPWriter implements RLPWriter {
   @Override
   public void writeList(Consumer<RLPWriter> fn) {
     requireNonNull(fn);
-    AccumulatingRLPWriter listWriter = new AccumulatingRLPWriter();
-    fn.accept(listWriter);
-    writeEncodedValuesAsList(listWriter.values());
-  }
-
-  private void writeEncodedValuesAsList(Deque<byte[]> values) {
-    int totalSize = 0;
-    for (byte[] value : values) {
-      try {
-        totalSize = Math.addExact(totalSize, value.length);
-      } catch (ArithmeticException e) {
+    int start = buffer.position();
+    try {
+      // reserve a single byte for the header, which is enough unless the list is longer than 55 bytes
+      buffer.put((byte) 0);
+      fn.accept(this);
+      int length = buffer.position() - start - 1;
+      if (length <= 55) {
+        buffer.put(start, (byte) (0xc0 + length));
+        return;
+      }
+      int lengthOfLength = 4 - (Integer.numberOfLeadingZeros(length) / 8);
+      if (buffer.remaining() < lengthOfLength) {
         throw new BufferOverflowException();
       }
+      moveRight(start + 1, length, lengthOfLength);
+      buffer.put(start, (byte) (0xf7 + lengthOfLength));
+      for (int i = 0; i < lengthOfLength; ++i) {
+        buffer.put(start + 1 + i, (byte) (length >> ((lengthOfLength - 1 - i) * 8)));
+      }
+      buffer.position(start + 1 + lengthOfLength + length);
+    } catch (BufferOverflowException e) {
+      buffer.position(start);
+      throw e;
+    }
+  }
+
+  // move content within the buffer to make room for a longer header
+  private void moveRight(int offset, int length, int distance) {
+    if (buffer.hasArray()) {
+      byte[] array = buffer.array();
+      int arrayOffset = buffer.arrayOffset() + offset;
+      System.arraycopy(array, arrayOffset, array, arrayOffset + distance, length);
+      return;
+    }
+    for (int i = offset + length - 1; i >= offset; --i) {
+      buffer.put(i + distance, buffer.get(i));
     }
-    buffer.put(encodeLength(totalSize, 0xc0));
-    values.forEach(bytes -> buffer.put(bytes));
   }
 }
@@ -105,6 +105,13 @@ final class BytesRLPReader implements RLPReader {
     return fn.apply(new BytesRLPReader(readList(lenient), lenient));
   }
 
+  @Override
+  public Bytes readRLP(boolean lenient) {
+    int start = index;
+    skipNext(lenient);
+    return content.slice(start, index - start);
+  }
+
   @Override
   public void skipNext(boolean lenient) {
     int remaining = content.size() - index;
@@ -12,21 +12,218 @@
  */
 package net.consensys.cava.rlp;
 
+import static java.util.Objects.requireNonNull;
+
 import net.consensys.cava.bytes.Bytes;
+import net.consensys.cava.bytes.MutableBytes;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * An {@link RLPWriter} that encodes into a single growable buffer.
+ *
+ * <p>
+ * The length of a list is not known until all of its items have been written, so list headers are not written into
+ * the buffer. Instead, the offset of each list's payload is recorded in the order the lists were started, along with
+ * the payload length once the list is complete. The headers are then inserted between the buffered segments when the
+ * encoding is output, so each encoded byte is copied only once.
+ */
+final class BytesRLPWriter implements RLPWriter {
+
+  private static final int INITIAL_CAPACITY = 256;
+  private static final int INITIAL_LIST_CAPACITY = 8;
+
+  private byte[] buffer = new byte[INITIAL_CAPACITY];
+  private MutableBytes bufferBytes = MutableBytes.wrap(buffer);
+  private int size;
 
-import java.util.Deque;
+  // the offset of each list's payload in the buffer and the length of the payload (including the headers of any
+  // nested lists), in the order the lists were started
+  private int[] listOffsets = new int[INITIAL_LIST_CAPACITY];
+  private int[] listLengths = new int[INITIAL_LIST_CAPACITY];
+  private int listCount;
+  // the total length of the list headers that will be inserted on output
+  private int headersLength;
 
-final class BytesRLPWriter extends DelegatingRLPWriter<AccumulatingRLPWriter> {
+  @Override
+  public void writeRLP(Bytes value) {
+    requireNonNull(value);
+    appendBytes(value);
+  }
+
+  @Override
+  public void writeValue(Bytes value) {
+    requireNonNull(value);
+    int length = value.size();
+    if (length == 1 && (value.get(0) & 0xFF) <= 0x7f) {
+      appendByte(value.get(0));
+      return;
+    }
+    appendLength(length, 0x80);
+    appendBytes(value);
+  }
+
+  @Override
+  public void writeByteArray(byte[] value) {
+    requireNonNull(value);
+    int length = value.length;
+    if (length == 1 && (value[0] & 0xFF) <= 0x7f) {
+      appendByte(value[0]);
+      return;
+    }
+    appendLength(length, 0x80);
+    ensureCapacity(length);
+    System.arraycopy(value, 0, buffer, size, length);
+    size += length;
+  }
+
+  @Override
+  public void writeByte(byte value) {
+    if ((value & 0xFF) > 0x7f) {
+      appendByte((byte) 0x81);
+    }
+    appendByte(value);
+  }
+
+  @Override
+  public void writeLong(long value) {
+    if (value == 0) {
+      appendByte((byte) 0x80);
+      return;
+    }
+    if (value <= 0x7f) {
+      appendByte((byte) (value & 0xFF));
+      return;
+    }
+    int length = 8 - (Long.numberOfLeadingZeros(value) / 8);
+    ensureCapacity(length + 1);
+    buffer[size++] = (byte) (0x80 + length);
+    for (int shift = (length - 1) * 8; shift >= 0; shift -= 8) {
+      buffer[size++] = (byte) ((value >> shift) & 0xFF);
+    }
+  }
+
+  @Override
+  public void writeList(Consumer<RLPWriter> fn) {
+    requireNonNull(fn);
+    if (listCount == listOffsets.length) {
+      listOffsets = Arrays.copyOf(listOffsets, listCount * 2);
+      listLengths = Arrays.copyOf(listLengths, listCount * 2);
+    }
+    int index = listCount++;
+    int offset = size;
+    int nestedHeadersLength = headersLength;
+    listOffsets[index] = offset;
+    fn.accept(this);
+    int length = checkedLength((long) (size - offset) + (headersLength - nestedHeadersLength));
+    listLengths[index] = length;
+    headersLength = checkedLength((long) headersLength + lengthOfLengthHeader(length));
+    checkedLength((long) size + headersLength);
+  }
 
-  BytesRLPWriter() {
-    super(new AccumulatingRLPWriter());
+  /**
+   * @return The length of the encoding.
+   */
+  int encodedLength() {
+    return size + headersLength;
   }
 
+  /**
+   * @return The encoding in a {@link Bytes} value.
+   */
   Bytes toBytes() {
-    Deque<byte[]> values = delegate.values();
-    if (values.isEmpty()) {
-      return Bytes.EMPTY;
+    if (listCount == 0) {
+      return size == 0 ? Bytes.EMPTY : Bytes.wrap(Arrays.copyOf(buffer, size));
+    }
+    ByteBuffer result = ByteBuffer.allocate(encodedLength());
+    writeTo(result);
+    return Bytes.wrap(result.array());
+  }
+
+  /**
+   * Write the encoding to a buffer, starting from its current position.
+   *
+   * @param out The buffer to write into.
+   * @throws BufferOverflowException If the buffer does not have enough space remaining for the encoding, in which case
+   *         nothing is written.
+   */
+  void writeTo(ByteBuffer out) {
+    if (out.remaining() < encodedLength()) {
+      throw new BufferOverflowException();
+    }
+    int position = 0;
+    for (int i = 0; i < listCount; ++i) {
+      int offset = listOffsets[i];
+      out.put(buffer, position, offset - position);
+      putLength(out, listLengths[i]);
+      position = offset;
+    }
+    out.put(buffer, position, size - position);
+  }
+
+  private void appendByte(byte b) {
+    ensureCapacity(1);
+    buffer[size++] = b;
+  }
+
+  private void appendBytes(Bytes bytes) {
+    int length = bytes.size();
+    ensureCapacity(length);
+    bytes.copyTo(bufferBytes, size);
+    size += length;
+  }
+
+  private void appendLength(int length, int offset) {
+    if (length <= 55) {
+      appendByte((byte) (offset + length));
+      return;
+    }
+    int lengthOfLength = lengthOfLengthHeader(length) - 1;
+    ensureCapacity(lengthOfLength + 1);
+    buffer[size++] = (byte) (offset + 55 + lengthOfLength);
+    for (int shift = (lengthOfLength - 1) * 8; shift >= 0; shift -= 8) {
+      buffer[size++] = (byte) ((length >> shift) & 0xFF);
+    }
+  }
+
+  private void ensureCapacity(int length) {
+    checkedLength((long) size + length + headersLength);
+    int required = size + length;
+    if (required <= buffer.length) {
+      return;
+    }
+    int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max((long) buffer.length * 2, required));
+    buffer = Arrays.copyOf(buffer, capacity);
+    bufferBytes = MutableBytes.wrap(buffer);
+  }
+
+  private static void putLength(ByteBuffer out, int length) {
+    if (length <= 55) {
+      out.put((byte) (0xc0 + length));
+      return;
+    }
+    int lengthOfLength = lengthOfLengthHeader(length) - 1;
+    out.put((byte) (0xf7 + lengthOfLength));
+    for (int shift = (lengthOfLength - 1) * 8; shift >= 0; shift -= 8) {
+      out.put((byte) ((length >> shift) & 0xFF));
+    }
+  }
+
+  // the number of bytes in the header for an item of the given length
+  private static int lengthOfLengthHeader(int length) {
+    if (length <= 55) {
+      return 1;
+    }
+    return 1 + 4 - (Integer.numberOfLeadingZeros(length) / 8);
+  }
+
+  private static int checkedLength(long length) {
+    if (length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Combined length of values is too long (> Integer.MAX_VALUE)");
     }
-    return Bytes.wrap(values.stream().map(Bytes::wrap).toArray(Bytes[]::new));
+    return (int) length;
   }
 }
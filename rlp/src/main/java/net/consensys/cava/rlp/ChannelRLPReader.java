@@ -0,0 +1,351 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.rlp;
+
+import net.consensys.cava.bytes.Bytes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.function.Function;
+
+/**
+ * An {@link RLPReader} that decodes RLP incrementally as it is read from a channel.
+ *
+ * <p>
+ * At most {@link #LOOKAHEAD_SIZE} bytes are read ahead of the current item. Lists are read in place from the channel
+ * rather than being buffered, and skipped items are discarded without being copied.
+ */
+final class ChannelRLPReader implements RLPReader {
+
+  static final int LOOKAHEAD_SIZE = 8192;
+
+  // the number of bytes remaining in an unbounded (top-level) reader
+  private static final long UNBOUNDED = -1;
+
+  private static final class Source {
+    private final ReadableByteChannel channel;
+    // buffered bytes, between position and limit
+    private final ByteBuffer buffer = ByteBuffer.allocate(LOOKAHEAD_SIZE);
+    private final int maxValueLength;
+
+    Source(ReadableByteChannel channel, int maxValueLength) {
+      this.channel = channel;
+      this.maxValueLength = maxValueLength;
+      buffer.flip();
+    }
+
+    // buffer at least n bytes (n <= LOOKAHEAD_SIZE), returning false if the end of the channel is reached first
+    boolean ensure(int n) {
+      if (buffer.remaining() >= n) {
+        return true;
+      }
+      buffer.compact();
+      try {
+        while (buffer.position() < n) {
+          if (channel.read(buffer) < 0) {
+            break;
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        buffer.flip();
+      }
+      return buffer.remaining() >= n;
+    }
+
+    byte peek(int offset) {
+      return buffer.get(buffer.position() + offset);
+    }
+
+    void consume(int n) {
+      buffer.position(buffer.position() + n);
+    }
+
+    Bytes read(int length) {
+      if (length <= buffer.remaining()) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return Bytes.wrap(bytes);
+      }
+      ByteBuffer bytes = ByteBuffer.allocate(length);
+      bytes.put(buffer);
+      try {
+        while (bytes.hasRemaining()) {
+          if (channel.read(bytes) < 0) {
+            throw new InvalidRLPEncodingException(
+                "Insufficient bytes in RLP encoding: expected " + length + " but have only " + bytes.position());
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return Bytes.wrap(bytes.array());
+    }
+
+    void skip(long length) {
+      int buffered = (int) Math.min(length, buffer.remaining());
+      consume(buffered);
+      long remaining = length - buffered;
+      if (remaining == 0) {
+        return;
+      }
+      try {
+        if (channel instanceof SeekableByteChannel) {
+          SeekableByteChannel seekable = (SeekableByteChannel) channel;
+          long available = seekable.size() - seekable.position();
+          if (available < remaining) {
+            throw new InvalidRLPEncodingException(
+                "Insufficient bytes in RLP encoding: expected " + length + " but have only " + (buffered + available));
+          }
+          seekable.position(seekable.position() + remaining);
+          return;
+        }
+        // the buffer is empty, so discard the remaining content through it
+        try {
+          while (remaining > 0) {
+            buffer.clear();
+            buffer.limit((int) Math.min(remaining, buffer.capacity()));
+            int n = channel.read(buffer);
+            if (n < 0) {
+              throw new InvalidRLPEncodingException(
+                  "Insufficient bytes in RLP encoding: expected " + length + " but have only " + (length - remaining));
+            }
+            remaining -= n;
+          }
+        } finally {
+          buffer.clear();
+          buffer.flip();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  // The header of the next item, where a single byte value has no header and a length of 1
+  private static final class Header {
+    final boolean isList;
+    final int headerLength;
+    final int length;
+
+    Header(boolean isList, int headerLength, int length) {
+      this.isList = isList;
+      this.headerLength = headerLength;
+      this.length = length;
+    }
+  }
+
+  private final Source source;
+  private final boolean lenient;
+  private long remaining;
+
+  ChannelRLPReader(ReadableByteChannel channel, boolean lenient, int maxValueLength) {
+    this(new Source(channel, maxValueLength), lenient, UNBOUNDED);
+  }
+
+  private ChannelRLPReader(Source source, boolean lenient, long remaining) {
+    this.source = source;
+    this.lenient = lenient;
+    this.remaining = remaining;
+  }
+
+  @Override
+  public boolean isLenient() {
+    return lenient;
+  }
+
+  @Override
+  public Bytes readValue(boolean lenient) {
+    Header header = readHeader(lenient);
+    if (header.isList) {
+      throw new InvalidRLPTypeException("Attempted to read a value but next item is a list");
+    }
+    if (header.headerLength == 0) {
+      // a single byte value, which is its own encoding
+      return consume(header, source.read(1));
+    }
+    source.consume(header.headerLength);
+    Bytes bytes = source.read(header.length);
+    if (!lenient && header.headerLength == 1 && header.length == 1 && (bytes.get(0) & 0xFF) <= 0x7f) {
+      throw new InvalidRLPEncodingException("Value should have been encoded as a single byte " + bytes.toHexString());
+    }
+    return consume(header, bytes);
+  }
+
+  @Override
+  public boolean nextIsList() {
+    return (peekPrefix() & 0xFF) > 0xbf;
+  }
+
+  @Override
+  public boolean nextIsEmpty() {
+    return (peekPrefix() & 0xFF) == 0x80;
+  }
+
+  @Override
+  public <T> T readList(boolean lenient, Function<RLPReader, T> fn) {
+    Header header = readHeader(lenient);
+    if (!header.isList) {
+      throw new InvalidRLPTypeException("Attempted to read a list but next item is a value");
+    }
+    source.consume(header.headerLength);
+    ChannelRLPReader listReader = new ChannelRLPReader(source, lenient, header.length);
+    T result = fn.apply(listReader);
+    // discard any items of the list that were not read
+    if (listReader.remaining > 0) {
+      source.skip(listReader.remaining);
+    }
+    consume(header, null);
+    return result;
+  }
+
+  @Override
+  public Bytes readRLP(boolean lenient) {
+    Header header = readHeader(lenient);
+    long itemLength = (long) header.headerLength + header.length;
+    // the whole item is buffered, so the limit applies to lists as well as values
+    if (itemLength > source.maxValueLength) {
+      throw new InvalidRLPEncodingException(
+          "RLP item length of " + itemLength + " exceeds the maximum length of " + source.maxValueLength);
+    }
+    return consume(header, source.read((int) itemLength));
+  }
+
+  @Override
+  public void skipNext(boolean lenient) {
+    Header header = readHeader(lenient);
+    source.skip((long) header.headerLength + header.length);
+    consume(header, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * Counting the remaining values requires them to be buffered, so this is only supported within a list that fits in
+   * the lookahead buffer.
+   *
+   * @throws UnsupportedOperationException If the remaining values cannot be buffered.
+   */
+  @Override
+  public int remaining() {
+    if (remaining == UNBOUNDED || remaining > LOOKAHEAD_SIZE) {
+      throw new UnsupportedOperationException("Cannot count values that do not fit in the lookahead buffer");
+    }
+    int size = (int) remaining;
+    if (!source.ensure(size)) {
+      throw new InvalidRLPEncodingException("Insufficient bytes in RLP encoding");
+    }
+    ByteBuffer content = source.buffer.duplicate();
+    content.limit(content.position() + size);
+    return RLP.decode(Bytes.wrapByteBuffer(content.slice()), lenient, RLPReader::remaining);
+  }
+
+  @Override
+  public boolean isComplete() {
+    if (remaining == UNBOUNDED) {
+      return !source.ensure(1);
+    }
+    return remaining == 0;
+  }
+
+  private byte peekPrefix() {
+    if (isComplete()) {
+      throw new EndOfRLPException();
+    }
+    if (!source.ensure(1)) {
+      throw new InvalidRLPEncodingException(
+          "Insufficient bytes in RLP encoding: expected " + remaining + " but reached the end of the source");
+    }
+    return source.peek(0);
+  }
+
+  private <T> T consume(Header header, T value) {
+    if (remaining != UNBOUNDED) {
+      remaining -= (long) header.headerLength + header.length;
+    }
+    return value;
+  }
+
+  // parse the header of the next item, without consuming it
+  private Header readHeader(boolean lenient) {
+    int prefix = peekPrefix() & 0xFF;
+    if (prefix <= 0x7f) {
+      return new Header(false, 0, 1);
+    }
+    if (prefix <= 0xb7) {
+      return checkLength(new Header(false, 1, prefix - 0x80));
+    }
+    if (prefix <= 0xbf) {
+      return checkLength(new Header(false, 1 + prefix - 0xb7, getLength(prefix - 0xb7, lenient, "value")));
+    }
+    if (prefix <= 0xf7) {
+      return checkLength(new Header(true, 1, prefix - 0xc0));
+    }
+    return checkLength(new Header(true, 1 + prefix - 0xf7, getLength(prefix - 0xf7, lenient, "list")));
+  }
+
+  private Header checkLength(Header header) {
+    // lists are not buffered, so only the length of values is limited
+    if (!header.isList && header.length > source.maxValueLength) {
+      throw new InvalidRLPEncodingException(
+          "RLP value length of " + header.length + " exceeds the maximum length of " + source.maxValueLength);
+    }
+    long itemLength = (long) header.headerLength + header.length;
+    if (remaining != UNBOUNDED && remaining < itemLength) {
+      throw new InvalidRLPEncodingException(
+          "Insufficient bytes in RLP encoding: expected " + itemLength + " but have only " + remaining);
+    }
+    return header;
+  }
+
+  private int getLength(int lengthOfLength, boolean lenient, String type) {
+    if (!source.ensure(1 + lengthOfLength)) {
+      throw new InvalidRLPEncodingException("Insufficient bytes in RLP encoding: expected " + lengthOfLength);
+    }
+    int i = 1;
+    if (!lenient) {
+      if (source.peek(i) == 0) {
+        throw new InvalidRLPEncodingException("RLP " + type + " length contains leading zero bytes");
+      }
+    } else {
+      while (i <= lengthOfLength && source.peek(i) == 0) {
+        i++;
+      }
+    }
+    int significant = lengthOfLength - i + 1;
+    if (significant == 0) {
+      throw new InvalidRLPEncodingException("RLP " + type + " length is zero");
+    }
+    // Check if the length is greater than a 4 byte integer
+    if (significant > 4) {
+      throw new InvalidRLPEncodingException("RLP " + type + " length is oversized");
+    }
+    int length = 0;
+    for (; i <= lengthOfLength; ++i) {
+      length = (length << 8) | (source.peek(i) & 0xFF);
+    }
+    if (length < 0) {
+      // Java ints are two's compliment, so this was oversized
+      throw new InvalidRLPEncodingException("RLP " + type + " length is oversized");
+    }
+    if (!lenient && length <= 55) {
+      throw new InvalidRLPEncodingException("RLP " + type + " length of " + length + " was not minimally encoded");
+    }
+    return length;
+  }
+}
@@ -18,10 +18,13 @@ import static java.util.Objects.requireNonNull;
 
 import net.consensys.cava.bytes.Bytes;
 
+import java.io.InputStream;
 import java.math.BigInteger;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ReadOnlyBufferException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -33,6 +36,11 @@ import java.util.function.Function;
 public final class RLP {
   private static final byte[] EMPTY_VALUE = new byte[] {(byte) 0x80};
 
+  /**
+   * The default maximum length of a value that will be read by a streaming reader.
+   */
+  public static final int DEFAULT_MAX_VALUE_LENGTH = 16 * 1024 * 1024;
+
   private RLP() {}
 
   /**
@@ -230,7 +238,7 @@ public final class RLP {
     return encodeByteArray(str.getBytes(UTF_8));
   }
 
-  static byte[] encodeLength(int length, int offset) {
+  private static byte[] encodeLength(int length, int offset) {
     if (length <= 55) {
       return new byte[] {(byte) ((offset + length) & 0xFF)};
     }
@@ -501,4 +509,57 @@ public final class RLP {
     checkArgument(value.size() > 0, "value is empty");
     return decode(value, RLPReader::nextIsList);
   }
+
+  /**
+   * Create a reader that decodes a sequence of RLP items incrementally as they are read from a channel.
+   *
+   * <p>
+   * Values with a length larger than {@link #DEFAULT_MAX_VALUE_LENGTH} are rejected.
+   *
+   * @param source A blocking channel providing RLP encoded items.
+   * @return A reader for the items provided by the channel.
+   * @see #streamingReader(ReadableByteChannel, boolean, int)
+   */
+  public static RLPReader streamingReader(ReadableByteChannel source) {
+    return streamingReader(source, false, DEFAULT_MAX_VALUE_LENGTH);
+  }
+
+  /**
+   * Create a reader that decodes a sequence of RLP items incrementally as they are read from a channel.
+   *
+   * <p>
+   * The reader reads a bounded amount of content ahead of the item being decoded. Lists are decoded as their content
+   * is read from the channel, and values or lists that are skipped are discarded without being held in memory. The
+   * reader is complete once the end of the channel has been reached.
+   *
+   * <p>
+   * Any {@link java.io.IOException} that occurs while reading from the channel is thrown as a
+   * {@link java.io.UncheckedIOException}.
+   *
+   * @param source A blocking channel providing RLP encoded items.
+   * @param lenient If {@code false}, an exception will be thrown if a value is not minimally encoded.
+   * @param maxValueLength The maximum length of any value, beyond which an {@link InvalidRLPEncodingException} is
+   *        thrown.
+   * @return A reader for the items provided by the channel.
+   */
+  public static RLPReader streamingReader(ReadableByteChannel source, boolean lenient, int maxValueLength) {
+    requireNonNull(source);
+    checkArgument(maxValueLength >= 0, "maxValueLength must not be negative");
+    return new ChannelRLPReader(source, lenient, maxValueLength);
+  }
+
+  /**
+   * Create a reader that decodes a sequence of RLP items incrementally as they are read from an input stream.
+   *
+   * @param source A stream providing RLP encoded items.
+   * @param lenient If {@code false}, an exception will be thrown if a value is not minimally encoded.
+   * @param maxValueLength The maximum length of any value, beyond which an {@link InvalidRLPEncodingException} is
+   *        thrown.
+   * @return A reader for the items provided by the stream.
+   * @see #streamingReader(ReadableByteChannel, boolean, int)
+   */
+  public static RLPReader streamingReader(InputStream source, boolean lenient, int maxValueLength) {
+    requireNonNull(source);
+    return streamingReader(Channels.newChannel(source), lenient, maxValueLength);
+  }
 }
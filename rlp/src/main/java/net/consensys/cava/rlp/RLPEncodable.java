@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.rlp;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which an RLP codec is generated at compile time.
+ *
+ * <p>
+ * When the annotation processor from {@code cava-codegen} is on the annotation processor path, a class named
+ * {@code <Type>RLPCodec} is generated in the same package. It has static {@code encode}, {@code decode},
+ * {@code writeTo} and {@code readFrom} methods that encode an instance as an RLP list of its properties.
+ *
+ * <p>
+ * The properties are the parameters of the constructor with the most parameters, or of the constructor whose
+ * parameters are named by {@link #value()}. Each property is read from a method with the same name, from a
+ * {@code get} or {@code is} getter, or from a field. The supported property types are {@code byte}, {@code int},
+ * {@code long}, {@code byte[]}, {@link String}, {@link java.math.BigInteger},
+ * {@code net.consensys.cava.units.bigints.UInt256}, {@code net.consensys.cava.bytes.Bytes} and its subtypes, types
+ * with a {@code toBytes()} method and a static {@code fromBytes(Bytes)} factory, other {@code RLPEncodable} types, and
+ * {@link java.util.List lists} of these. A property whose constructor parameter is annotated {@code @Nullable} is
+ * encoded as an empty value when it is {@code null}, and an empty value is decoded as {@code null}.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface RLPEncodable {
+
+  /**
+   * @return The names of the properties to encode, in the order they are encoded. If empty, the parameters of the
+   *         constructor are encoded in the order they are declared.
+   */
+  String[] value() default {};
+}
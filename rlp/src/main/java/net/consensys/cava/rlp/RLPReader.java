@@ -367,6 +367,43 @@ public interface RLPReader {
     });
   }
 
+  /**
+   * Read the next value or list in the RLP source, without decoding it.
+   *
+   * @return The complete RLP encoding of the next item, including its prefix.
+   * @throws InvalidRLPEncodingException If there is an error decoding the RLP source.
+   * @throws EndOfRLPException If there are no more RLP values to read.
+   */
+  default Bytes readRLP() {
+    return readRLP(isLenient());
+  }
+
+  /**
+   * Read the next value or list in the RLP source, without decoding it.
+   *
+   * <p>
+   * The default implementation reads the item and encodes it again, so an item that was not minimally encoded is
+   * returned in its minimal form. Implementations should override it to provide the original encoding without copying
+   * the item more than once.
+   *
+   * @param lenient If {@code false}, an exception will be thrown if the length of the item is not minimally encoded.
+   * @return The complete RLP encoding of the next item, including its prefix.
+   * @throws InvalidRLPEncodingException If there is an error decoding the RLP source.
+   * @throws EndOfRLPException If there are no more RLP values to read.
+   */
+  default Bytes readRLP(boolean lenient) {
+    if (!nextIsList()) {
+      return RLP.encodeValue(readValue(lenient));
+    }
+    return readList(lenient, reader -> {
+      List<Bytes> items = new ArrayList<>();
+      while (!reader.isComplete()) {
+        items.add(reader.readRLP(lenient));
+      }
+      return RLP.encodeList(writer -> items.forEach(writer::writeRLP));
+    });
+  }
+
   /**
    * Skip the next value or list in the RLP source.
    *
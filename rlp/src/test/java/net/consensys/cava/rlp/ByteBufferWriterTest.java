@@ -15,15 +15,18 @@ package net.consensys.cava.rlp;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static net.consensys.cava.bytes.Bytes.fromHexString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import net.consensys.cava.bytes.Bytes;
 import net.consensys.cava.units.bigints.UInt256;
 
 import java.math.BigInteger;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -159,4 +162,41 @@ class ByteBufferWriterTest {
     buffer.flip();
     assertEquals("abc", RLP.decodeString(Bytes.wrapByteBuffer(buffer)));
   }
+
+  @Test
+  void shouldNotWritePartialListsWhenBufferIsTooSmall() {
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    assertThrows(
+        BufferOverflowException.class,
+        () -> RLP.encodeListTo(buffer, writer -> writer.writeValue(Bytes.wrap(new byte[16]))));
+    assertEquals(0, buffer.position());
+  }
+
+  @Test
+  void shouldWriteLongNestedListsInPlace() {
+    Consumer<RLPWriter> fn = writer -> {
+      writer.writeString("first");
+      writer.writeList(nested -> {
+        nested.writeValue(Bytes.wrap(new byte[300]));
+        nested.writeList(inner -> inner.writeString("short"));
+      });
+      writer.writeValue(Bytes.wrap(new byte[70000]));
+    };
+    Bytes expected = RLP.encodeList(fn);
+    for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(80000), ByteBuffer.allocateDirect(80000))) {
+      buffer.put((byte) 1);
+      RLP.encodeListTo(buffer, fn);
+      buffer.flip();
+      assertEquals(Bytes.concatenate(Bytes.of(1), expected), Bytes.wrapByteBuffer(buffer));
+    }
+  }
+
+  @Test
+  void shouldNotWritePartialListsWhenLongHeaderDoesNotFit() {
+    ByteBuffer buffer = ByteBuffer.allocate(60);
+    assertThrows(
+        BufferOverflowException.class,
+        () -> RLP.encodeListTo(buffer, writer -> writer.writeValue(Bytes.wrap(new byte[57]))));
+    assertEquals(0, buffer.position());
+  }
 }
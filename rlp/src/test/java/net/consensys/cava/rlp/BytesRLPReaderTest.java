@@ -22,6 +22,7 @@ import net.consensys.cava.bytes.Bytes;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -219,4 +220,87 @@ class BytesRLPReaderTest {
     });
     assertEquals(expected, result);
   }
+
+  @Test
+  void shouldReadItemsWithoutDecoding() {
+    Bytes list = RLP.encodeList(writer -> {
+      writer.writeString("asdf");
+      writer.writeList(nested -> nested.writeInt(1024));
+    });
+    Bytes bytes = Bytes.concatenate(fromHexString("05"), RLP.encodeString("qwer"), list);
+    RLP.decode(bytes, reader -> {
+      assertEquals(fromHexString("05"), reader.readRLP());
+      assertEquals(RLP.encodeString("qwer"), reader.readRLP());
+      assertEquals(list, reader.readRLP());
+      assertTrue(reader.isComplete());
+      return null;
+    });
+  }
+
+  // a reader that only implements the abstract methods, delegating to another reader
+  private static final class DelegatingRLPReader implements RLPReader {
+    private final RLPReader delegate;
+
+    DelegatingRLPReader(RLPReader delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean isLenient() {
+      return delegate.isLenient();
+    }
+
+    @Override
+    public Bytes readValue(boolean lenient) {
+      return delegate.readValue(lenient);
+    }
+
+    @Override
+    public boolean nextIsList() {
+      return delegate.nextIsList();
+    }
+
+    @Override
+    public boolean nextIsEmpty() {
+      return delegate.nextIsEmpty();
+    }
+
+    @Override
+    public <T> T readList(boolean lenient, Function<RLPReader, T> fn) {
+      return delegate.readList(lenient, reader -> fn.apply(new DelegatingRLPReader(reader)));
+    }
+
+    @Override
+    public void skipNext(boolean lenient) {
+      delegate.skipNext(lenient);
+    }
+
+    @Override
+    public int remaining() {
+      return delegate.remaining();
+    }
+
+    @Override
+    public boolean isComplete() {
+      return delegate.isComplete();
+    }
+  }
+
+  @Test
+  void shouldReadItemsWithoutDecodingByDefault() {
+    Bytes list = RLP.encodeList(writer -> {
+      writer.writeString("asdf");
+      writer.writeValue(Bytes.EMPTY);
+      writer.writeList(nested -> nested.writeInt(1024));
+    });
+    Bytes bytes = Bytes.concatenate(fromHexString("05"), RLP.encodeString("qwer"), list);
+    RLP.decode(bytes, bytesReader -> {
+      RLPReader reader = new DelegatingRLPReader(bytesReader);
+      assertEquals(fromHexString("05"), reader.readRLP());
+      assertEquals(RLP.encodeString("qwer"), reader.readRLP());
+      assertEquals(list, reader.readRLP());
+      assertTrue(reader.isComplete());
+      return null;
+    });
+  }
 }
@@ -166,6 +166,31 @@ class BytesRLPWriterTest {
     }));
   }
 
+  @Test
+  void shouldWriteEmptyAndAdjacentLists() {
+    // the set theoretical representation of three
+    Bytes bytes = RLP.encodeList(writer -> {
+      writer.writeList(empty -> {});
+      writer.writeList(one -> one.writeList(empty -> {}));
+      writer.writeList(two -> {
+        two.writeList(empty -> {});
+        two.writeList(one -> one.writeList(empty -> {}));
+      });
+    });
+    assertEquals(fromHexString("c7c0c1c0c3c0c1c0"), bytes);
+  }
+
+  @Test
+  void shouldWriteLongNestedLists() {
+    Bytes value = Bytes.wrap(new byte[300]);
+    Bytes bytes = RLP.encodeList(writer -> {
+      writer.writeString("a");
+      writer.writeList(nested -> nested.writeValue(value));
+      writer.writeString("b");
+    });
+    assertEquals(Bytes.concatenate(fromHexString("f9013461f9012fb9012c"), value, fromHexString("62")), bytes);
+  }
+
   @Test
   void shouldWritePreviouslyEncodedValues() {
     Bytes output = RLP.encode(writer -> writer.writeRLP(RLP.encodeByteArray("abc".getBytes(UTF_8))));
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.rlp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import net.consensys.cava.bytes.Bytes;
+import net.consensys.cava.bytes.MutableBytes;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ChannelRLPReaderTest {
+
+  // a stream that provides at most 3 bytes per read, to exercise refilling of the lookahead buffer
+  private static InputStream trickle(Bytes bytes) {
+    return new ByteArrayInputStream(bytes.toArrayUnsafe()) {
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        return super.read(b, off, Math.min(len, 3));
+      }
+    };
+  }
+
+  private static RLPReader reader(Bytes bytes) {
+    return RLP.streamingReader(trickle(bytes), false, RLP.DEFAULT_MAX_VALUE_LENGTH);
+  }
+
+  @Test
+  void shouldReadSequenceOfItems() {
+    Bytes encoded = Bytes.concatenate(
+        RLP.encodeString("hello"),
+        RLP.encodeInt(1024),
+        RLP.encodeList(writer -> {
+          writer.writeString("a");
+          writer.writeList(nested -> nested.writeBigInteger(BigInteger.valueOf(Long.MAX_VALUE)));
+          writer.writeValue(Bytes.EMPTY);
+        }),
+        RLP.encodeByteArray(new byte[] {0x05}));
+    RLPReader reader = reader(encoded);
+    assertEquals("hello", reader.readString());
+    assertEquals(1024, reader.readInt());
+    assertTrue(reader.nextIsList());
+    reader.readList(list -> {
+      assertEquals("a", list.readString());
+      assertEquals(BigInteger.valueOf(Long.MAX_VALUE), list.readList(nested -> nested.readBigInteger()));
+      assertTrue(list.nextIsEmpty());
+      assertEquals(Bytes.EMPTY, list.readValue());
+      assertTrue(list.isComplete());
+      return null;
+    });
+    assertEquals(5, reader.readByte());
+    assertTrue(reader.isComplete());
+    assertThrows(EndOfRLPException.class, reader::readValue);
+  }
+
+  @Test
+  void shouldReadValuesLargerThanLookahead() {
+    MutableBytes large = MutableBytes.create(ChannelRLPReader.LOOKAHEAD_SIZE * 3);
+    large.set(large.size() - 1, (byte) 1);
+    Bytes encoded = RLP.encodeList(writer -> {
+      writer.writeValue(large);
+      writer.writeString("after");
+    });
+    List<Object> values = RLP.streamingReader(trickle(encoded), false, large.size()).readList((reader, list) -> {
+      list.add(reader.readValue());
+      list.add(reader.readString());
+    });
+    assertEquals(Arrays.asList(large, "after"), values);
+  }
+
+  @Test
+  void shouldSkipItemsWithoutReadingThem() {
+    Bytes large = Bytes.wrap(new byte[ChannelRLPReader.LOOKAHEAD_SIZE * 3]);
+    Bytes encoded = Bytes.concatenate(
+        RLP.encodeList(writer -> writer.writeValue(large)),
+        RLP.encodeValue(large),
+        RLP.encodeString("last"));
+    RLPReader reader = reader(encoded);
+    reader.skipNext();
+    reader.skipNext();
+    assertEquals("last", reader.readString());
+    assertTrue(reader.isComplete());
+  }
+
+  @Test
+  void shouldReadItemsWithoutDecoding() {
+    Bytes list = RLP.encodeList(writer -> {
+      writer.writeString("first");
+      writer.writeValue(Bytes.wrap(new byte[ChannelRLPReader.LOOKAHEAD_SIZE]));
+    });
+    RLPReader reader = reader(Bytes.concatenate(RLP.encodeString("before"), list, RLP.encodeString("after")));
+    assertEquals(RLP.encodeString("before"), reader.readRLP());
+    assertEquals(list, reader.readRLP());
+    assertEquals("after", reader.readString());
+    assertTrue(reader.isComplete());
+  }
+
+  @Test
+  void shouldDiscardUnreadListItems() {
+    Bytes encoded = Bytes.concatenate(RLP.encodeList(writer -> {
+      writer.writeString("first");
+      writer.writeString("second");
+      writer.writeString("third");
+    }), RLP.encodeString("next"));
+    RLPReader reader = reader(encoded);
+    assertEquals("first", reader.readList(list -> list.readString()));
+    assertEquals("next", reader.readString());
+  }
+
+  @Test
+  void shouldCountRemainingListItems() {
+    Bytes encoded = RLP.encodeList(writer -> {
+      writer.writeString("first");
+      writer.writeList(nested -> nested.writeInt(1));
+      writer.writeString("third");
+    });
+    int remaining = reader(encoded).readList(list -> {
+      list.skipNext();
+      return list.remaining();
+    });
+    assertEquals(2, remaining);
+  }
+
+  @Test
+  void shouldReadEncodingsOfBytesRLPReaderTests() {
+    Bytes encoded = Bytes.fromHexString(
+        "f784617364668471776572847a78637684617364668471776572847a78637684617364668471776572847a7863768461736466847177"
+            + "6572");
+    List<String> values = reader(encoded).readListContents(RLPReader::readString);
+    assertEquals(11, values.size());
+    assertEquals("asdf", values.get(0));
+    assertEquals("qwer", values.get(10));
+  }
+
+  @Test
+  void shouldRejectLengthsOverLimit() {
+    Bytes encoded = RLP.encodeValue(Bytes.wrap(new byte[100]));
+    RLPReader reader = RLP.streamingReader(trickle(encoded), false, 99);
+    InvalidRLPEncodingException exception = assertThrows(InvalidRLPEncodingException.class, reader::readValue);
+    assertEquals("RLP value length of 100 exceeds the maximum length of 99", exception.getMessage());
+  }
+
+  @Test
+  void shouldRejectTruncatedInput() {
+    Bytes encoded = RLP.encodeValue(Bytes.wrap(new byte[100]));
+    RLPReader reader = reader(encoded.slice(0, 50));
+    assertFalse(reader.isComplete());
+    assertThrows(InvalidRLPEncodingException.class, reader::readValue);
+  }
+
+  @Test
+  void shouldRejectListItemsExceedingListLength() {
+    // a list of length 2 containing a value of length 3
+    RLPReader reader = reader(Bytes.fromHexString("0xc283616263"));
+    assertThrows(InvalidRLPEncodingException.class, () -> reader.readList(list -> list.readValue()));
+  }
+}
@@ -23,6 +23,7 @@ import net.consensys.cava.units.bigints.UInt384;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.LongFunction;
 import java.util.function.Supplier;
@@ -178,6 +179,28 @@ final class BytesSSZReader implements SSZReader {
     return readList(1, this::readBoolean);
   }
 
+  @Override
+  public void readList(Consumer<SSZReader> fn) {
+    ensureBytes(4, () -> "SSZ encoded data is not a list");
+    long listSize = content.slice(index, 4).toLong(LITTLE_ENDIAN);
+    if (content.size() - index - 4 < listSize) {
+      throw new InvalidSSZTypeException("SSZ encoded data has insufficient bytes for decoded list length");
+    }
+    new BytesSSZReader(content.slice(index + 4, (int) listSize)).readElements(fn);
+    index += 4 + (int) listSize;
+  }
+
+  // invoke the function until all of the content has been read, ensuring each invocation makes progress
+  void readElements(Consumer<SSZReader> fn) {
+    while (!isComplete()) {
+      int elementIndex = index;
+      fn.accept(this);
+      if (index == elementIndex) {
+        throw new IllegalStateException("List element reader did not read any content");
+      }
+    }
+  }
+
   @Override
   public boolean isComplete() {
     return index >= content.size();
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.ssz;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+import net.consensys.cava.bytes.Bytes;
+import net.consensys.cava.units.bigints.UInt256;
+import net.consensys.cava.units.bigints.UInt384;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An {@link SSZReader} that decodes SSZ incrementally as it is read from a channel.
+ *
+ * <p>
+ * At most {@link #LOOKAHEAD_SIZE} bytes are read ahead of the current value. Each value is read from the channel in
+ * full and then decoded, so lists read with {@link #readList(Consumer)} are read one element at a time, whereas the
+ * other list methods read the entire list before decoding it. Values and lists that are read in full are rejected if
+ * their length prefix exceeds the maximum value length, and their content is buffered as it arrives rather than being
+ * allocated up front from the length prefix.
+ */
+final class ChannelSSZReader implements SSZReader {
+
+  static final int LOOKAHEAD_SIZE = 8192;
+
+  // the number of bytes remaining in an unbounded (top-level) reader
+  private static final long UNBOUNDED = -1;
+
+  private static final class Source {
+    private final ReadableByteChannel channel;
+    // buffered bytes, between position and limit
+    private final ByteBuffer buffer = ByteBuffer.allocate(LOOKAHEAD_SIZE);
+    private final int maxValueLength;
+
+    Source(ReadableByteChannel channel, int maxValueLength) {
+      this.channel = channel;
+      this.maxValueLength = maxValueLength;
+      buffer.order(LITTLE_ENDIAN);
+      buffer.flip();
+    }
+
+    // buffer at least n bytes (n <= LOOKAHEAD_SIZE), returning false if the end of the channel is reached first
+    boolean ensure(int n) {
+      if (buffer.remaining() >= n) {
+        return true;
+      }
+      buffer.compact();
+      try {
+        while (buffer.position() < n) {
+          if (channel.read(buffer) < 0) {
+            break;
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        buffer.flip();
+      }
+      return buffer.remaining() >= n;
+    }
+
+    // read exactly length bytes, which may be more than the lookahead, growing the result as content is received
+    Bytes read(int length, Supplier<String> message) {
+      if (length <= LOOKAHEAD_SIZE) {
+        if (!ensure(length)) {
+          throw new InvalidSSZTypeException(message.get());
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return Bytes.wrap(bytes);
+      }
+      ByteBuffer bytes = ByteBuffer.allocate(Math.min(length, 2 * LOOKAHEAD_SIZE));
+      bytes.put(buffer);
+      try {
+        // the capacity never exceeds length, so content beyond this value is not read from the channel
+        while (bytes.position() < length) {
+          if (!bytes.hasRemaining()) {
+            ByteBuffer grown = ByteBuffer.allocate((int) Math.min(length, 2L * bytes.capacity()));
+            bytes.flip();
+            grown.put(bytes);
+            bytes = grown;
+          }
+          if (channel.read(bytes) < 0) {
+            throw new InvalidSSZTypeException(message.get());
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return Bytes.wrap(bytes.array());
+    }
+  }
+
+  private final Source source;
+  private long remaining;
+
+  ChannelSSZReader(ReadableByteChannel channel, int maxValueLength) {
+    this(new Source(channel, maxValueLength), UNBOUNDED);
+  }
+
+  private ChannelSSZReader(Source source, long remaining) {
+    this.source = source;
+    this.remaining = remaining;
+  }
+
+  @Override
+  public Bytes readBytes(int limit) {
+    long size = peekLength(() -> "SSZ encoded data is not a byte array");
+    if (size > limit) {
+      throw new InvalidSSZTypeException("length of bytes would exceed limit");
+    }
+    checkMaxValueLength(size);
+    read(4, () -> "SSZ encoded data is not a byte array");
+    return read((int) size, () -> "SSZ encoded data has insufficient bytes for decoded byte array length");
+  }
+
+  @Override
+  public int readInt(int bitLength) {
+    checkArgument(bitLength % 8 == 0, "bitLength must be a multiple of 8");
+    return readFixed(bitLength / 8, "a " + bitLength + "-bit integer", reader -> reader.readInt(bitLength));
+  }
+
+  @Override
+  public long readLong(int bitLength) {
+    checkArgument(bitLength % 8 == 0, "bitLength must be a multiple of 8");
+    return readFixed(bitLength / 8, "a " + bitLength + "-bit integer", reader -> reader.readLong(bitLength));
+  }
+
+  @Override
+  public BigInteger readBigInteger(int bitLength) {
+    checkArgument(bitLength % 8 == 0, "bitLength must be a multiple of 8");
+    return readFixed(bitLength / 8, "a " + bitLength + "-bit integer", reader -> reader.readBigInteger(bitLength));
+  }
+
+  @Override
+  public BigInteger readUnsignedBigInteger(int bitLength) {
+    checkArgument(bitLength % 8 == 0, "bitLength must be a multiple of 8");
+    return readFixed(
+        bitLength / 8,
+        "a " + bitLength + "-bit integer",
+        reader -> reader.readUnsignedBigInteger(bitLength));
+  }
+
+  @Override
+  public UInt256 readUInt256() {
+    return readFixed(32, "a 256-bit integer", SSZReader::readUInt256);
+  }
+
+  @Override
+  public UInt384 readUInt384() {
+    return readFixed(48, "a 384-bit integer", SSZReader::readUInt384);
+  }
+
+  @Override
+  public Bytes readAddress() {
+    return readFixed(20, "a 20-byte address", SSZReader::readAddress);
+  }
+
+  @Override
+  public Bytes readHash(int hashLength) {
+    return readFixed(hashLength, "a " + hashLength + "-byte hash", reader -> reader.readHash(hashLength));
+  }
+
+  @Override
+  public List<Bytes> readBytesList(int limit) {
+    return readWholeList(reader -> reader.readBytesList(limit));
+  }
+
+  @Override
+  public List<String> readStringList(int limit) {
+    return readWholeList(reader -> reader.readStringList(limit));
+  }
+
+  @Override
+  public List<Integer> readIntList(int bitLength) {
+    return readWholeList(reader -> reader.readIntList(bitLength));
+  }
+
+  @Override
+  public List<Long> readLongIntList(int bitLength) {
+    return readWholeList(reader -> reader.readLongIntList(bitLength));
+  }
+
+  @Override
+  public List<BigInteger> readBigIntegerList(int bitLength) {
+    return readWholeList(reader -> reader.readBigIntegerList(bitLength));
+  }
+
+  @Override
+  public List<BigInteger> readUnsignedBigIntegerList(int bitLength) {
+    return readWholeList(reader -> reader.readUnsignedBigIntegerList(bitLength));
+  }
+
+  @Override
+  public List<UInt256> readUInt256List() {
+    return readWholeList(SSZReader::readUInt256List);
+  }
+
+  @Override
+  public List<Bytes> readAddressList() {
+    return readWholeList(SSZReader::readAddressList);
+  }
+
+  @Override
+  public List<Bytes> readHashList(int hashLength) {
+    return readWholeList(reader -> reader.readHashList(hashLength));
+  }
+
+  @Override
+  public List<Boolean> readBooleanList() {
+    return readWholeList(SSZReader::readBooleanList);
+  }
+
+  @Override
+  public void readList(Consumer<SSZReader> fn) {
+    long listSize = peekLength(() -> "SSZ encoded data is not a list");
+    if (remaining != UNBOUNDED && remaining - 4 < listSize) {
+      throw new InvalidSSZTypeException("SSZ encoded data has insufficient bytes for decoded list length");
+    }
+    read(4, () -> "SSZ encoded data is not a list");
+    ChannelSSZReader elements = new ChannelSSZReader(source, listSize);
+    while (elements.remaining > 0) {
+      long elementRemaining = elements.remaining;
+      fn.accept(elements);
+      if (elements.remaining == elementRemaining) {
+        throw new IllegalStateException("List element reader did not read any content");
+      }
+    }
+    consumed(listSize);
+  }
+
+  @Override
+  public boolean isComplete() {
+    if (remaining == UNBOUNDED) {
+      return !source.ensure(1);
+    }
+    return remaining == 0;
+  }
+
+  // read the unsigned 32-bit length prefix of the next value, without consuming it
+  private long peekLength(Supplier<String> message) {
+    if (isComplete()) {
+      throw new EndOfSSZException();
+    }
+    if ((remaining != UNBOUNDED && remaining < 4) || !source.ensure(4)) {
+      throw new InvalidSSZTypeException(message.get());
+    }
+    return Integer.toUnsignedLong(source.buffer.getInt(source.buffer.position()));
+  }
+
+  private Bytes read(int length, Supplier<String> message) {
+    if (isComplete()) {
+      throw new EndOfSSZException();
+    }
+    if (remaining != UNBOUNDED && remaining < length) {
+      throw new InvalidSSZTypeException(message.get());
+    }
+    Bytes bytes = source.read(length, message);
+    consumed(length);
+    return bytes;
+  }
+
+  private void checkMaxValueLength(long length) {
+    if (length > source.maxValueLength) {
+      throw new InvalidSSZTypeException(
+          "SSZ value length of " + length + " exceeds the maximum length of " + source.maxValueLength);
+    }
+  }
+
+  private void consumed(long length) {
+    if (remaining != UNBOUNDED) {
+      remaining -= length;
+    }
+  }
+
+  // read a fixed length value, and decode it using a reader over its bytes
+  private <T> T readFixed(int length, String description, Function<SSZReader, T> fn) {
+    Bytes bytes = read(length, () -> "SSZ encoded data has insufficient length to read " + description);
+    return fn.apply(new BytesSSZReader(bytes));
+  }
+
+  // read an entire list, including its length prefix, and decode it using a reader over its bytes
+  private <T> List<T> readWholeList(Function<SSZReader, List<T>> fn) {
+    long listSize = peekLength(() -> "SSZ encoded data is not a list");
+    checkMaxValueLength(listSize);
+    if (listSize > Integer.MAX_VALUE - 4) {
+      throw new InvalidSSZTypeException("SSZ encoded list is too large to be read in full");
+    }
+    Bytes bytes = read(4 + (int) listSize, () -> "SSZ encoded data has insufficient bytes for decoded list length");
+    return fn.apply(new BytesSSZReader(bytes));
+  }
+}
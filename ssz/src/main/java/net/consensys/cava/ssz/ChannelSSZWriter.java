@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.ssz;
+
+import net.consensys.cava.bytes.Bytes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An {@link SSZWriter} that writes to a channel through a bounded buffer.
+ *
+ * <p>
+ * Values smaller than the buffer are accumulated in it until it is full, and larger values are written directly to the
+ * channel.
+ */
+final class ChannelSSZWriter implements SSZWriter {
+
+  static final int BUFFER_SIZE = 8192;
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private long written = 0;
+
+  ChannelSSZWriter(WritableByteChannel channel) {
+    this.channel = channel;
+  }
+
+  @Override
+  public void writeSSZ(Bytes value) {
+    int size = value.size();
+    if (size > buffer.remaining()) {
+      flush();
+    }
+    if (size <= buffer.remaining()) {
+      for (ByteBuffer segment : value.asByteBuffers()) {
+        buffer.put(segment);
+      }
+    } else {
+      for (ByteBuffer segment : value.asByteBuffers()) {
+        writeFully(segment);
+      }
+    }
+    written += size;
+  }
+
+  @Override
+  public void writeSSZ(byte[] value) {
+    if (value.length > buffer.remaining()) {
+      flush();
+    }
+    if (value.length <= buffer.remaining()) {
+      buffer.put(value);
+    } else {
+      writeFully(ByteBuffer.wrap(value));
+    }
+    written += value.length;
+  }
+
+  /**
+   * Write any buffered content to the channel.
+   */
+  void flush() {
+    buffer.flip();
+    writeFully(buffer);
+    buffer.clear();
+  }
+
+  /**
+   * @return The total number of bytes written.
+   */
+  long written() {
+    return written;
+  }
+
+  private void writeFully(ByteBuffer bytes) {
+    try {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
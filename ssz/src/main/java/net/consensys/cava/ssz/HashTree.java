@@ -0,0 +1,279 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.ssz;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.util.Objects.requireNonNull;
+
+import net.consensys.cava.bytes.Bytes;
+import net.consensys.cava.bytes.Bytes32;
+import net.consensys.cava.crypto.Hash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * A list of homogeneous values, which maintains the SSZ hash tree of its values as they are updated.
+ *
+ * <p>
+ * The hashes of all subtrees are retained between calls to {@link #root()}. After values are set or added, only the
+ * hashes on the paths from the modified chunks to the root are recomputed, so the cost of updating the root after
+ * changing a single value is logarithmic in the size of the list. When many hashes of a level of the tree must be
+ * recomputed, they are hashed in parallel.
+ *
+ * <p>
+ * The root is identical to that computed by {@link SSZ#hashTreeRoot(Bytes...)} for the same list of values, when the
+ * list does not contain exactly one value (as {@link SSZ#hashTreeRoot(Bytes...)} treats a single value as a scalar).
+ *
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class HashTree {
+
+  // the size of a chunk, being the leaves of the tree
+  private static final int CHUNK_SIZE = 128;
+  private static final Bytes ZERO_CHUNK = Bytes.wrap(new byte[CHUNK_SIZE]);
+  // the minimum number of hashes in a level that will be computed in parallel
+  static final int PARALLEL_THRESHOLD = 1024;
+
+  /**
+   * Create an empty list.
+   *
+   * @param elementSize The size of each value in the list, in bytes.
+   * @return An empty list.
+   */
+  public static HashTree create(int elementSize) {
+    checkArgument(elementSize > 0, "elementSize must be positive");
+    return new HashTree(elementSize);
+  }
+
+  /**
+   * Create a list containing the provided values.
+   *
+   * @param elementSize The size of each value in the list, in bytes.
+   * @param values The values of the list.
+   * @return A list containing the values.
+   * @throws IllegalArgumentException If any value is not of size {@code elementSize}.
+   */
+  public static HashTree create(int elementSize, List<? extends Bytes> values) {
+    HashTree tree = create(elementSize);
+    tree.addAll(values);
+    return tree;
+  }
+
+  private final int elementSize;
+  private final int elementsPerChunk;
+  private final ArrayList<Bytes> elements = new ArrayList<>();
+  // the hashes of each level of the tree above the chunks, with levels.get(0) holding the hashes of pairs of chunks
+  private final List<Bytes32[]> levels = new ArrayList<>();
+  // the chunks modified since the root was last computed
+  private final BitSet dirtyChunks = new BitSet();
+  private Bytes32 root;
+
+  private HashTree(int elementSize) {
+    this.elementSize = elementSize;
+    this.elementsPerChunk = elementSize < CHUNK_SIZE ? CHUNK_SIZE / elementSize : 1;
+  }
+
+  /**
+   * @return The size of each value in the list, in bytes.
+   */
+  public int elementSize() {
+    return elementSize;
+  }
+
+  /**
+   * @return The number of values in the list.
+   */
+  public int size() {
+    return elements.size();
+  }
+
+  /**
+   * Get a value from the list.
+   *
+   * @param index The index of the value.
+   * @return The value.
+   * @throws IndexOutOfBoundsException If the index is not within the list.
+   */
+  public Bytes get(int index) {
+    return elements.get(index);
+  }
+
+  /**
+   * Replace a value in the list.
+   *
+   * @param index The index of the value.
+   * @param value The new value.
+   * @throws IndexOutOfBoundsException If the index is not within the list.
+   * @throws IllegalArgumentException If the value is not of size {@link #elementSize()}.
+   */
+  public void set(int index, Bytes value) {
+    checkElementIndex(index, elements.size());
+    checkValue(value);
+    elements.set(index, value);
+    modified(index);
+  }
+
+  /**
+   * Replace a sequence of values in the list, extending the list if the sequence reaches beyond its end.
+   *
+   * @param index The index of the first value to replace, which may be equal to the size of the list.
+   * @param values The new values.
+   * @throws IndexOutOfBoundsException If the index is greater than the size of the list.
+   * @throws IllegalArgumentException If any value is not of size {@link #elementSize()}.
+   */
+  public void setAll(int index, List<? extends Bytes> values) {
+    checkPositionIndex(index, elements.size());
+    for (Bytes value : values) {
+      checkValue(value);
+    }
+    int i = index;
+    for (Bytes value : values) {
+      if (i < elements.size()) {
+        elements.set(i, value);
+      } else {
+        elements.add(value);
+      }
+      modified(i++);
+    }
+  }
+
+  /**
+   * Add a value to the end of the list.
+   *
+   * @param value The value to add.
+   * @throws IllegalArgumentException If the value is not of size {@link #elementSize()}.
+   */
+  public void add(Bytes value) {
+    checkValue(value);
+    elements.add(value);
+    modified(elements.size() - 1);
+  }
+
+  /**
+   * Add values to the end of the list.
+   *
+   * @param values The values to add.
+   * @throws IllegalArgumentException If any value is not of size {@link #elementSize()}.
+   */
+  public void addAll(List<? extends Bytes> values) {
+    setAll(elements.size(), values);
+  }
+
+  /**
+   * Provide the hash tree root of the list, computing the hashes of any subtrees that have been modified.
+   *
+   * @return The hash tree root.
+   */
+  public Bytes32 root() {
+    if (root != null) {
+      return root;
+    }
+    int count = chunkCount();
+    Bytes top;
+    if (count == 1) {
+      top = chunk(0);
+    } else {
+      BitSet dirty = dirtyChunks;
+      int level = 0;
+      while (count > 1) {
+        int parentCount = (count + 1) / 2;
+        BitSet parents = new BitSet(parentCount);
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+          parents.set(i >>> 1);
+        }
+        hashLevel(level, count, parentCount, parents);
+        dirty = parents;
+        count = parentCount;
+        level++;
+      }
+      top = levels.get(level - 1)[0];
+    }
+    dirtyChunks.clear();
+
+    Bytes32 length = Bytes32.rightPad(Bytes.ofUnsignedInt(elements.size(), LITTLE_ENDIAN));
+    root = Hash.keccak256(Bytes.concatenate(top, length));
+    return root;
+  }
+
+  // compute the hashes of the modified nodes in the level above `level`, which has `count` nodes
+  private void hashLevel(int level, int count, int parentCount, BitSet parents) {
+    if (levels.size() == level) {
+      levels.add(new Bytes32[parentCount]);
+    } else if (levels.get(level).length < parentCount) {
+      Bytes32[] previous = levels.get(level);
+      // grow geometrically, to amortize the cost of appending to the list
+      levels.set(level, Arrays.copyOf(previous, Math.max(parentCount, previous.length * 2)));
+    }
+    Bytes32[] nodes = levels.get(level);
+
+    IntStream indices = parents.stream();
+    if (parents.cardinality() >= PARALLEL_THRESHOLD) {
+      // each hash is written to a distinct element of the array, and the stream completes before the array is read
+      indices = indices.parallel();
+    }
+    indices.forEach(i -> {
+      int left = i * 2;
+      Bytes right = (left + 1 < count) ? node(level, left + 1) : ZERO_CHUNK;
+      nodes[i] = Hash.keccak256(Bytes.concatenate(node(level, left), right));
+    });
+  }
+
+  // the node at `index` in a level of the tree, where level 0 is the chunks
+  private Bytes node(int level, int index) {
+    if (level == 0) {
+      return chunk(index);
+    }
+    return levels.get(level - 1)[index];
+  }
+
+  private int chunkCount() {
+    if (elements.isEmpty()) {
+      return 1;
+    }
+    return (elements.size() + elementsPerChunk - 1) / elementsPerChunk;
+  }
+
+  private Bytes chunk(int index) {
+    if (elements.isEmpty()) {
+      return ZERO_CHUNK;
+    }
+    if (elementsPerChunk == 1) {
+      return elements.get(index);
+    }
+    int start = index * elementsPerChunk;
+    int end = Math.min(start + elementsPerChunk, elements.size());
+    return Bytes.wrap(elements.subList(start, end).toArray(new Bytes[0]));
+  }
+
+  private void checkValue(Bytes value) {
+    requireNonNull(value);
+    checkArgument(
+        value.size() == elementSize,
+        "Value of size %s does not have the list element size %s",
+        value.size(),
+        elementSize);
+  }
+
+  private void modified(int index) {
+    dirtyChunks.set(index / elementsPerChunk);
+    root = null;
+  }
+}
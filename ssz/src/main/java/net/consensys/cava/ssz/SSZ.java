@@ -23,10 +23,15 @@ import net.consensys.cava.crypto.Hash;
 import net.consensys.cava.units.bigints.UInt256;
 import net.consensys.cava.units.bigints.UInt384;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ReadOnlyBufferException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -39,6 +44,11 @@ import java.util.function.Function;
  */
 public final class SSZ {
 
+  /**
+   * The default maximum length of a value that will be read in full by a streaming reader.
+   */
+  public static final int DEFAULT_MAX_VALUE_LENGTH = 16 * 1024 * 1024;
+
   private static final Bytes TRUE = Bytes.of((byte) 1);
   private static final Bytes FALSE = Bytes.of((byte) 0);
 
@@ -138,6 +148,44 @@ public final class SSZ {
     return buffer;
   }
 
+  /**
+   * Encode values to a channel.
+   *
+   * <p>
+   * Values are written to the channel through a bounded buffer as they are provided to the writer, so the encoding is
+   * never held in memory in full. Lists may be written one element at a time using
+   * {@link SSZWriter#writeList(long, Consumer)}.
+   *
+   * <p>
+   * Any {@link java.io.IOException} that occurs while writing to the channel is thrown as a
+   * {@link java.io.UncheckedIOException}.
+   *
+   * @param channel A blocking channel to write to.
+   * @param fn A consumer that will be provided with a {@link SSZWriter} that can consume values.
+   * @return The number of bytes written to the channel.
+   */
+  public static long encodeTo(WritableByteChannel channel, Consumer<SSZWriter> fn) {
+    requireNonNull(channel);
+    requireNonNull(fn);
+    ChannelSSZWriter writer = new ChannelSSZWriter(channel);
+    fn.accept(writer);
+    writer.flush();
+    return writer.written();
+  }
+
+  /**
+   * Encode values to an output stream.
+   *
+   * @param stream The stream to write to.
+   * @param fn A consumer that will be provided with a {@link SSZWriter} that can consume values.
+   * @return The number of bytes written to the stream.
+   * @see #encodeTo(WritableByteChannel, Consumer)
+   */
+  public static long encodeTo(OutputStream stream, Consumer<SSZWriter> fn) {
+    requireNonNull(stream);
+    return encodeTo(Channels.newChannel(stream), fn);
+  }
+
   /**
    * Encode {@link Bytes}.
    *
@@ -1057,6 +1105,68 @@ public final class SSZ {
     return fn.apply(new BytesSSZReader(source));
   }
 
+  /**
+   * Create a reader that decodes SSZ values incrementally as they are read from a channel.
+   *
+   * <p>
+   * Values and lists read in full with a length larger than {@link #DEFAULT_MAX_VALUE_LENGTH} are rejected.
+   *
+   * @param source A blocking channel providing SSZ encoded values.
+   * @return A reader for the values provided by the channel.
+   * @see #streamingReader(ReadableByteChannel, int)
+   */
+  public static SSZReader streamingReader(ReadableByteChannel source) {
+    return streamingReader(source, DEFAULT_MAX_VALUE_LENGTH);
+  }
+
+  /**
+   * Create a reader that decodes SSZ values incrementally as they are read from a channel.
+   *
+   * <p>
+   * The reader reads a bounded amount of content ahead of the value being decoded, and each value is read in full
+   * before it is decoded. Lists may be read one element at a time using {@link SSZReader#readList(Consumer)}, so that
+   * the entire list is not held in memory. The reader is complete once the end of the channel has been reached.
+   *
+   * <p>
+   * Any {@link java.io.IOException} that occurs while reading from the channel is thrown as a
+   * {@link java.io.UncheckedIOException}.
+   *
+   * @param source A blocking channel providing SSZ encoded values.
+   * @param maxValueLength The maximum length of any value or list that is read in full, beyond which an
+   *        {@link InvalidSSZTypeException} is thrown.
+   * @return A reader for the values provided by the channel.
+   */
+  public static SSZReader streamingReader(ReadableByteChannel source, int maxValueLength) {
+    requireNonNull(source);
+    checkArgument(maxValueLength >= 0, "maxValueLength must not be negative");
+    return new ChannelSSZReader(source, maxValueLength);
+  }
+
+  /**
+   * Create a reader that decodes SSZ values incrementally as they are read from an input stream.
+   *
+   * @param source A stream providing SSZ encoded values.
+   * @return A reader for the values provided by the stream.
+   * @see #streamingReader(ReadableByteChannel)
+   */
+  public static SSZReader streamingReader(InputStream source) {
+    return streamingReader(source, DEFAULT_MAX_VALUE_LENGTH);
+  }
+
+  /**
+   * Create a reader that decodes SSZ values incrementally as they are read from an input stream.
+   *
+   * @param source A stream providing SSZ encoded values.
+   * @param maxValueLength The maximum length of any value or list that is read in full, beyond which an
+   *        {@link InvalidSSZTypeException} is thrown.
+   * @return A reader for the values provided by the stream.
+   * @see #streamingReader(ReadableByteChannel, int)
+   */
+  public static SSZReader streamingReader(InputStream source, int maxValueLength) {
+    requireNonNull(source);
+    return streamingReader(Channels.newChannel(source), maxValueLength);
+  }
+
   /**
    * Read a SSZ encoded bytes from a {@link Bytes} value.
    *
@@ -20,6 +20,7 @@ import net.consensys.cava.units.bigints.UInt384;
 
 import java.math.BigInteger;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -602,6 +603,29 @@ public interface SSZReader {
    */
   List<Boolean> readBooleanList();
 
+  /**
+   * Read a list one element at a time.
+   *
+   * <p>
+   * The function is invoked repeatedly with a reader over the content of the list, until all of the content has been
+   * read. Each invocation should read a single element, and may consume it immediately, so that the elements of a
+   * large list are not all held in memory.
+   *
+   * <p>
+   * The default implementation reads the content of the list with {@link #readBytes()}, and then invokes the function
+   * with a reader over that content. Implementations should override this method when they can read the elements
+   * without reading all of the content first.
+   *
+   * @param fn A consumer that reads the next element of the list.
+   * @throws InvalidSSZTypeException If the next SSZ value is not a list, or there are insufficient encoded bytes for the
+   *         list.
+   * @throws EndOfSSZException If there are no more SSZ values to read.
+   * @throws IllegalStateException If an invocation of the function does not read any content.
+   */
+  default void readList(Consumer<SSZReader> fn) {
+    new BytesSSZReader(readBytes()).readElements(fn);
+  }
+
   /**
    * Check if all values have been read.
    *
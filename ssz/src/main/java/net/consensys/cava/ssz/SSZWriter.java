@@ -17,6 +17,7 @@ import net.consensys.cava.units.bigints.UInt256;
 
 import java.math.BigInteger;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A writer for encoding values to SSZ.
@@ -258,6 +259,30 @@ public interface SSZWriter {
     SSZ.encodeBytesListTo(elements, this::writeSSZ);
   }
 
+  /**
+   * Write a list whose encoded length is known in advance, with its elements written one at a time.
+   *
+   * <p>
+   * As the length of the list is written before its elements, the elements do not need to be held in memory while the
+   * list is written.
+   *
+   * @param byteLength The total length of the encoded elements, in bytes.
+   * @param fn A consumer that will be provided with a {@link SSZWriter} for the elements of the list.
+   * @throws IllegalArgumentException If the length is negative or too large for a list.
+   * @throws IllegalStateException If the consumer does not write exactly {@code byteLength} bytes.
+   */
+  default void writeList(long byteLength, Consumer<SSZWriter> fn) {
+    writeULong(byteLength, 32);
+    long[] written = new long[1];
+    fn.accept(value -> {
+      written[0] += value.size();
+      writeSSZ(value);
+    });
+    if (written[0] != byteLength) {
+      throw new IllegalStateException("Wrote " + written[0] + " bytes for a list of length " + byteLength);
+    }
+  }
+
   /**
    * Write a list of strings, which must be of the same length
    *
@@ -21,6 +21,7 @@ import net.consensys.cava.bytes.Bytes;
 import net.consensys.cava.bytes.Bytes48;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -194,4 +195,29 @@ class BytesSSZReaderTest {
     assertEquals(toWrite, SSZ.decodeBytesList(encoded));
 
   }
+
+  @Test
+  void shouldReadListElementByElement() {
+    List<String> values = new ArrayList<>();
+    SSZ.decode(SHORT_LIST, reader -> {
+      reader.readList(elements -> values.add(elements.readString()));
+      assertTrue(reader.isComplete());
+      return null;
+    });
+    assertEquals(11, values.size());
+    assertEquals("asdf", values.get(0));
+    assertEquals("qwer", values.get(10));
+  }
+
+  @Test
+  void shouldRejectListElementsExceedingListLength() {
+    // a list of length 6 containing a byte array of length 4
+    Bytes encoded = fromHexString("0x060000000400000061736466");
+    assertThrows(
+        InvalidSSZTypeException.class,
+        () -> SSZ.decode(encoded, reader -> {
+          reader.readList(SSZReader::readBytes);
+          return null;
+        }));
+  }
 }
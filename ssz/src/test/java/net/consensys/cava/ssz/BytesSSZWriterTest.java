@@ -426,4 +426,21 @@ class BytesSSZWriterTest {
     Bytes output = SSZ.encode(writer -> writer.writeSSZ(SSZ.encodeByteArray("abc".getBytes(UTF_8))));
     assertEquals("abc", SSZ.decodeString(output));
   }
+
+  @Test
+  void shouldWriteListElementByElement() {
+    Bytes encoded = SSZ.encode(writer -> writer.writeList(12, elements -> {
+      for (int i = 1; i <= 3; ++i) {
+        elements.writeInt32(i);
+      }
+    }));
+    assertEquals(SSZ.encodeIntList(32, 1, 2, 3), encoded);
+  }
+
+  @Test
+  void shouldRejectListOfIncorrectLength() {
+    assertThrows(
+        IllegalStateException.class,
+        () -> SSZ.encode(writer -> writer.writeList(8, elements -> elements.writeInt32(1))));
+  }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.ssz;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import net.consensys.cava.bytes.Bytes;
+import net.consensys.cava.bytes.Bytes32;
+import net.consensys.cava.units.bigints.UInt256;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ChannelSSZReaderTest {
+
+  // a stream that provides at most 3 bytes per read, to exercise refilling of the lookahead buffer
+  private static InputStream trickle(Bytes bytes) {
+    return new ByteArrayInputStream(bytes.toArrayUnsafe()) {
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        return super.read(b, off, Math.min(len, 3));
+      }
+    };
+  }
+
+  private static SSZReader reader(Bytes bytes) {
+    return SSZ.streamingReader(trickle(bytes));
+  }
+
+  @Test
+  void shouldReadSequenceOfValues() {
+    Bytes32 hash = Bytes32.random();
+    Bytes encoded = SSZ.encode(writer -> {
+      writer.writeString("hello");
+      writer.writeInt32(-1024);
+      writer.writeUInt64(Long.MAX_VALUE);
+      writer.writeBigInteger(BigInteger.valueOf(2).pow(100), 256);
+      writer.writeUInt256(UInt256.valueOf(42));
+      writer.writeBoolean(true);
+      writer.writeHash(hash);
+      writer.writeStringList("a", "bc");
+    });
+    SSZReader reader = reader(encoded);
+    assertEquals("hello", reader.readString());
+    assertEquals(-1024, reader.readInt32());
+    assertEquals(Long.MAX_VALUE, reader.readUInt64());
+    assertEquals(BigInteger.valueOf(2).pow(100), reader.readBigInteger(256));
+    assertEquals(UInt256.valueOf(42), reader.readUInt256());
+    assertTrue(reader.readBoolean());
+    assertEquals(hash, reader.readHash(32));
+    assertEquals(Arrays.asList("a", "bc"), reader.readStringList());
+    assertTrue(reader.isComplete());
+    assertThrows(EndOfSSZException.class, reader::readBytes);
+  }
+
+  @Test
+  void shouldReadValuesLargerThanLookahead() {
+    Bytes large = Bytes.random(ChannelSSZReader.LOOKAHEAD_SIZE * 3);
+    Bytes encoded = SSZ.encode(writer -> {
+      writer.writeBytes(large);
+      writer.writeString("after");
+    });
+    SSZReader reader = reader(encoded);
+    assertEquals(large, reader.readBytes());
+    assertEquals("after", reader.readString());
+    assertTrue(reader.isComplete());
+  }
+
+  @Test
+  void shouldReadListElementByElement() {
+    int count = ChannelSSZReader.LOOKAHEAD_SIZE;
+    Bytes encoded = SSZ.encode(writer -> {
+      writer.writeList(count * 8L, elements -> {
+        for (int i = 0; i < count; ++i) {
+          elements.writeInt64(i);
+        }
+      });
+      writer.writeString("after");
+    });
+    SSZReader reader = reader(encoded);
+    AtomicInteger next = new AtomicInteger();
+    reader.readList(elements -> assertEquals(next.getAndIncrement(), elements.readInt64()));
+    assertEquals(count, next.get());
+    assertEquals("after", reader.readString());
+    assertTrue(reader.isComplete());
+  }
+
+  @Test
+  void shouldRejectBytesOverLimit() {
+    SSZReader reader = reader(SSZ.encodeBytes(Bytes.random(100)));
+    assertThrows(InvalidSSZTypeException.class, () -> reader.readBytes(99));
+    assertEquals(100, reader.readBytes(100).size());
+  }
+
+  @Test
+  void shouldRejectTruncatedInput() {
+    Bytes encoded = SSZ.encodeBytes(Bytes.random(100));
+    SSZReader reader = reader(encoded.slice(0, 50));
+    assertThrows(InvalidSSZTypeException.class, reader::readBytes);
+  }
+
+  @Test
+  void shouldRejectListElementsExceedingListLength() {
+    // a list of length 6 containing a byte array of length 4
+    SSZReader reader = reader(Bytes.fromHexString("0x060000000400000061736466"));
+    assertThrows(InvalidSSZTypeException.class, () -> reader.readList(SSZReader::readBytes));
+  }
+
+  @Test
+  void shouldRejectValuesOverMaximumLength() {
+    Bytes encoded = SSZ.encode(writer -> {
+      writer.writeBytes(Bytes.random(100));
+      writer.writeStringList("a", "bc");
+    });
+    SSZReader reader = SSZ.streamingReader(trickle(encoded), 99);
+    assertThrows(InvalidSSZTypeException.class, reader::readBytes);
+
+    SSZReader listReader =
+        SSZ.streamingReader(trickle(SSZ.encodeBytesList(Bytes.random(50), Bytes.random(50))), 99);
+    assertThrows(InvalidSSZTypeException.class, listReader::readBytesList);
+  }
+
+  @Test
+  void shouldNotAllocateUntrustedLengthUpFront() {
+    // a length prefix of almost 2GB followed by only a few bytes of content
+    Bytes encoded =
+        Bytes.concatenate(Bytes.fromHexString("0xf0ffff7f"), Bytes.random(ChannelSSZReader.LOOKAHEAD_SIZE + 1));
+    SSZReader reader = SSZ.streamingReader(trickle(encoded), Integer.MAX_VALUE);
+    assertThrows(InvalidSSZTypeException.class, reader::readBytes);
+  }
+}
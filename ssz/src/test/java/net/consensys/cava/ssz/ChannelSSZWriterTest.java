@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.ssz;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import net.consensys.cava.bytes.Bytes;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ChannelSSZWriterTest {
+
+  // a channel that records the size of each write
+  private static final class RecordingChannel implements WritableByteChannel {
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private final List<Integer> writes = new ArrayList<>();
+
+    @Override
+    public int write(ByteBuffer src) {
+      int size = src.remaining();
+      byte[] bytes = new byte[size];
+      src.get(bytes);
+      content.write(bytes, 0, size);
+      writes.add(size);
+      return size;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  @Test
+  void shouldWriteSameEncodingAsBytesWriter() {
+    Bytes large = Bytes.random(ChannelSSZWriter.BUFFER_SIZE * 2);
+    RecordingChannel channel = new RecordingChannel();
+    long written = SSZ.encodeTo(channel, writer -> {
+      writer.writeString("hello");
+      writer.writeBytes(large);
+      writer.writeInt32(7);
+    });
+    Bytes expected = SSZ.encode(writer -> {
+      writer.writeString("hello");
+      writer.writeBytes(large);
+      writer.writeInt32(7);
+    });
+    assertEquals(expected.size(), written);
+    assertEquals(expected, Bytes.wrap(channel.content.toByteArray()));
+  }
+
+  @Test
+  void shouldBufferSmallValues() {
+    RecordingChannel channel = new RecordingChannel();
+    int count = ChannelSSZWriter.BUFFER_SIZE;
+    SSZ.encodeTo(channel, writer -> writer.writeList(count * 4L, elements -> {
+      for (int i = 0; i < count; ++i) {
+        elements.writeInt32(i);
+      }
+    }));
+    // the 4 + 4 * count bytes are written as 4 full buffers, followed by the remaining 4 bytes
+    assertEquals(Arrays.asList(count, count, count, count, 4), channel.writes);
+    List<Integer> values = SSZ.decodeIntList(Bytes.wrap(channel.content.toByteArray()), 32);
+    assertEquals(count, values.size());
+    assertEquals(count - 1, (int) values.get(count - 1));
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.consensys.cava.ssz;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import net.consensys.cava.bytes.Bytes;
+import net.consensys.cava.bytes.Bytes32;
+import net.consensys.cava.junit.BouncyCastleExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(BouncyCastleExtension.class)
+class HashTreeTest {
+
+  private static List<Bytes> values(int count, int size) {
+    List<Bytes> values = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      values.add(Bytes.random(size));
+    }
+    return values;
+  }
+
+  private static Bytes32 expectedRoot(List<Bytes> values) {
+    return Bytes32.wrap(SSZ.merkleHash(new ArrayList<>(values)));
+  }
+
+  @Test
+  void shouldMatchHashTreeRootOfList() {
+    List<Bytes> values = new ArrayList<>();
+    for (int i = 1; i <= 10; ++i) {
+      byte[] value = new byte[16];
+      Arrays.fill(value, (byte) i);
+      values.add(Bytes.wrap(value));
+    }
+    assertEquals(
+        Bytes.fromHexString("0x839D98509E2EFC53BD1DEA17403921A89856E275BBF4D56C600CC3F6730AAFFA"),
+        HashTree.create(16, values).root());
+  }
+
+  @Test
+  void shouldMatchHashTreeRootOfEmptyList() {
+    assertEquals(SSZ.hashTreeRoot(), HashTree.create(32).root());
+  }
+
+  @Test
+  void shouldUpdateRootAsValuesAreAdded() {
+    for (int size : new int[] {16, 32, 100, 128, 200}) {
+      HashTree tree = HashTree.create(size);
+      List<Bytes> values = new ArrayList<>();
+      for (int i = 0; i < 40; ++i) {
+        Bytes value = Bytes.random(size);
+        values.add(value);
+        tree.add(value);
+        assertEquals(expectedRoot(values), tree.root(), "size " + size + ", count " + values.size());
+      }
+    }
+  }
+
+  @Test
+  void shouldUpdateRootAsValuesAreSet() {
+    List<Bytes> values = values(100, 32);
+    HashTree tree = HashTree.create(32, values);
+    for (int i : new int[] {0, 99, 50, 63, 64}) {
+      Bytes value = Bytes.random(32);
+      values.set(i, value);
+      tree.set(i, value);
+      assertEquals(expectedRoot(values), tree.root());
+    }
+  }
+
+  @Test
+  void shouldApplyBatchedUpdates() {
+    List<Bytes> values = values(20, 48);
+    HashTree tree = HashTree.create(48, values);
+    tree.root();
+
+    List<Bytes> updates = values(10, 48);
+    tree.setAll(15, updates);
+    List<Bytes> expected = new ArrayList<>(values.subList(0, 15));
+    expected.addAll(updates);
+    assertEquals(25, tree.size());
+    assertEquals(updates.get(9), tree.get(24));
+    assertEquals(expectedRoot(expected), tree.root());
+  }
+
+  @Test
+  void shouldHashLargeUpdatesInParallel() {
+    List<Bytes> values = values(HashTree.PARALLEL_THRESHOLD * 4 + 1, 128);
+    HashTree tree = HashTree.create(128, values);
+    assertEquals(expectedRoot(values), tree.root());
+
+    List<Bytes> updates = values(HashTree.PARALLEL_THRESHOLD * 3, 128);
+    tree.setAll(1, updates);
+    for (int i = 0; i < updates.size(); ++i) {
+      values.set(i + 1, updates.get(i));
+    }
+    assertEquals(expectedRoot(values), tree.root());
+  }
+
+  @Test
+  void shouldRejectInvalidValues() {
+    HashTree tree = HashTree.create(32, values(2, 32));
+    assertThrows(IllegalArgumentException.class, () -> tree.add(Bytes.random(31)));
+    assertThrows(IndexOutOfBoundsException.class, () -> tree.set(2, Bytes32.ZERO));
+    assertThrows(IndexOutOfBoundsException.class, () -> tree.setAll(3, Collections.singletonList(Bytes32.ZERO)));
+    assertEquals(2, tree.size());
+  }
+}